@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.knx.internal.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.binding.knx.internal.handler.GroupAddressListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tuwien.auto.calimero.GroupAddress;
+
+/**
+ * Delivers received telegrams to the {@link GroupAddressListener}s which listen to their destination.
+ * <p>
+ * The listeners of a group address are looked up once and kept in an index, until a listener is registered or
+ * unregistered. Each listener receives its telegrams in the order of reception, one at a time. Different listeners
+ * receive their telegrams in parallel on the threads of the executor.
+ *
+ * @author Simon Kaufmann - Initial contribution
+ */
+@NonNullByDefault
+class GroupAddressDispatcher {
+
+    /** The number of telegrams delivered to a listener before its turn is given to the others */
+    static final int MAX_BATCH = 32;
+
+    private final Logger logger = LoggerFactory.getLogger(GroupAddressDispatcher.class);
+
+    private final Executor executor;
+    private final Map<GroupAddressListener, OrderedDelivery> deliveries = new LinkedHashMap<>();
+    private final Map<GroupAddress, List<OrderedDelivery>> index = new HashMap<>();
+
+    /**
+     * Delivers the telegrams of one listener in order.
+     */
+    private class OrderedDelivery implements Runnable {
+        private final GroupAddressListener listener;
+        private final Queue<Runnable> telegrams = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed = false;
+
+        OrderedDelivery(GroupAddressListener listener) {
+            this.listener = listener;
+        }
+
+        void deliver(Consumer<GroupAddressListener> action) {
+            telegrams.add(() -> action.accept(listener));
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_BATCH && !closed; i++) {
+                Runnable telegram = telegrams.poll();
+                if (telegram == null) {
+                    break;
+                }
+                try {
+                    telegram.run();
+                } catch (RuntimeException e) {
+                    logger.warn("Listener {} failed to process a telegram: {}", listener, e.getMessage(), e);
+                }
+            }
+            scheduled.set(false);
+            // Telegrams added after the last poll, or left over after a full batch
+            if (!closed && !telegrams.isEmpty() && scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        void close() {
+            closed = true;
+            telegrams.clear();
+        }
+    }
+
+    GroupAddressDispatcher(Executor executor) {
+        this.executor = executor;
+    }
+
+    synchronized boolean register(GroupAddressListener listener) {
+        if (deliveries.containsKey(listener)) {
+            return false;
+        }
+        deliveries.put(listener, new OrderedDelivery(listener));
+        index.clear();
+        return true;
+    }
+
+    synchronized boolean unregister(GroupAddressListener listener) {
+        OrderedDelivery delivery = deliveries.remove(listener);
+        if (delivery == null) {
+            return false;
+        }
+        delivery.close();
+        index.clear();
+        return true;
+    }
+
+    /**
+     * Deliver a telegram to every listener of its destination.
+     *
+     * @param destination the destination of the telegram
+     * @param action the notification of a listener
+     * @return the number of listeners of the destination
+     */
+    int dispatch(GroupAddress destination, Consumer<GroupAddressListener> action) {
+        List<OrderedDelivery> listeners = getListeners(destination);
+        for (OrderedDelivery delivery : listeners) {
+            delivery.deliver(action);
+        }
+        return listeners.size();
+    }
+
+    private synchronized List<OrderedDelivery> getListeners(GroupAddress destination) {
+        List<OrderedDelivery> listeners = index.get(destination);
+        if (listeners == null) {
+            listeners = new ArrayList<>();
+            for (OrderedDelivery delivery : deliveries.values()) {
+                if (delivery.listener.listensTo(destination)) {
+                    listeners.add(delivery);
+                }
+            }
+            listeners = listeners.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(listeners);
+            index.put(destination, listeners);
+        }
+        return listeners;
+    }
+
+    synchronized int getIndexSize() {
+        return index.size();
+    }
+}
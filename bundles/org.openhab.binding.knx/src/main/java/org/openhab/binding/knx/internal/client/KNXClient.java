@@ -77,11 +77,13 @@ public interface KNXClient {
     boolean unregisterGroupAddressListener(GroupAddressListener listener);
 
     /**
-     * Schedule the given data point for asynchronous reading.
+     * Schedule the given data point for asynchronous reading. Data points with a higher priority are read first. A
+     * data point which is already scheduled is not scheduled again.
      *
      * @param datapoint the datapoint
+     * @param priority the priority
      */
-    void readDatapoint(Datapoint datapoint);
+    void readDatapoint(Datapoint datapoint, ReadDatapoint.Priority priority);
 
     /**
      * Write a command to the KNX bus.
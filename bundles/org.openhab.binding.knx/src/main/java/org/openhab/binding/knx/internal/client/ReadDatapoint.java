@@ -21,20 +21,56 @@ import tuwien.auto.calimero.datapoint.Datapoint;
  */
 public class ReadDatapoint {
 
+    /**
+     * The order in which queued data points are read.
+     */
+    public enum Priority {
+        /** Explicitly requested, e.g. by a REFRESH command */
+        REFRESH,
+        /** Read on startup or by the read interval of a thing */
+        SCHEDULED
+    }
+
     private final Datapoint datapoint;
     private int retries;
     private final int limit;
+    private Priority priority;
+    private long queuedNanos;
 
     public ReadDatapoint(Datapoint datapoint, int limit) {
+        this(datapoint, limit, Priority.SCHEDULED);
+    }
+
+    public ReadDatapoint(Datapoint datapoint, int limit, Priority priority) {
         this.datapoint = datapoint;
         this.retries = 0;
         this.limit = limit;
+        this.priority = priority;
     }
 
     public Datapoint getDatapoint() {
         return datapoint;
     }
 
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} when the data point was (re-)queued
+     */
+    public long getQueuedNanos() {
+        return queuedNanos;
+    }
+
+    public void setQueuedNanos(long queuedNanos) {
+        this.queuedNanos = queuedNanos;
+    }
+
     public int getRetries() {
         return retries;
     }
@@ -0,0 +1,331 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.knx.internal.client;
+
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.knx.internal.client.ReadDatapoint.Priority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.datapoint.Datapoint;
+
+/**
+ * Decides which data point is read from the KNX bus next, and when.
+ * <p>
+ * Queued data points are indexed by their group address, so a data point is queued only once. Data points with
+ * {@link Priority#REFRESH} are read before the others. Read requests don't wait for the response of the device: A read
+ * is in flight until its response is received or the response timeout elapses, and is retried afterwards.
+ * <p>
+ * The pause between two read requests starts at the configured reading pause. It is shortened while the bus
+ * confirms the requests and doubled for each request that is not confirmed. Additionally, no read request is sent
+ * while the bus load of the last second is above {@link #MAX_BUS_TELEGRAMS_PER_SECOND}.
+ *
+ * @author Simon Kaufmann - Initial contribution
+ */
+@NonNullByDefault
+class ReadScheduler {
+
+    /** The longest pause between two read requests, while the bus doesn't confirm them */
+    static final long MAX_READING_PAUSE_MS = 2000;
+
+    /** A TP1 line carries about 50 telegrams per second, reads keep the load at about half of it */
+    static final int MAX_BUS_TELEGRAMS_PER_SECOND = 25;
+
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Logger logger = LoggerFactory.getLogger(ReadScheduler.class);
+
+    private static class InFlightRead {
+        final ReadDatapoint datapoint;
+        final long sentNanos;
+
+        InFlightRead(ReadDatapoint datapoint, long sentNanos) {
+            this.datapoint = datapoint;
+            this.sentNanos = sentNanos;
+        }
+    }
+
+    private final int readRetriesLimit;
+    private final long minPauseNanos;
+    private final long maxPauseNanos;
+    private final LongSupplier nanoTime;
+
+    private final Map<Priority, LinkedHashMap<GroupAddress, ReadDatapoint>> queues = new EnumMap<>(Priority.class);
+    private final LinkedHashMap<GroupAddress, InFlightRead> inFlight = new LinkedHashMap<>();
+
+    private long pauseNanos;
+    private long nextReadNanos;
+
+    private long windowStartNanos;
+    private int windowTelegrams;
+    private int previousWindowTelegrams;
+
+    private long reads;
+    private long confirmations;
+    private long responses;
+    private long timeouts;
+    private long throttled;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    ReadScheduler(int readingPause, int readRetriesLimit) {
+        this(readingPause, readRetriesLimit, System::nanoTime);
+    }
+
+    ReadScheduler(int readingPause, int readRetriesLimit, LongSupplier nanoTime) {
+        this.readRetriesLimit = readRetriesLimit;
+        this.minPauseNanos = TimeUnit.MILLISECONDS.toNanos(readingPause);
+        this.maxPauseNanos = Math.max(minPauseNanos, TimeUnit.MILLISECONDS.toNanos(MAX_READING_PAUSE_MS));
+        this.nanoTime = nanoTime;
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new LinkedHashMap<>());
+        }
+        pauseNanos = minPauseNanos;
+        windowStartNanos = nanoTime.getAsLong();
+        nextReadNanos = windowStartNanos;
+    }
+
+    /**
+     * Queue a data point for reading. A data point which is already queued with a lower priority is moved to the
+     * given priority.
+     *
+     * @param datapoint the data point
+     * @param priority the priority
+     * @return true if the data point was neither queued nor in flight before
+     */
+    synchronized boolean add(Datapoint datapoint, Priority priority) {
+        GroupAddress address = datapoint.getMainAddress();
+        if (inFlight.containsKey(address)) {
+            return false;
+        }
+        for (LinkedHashMap<GroupAddress, ReadDatapoint> queue : queues.values()) {
+            ReadDatapoint queued = queue.get(address);
+            if (queued != null) {
+                if (queued.getPriority().compareTo(priority) > 0) {
+                    queue.remove(address);
+                    queued.setPriority(priority);
+                    queues.get(priority).put(address, queued);
+                }
+                return false;
+            }
+        }
+        ReadDatapoint read = new ReadDatapoint(datapoint, readRetriesLimit, priority);
+        read.setQueuedNanos(nanoTime.getAsLong());
+        queues.get(priority).put(address, read);
+        return true;
+    }
+
+    /**
+     * Take the next data point to read, if the pacing and the bus load allow to send a read request now.
+     *
+     * @return the data point, which is in flight afterwards, or null
+     */
+    synchronized @Nullable ReadDatapoint next() {
+        long now = nanoTime.getAsLong();
+        if (now - nextReadNanos < 0 || getQueueLength() == 0) {
+            return null;
+        }
+        if (getBusLoad(now) >= MAX_BUS_TELEGRAMS_PER_SECOND) {
+            throttled++;
+            return null;
+        }
+        ReadDatapoint read = poll();
+        if (read == null) {
+            return null;
+        }
+        read.incrementRetries();
+        inFlight.put(read.getDatapoint().getMainAddress(), new InFlightRead(read, now));
+        windowTelegrams++;
+        reads++;
+        long waitNanos = now - read.getQueuedNanos();
+        totalWaitNanos += waitNanos;
+        maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        // Ticks which come late don't delay the following reads, but don't allow a burst either
+        nextReadNanos = Math.max(nextReadNanos, now - pauseNanos) + pauseNanos;
+
+        if (getQueueLength() == 0) {
+            logger.debug("Read queue drained: {}", this);
+        }
+        return read;
+    }
+
+    private @Nullable ReadDatapoint poll() {
+        for (LinkedHashMap<GroupAddress, ReadDatapoint> queue : queues.values()) {
+            Iterator<ReadDatapoint> iterator = queue.values().iterator();
+            if (iterator.hasNext()) {
+                ReadDatapoint read = iterator.next();
+                iterator.remove();
+                return read;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The bus confirmed the read request of the data point.
+     */
+    synchronized void confirmed(ReadDatapoint datapoint) {
+        confirmations++;
+        pauseNanos = Math.max(minPauseNanos, pauseNanos * 3 / 4);
+    }
+
+    /**
+     * The read request of the data point could not be sent.
+     *
+     * @return true if the data point is queued again for a retry
+     */
+    synchronized boolean failed(ReadDatapoint datapoint) {
+        inFlight.remove(datapoint.getDatapoint().getMainAddress());
+        pauseNanos = Math.min(maxPauseNanos, Math.max(pauseNanos * 2, TimeUnit.MILLISECONDS.toNanos(1)));
+        return retry(datapoint);
+    }
+
+    /**
+     * A group read response for the address was received.
+     */
+    synchronized void responded(GroupAddress address) {
+        if (inFlight.remove(address) != null) {
+            responses++;
+        }
+    }
+
+    /**
+     * A telegram was received from the bus.
+     */
+    synchronized void telegramSeen() {
+        getBusLoad(nanoTime.getAsLong());
+        windowTelegrams++;
+    }
+
+    /**
+     * Retry or give up the reads in flight which got no response within the timeout.
+     *
+     * @param timeoutNanos the response timeout
+     */
+    synchronized void expire(long timeoutNanos) {
+        long now = nanoTime.getAsLong();
+        // The reads are ordered by the time they were sent
+        Iterator<InFlightRead> iterator = inFlight.values().iterator();
+        while (iterator.hasNext()) {
+            InFlightRead read = iterator.next();
+            if (now - read.sentNanos < timeoutNanos) {
+                break;
+            }
+            iterator.remove();
+            timeouts++;
+            GroupAddress address = read.datapoint.getDatapoint().getMainAddress();
+            if (retry(read.datapoint)) {
+                logger.debug("No response when reading datapoint {}. Going to retry.", address);
+            } else {
+                logger.warn("Giving up reading datapoint {}, the number of maximum retries ({}) is reached.",
+                        address, read.datapoint.getLimit());
+            }
+        }
+    }
+
+    private boolean retry(ReadDatapoint datapoint) {
+        if (datapoint.getRetries() >= datapoint.getLimit()) {
+            return false;
+        }
+        GroupAddress address = datapoint.getDatapoint().getMainAddress();
+        for (LinkedHashMap<GroupAddress, ReadDatapoint> queue : queues.values()) {
+            if (queue.containsKey(address)) {
+                // queued again in the meantime
+                return true;
+            }
+        }
+        datapoint.setQueuedNanos(nanoTime.getAsLong());
+        queues.get(datapoint.getPriority()).put(address, datapoint);
+        return true;
+    }
+
+    /**
+     * Remove all queued data points and reads in flight, e.g. when the connection is lost.
+     */
+    synchronized void clear() {
+        queues.values().forEach(Map::clear);
+        inFlight.clear();
+        pauseNanos = minPauseNanos;
+    }
+
+    /**
+     * Estimates the number of telegrams of the last second, from the telegrams of the current and the last full
+     * second.
+     */
+    private int getBusLoad(long now) {
+        long elapsed = now - windowStartNanos;
+        if (elapsed >= SECOND_NANOS) {
+            previousWindowTelegrams = elapsed < 2 * SECOND_NANOS ? windowTelegrams : 0;
+            windowTelegrams = 0;
+            windowStartNanos += elapsed / SECOND_NANOS * SECOND_NANOS;
+            elapsed = now - windowStartNanos;
+        }
+        return (int) (previousWindowTelegrams * (SECOND_NANOS - elapsed) / SECOND_NANOS) + windowTelegrams;
+    }
+
+    synchronized int getQueueLength() {
+        int length = 0;
+        for (LinkedHashMap<GroupAddress, ReadDatapoint> queue : queues.values()) {
+            length += queue.size();
+        }
+        return length;
+    }
+
+    synchronized int getQueueLength(Priority priority) {
+        return queues.get(priority).size();
+    }
+
+    synchronized int getInFlight() {
+        return inFlight.size();
+    }
+
+    synchronized long getPauseMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pauseNanos);
+    }
+
+    synchronized long getReads() {
+        return reads;
+    }
+
+    synchronized long getTimeouts() {
+        return timeouts;
+    }
+
+    /**
+     * @return how long the data points read so far waited in the queue on average, in milliseconds
+     */
+    synchronized long getAverageWaitMillis() {
+        return reads == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / reads);
+    }
+
+    synchronized long getMaxWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "reads=" + reads + ", confirmed=" + confirmations + ", responses=" + responses + ", timeouts="
+                + timeouts + ", throttled=" + throttled + ", queued=" + getQueueLength() + ", inFlight="
+                + inFlight.size() + ", pause=" + getPauseMillis() + "ms, averageWait=" + getAverageWaitMillis()
+                + "ms, maxWait=" + getMaxWaitMillis() + "ms";
+    }
+}
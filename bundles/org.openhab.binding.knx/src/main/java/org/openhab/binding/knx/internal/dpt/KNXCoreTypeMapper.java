@@ -15,15 +15,25 @@ package org.openhab.binding.knx.internal.dpt;
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.TextStyle;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
 import java.util.Arrays;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.eclipse.smarthome.core.library.types.DateTimeType;
 import org.eclipse.smarthome.core.library.types.DecimalType;
@@ -92,8 +102,17 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 
     private final Logger logger = LoggerFactory.getLogger(KNXCoreTypeMapper.class);
 
-    private static final String TIME_DAY_FORMAT = new String("EEE, HH:mm:ss");
-    private static final String DATE_FORMAT = new String("yyyy-MM-dd");
+    private static final String NO_DAY = "no-day";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd", Locale.US);
+    private static final DateTimeFormatter TIME_DAY_FORMATTER = DateTimeFormatter.ofPattern("EEE, HH:mm:ss",
+            Locale.US);
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss",
+            Locale.US);
+    /** KNX times without date are mapped to the first week of 1970, like the former SimpleDateFormat parsing */
+    private static final LocalDate NO_DATE = LocalDate.of(1970, 1, 1);
+
+    /** The maximum number of idle translators kept per datapoint type */
+    static final int MAX_POOLED_TRANSLATORS = 4;
 
     /**
      * stores the openHAB type class for (supported) KNX datapoint types in a generic way.
@@ -107,6 +126,31 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
     /** stores the default KNX DPT to use for each openHAB type */
     private final Map<Class<? extends Type>, String> defaultDptMap;
 
+    /** stores the parsed datapoint type ids with all lookups that only depend on the id */
+    private final Map<String, DptInfo> dptInfoMap = new ConcurrentHashMap<>();
+
+    /** stores idle translators per datapoint type id, so that they can be reused for the next telegram */
+    private final Map<String, Queue<DPTXlator>> translatorPool = new ConcurrentHashMap<>();
+
+    /**
+     * A datapoint type id, like "5.001", and everything that can be derived from the id alone.
+     */
+    private static class DptInfo {
+        final int mainNumber;
+        final int subNumber;
+        /** the calimero datapoint type or null, if there is no translator for the id */
+        final DPT dpt;
+        /** the openHAB type class or null, if the id is not supported */
+        final Class<? extends Type> typeClass;
+
+        DptInfo(int mainNumber, int subNumber, DPT dpt, Class<? extends Type> typeClass) {
+            this.mainNumber = mainNumber;
+            this.subNumber = subNumber;
+            this.dpt = dpt;
+            this.typeClass = typeClass;
+        }
+    }
+
     public KNXCoreTypeMapper() {
 
         @SuppressWarnings("unused")
@@ -574,22 +618,20 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
     @Override
     public String toDPTValue(Type type, String dptID) {
 
-        DPT dpt;
-        int mainNumber = getMainNumber(dptID);
+        DptInfo dptInfo = getDptInfo(dptID);
+        int mainNumber = dptInfo.mainNumber;
         if (mainNumber == -1) {
             logger.error("toDPTValue couldn't identify mainnumber in dptID: {}", dptID);
             return null;
         }
-        int subNumber = getSubNumber(dptID);
+        int subNumber = dptInfo.subNumber;
         if (subNumber == -1) {
             logger.debug("toType: couldn't identify sub number in dptID: {}.", dptID);
             return null;
         }
 
-        try {
-            DPTXlator translator = TranslatorTypes.createTranslator(mainNumber, dptID);
-            dpt = translator.getType();
-        } catch (KNXException e) {
+        DPT dpt = dptInfo.dpt;
+        if (dpt == null) {
             return null;
         }
 
@@ -674,20 +716,22 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
 
     @Override
     public Type toType(Datapoint datapoint, byte[] data) {
+        DPTXlator translator = null;
         try {
-            DPTXlator translator = TranslatorTypes.createTranslator(datapoint.getMainNumber(), datapoint.getDPT());
+            translator = borrowTranslator(datapoint.getMainNumber(), datapoint.getDPT());
             translator.setData(data);
             String value = translator.getValue();
 
             String id = translator.getType().getID();
             logger.trace("toType datapoint DPT = {}", datapoint.getDPT());
 
-            int mainNumber = getMainNumber(id);
+            DptInfo dptInfo = getDptInfo(id);
+            int mainNumber = dptInfo.mainNumber;
             if (mainNumber == -1) {
                 logger.debug("toType: couldn't identify mainnumber in dptID: {}.", id);
                 return null;
             }
-            int subNumber = getSubNumber(id);
+            int subNumber = dptInfo.subNumber;
             if (subNumber == -1) {
                 logger.debug("toType: couldn't identify sub number in dptID: {}.", id);
                 return null;
@@ -788,34 +832,22 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
                         return null;
                     }
 
-                    Calendar cal = Calendar.getInstance();
-                    if (translatorDateTime.isValidField(DPTXlatorDateTime.YEAR)
-                            && !translatorDateTime.isValidField(DPTXlatorDateTime.TIME)) {
-                        // Pure date format, no time information
-                        cal.setTimeInMillis(translatorDateTime.getValueMilliseconds());
-                        value = new SimpleDateFormat(DateTimeType.DATE_PATTERN).format(cal.getTime());
-                        return DateTimeType.valueOf(value);
-                    } else if (!translatorDateTime.isValidField(DPTXlatorDateTime.YEAR)
-                            && translatorDateTime.isValidField(DPTXlatorDateTime.TIME)) {
+                    if (translatorDateTime.isValidField(DPTXlatorDateTime.YEAR)) {
+                        // Date format with or without time information
+                        return new DateTimeType(Instant.ofEpochMilli(translatorDateTime.getValueMilliseconds())
+                                .atZone(ZoneId.systemDefault()).truncatedTo(ChronoUnit.SECONDS));
+                    } else if (translatorDateTime.isValidField(DPTXlatorDateTime.TIME)) {
                         // Pure time format, no date information
-                        cal.clear();
-                        cal.set(Calendar.HOUR_OF_DAY, translatorDateTime.getHour());
-                        cal.set(Calendar.MINUTE, translatorDateTime.getMinute());
-                        cal.set(Calendar.SECOND, translatorDateTime.getSecond());
-                        value = new SimpleDateFormat(DateTimeType.DATE_PATTERN).format(cal.getTime());
-                        return DateTimeType.valueOf(value);
-                    } else if (translatorDateTime.isValidField(DPTXlatorDateTime.YEAR)
-                            && translatorDateTime.isValidField(DPTXlatorDateTime.TIME)) {
-                        // Date format and time information
-                        cal.setTimeInMillis(translatorDateTime.getValueMilliseconds());
-                        value = new SimpleDateFormat(DateTimeType.DATE_PATTERN).format(cal.getTime());
-                        return DateTimeType.valueOf(value);
+                        return new DateTimeType(ZonedDateTime.of(NO_DATE, LocalTime.of(translatorDateTime.getHour(),
+                                translatorDateTime.getMinute(), translatorDateTime.getSecond()),
+                                ZoneId.systemDefault()));
                     }
                     break;
             }
 
-            Class<? extends Type> typeClass = toTypeClass(id);
+            Class<? extends Type> typeClass = dptInfo.typeClass;
             if (typeClass == null) {
+                logger.debug("Couldn't convert KNX datapoint type id into openHAB type class for dptId: {}.", id);
                 return null;
             }
 
@@ -830,20 +862,22 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
             }
 
             if (typeClass.equals(DateTimeType.class)) {
-                String date = formatDateTime(value, datapoint.getDPT());
-                if ((date == null) || (date.isEmpty())) {
-                    logger.debug("toType: KNX clock msg ignored: date object null or empty {}.", date);
+                DateTimeType date = parseDateTime(value, datapoint.getDPT());
+                if (date == null) {
+                    logger.debug("toType: KNX clock msg ignored: date object null or empty {}.", value);
                     return null;
                 } else {
-                    return DateTimeType.valueOf(date);
+                    return date;
                 }
             }
 
             if (typeClass.equals(HSBType.class)) {
                 // value has format of "r:<red value> g:<green value> b:<blue value>"
-                int r = Integer.parseInt(value.split(" ")[0].split(":")[1]);
-                int g = Integer.parseInt(value.split(" ")[1].split(":")[1]);
-                int b = Integer.parseInt(value.split(" ")[2].split(":")[1]);
+                int green = value.indexOf(' ');
+                int blue = value.indexOf(' ', green + 1);
+                int r = parseColorComponent(value, 0, green);
+                int g = parseColorComponent(value, green + 1, blue);
+                int b = parseColorComponent(value, blue + 1, value.length());
 
                 return HSBType.fromRGB(r, g, b);
             }
@@ -856,11 +890,81 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
                     datapoint.getDPT());
         } catch (KNXException e) {
             logger.warn("Failed creating a translator for datapoint type '{}'.", datapoint.getDPT(), e);
+        } finally {
+            if (translator != null) {
+                releaseTranslator(datapoint.getDPT(), translator);
+            }
         }
 
         return null;
     }
 
+    /**
+     * Returns an idle translator for the given datapoint type or creates a new one. A translator holds the data of
+     * a single telegram and must therefore not be used by two threads at the same time.
+     *
+     * @param mainNumber the main number of the datapoint type
+     * @param dptID the datapoint type id
+     * @return a translator, to be released by {@link #releaseTranslator(String, DPTXlator)}
+     * @throws KNXException if no translator is available for the datapoint type
+     */
+    private DPTXlator borrowTranslator(int mainNumber, String dptID) throws KNXException {
+        if (dptID != null) {
+            Queue<DPTXlator> pool = translatorPool.get(dptID);
+            DPTXlator translator = pool != null ? pool.poll() : null;
+            if (translator != null) {
+                return translator;
+            }
+        }
+        return TranslatorTypes.createTranslator(mainNumber, dptID);
+    }
+
+    private void releaseTranslator(String dptID, DPTXlator translator) {
+        if (dptID == null) {
+            return;
+        }
+        Queue<DPTXlator> pool = translatorPool.computeIfAbsent(dptID, id -> new ConcurrentLinkedQueue<>());
+        // The size is only an estimate under concurrent access, which is good enough as a bound
+        if (pool.size() < MAX_POOLED_TRANSLATORS) {
+            pool.offer(translator);
+        }
+    }
+
+    private DptInfo getDptInfo(String dptID) {
+        if (dptID == null) {
+            throw new IllegalArgumentException("Parameter dptID cannot be null");
+        }
+        DptInfo dptInfo = dptInfoMap.get(dptID);
+        if (dptInfo == null) {
+            dptInfo = createDptInfo(dptID);
+            dptInfoMap.put(dptID, dptInfo);
+        }
+        return dptInfo;
+    }
+
+    private DptInfo createDptInfo(String dptID) {
+        int mainNumber = getMainNumber(dptID);
+        int subNumber = getSubNumber(dptID);
+
+        DPT dpt = null;
+        Class<? extends Type> typeClass = dptTypeMap.get(dptID);
+        if (mainNumber != -1) {
+            try {
+                dpt = TranslatorTypes.createTranslator(mainNumber, dptID).getType();
+            } catch (KNXException e) {
+                logger.debug("No translator for datapoint type '{}'.", dptID);
+            }
+            if (typeClass == null) {
+                typeClass = dptMainTypeMap.get(mainNumber);
+            }
+        }
+        return new DptInfo(mainNumber, subNumber, dpt, typeClass);
+    }
+
+    private static int parseColorComponent(String value, int start, int end) {
+        return Integer.parseInt(value.substring(value.indexOf(':', start) + 1, end));
+    }
+
     /**
      * Converts a datapoint type id into an openHAB type class
      *
@@ -869,16 +973,11 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
      */
     @Override
     public Class<? extends Type> toTypeClass(String dptId) {
-        Class<? extends Type> ohClass = dptTypeMap.get(dptId);
-        if (ohClass == null) {
-            int mainNumber = getMainNumber(dptId);
-            if (mainNumber == -1) {
-                logger.debug("Couldn't convert KNX datapoint type id into openHAB type class for dptId: {}.", dptId);
-                return null;
-            }
-            ohClass = dptMainTypeMap.get(mainNumber);
+        DptInfo dptInfo = getDptInfo(dptId);
+        if (dptInfo.typeClass == null && dptInfo.mainNumber == -1) {
+            logger.debug("Couldn't convert KNX datapoint type id into openHAB type class for dptId: {}.", dptId);
         }
-        return ohClass;
+        return dptInfo.typeClass;
     }
 
     /**
@@ -892,43 +991,50 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
     }
 
     /**
-     * Formats the given <code>value</code> according to the datapoint type
-     * <code>dpt</code> to a String which can be processed by {@link DateTimeType}.
+     * Parses the given <code>value</code> according to the datapoint type
+     * <code>dpt</code> into a {@link DateTimeType}.
      *
      * @param value
      * @param dpt
      *
-     * @return a formatted String like </code>yyyy-MM-dd'T'HH:mm:ss</code> which
-     *         is target format of the {@link DateTimeType}
+     * @return the date, or <code>null</code> if the value could not be parsed or the datapoint type is neither
+     *         DPT_DATE nor DPT_TIMEOFDAY
      */
-    private String formatDateTime(String value, String dpt) {
-        Date date = null;
-
+    private DateTimeType parseDateTime(String value, String dpt) {
         try {
             if (DPTXlatorDate.DPT_DATE.getID().equals(dpt)) {
-                date = new SimpleDateFormat(DATE_FORMAT).parse(value);
+                return new DateTimeType(LocalDate.parse(value, DATE_FORMATTER).atStartOfDay(ZoneId.systemDefault()));
             } else if (DPTXlatorTime.DPT_TIMEOFDAY.getID().equals(dpt)) {
-                if (value.contains("no-day")) {
-                    /*
-                     * KNX "no-day" needs special treatment since openHAB's DateTimeType doesn't support "no-day".
-                     * Workaround: remove the "no-day" String, parse the remaining time string, which will result in a
-                     * date of "1970-01-01".
-                     * Replace "no-day" with the current day name
-                     */
-                    StringBuffer stb = new StringBuffer(value);
-                    int start = stb.indexOf("no-day");
-                    int end = start + "no-day".length();
-                    stb.replace(start, end, String.format(Locale.US, "%1$ta", Calendar.getInstance()));
-                    value = stb.toString();
+                int separator = value.indexOf(", ");
+                if (separator < 0) {
+                    throw new DateTimeParseException("Missing day", value, 0);
                 }
-                date = new SimpleDateFormat(TIME_DAY_FORMAT, Locale.US).parse(value);
+                String day = value.substring(0, separator);
+                LocalTime time = LocalTime.parse(value.substring(separator + 2));
+                /*
+                 * KNX "no-day" needs special treatment since openHAB's DateTimeType doesn't support "no-day".
+                 * Workaround: Use the current day name.
+                 */
+                DayOfWeek dayOfWeek = NO_DAY.equals(day) ? LocalDate.now().getDayOfWeek() : parseDayOfWeek(day);
+                return new DateTimeType(ZonedDateTime.of(NO_DATE.with(TemporalAdjusters.nextOrSame(dayOfWeek)),
+                        time, ZoneId.systemDefault()));
             }
-        } catch (ParseException pe) {
+        } catch (DateTimeParseException pe) {
             // do nothing but logging
             logger.warn("Could not parse '{}' to a valid date", value);
         }
 
-        return date != null ? new SimpleDateFormat(DateTimeType.DATE_PATTERN).format(date) : "";
+        return null;
+    }
+
+    private static DayOfWeek parseDayOfWeek(String day) {
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            if (dayOfWeek.getDisplayName(TextStyle.SHORT, Locale.US).equalsIgnoreCase(day)
+                    || dayOfWeek.getDisplayName(TextStyle.FULL, Locale.US).equalsIgnoreCase(day)) {
+                return dayOfWeek;
+            }
+        }
+        throw new DateTimeParseException("Unknown day", day, 0);
     }
 
     /**
@@ -947,11 +1053,11 @@ public class KNXCoreTypeMapper implements KNXTypeMapper {
      */
     static private String formatDateTime(DateTimeType dateType, String dpt) {
         if (DPTXlatorDate.DPT_DATE.getID().equals(dpt)) {
-            return dateType.format("%tF");
+            return DATE_FORMATTER.format(dateType.getZonedDateTime());
         } else if (DPTXlatorTime.DPT_TIMEOFDAY.getID().equals(dpt)) {
-            return dateType.format(Locale.US, "%1$ta, %1$tT");
+            return TIME_DAY_FORMATTER.format(dateType.getZonedDateTime());
         } else if (DPTXlatorDateTime.DPT_DATE_TIME.getID().equals(dpt)) {
-            return dateType.format(Locale.US, "%tF %1$tT");
+            return DATE_TIME_FORMATTER.format(dateType.getZonedDateTime());
         } else {
             throw new IllegalArgumentException("Could not format date to datapoint type '" + dpt + "'");
         }
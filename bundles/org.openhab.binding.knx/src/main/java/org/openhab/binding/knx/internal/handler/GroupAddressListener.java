@@ -28,7 +28,8 @@ import tuwien.auto.calimero.GroupAddress;
 public interface GroupAddressListener extends BusMessageListener {
 
     /**
-     * Called to verify if the GroupAddressListener has an interest in the given GroupAddress
+     * Called to verify if the GroupAddressListener has an interest in the given GroupAddress. The answer is cached
+     * by the client, so it must not change while the listener is registered.
      *
      * @param destination
      */
@@ -0,0 +1,155 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.knx.internal.client;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.knx.internal.handler.GroupAddressListener;
+
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.IndividualAddress;
+
+/**
+ * Tests cases for {@link GroupAddressDispatcher}.
+ *
+ * @author Simon Kaufmann - Initial contribution
+ */
+public class GroupAddressDispatcherTest {
+    private static final GroupAddress LIGHT = new GroupAddress(1, 1, 1);
+    private static final GroupAddress SHUTTER = new GroupAddress(2, 1, 1);
+
+    private final List<Runnable> executed = new ArrayList<>();
+    private GroupAddressDispatcher subject;
+
+    private static class TestListener implements GroupAddressListener {
+        final Set<GroupAddress> addresses;
+        final List<Integer> received = new ArrayList<>();
+        int lookups;
+
+        TestListener(GroupAddress... addresses) {
+            this.addresses = new HashSet<>(Arrays.asList(addresses));
+        }
+
+        @Override
+        public boolean listensTo(GroupAddress destination) {
+            lookups++;
+            return addresses.contains(destination);
+        }
+
+        @Override
+        public void onGroupWrite(AbstractKNXClient client, IndividualAddress source, GroupAddress destination,
+                byte[] asdu) {
+            received.add((int) asdu[0]);
+        }
+
+        @Override
+        public void onGroupRead(AbstractKNXClient client, IndividualAddress source, GroupAddress destination,
+                byte[] asdu) {
+        }
+
+        @Override
+        public void onGroupReadResponse(AbstractKNXClient client, IndividualAddress source, GroupAddress destination,
+                byte[] asdu) {
+        }
+    }
+
+    @Before
+    public void setUp() {
+        subject = new GroupAddressDispatcher(executed::add);
+    }
+
+    private int write(GroupAddress destination, int value) {
+        return subject.dispatch(destination,
+                listener -> listener.onGroupWrite(null, null, destination, new byte[] { (byte) value }));
+    }
+
+    private void runExecuted() {
+        while (!executed.isEmpty()) {
+            executed.remove(0).run();
+        }
+    }
+
+    @Test
+    public void telegramsAreRoutedByGroupAddress() {
+        TestListener light = new TestListener(LIGHT);
+        TestListener shutter = new TestListener(SHUTTER);
+        subject.register(light);
+        subject.register(shutter);
+
+        assertThat(write(LIGHT, 1), is(1));
+        assertThat(write(SHUTTER, 2), is(1));
+        assertThat(write(new GroupAddress(3, 1, 1), 3), is(0));
+        runExecuted();
+
+        assertThat(light.received, is(Arrays.asList(1)));
+        assertThat(shutter.received, is(Arrays.asList(2)));
+    }
+
+    @Test
+    public void listenersAreLookedUpOnce() {
+        TestListener light = new TestListener(LIGHT);
+        subject.register(light);
+
+        for (int i = 0; i < 10; i++) {
+            write(LIGHT, i);
+        }
+        assertThat(light.lookups, is(1));
+        assertThat(subject.getIndexSize(), is(1));
+
+        // Registering a listener invalidates the index
+        subject.register(new TestListener(LIGHT));
+        assertThat(subject.getIndexSize(), is(0));
+        assertThat(write(LIGHT, 10), is(2));
+    }
+
+    @Test
+    public void telegramsAreDeliveredInOrder() {
+        TestListener light = new TestListener(LIGHT);
+        subject.register(light);
+
+        for (int i = 0; i < GroupAddressDispatcher.MAX_BATCH + 10; i++) {
+            write(LIGHT, i);
+        }
+        // Only one delivery task per listener at a time
+        assertThat(executed.size(), is(1));
+        runExecuted();
+
+        assertThat(light.received.size(), is(GroupAddressDispatcher.MAX_BATCH + 10));
+        for (int i = 0; i < light.received.size(); i++) {
+            assertThat(light.received.get(i), is(i));
+        }
+    }
+
+    @Test
+    public void unregisteredListenersReceiveNothing() {
+        TestListener light = new TestListener(LIGHT);
+        subject.register(light);
+        write(LIGHT, 1);
+
+        assertTrue(subject.unregister(light));
+        assertFalse(subject.unregister(light));
+        assertThat(write(LIGHT, 2), is(0));
+        runExecuted();
+
+        assertTrue(light.received.isEmpty());
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.knx.internal.client;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.knx.internal.client.ReadDatapoint.Priority;
+
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.datapoint.CommandDP;
+import tuwien.auto.calimero.datapoint.Datapoint;
+
+/**
+ * Tests cases for {@link ReadScheduler}.
+ *
+ * @author Simon Kaufmann - Initial contribution
+ */
+public class ReadSchedulerTest {
+    private static final int READING_PAUSE = 50;
+
+    private long now;
+    private ReadScheduler subject;
+
+    @Before
+    public void setUp() {
+        now = 0;
+        subject = new ReadScheduler(READING_PAUSE, 2, () -> now);
+    }
+
+    private static Datapoint datapoint(int subGroup) {
+        return new CommandDP(new GroupAddress(1, 1, subGroup), "test", 0, "1.001");
+    }
+
+    private void advance(long millis) {
+        now += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private ReadDatapoint nextRead() {
+        ReadDatapoint read = subject.next();
+        assertNotNull(read);
+        advance(READING_PAUSE);
+        return read;
+    }
+
+    @Test
+    public void datapointsAreQueuedOnce() {
+        assertTrue(subject.add(datapoint(1), Priority.SCHEDULED));
+        assertFalse(subject.add(datapoint(1), Priority.SCHEDULED));
+        assertThat(subject.getQueueLength(), is(1));
+
+        nextRead();
+        // A read in flight is not queued again
+        assertFalse(subject.add(datapoint(1), Priority.SCHEDULED));
+        assertThat(subject.getQueueLength(), is(0));
+        assertThat(subject.getInFlight(), is(1));
+    }
+
+    @Test
+    public void refreshIsReadFirst() {
+        subject.add(datapoint(1), Priority.SCHEDULED);
+        subject.add(datapoint(2), Priority.SCHEDULED);
+        subject.add(datapoint(3), Priority.REFRESH);
+        // Already queued, but moved to the front
+        subject.add(datapoint(2), Priority.REFRESH);
+
+        assertThat(subject.getQueueLength(Priority.REFRESH), is(2));
+        assertThat(nextRead().getDatapoint().getMainAddress(), is(new GroupAddress(1, 1, 3)));
+        assertThat(nextRead().getDatapoint().getMainAddress(), is(new GroupAddress(1, 1, 2)));
+        assertThat(nextRead().getDatapoint().getMainAddress(), is(new GroupAddress(1, 1, 1)));
+    }
+
+    @Test
+    public void readsArePacedAndAdapted() {
+        for (int i = 1; i <= 4; i++) {
+            subject.add(datapoint(i), Priority.SCHEDULED);
+        }
+        ReadDatapoint first = subject.next();
+        assertNotNull(first);
+        assertNull(subject.next());
+
+        // Not confirmed by the bus: The pause is doubled
+        assertTrue(subject.failed(first));
+        assertThat(subject.getPauseMillis(), is(2L * READING_PAUSE));
+        advance(READING_PAUSE);
+        ReadDatapoint second = subject.next();
+        assertNotNull(second);
+        advance(READING_PAUSE);
+        assertNull(subject.next());
+
+        // Confirmed: Back to the configured pause
+        subject.confirmed(second);
+        subject.confirmed(second);
+        subject.confirmed(second);
+        assertThat(subject.getPauseMillis(), is((long) READING_PAUSE));
+    }
+
+    @Test
+    public void unansweredReadsAreRetried() {
+        subject.add(datapoint(1), Priority.SCHEDULED);
+        subject.add(datapoint(2), Priority.SCHEDULED);
+        nextRead();
+        nextRead();
+        subject.responded(new GroupAddress(1, 1, 2));
+
+        advance(1000);
+        subject.expire(TimeUnit.SECONDS.toNanos(1));
+        assertThat(subject.getTimeouts(), is(1L));
+        assertThat(subject.getQueueLength(), is(1));
+
+        // The retries limit is reached with the second read
+        nextRead();
+        advance(1000);
+        subject.expire(TimeUnit.SECONDS.toNanos(1));
+        assertThat(subject.getQueueLength(), is(0));
+        assertThat(subject.getInFlight(), is(0));
+        assertThat(subject.getReads(), is(3L));
+    }
+
+    @Test
+    public void busLoadIsRespected() {
+        subject.add(datapoint(1), Priority.SCHEDULED);
+        for (int i = 0; i < ReadScheduler.MAX_BUS_TELEGRAMS_PER_SECOND; i++) {
+            subject.telegramSeen();
+        }
+        assertNull(subject.next());
+
+        // The telegrams of the last second count less and less
+        advance(1500);
+        assertNotNull(subject.next());
+    }
+
+    @Test
+    public void queueWaitIsMeasured() {
+        subject.add(datapoint(1), Priority.SCHEDULED);
+        subject.add(datapoint(2), Priority.SCHEDULED);
+        nextRead();
+        nextRead();
+
+        assertThat(subject.getMaxWaitMillis(), is((long) READING_PAUSE));
+        assertThat(subject.getAverageWaitMillis(), is(READING_PAUSE / 2L));
+    }
+}
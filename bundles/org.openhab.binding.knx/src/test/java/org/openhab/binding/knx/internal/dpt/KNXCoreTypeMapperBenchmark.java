@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.knx.internal.dpt;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.types.Type;
+
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.datapoint.CommandDP;
+import tuwien.auto.calimero.datapoint.Datapoint;
+
+/**
+ * Measures the conversions of the {@link KNXCoreTypeMapper} for a mix of common datapoint types, in both directions.
+ * <p>
+ * Run {@link #main(String[])} with the arguments <code>[iterations] [warmupIterations]</code>, for example from the
+ * IDE with the test classpath. The warm-up runs let the JIT compile the conversions before they are measured.
+ *
+ * @author Simon Kaufmann - Initial contribution
+ */
+public class KNXCoreTypeMapperBenchmark {
+
+    private static class Telegram {
+        final Datapoint datapoint;
+        final byte[] data;
+
+        Telegram(String dpt, byte... data) {
+            this.datapoint = new CommandDP(new GroupAddress(1, 2, 3), "benchmark", 0, dpt);
+            this.data = data;
+        }
+    }
+
+    private static class Command {
+        final Type type;
+        final String dpt;
+
+        Command(Type type, String dpt) {
+            this.type = type;
+            this.dpt = dpt;
+        }
+    }
+
+    private final KNXCoreTypeMapper mapper = new KNXCoreTypeMapper();
+
+    private final Telegram[] telegrams = { new Telegram("1.001", (byte) 1), new Telegram("5.001", (byte) 128),
+            new Telegram("9.001", (byte) 0x0C, (byte) 0x1A), new Telegram("10.001", (byte) 0x2C, (byte) 30, (byte) 15),
+            new Telegram("11.001", (byte) 15, (byte) 3, (byte) 20),
+            new Telegram("232.600", (byte) 255, (byte) 128, (byte) 0) };
+
+    private final Command[] commands = { new Command(OnOffType.ON, "1.001"), new Command(new DecimalType(50), "5.001"),
+            new Command(new DecimalType(21.5), "9.001"),
+            new Command(new DateTimeType("2020-03-16T12:30:15"), "10.001"),
+            new Command(new DateTimeType("2020-03-16T12:30:15"), "11.001"),
+            new Command(HSBType.fromRGB(255, 128, 0), "232.600") };
+
+    /**
+     * Converts every telegram and command of the mix <code>iterations</code> times.
+     *
+     * @return the conversions per second in both directions
+     */
+    public double[] run(int iterations) {
+        int converted = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (Telegram telegram : telegrams) {
+                if (mapper.toType(telegram.datapoint, telegram.data) != null) {
+                    converted++;
+                }
+            }
+        }
+        long toTypeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (Command command : commands) {
+                if (mapper.toDPTValue(command.type, command.dpt) != null) {
+                    converted++;
+                }
+            }
+        }
+        long toDPTValueNanos = System.nanoTime() - start;
+
+        if (converted != iterations * (telegrams.length + commands.length)) {
+            throw new IllegalStateException("Not every conversion succeeded");
+        }
+        return new double[] { perSecond(iterations * telegrams.length, toTypeNanos),
+                perSecond(iterations * commands.length, toDPTValueNanos) };
+    }
+
+    private static double perSecond(int conversions, long nanos) {
+        return conversions * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos);
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int warmupIterations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        KNXCoreTypeMapperBenchmark benchmark = new KNXCoreTypeMapperBenchmark();
+        benchmark.run(warmupIterations);
+        double[] result = benchmark.run(iterations);
+        System.out.println(String.format("toType:     %,.0f conversions/s", result[0]));
+        System.out.println(String.format("toDPTValue: %,.0f conversions/s", result[1]));
+    }
+}
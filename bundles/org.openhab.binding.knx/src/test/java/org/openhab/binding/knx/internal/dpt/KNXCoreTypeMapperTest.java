@@ -12,11 +12,20 @@
  */
 package org.openhab.binding.knx.internal.dpt;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
+import java.time.LocalDateTime;
+
+import org.eclipse.smarthome.core.library.types.DateTimeType;
 import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.types.Type;
 import org.junit.Test;
 
+import tuwien.auto.calimero.GroupAddress;
+import tuwien.auto.calimero.datapoint.CommandDP;
+import tuwien.auto.calimero.datapoint.Datapoint;
+
 /**
  *
  * @author Simon Kaufmann - initial contribution and API
@@ -30,4 +39,61 @@ public class KNXCoreTypeMapperTest {
         assertEquals("3", new KNXCoreTypeMapper().toDPTValue(new DecimalType("3.0"), "17.001"));
     }
 
+    private static Datapoint datapoint(String dpt) {
+        return new CommandDP(new GroupAddress(1, 2, 3), "test", 0, dpt);
+    }
+
+    @Test
+    public void testToType_rgb() {
+        Type type = new KNXCoreTypeMapper().toType(datapoint("232.600"), new byte[] { (byte) 255, 0, 0 });
+
+        assertEquals(HSBType.fromRGB(255, 0, 0), type);
+    }
+
+    @Test
+    public void testToType_date() {
+        // 2020-03-15
+        Type type = new KNXCoreTypeMapper().toType(datapoint("11.001"), new byte[] { 15, 3, 20 });
+
+        assertEquals(LocalDateTime.of(2020, 3, 15, 0, 0, 0),
+                ((DateTimeType) type).getZonedDateTime().toLocalDateTime());
+    }
+
+    @Test
+    public void testToType_timeOfDay() {
+        // Monday, 12:30:15
+        Type type = new KNXCoreTypeMapper().toType(datapoint("10.001"), new byte[] { (1 << 5) | 12, 30, 15 });
+
+        // Week days are mapped to the first week of 1970
+        assertEquals(LocalDateTime.of(1970, 1, 5, 12, 30, 15),
+                ((DateTimeType) type).getZonedDateTime().toLocalDateTime());
+    }
+
+    @Test
+    public void testToType_reusedTranslatorsDontKeepData() {
+        KNXCoreTypeMapper mapper = new KNXCoreTypeMapper();
+
+        assertEquals(new DecimalType(10), mapper.toType(datapoint("5.010"), new byte[] { 10 }));
+        assertEquals(new DecimalType(20), mapper.toType(datapoint("5.010"), new byte[] { 20 }));
+    }
+
+    @Test
+    public void testToDPTValue_dateTime() {
+        DateTimeType dateTime = new DateTimeType("2020-03-16T12:30:15");
+        KNXCoreTypeMapper mapper = new KNXCoreTypeMapper();
+
+        assertEquals("2020-03-16", mapper.toDPTValue(dateTime, "11.001"));
+        assertEquals("Mon, 12:30:15", mapper.toDPTValue(dateTime, "10.001"));
+        assertEquals("2020-03-16 12:30:15", mapper.toDPTValue(dateTime, "19.001"));
+    }
+
+    @Test
+    public void testToTypeClass() {
+        KNXCoreTypeMapper mapper = new KNXCoreTypeMapper();
+
+        assertEquals(DateTimeType.class, mapper.toTypeClass("10.001"));
+        assertEquals(HSBType.class, mapper.toTypeClass("232.600"));
+        assertNull(mapper.toTypeClass("invalid"));
+    }
+
 }
@@ -32,6 +32,7 @@ import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.UnDefType;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.openhab.binding.mqtt.handler.AbstractBrokerHandler;
+import org.openhab.binding.mqtt.handler.MqttPublishQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,6 +68,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler implemen
     private final int subscribeTimeout;
 
     protected @Nullable MqttBrokerConnection connection;
+    protected @Nullable MqttPublishQueue publishQueue;
 
     public AbstractMQTTThingHandler(Thing thing, int subscribeTimeout) {
         super(thing);
@@ -125,7 +127,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler implemen
             return;
         }
 
-        final CompletableFuture<Boolean> future = data.publishValue(command);
+        final CompletableFuture<Boolean> future = data.publishValue(command, publishQueue);
         future.handle((v, ex) -> {
             if (ex != null) {
                 updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, ex.getLocalizedMessage());
@@ -144,6 +146,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler implemen
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE);
             stop();
             connection = null;
+            publishQueue = null;
             return;
         }
         if (bridgeStatusInfo.getStatus() != ThingStatus.ONLINE) {
@@ -167,6 +170,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler implemen
             return;
         }
         this.connection = connection;
+        this.publishQueue = h.getPublishQueue();
 
         // Start up (subscribe to MQTT topics). Limit with a timeout and catch exceptions.
         // We do not set the thing to ONLINE here in the AbstractBase, that is the responsibility of a derived
@@ -225,6 +229,7 @@ public abstract class AbstractMQTTThingHandler extends BaseThingHandler implemen
             logger.warn("unsubscription on disposal failed for {}: ", thing.getUID(), e);
         }
         connection = null;
+        publishQueue = null;
         super.dispose();
     }
 
@@ -37,8 +37,16 @@ public class ChannelConfig {
      * Instead a postCommand() call is performed.
      */
     public boolean postCommand = false;
+    /**
+     * If true, a received payload that equals the previous one does not update the channel state again.
+     */
+    public boolean skipUnchanged = false;
     public @Nullable Integer qos;
     public boolean retained = false;
+    /**
+     * If true, a command that still waits in the publish queue of the broker is replaced by a newer one.
+     */
+    public boolean coalesceCommands = false;
     /** If true, the state topic will not update a state, but trigger a channel instead. */
     public boolean trigger = false;
     public String unit = "";
@@ -14,6 +14,7 @@ package org.openhab.binding.mqtt.generic;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.IllegalFormatException;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -27,11 +28,13 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.core.library.types.StringType;
 import org.eclipse.smarthome.core.thing.ChannelUID;
 import org.eclipse.smarthome.core.types.Command;
-import org.eclipse.smarthome.core.types.TypeParser;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
+import org.openhab.binding.mqtt.generic.tools.MqttTopicDispatcher;
 import org.openhab.binding.mqtt.generic.values.TextValue;
 import org.openhab.binding.mqtt.generic.values.Value;
+import org.openhab.binding.mqtt.handler.MqttPublishQueue;
+import org.openhab.binding.mqtt.handler.MqttPublishQueue.Priority;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,12 +58,14 @@ public class ChannelState implements MqttMessageSubscriber {
 
     // Runtime variables
     private @Nullable MqttBrokerConnection connection;
+    private @Nullable MqttTopicDispatcher topicDispatcher;
     protected final List<ChannelStateTransformation> transformationsIn = new ArrayList<>();
     protected final List<ChannelStateTransformation> transformationsOut = new ArrayList<>();
     private @Nullable ChannelStateUpdateListener channelStateUpdateListener;
     protected boolean hasSubscribed = false;
     private @Nullable ScheduledFuture<?> scheduledFuture;
     private CompletableFuture<@Nullable Void> future = new CompletableFuture<>();
+    private byte @Nullable [] lastPayload;
 
     /**
      * Creates a new channel state.
@@ -84,6 +89,16 @@ public class ChannelState implements MqttMessageSubscriber {
         return this.readOnly;
     }
 
+    /**
+     * Serve the subscription of the state topic by a dispatcher, if the channel is started on the connection of the
+     * dispatcher. Must be set before {@link #start(MqttBrokerConnection, ScheduledExecutorService, int)}.
+     *
+     * @param topicDispatcher A dispatcher or null to subscribe with the broker connection
+     */
+    public void setTopicDispatcher(@Nullable MqttTopicDispatcher topicDispatcher) {
+        this.topicDispatcher = topicDispatcher;
+    }
+
     /**
      * Add a transformation that is applied for each received MQTT topic value.
      * The transformations are executed in order.
@@ -145,36 +160,54 @@ public class ChannelState implements MqttMessageSubscriber {
             return;
         }
 
+        // Unchanged payload: The cached value already reflects it
+        if (isUnchanged(payload)) {
+            logger.trace("Unchanged payload on topic {}, skipping update of {}", topic, channelUID);
+            receivedOrTimeout();
+            return;
+        }
+
         if (cachedValue.isBinary()) {
             cachedValue.update(payload);
+            lastPayload = payload;
             channelStateUpdateListener.updateChannelState(channelUID, cachedValue.getChannelState());
             receivedOrTimeout();
             return;
         }
 
-        // String value: Apply transformations
-        String strValue = new String(payload, StandardCharsets.UTF_8);
-        for (ChannelStateTransformation t : transformationsIn) {
-            String transformedValue = t.processValue(strValue);
-            if (transformedValue != null) {
-                strValue = transformedValue;
-            } else {
-                logger.debug("Transformation '{}' returned null on '{}', discarding message", strValue, t.serviceName);
+        Command command;
+        String strValue = null;
+        if (transformationsIn.isEmpty() && !config.trigger) {
+            // Fast path: Let the value parse the payload without transformations
+            command = cachedValue.parseMessage(payload);
+        } else {
+            // String value: Apply transformations
+            String transformed = new String(payload, StandardCharsets.UTF_8);
+            for (ChannelStateTransformation t : transformationsIn) {
+                String transformedValue = t.processValue(transformed);
+                if (transformedValue != null) {
+                    transformed = transformedValue;
+                } else {
+                    logger.debug("Transformation '{}' returned null on '{}', discarding message", transformed,
+                            t.serviceName);
+                    receivedOrTimeout();
+                    return;
+                }
+            }
+
+            // Is trigger?: Special handling
+            if (config.trigger) {
+                channelStateUpdateListener.triggerChannel(channelUID, transformed);
                 receivedOrTimeout();
                 return;
             }
+            strValue = transformed;
+            command = cachedValue.parseCommand(strValue);
         }
 
-        // Is trigger?: Special handling
-        if (config.trigger) {
-            channelStateUpdateListener.triggerChannel(channelUID, strValue);
-            receivedOrTimeout();
-            return;
-        }
-
-        Command command = TypeParser.parseCommand(cachedValue.getSupportedCommandTypes(), strValue);
         if (command == null) {
-            logger.warn("Incoming payload '{}' not supported by type '{}'", strValue,
+            logger.warn("Incoming payload '{}' not supported by type '{}'",
+                    strValue != null ? strValue : new String(payload, StandardCharsets.UTF_8),
                     cachedValue.getClass().getSimpleName());
             receivedOrTimeout();
             return;
@@ -191,11 +224,12 @@ public class ChannelState implements MqttMessageSubscriber {
         try {
             cachedValue.update(command);
         } catch (IllegalArgumentException | IllegalStateException e) {
-            logger.warn("Command '{}' not supported by type '{}': {}", strValue, cachedValue.getClass().getSimpleName(),
+            logger.warn("Command '{}' not supported by type '{}': {}", command, cachedValue.getClass().getSimpleName(),
                     e.getMessage());
             receivedOrTimeout();
             return;
         }
+        lastPayload = payload;
 
         if (config.postCommand) {
             channelStateUpdateListener.postChannelCommand(channelUID, (Command) cachedValue.getChannelState());
@@ -205,6 +239,14 @@ public class ChannelState implements MqttMessageSubscriber {
         receivedOrTimeout();
     }
 
+    /**
+     * Returns true if {@link ChannelConfig#skipUnchanged} is set and the payload equals the one
+     * that resulted in the current state.
+     */
+    private boolean isUnchanged(byte[] payload) {
+        return config.skipUnchanged && !config.trigger && !config.postCommand && Arrays.equals(lastPayload, payload);
+    }
+
     /**
      * Returns the state topic. Might be an empty string if this is a stateless channel (TRIGGER kind channel).
      */
@@ -242,7 +284,7 @@ public class ChannelState implements MqttMessageSubscriber {
     public CompletableFuture<@Nullable Void> stop() {
         final MqttBrokerConnection connection = this.connection;
         if (connection != null && StringUtils.isNotBlank(config.stateTopic)) {
-            return connection.unsubscribe(config.stateTopic, this).thenRun(this::internalStop);
+            return MqttTopicDispatcher.unsubscribe(topicDispatcher, connection, config.stateTopic, this).thenRun(this::internalStop);
         } else {
             internalStop();
             return CompletableFuture.completedFuture(null);
@@ -254,6 +296,7 @@ public class ChannelState implements MqttMessageSubscriber {
         this.connection = null;
         this.channelStateUpdateListener = null;
         hasSubscribed = false;
+        lastPayload = null;
         cachedValue.resetState();
     }
 
@@ -301,11 +344,18 @@ public class ChannelState implements MqttMessageSubscriber {
         }
 
         this.future = new CompletableFuture<>();
-        connection.subscribe(config.stateTopic, this).thenRun(() -> {
+        final MqttTopicDispatcher topicDispatcher = this.topicDispatcher;
+        MqttTopicDispatcher.subscribe(topicDispatcher, connection, config.stateTopic, this).thenRun(() -> {
             hasSubscribed = true;
             logger.debug("Subscribed channel {} to topic: {}", this.channelUID, config.stateTopic);
             if (timeout > 0 && !future.isDone()) {
                 this.scheduledFuture = scheduler.schedule(this::receivedOrTimeout, timeout, TimeUnit.MILLISECONDS);
+                // No need to wait any longer if the topic had no retained value on a shared subscription
+                final CompletableFuture<@Nullable Void> retained = MqttTopicDispatcher
+                        .whenRetainedLoaded(topicDispatcher, connection, config.stateTopic);
+                if (retained != null) {
+                    retained.thenRun(this::receivedOrTimeout);
+                }
             } else {
                 receivedOrTimeout();
             }
@@ -330,7 +380,23 @@ public class ChannelState implements MqttMessageSubscriber {
      *         and exceptionally otherwise.
      */
     public CompletableFuture<Boolean> publishValue(Command command) {
+        return publishValue(command, null);
+    }
+
+    /**
+     * Publishes a value on MQTT via the publish queue of the broker handler. A command topic needs to be set in the
+     * configuration.
+     *
+     * @param command The command to send
+     * @param publishQueue The publish queue of the broker handler. If null or not for the connection of this channel,
+     *            the value is published directly.
+     * @return A future that completes with true if the publishing worked and false if it is a readonly topic
+     *         and exceptionally otherwise.
+     */
+    public CompletableFuture<Boolean> publishValue(Command command, @Nullable MqttPublishQueue publishQueue) {
         cachedValue.update(command);
+        // The state no longer reflects the last received payload
+        lastPayload = null;
 
         Value mqttCommandValue = cachedValue;
 
@@ -381,7 +447,8 @@ public class ChannelState implements MqttMessageSubscriber {
 
         int qos = (config.qos != null) ? config.qos : connection.getQos();
 
-        return connection.publish(config.commandTopic, commandString.getBytes(), qos, config.retained);
+        return MqttPublishQueue.publish(publishQueue, connection, config.commandTopic, commandString.getBytes(), qos,
+                config.retained, config.coalesceCommands, Priority.COMMAND);
     }
 
     /**
@@ -25,6 +25,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.eclipse.smarthome.io.transport.mqtt.MqttException;
 import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
+import org.openhab.binding.mqtt.generic.tools.MqttTopicDispatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +48,7 @@ public class SubscribeFieldToMQTTtopic implements MqttMessageSubscriber {
     private @Nullable ScheduledFuture<?> scheduledFuture;
     private final boolean mandatory;
     private boolean receivedValue = false;
+    private @Nullable MqttTopicDispatcher topicDispatcher;
 
     /**
      * Implement this interface to be notified of an updated field.
@@ -74,6 +76,21 @@ public class SubscribeFieldToMQTTtopic implements MqttMessageSubscriber {
         this.mandatory = mandatory;
     }
 
+    /**
+     * Serve the subscription by a dispatcher, if it belongs to the connection given to
+     * {@link #subscribeAndReceive(MqttBrokerConnection, int)}.
+     *
+     * @param topicDispatcher A dispatcher or null to subscribe with the broker connection
+     */
+    public void setTopicDispatcher(@Nullable MqttTopicDispatcher topicDispatcher) {
+        this.topicDispatcher = topicDispatcher;
+    }
+
+    @Nullable
+    MqttTopicDispatcher getTopicDispatcher() {
+        return topicDispatcher;
+    }
+
     static Object numberConvert(Object value, Class<?> type) throws IllegalArgumentException, NumberFormatException {
         Object result = value;
         // Handle the conversion case of BigDecimal to Float,Double,Long,Integer and the respective
@@ -161,6 +178,16 @@ public class SubscribeFieldToMQTTtopic implements MqttMessageSubscriber {
         future.complete(null);
     }
 
+    private void retainedLoaded() {
+        final ScheduledFuture<?> scheduledFuture = this.scheduledFuture;
+        // A mandatory value might still arrive late, it is only given up after the regular timeout
+        if (!mandatory && scheduledFuture != null && !future.isDone()) {
+            scheduledFuture.cancel(false);
+            this.scheduledFuture = null;
+            timeoutReached();
+        }
+    }
+
     void timeoutReached() {
         if (mandatory) {
             future.completeExceptionally(new Exception("Did not receive mandatory topic value: " + topic));
@@ -180,7 +207,8 @@ public class SubscribeFieldToMQTTtopic implements MqttMessageSubscriber {
      * @throws MqttException If an MQTT IO exception happens this exception is thrown.
      */
     public CompletableFuture<@Nullable Void> subscribeAndReceive(MqttBrokerConnection connection, int timeout) {
-        connection.subscribe(topic, this).exceptionally(e -> {
+        final MqttTopicDispatcher topicDispatcher = this.topicDispatcher;
+        MqttTopicDispatcher.subscribe(topicDispatcher, connection, topic, this).exceptionally(e -> {
             logger.debug("Failed to subscribe to topic {}", topic, e);
             final ScheduledFuture<?> scheduledFuture = this.scheduledFuture;
             if (scheduledFuture != null) { // Cancel timeout
@@ -192,6 +220,12 @@ public class SubscribeFieldToMQTTtopic implements MqttMessageSubscriber {
         }).thenRun(() -> {
             if (!future.isDone()) {
                 this.scheduledFuture = scheduler.schedule(this::timeoutReached, timeout, TimeUnit.MILLISECONDS);
+                // No need to wait any longer if the topic had no retained value on a shared subscription
+                final CompletableFuture<@Nullable Void> retained = MqttTopicDispatcher
+                        .whenRetainedLoaded(topicDispatcher, connection, topic);
+                if (retained != null) {
+                    retained.thenRun(this::retainedLoaded);
+                }
             }
         });
         return future;
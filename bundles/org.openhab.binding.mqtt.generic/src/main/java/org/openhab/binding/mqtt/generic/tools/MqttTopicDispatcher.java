@@ -0,0 +1,421 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic.tools;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispatches the messages of one broker subscription to many subscribers.
+ *
+ * <p>
+ * A thing handler that subscribes to a lot of topics below a common prefix, like a Homie device, creates a
+ * dispatcher for its broker connection and calls {@link #share(String, ScheduledExecutorService, int, int)} with a
+ * multi-level filter like "homie/device/#" first. All following {@link #subscribe(String, MqttMessageSubscriber)}
+ * calls for topics below that prefix are then served from the shared broker subscription and a
+ * {@link MqttTopicTrie}, without a broker round trip each. Other topics are passed to the broker connection as usual.
+ * The dispatcher is owned by the handler and handed to the objects that subscribe on its behalf.
+ * </p>
+ *
+ * <p>
+ * The broker only sends retained messages once, for the shared subscription. The payloads received until the
+ * retained messages are complete are therefore kept, together with later updates of these topics, and replayed to
+ * subscribers added later. Messages on other topics are only dispatched.
+ * </p>
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class MqttTopicDispatcher implements MqttMessageSubscriber {
+    private final Logger logger = LoggerFactory.getLogger(MqttTopicDispatcher.class);
+    private final MqttBrokerConnection connection;
+
+    private final MqttTopicTrie<MqttMessageSubscriber> subscribers = new MqttTopicTrie<>();
+    private final Map<String, SharedFilter> sharedFilters = new HashMap<>();
+    private final Map<String, byte[]> lastPayloads = new HashMap<>();
+    /** Replays to new subscribers that are not finished yet */
+    private final Map<MqttMessageSubscriber, Replay> pendingReplays = new HashMap<>();
+
+    private static class SharedFilter {
+        final String prefix;
+        final CompletableFuture<Boolean> subscribed = new CompletableFuture<>();
+        /** Completes when the retained messages have been received */
+        final CompletableFuture<@Nullable Void> retained = new CompletableFuture<>();
+        int users = 1;
+        volatile long lastMessageNanos = System.nanoTime();
+
+        SharedFilter(String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    private static class Message {
+        final String topic;
+        final byte[] payload;
+
+        Message(String topic, byte[] payload) {
+            this.topic = topic;
+            this.payload = payload;
+        }
+    }
+
+    /**
+     * The messages to replay to a new subscriber. A live message removes the cached payload of its topic, as it is
+     * newer. While a thread delivers the replay, live messages for the subscriber are queued behind it instead of
+     * being delivered directly, so that they can't be overtaken by an older cached payload.
+     */
+    private static class Replay {
+        final Map<String, byte[]> cached = new LinkedHashMap<>();
+        final Deque<Message> live = new ArrayDeque<>();
+        boolean delivering = false;
+
+        /**
+         * @return the next message to deliver, cached payloads first, or null if the replay is finished
+         */
+        @Nullable
+        Message next() {
+            Iterator<Map.Entry<String, byte[]>> iterator = cached.entrySet().iterator();
+            if (iterator.hasNext()) {
+                Map.Entry<String, byte[]> entry = iterator.next();
+                iterator.remove();
+                return new Message(entry.getKey(), entry.getValue());
+            }
+            return live.poll();
+        }
+    }
+
+    /**
+     * Creates a dispatcher for the subscriptions on a broker connection.
+     *
+     * @param connection A broker connection
+     */
+    public MqttTopicDispatcher(MqttBrokerConnection connection) {
+        this.connection = connection;
+    }
+
+    public MqttBrokerConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Subscribe to a topic with the dispatcher, if there is one for the connection, otherwise with the connection.
+     *
+     * @param dispatcher A dispatcher or null
+     * @param connection A broker connection
+     * @param topic The topic filter
+     * @param subscriber The subscriber
+     * @return A future that completes with true if the subscription is active
+     */
+    public static CompletableFuture<Boolean> subscribe(@Nullable MqttTopicDispatcher dispatcher,
+            MqttBrokerConnection connection, String topic, MqttMessageSubscriber subscriber) {
+        if (dispatcher != null && dispatcher.connection == connection) {
+            return dispatcher.subscribe(topic, subscriber);
+        }
+        return connection.subscribe(topic, subscriber);
+    }
+
+    /**
+     * Unsubscribe from a topic, that has been subscribed with
+     * {@link #subscribe(MqttTopicDispatcher, MqttBrokerConnection, String, MqttMessageSubscriber)}.
+     *
+     * @param dispatcher A dispatcher or null
+     * @param connection A broker connection
+     * @param topic The topic filter
+     * @param subscriber The subscriber
+     * @return A future that completes with true if the subscription was removed
+     */
+    public static CompletableFuture<Boolean> unsubscribe(@Nullable MqttTopicDispatcher dispatcher,
+            MqttBrokerConnection connection, String topic, MqttMessageSubscriber subscriber) {
+        if (dispatcher != null && dispatcher.connection == connection) {
+            return dispatcher.unsubscribe(topic, subscriber);
+        }
+        return connection.unsubscribe(topic, subscriber);
+    }
+
+    /**
+     * @param dispatcher A dispatcher or null
+     * @param connection A broker connection
+     * @param topic A topic
+     * @return The future of {@link #whenRetainedLoaded(String)} or null if there is no dispatcher for the connection
+     */
+    public static @Nullable CompletableFuture<@Nullable Void> whenRetainedLoaded(
+            @Nullable MqttTopicDispatcher dispatcher, MqttBrokerConnection connection, String topic) {
+        if (dispatcher != null && dispatcher.connection == connection) {
+            return dispatcher.whenRetainedLoaded(topic);
+        }
+        return null;
+    }
+
+    /**
+     * Subscribe to a multi-level topic filter on the broker, so that subscriptions below are served locally.
+     * Each call must be paired with {@link #release(String)}.
+     *
+     * <p>
+     * The broker sends the retained messages right after the subscription, so they are considered complete as soon
+     * as no message arrived for the given quiet time. Subscribers can use {@link #whenRetainedLoaded(String)} to
+     * stop waiting for values of topics that have no retained message.
+     * </p>
+     *
+     * @param filter A topic filter ending with "/#", for example "homie/device/#"
+     * @param scheduler A scheduler to realize the quiet time
+     * @param quietMillis Time in milliseconds without messages after which all retained messages are assumed to be
+     *            received
+     * @param maxMillis Maximum time to wait for the retained messages in milliseconds, for devices that publish
+     *            continuously
+     * @return A future that completes when the broker subscription is established
+     */
+    public synchronized CompletableFuture<Boolean> share(String filter, ScheduledExecutorService scheduler,
+            int quietMillis, int maxMillis) {
+        if (!filter.endsWith("/#") || MqttTopicTrie.hasWildcards(filter.substring(0, filter.length() - 2))) {
+            throw new IllegalArgumentException("Only filters of the form 'prefix/#' can be shared: " + filter);
+        }
+        SharedFilter shared = sharedFilters.get(filter);
+        if (shared != null) {
+            shared.users++;
+            return shared.subscribed;
+        }
+        final SharedFilter newShared = new SharedFilter(filter.substring(0, filter.length() - 1));
+        sharedFilters.put(filter, newShared);
+        connection.subscribe(filter, this).whenComplete((r, e) -> {
+            if (e != null) {
+                newShared.subscribed.completeExceptionally(e);
+                newShared.retained.complete(null);
+            } else {
+                newShared.subscribed.complete(r);
+                newShared.lastMessageNanos = System.nanoTime();
+                final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+                checkRetained(newShared, scheduler, quietMillis, deadline);
+            }
+        });
+        return newShared.subscribed;
+    }
+
+    private void checkRetained(SharedFilter shared, ScheduledExecutorService scheduler, int quietMillis,
+            long deadline) {
+        final long now = System.nanoTime();
+        final long quietUntil = shared.lastMessageNanos + TimeUnit.MILLISECONDS.toNanos(quietMillis);
+        if (now - quietUntil >= 0 || now - deadline >= 0) {
+            shared.retained.complete(null);
+            return;
+        }
+        scheduler.schedule(() -> checkRetained(shared, scheduler, quietMillis, deadline),
+                Math.min(quietUntil, deadline) - now, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Release a filter shared with {@link #share(String, ScheduledExecutorService, int, int)}.
+     * The broker subscription is removed with the last user.
+     *
+     * @param filter The shared topic filter
+     * @return A future that completes when the broker subscription is removed, if it was the last user
+     */
+    public CompletableFuture<Boolean> release(String filter) {
+        synchronized (this) {
+            SharedFilter shared = sharedFilters.get(filter);
+            if (shared == null) {
+                return CompletableFuture.completedFuture(false);
+            }
+            if (--shared.users > 0) {
+                return CompletableFuture.completedFuture(true);
+            }
+            sharedFilters.remove(filter);
+            shared.retained.complete(null);
+            lastPayloads.keySet().removeIf(topic -> topic.startsWith(shared.prefix));
+            if (!subscribers.isEmpty()) {
+                logger.debug("Released shared topic {} while {} subscriptions are still active", filter,
+                        subscribers.size());
+            }
+        }
+        return connection.unsubscribe(filter, this);
+    }
+
+    /**
+     * Return a future that completes when the retained messages of a shared filter have been received.
+     *
+     * @param filter A filter shared with {@link #share(String, ScheduledExecutorService, int, int)}
+     * @return A future that completes when the retained messages have been received. Completes immediately if the
+     *         filter is not shared.
+     */
+    public synchronized CompletableFuture<@Nullable Void> awaitRetained(String filter) {
+        SharedFilter shared = sharedFilters.get(filter);
+        return shared != null ? shared.retained : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Return a future that completes when all retained messages below the shared filter of the topic have been
+     * received. A topic without a retained value then has no value yet and there is no point in waiting for it.
+     *
+     * @param topic A topic
+     * @return The future of {@link #awaitRetained(String)} or null if the topic is not below a shared filter
+     */
+    public synchronized @Nullable CompletableFuture<@Nullable Void> whenRetainedLoaded(String topic) {
+        SharedFilter shared = sharedFilterFor(topic);
+        return shared != null ? shared.retained : null;
+    }
+
+    private @Nullable SharedFilter sharedFilterFor(String topic) {
+        for (SharedFilter shared : sharedFilters.values()) {
+            if (topic.startsWith(shared.prefix)) {
+                return shared;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Subscribe to a topic. Served locally if the topic is below a shared filter, otherwise by the broker.
+     *
+     * @param topic The topic filter
+     * @param subscriber The subscriber
+     * @return A future that completes with true if the subscription is active
+     */
+    public CompletableFuture<Boolean> subscribe(String topic, MqttMessageSubscriber subscriber) {
+        final SharedFilter shared;
+        synchronized (this) {
+            shared = sharedFilterFor(topic);
+            if (shared == null) {
+                return connection.subscribe(topic, subscriber);
+            }
+            subscribers.add(topic, subscriber);
+            final Map<String, byte[]> replay = new LinkedHashMap<>();
+            if (MqttTopicTrie.hasWildcards(topic)) {
+                lastPayloads.forEach((t, payload) -> {
+                    if (MqttTopicTrie.matches(topic, t)) {
+                        replay.put(t, payload);
+                    }
+                });
+            } else {
+                byte[] payload = lastPayloads.get(topic);
+                if (payload != null) {
+                    replay.put(topic, payload);
+                }
+            }
+            if (!replay.isEmpty()) {
+                pendingReplays.computeIfAbsent(subscriber, s -> new Replay()).cached.putAll(replay);
+            }
+        }
+        return shared.subscribed.whenComplete((r, e) -> replay(subscriber, e == null));
+    }
+
+    /**
+     * Replay the cached payloads to a new subscriber. The messages are delivered without holding the lock, one at a
+     * time, so that a live message arriving meanwhile still replaces the cached payload of its topic. Live messages
+     * for the subscriber are delivered by the same thread after the cached ones. Only one thread delivers the replay
+     * of a subscriber, a second call leaves its payloads to that thread.
+     *
+     * @param subscriber The new subscriber
+     * @param subscribed False if the shared subscription failed, the pending payloads are dropped then
+     */
+    private void replay(MqttMessageSubscriber subscriber, boolean subscribed) {
+        boolean first = true;
+        while (true) {
+            final Message message;
+            synchronized (this) {
+                final Replay replay = pendingReplays.get(subscriber);
+                if (replay == null || (first && replay.delivering)) {
+                    return;
+                }
+                final Message next = subscribed ? replay.next() : null;
+                if (next == null) {
+                    pendingReplays.remove(subscriber);
+                    return;
+                }
+                message = next;
+                replay.delivering = true;
+            }
+            first = false;
+            deliver(subscriber, message.topic, message.payload);
+        }
+    }
+
+    /**
+     * Unsubscribe from a topic, that has been subscribed with {@link #subscribe(String, MqttMessageSubscriber)}.
+     *
+     * @param topic The topic filter
+     * @param subscriber The subscriber
+     * @return A future that completes with true if the subscription was removed
+     */
+    public CompletableFuture<Boolean> unsubscribe(String topic, MqttMessageSubscriber subscriber) {
+        synchronized (this) {
+            if (subscribers.remove(topic, subscriber)) {
+                Replay replay = pendingReplays.get(subscriber);
+                if (replay != null) {
+                    replay.cached.keySet().removeIf(t -> MqttTopicTrie.matches(topic, t));
+                    replay.live.removeIf(message -> MqttTopicTrie.matches(topic, message.topic));
+                }
+                return CompletableFuture.completedFuture(true);
+            }
+        }
+        return connection.unsubscribe(topic, subscriber);
+    }
+
+    @Override
+    public void processMessage(String topic, byte[] payload) {
+        final List<MqttMessageSubscriber> matching = new ArrayList<>();
+        synchronized (this) {
+            SharedFilter shared = sharedFilterFor(topic);
+            if (shared != null) {
+                shared.lastMessageNanos = System.nanoTime();
+                if (payload.length == 0) {
+                    // An empty retained message clears the topic
+                    lastPayloads.remove(topic);
+                } else if (!shared.retained.isDone() || lastPayloads.containsKey(topic)) {
+                    // Retained messages arrive right after the subscription, later ones are live messages.
+                    // Updates of retained topics are kept, so that new subscribers see the current value.
+                    lastPayloads.put(topic, payload);
+                }
+            }
+            subscribers.match(topic, matching);
+            matching.removeIf(subscriber -> {
+                // The live message is newer than a cached payload that was not replayed yet
+                Replay replay = pendingReplays.get(subscriber);
+                if (replay == null) {
+                    return false;
+                }
+                replay.cached.remove(topic);
+                if (replay.delivering) {
+                    replay.live.add(new Message(topic, payload));
+                    return true;
+                }
+                return false;
+            });
+        }
+        for (MqttMessageSubscriber subscriber : matching) {
+            deliver(subscriber, topic, payload);
+        }
+    }
+
+    private void deliver(MqttMessageSubscriber subscriber, String topic, byte[] payload) {
+        try {
+            subscriber.processMessage(topic, payload);
+        } catch (RuntimeException e) {
+            logger.warn("Subscriber {} failed to process message on topic {}", subscriber, topic, e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic.tools;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * A trie of MQTT topic filters, split at the topic level separator "/".
+ *
+ * <p>
+ * Each filter can have multiple values attached. {@link #match(String, List)} collects the values of all filters
+ * matching a topic, including the single-level wildcard "+" and the multi-level wildcard "#",
+ * by walking the trie once per topic level instead of testing every filter.
+ * </p>
+ *
+ * This class is not thread-safe.
+ *
+ * @author David Graeff - Initial contribution
+ *
+ * @param <T> The value type, for example a message subscriber
+ */
+@NonNullByDefault
+public class MqttTopicTrie<T> {
+    private static final String SINGLE_LEVEL = "+";
+    private static final String MULTI_LEVEL = "#";
+
+    private static class TrieNode<T> {
+        final Map<String, TrieNode<T>> children = new HashMap<>();
+        final Set<T> values = new LinkedHashSet<>();
+
+        boolean isEmpty() {
+            return children.isEmpty() && values.isEmpty();
+        }
+    }
+
+    private final TrieNode<T> root = new TrieNode<>();
+    private int size = 0;
+
+    /**
+     * Attach a value to a topic filter.
+     *
+     * @param filter A topic filter, which may contain wildcards
+     * @param value The value
+     * @return Returns true if the value was not yet attached to the filter
+     */
+    public boolean add(String filter, T value) {
+        TrieNode<T> node = root;
+        for (String level : filter.split("/", -1)) {
+            node = node.children.computeIfAbsent(level, l -> new TrieNode<>());
+        }
+        boolean added = node.values.add(value);
+        if (added) {
+            size++;
+        }
+        return added;
+    }
+
+    /**
+     * Detach a value from a topic filter. Empty branches are pruned.
+     *
+     * @param filter A topic filter, which may contain wildcards
+     * @param value The value
+     * @return Returns true if the value was attached to the filter
+     */
+    public boolean remove(String filter, T value) {
+        boolean removed = remove(root, filter.split("/", -1), 0, value);
+        if (removed) {
+            size--;
+        }
+        return removed;
+    }
+
+    private boolean remove(TrieNode<T> node, String[] levels, int index, T value) {
+        if (index == levels.length) {
+            return node.values.remove(value);
+        }
+        TrieNode<T> child = node.children.get(levels[index]);
+        if (child == null) {
+            return false;
+        }
+        boolean removed = remove(child, levels, index + 1, value);
+        if (removed && child.isEmpty()) {
+            node.children.remove(levels[index]);
+        }
+        return removed;
+    }
+
+    /**
+     * Collect the values of all filters matching the given topic.
+     *
+     * @param topic A topic without wildcards
+     * @param result The list to add the matching values to
+     */
+    public void match(String topic, List<T> result) {
+        match(root, topic.split("/", -1), 0, result);
+    }
+
+    private void match(TrieNode<T> node, String[] levels, int index, List<T> result) {
+        // "#" also matches the parent level, e.g. "a/#" matches "a"
+        TrieNode<T> multiLevel = node.children.get(MULTI_LEVEL);
+        if (multiLevel != null) {
+            result.addAll(multiLevel.values);
+        }
+        if (index == levels.length) {
+            result.addAll(node.values);
+            return;
+        }
+        TrieNode<T> child = node.children.get(levels[index]);
+        if (child != null) {
+            match(child, levels, index + 1, result);
+        }
+        TrieNode<T> singleLevel = node.children.get(SINGLE_LEVEL);
+        if (singleLevel != null) {
+            match(singleLevel, levels, index + 1, result);
+        }
+    }
+
+    /**
+     * Return the number of attached values.
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return true if the topic filter matches the topic.
+     *
+     * @param filter A topic filter, which may contain wildcards
+     * @param topic A topic without wildcards
+     */
+    public static boolean matches(String filter, String topic) {
+        String[] filterLevels = filter.split("/", -1);
+        String[] topicLevels = topic.split("/", -1);
+        for (int i = 0; i < filterLevels.length; i++) {
+            if (MULTI_LEVEL.equals(filterLevels[i])) {
+                return true;
+            }
+            if (i >= topicLevels.length) {
+                return false;
+            }
+            if (!SINGLE_LEVEL.equals(filterLevels[i]) && !filterLevels[i].equals(topicLevels[i])) {
+                return false;
+            }
+        }
+        return filterLevels.length == topicLevels.length;
+    }
+
+    /**
+     * Return true if the topic filter contains wildcards.
+     */
+    public static boolean hasWildcards(@Nullable String filter) {
+        return filter != null && (filter.contains(SINGLE_LEVEL) || filter.contains(MULTI_LEVEL));
+    }
+}
@@ -87,6 +87,13 @@ public class NumberValue extends Value {
         return state.format(formatPattern);
     }
 
+    @Override
+    public @Nullable Command parseMessage(byte[] payload) {
+        // Plain numbers are parsed as unit-less quantities, which update the state like a decimal
+        BigDecimal value = parseDecimal(payload);
+        return value != null ? new DecimalType(value) : super.parseMessage(payload);
+    }
+
     @Override
     public void update(Command command) throws IllegalArgumentException {
         DecimalType oldvalue = (state == UnDefType.UNDEF) ? new DecimalType() : (DecimalType) state;
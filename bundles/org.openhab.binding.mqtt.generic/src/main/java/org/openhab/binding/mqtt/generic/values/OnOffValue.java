@@ -12,6 +12,8 @@
  */
 package org.openhab.binding.mqtt.generic.values;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -29,10 +31,15 @@ import org.eclipse.smarthome.core.types.Command;
  */
 @NonNullByDefault
 public class OnOffValue extends Value {
+    private static final byte[] ON_PAYLOAD = OnOffType.ON.name().getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OFF_PAYLOAD = OnOffType.OFF.name().getBytes(StandardCharsets.UTF_8);
+
     private final String onState;
     private final String offState;
     private final String onCommand;
     private final String offCommand;
+    private final byte[] onStatePayload;
+    private final byte[] offStatePayload;
 
     /**
      * Creates a switch On/Off type, that accepts "ON", "1" for on and "OFF","0" for off.
@@ -68,6 +75,23 @@ public class OnOffValue extends Value {
         this.offState = offState == null ? OnOffType.OFF.name() : offState;
         this.onCommand = onCommand == null ? OnOffType.ON.name() : onCommand;
         this.offCommand = offCommand == null ? OnOffType.OFF.name() : offCommand;
+        this.onStatePayload = this.onState.getBytes(StandardCharsets.UTF_8);
+        this.offStatePayload = this.offState.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public @Nullable Command parseMessage(byte[] payload) {
+        // Same precedence as parsing the text: the OnOffType names first, then the custom states
+        if (Arrays.equals(payload, ON_PAYLOAD)) {
+            return OnOffType.ON;
+        } else if (Arrays.equals(payload, OFF_PAYLOAD)) {
+            return OnOffType.OFF;
+        } else if (Arrays.equals(payload, onStatePayload)) {
+            return OnOffType.ON;
+        } else if (Arrays.equals(payload, offStatePayload)) {
+            return OnOffType.OFF;
+        }
+        return super.parseMessage(payload);
     }
 
     @Override
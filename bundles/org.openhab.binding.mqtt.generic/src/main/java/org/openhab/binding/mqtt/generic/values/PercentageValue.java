@@ -71,6 +71,12 @@ public class PercentageValue extends Value {
         this.step = step == null ? BigDecimal.ONE : step;
     }
 
+    @Override
+    public @Nullable Command parseMessage(byte[] payload) {
+        BigDecimal value = parseDecimal(payload);
+        return value != null ? new DecimalType(value) : super.parseMessage(payload);
+    }
+
     @Override
     public void update(Command command) throws IllegalArgumentException {
         PercentType oldvalue = (state == UnDefType.UNDEF) ? new PercentType() : (PercentType) state;
@@ -14,7 +14,9 @@ package org.openhab.binding.mqtt.generic.values;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -26,6 +28,7 @@ import org.eclipse.smarthome.core.library.types.RawType;
 import org.eclipse.smarthome.core.types.Command;
 import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.StateDescriptionFragmentBuilder;
+import org.eclipse.smarthome.core.types.TypeParser;
 import org.eclipse.smarthome.core.types.UnDefType;
 
 /**
@@ -100,6 +103,56 @@ public abstract class Value {
         return state.format(pattern);
     }
 
+    /**
+     * Parses a received MQTT payload into one of the supported command types.
+     * <p>
+     * The default implementation decodes the payload as UTF-8 text and calls {@link #parseCommand(String)}.
+     * Subclasses may recognise common payloads directly from the bytes, but must return a command
+     * that results in the same state after {@link #update(Command)}.
+     * </p>
+     *
+     * @param payload The MQTT payload
+     * @return A command or null if the payload is not supported by this value
+     */
+    public @Nullable Command parseMessage(byte[] payload) {
+        return parseCommand(new String(payload, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses a (transformed) MQTT value into the first supported command type that accepts it.
+     *
+     * @param value The MQTT value as text
+     * @return A command or null if the value is not supported by this value
+     */
+    public @Nullable Command parseCommand(String value) {
+        return TypeParser.parseCommand(commandTypes, value);
+    }
+
+    /**
+     * Returns the payload as number, if it only consists of the ASCII characters of a plain decimal number.
+     * Returns null otherwise, for example if the payload has a unit or surrounding whitespace.
+     *
+     * @param payload The MQTT payload
+     */
+    protected static @Nullable BigDecimal parseDecimal(byte[] payload) {
+        if (payload.length == 0) {
+            return null;
+        }
+        char[] chars = new char[payload.length];
+        for (int i = 0; i < payload.length; i++) {
+            byte b = payload[i];
+            if ((b < '0' || b > '9') && b != '.' && b != '-' && b != '+' && b != 'e' && b != 'E') {
+                return null;
+            }
+            chars[i] = (char) b;
+        }
+        try {
+            return new BigDecimal(chars);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /**
      * Returns true if this is a binary type.
      */
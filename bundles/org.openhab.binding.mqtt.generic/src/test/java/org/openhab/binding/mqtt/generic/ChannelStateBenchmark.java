@@ -0,0 +1,140 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.thing.ChannelUID;
+import org.eclipse.smarthome.core.types.Command;
+import org.eclipse.smarthome.core.types.State;
+import org.openhab.binding.mqtt.generic.values.ColorValue;
+import org.openhab.binding.mqtt.generic.values.NumberValue;
+import org.openhab.binding.mqtt.generic.values.OnOffValue;
+import org.openhab.binding.mqtt.generic.values.PercentageValue;
+import org.openhab.binding.mqtt.generic.values.TextValue;
+import org.openhab.binding.mqtt.generic.values.Value;
+
+/**
+ * Measures {@link ChannelState#processMessage(String, byte[])} for the main value types, and compares it with the
+ * former path, which decoded every payload to a string and parsed it with the type parser.
+ * <p>
+ * Run {@link #main(String[])} with the arguments <code>[iterations] [warmupIterations]</code>, for example from the
+ * IDE with the test classpath. The warm-up runs let the JIT compile both paths before they are measured.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class ChannelStateBenchmark {
+
+    private static class Case {
+        final String name;
+        final Value value;
+        final ChannelState channelState;
+        final byte[][] payloads;
+
+        Case(String name, Value value, String... payloads) {
+            this.name = name;
+            this.value = value;
+            this.channelState = new ChannelState(ChannelConfigBuilder.create("state", "command").build(),
+                    new ChannelUID("mqtt:topic:broker:thing:" + name), value, LISTENER);
+            this.payloads = new byte[payloads.length][];
+            for (int i = 0; i < payloads.length; i++) {
+                this.payloads[i] = payloads[i].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    private static int updates = 0;
+
+    private static final ChannelStateUpdateListener LISTENER = new ChannelStateUpdateListener() {
+        @Override
+        public void updateChannelState(ChannelUID channelUID, State value) {
+            updates++;
+        }
+
+        @Override
+        public void postChannelCommand(ChannelUID channelUID, Command value) {
+            updates++;
+        }
+
+        @Override
+        public void triggerChannel(ChannelUID channelUID, String eventPayload) {
+            updates++;
+        }
+    };
+
+    private final Case[] cases = { new Case("number", new NumberValue(null, null, null, null), "21.5", "-3", "1024"),
+            new Case("percentage", new PercentageValue(null, null, null, null, null), "0", "42", "100"),
+            new Case("onoff", new OnOffValue(), "ON", "OFF"),
+            new Case("text", new TextValue(), "Living room", "Kitchen"),
+            new Case("color", new ColorValue(true, null, null, 10), "255,128,0", "0,64,255") };
+
+    /**
+     * Processes the payloads of every value type <code>iterations</code> times, with the channel state and with the
+     * former string path.
+     *
+     * @return for every value type the messages per second with the channel state and with the string path
+     */
+    public double[][] run(int iterations) {
+        double[][] result = new double[cases.length][];
+        for (int c = 0; c < cases.length; c++) {
+            Case test = cases[c];
+            int messages = iterations * test.payloads.length;
+
+            updates = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                for (byte[] payload : test.payloads) {
+                    test.channelState.processMessage("state", payload);
+                }
+            }
+            long channelStateNanos = System.nanoTime() - start;
+            if (updates != messages) {
+                throw new IllegalStateException("Not every message of " + test.name + " updated the channel");
+            }
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                for (byte[] payload : test.payloads) {
+                    Command command = test.value.parseCommand(new String(payload, StandardCharsets.UTF_8));
+                    if (command == null) {
+                        throw new IllegalStateException("Unsupported payload of " + test.name);
+                    }
+                    test.value.update(command);
+                    LISTENER.updateChannelState(test.channelState.channelUID(), test.value.getChannelState());
+                }
+            }
+            long stringNanos = System.nanoTime() - start;
+
+            result[c] = new double[] { perSecond(messages, channelStateNanos), perSecond(messages, stringNanos) };
+        }
+        return result;
+    }
+
+    private static double perSecond(int messages, long nanos) {
+        return messages * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos);
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int warmupIterations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        ChannelStateBenchmark benchmark = new ChannelStateBenchmark();
+        benchmark.run(warmupIterations);
+        double[][] result = benchmark.run(iterations);
+        for (int c = 0; c < result.length; c++) {
+            System.out.println(String.format("%-10s processMessage: %,.0f messages/s, string path: %,.0f messages/s",
+                    benchmark.cases[c].name, result[c][0], result[c][1]));
+        }
+    }
+}
@@ -42,6 +42,7 @@ import org.openhab.binding.mqtt.generic.mapping.MQTTvalueTransform;
 import org.openhab.binding.mqtt.generic.mapping.SubscribeFieldToMQTTtopic;
 import org.openhab.binding.mqtt.generic.mapping.TopicPrefix;
 import org.openhab.binding.mqtt.generic.mapping.SubscribeFieldToMQTTtopic.FieldChanged;
+import org.openhab.binding.mqtt.generic.tools.MqttTopicDispatcher;
 
 /**
  * Tests cases for {@link SubscribeFieldToMQTTtopic}.
@@ -157,4 +158,38 @@ public class SubscribeFieldToMQTTtopicTests {
         assertThat(attributes.Int, is(10));
     }
 
+    @Test
+    public void OptionalNotAwaitedAfterRetainedMessages()
+            throws InterruptedException, NoSuchFieldException, ExecutionException, TimeoutException {
+        final Field field = Attributes.class.getField("Int");
+        ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1);
+        MqttTopicDispatcher dispatcher = new MqttTopicDispatcher(connection);
+        dispatcher.share("homie/#", scheduler, 10, 1000);
+
+        SubscribeFieldToMQTTtopic subscriber = new SubscribeFieldToMQTTtopic(scheduler, field, fieldChanged,
+                "homie/device123", false);
+        subscriber.setTopicDispatcher(dispatcher);
+        // Completes long before the timeout
+        subscriber.subscribeAndReceive(connection, 10000).get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void MandatoryAwaitedAfterRetainedMessages()
+            throws InterruptedException, NoSuchFieldException, ExecutionException, TimeoutException {
+        final Field field = Attributes.class.getField("Int");
+        ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1);
+        MqttTopicDispatcher dispatcher = new MqttTopicDispatcher(connection);
+        dispatcher.share("homie/#", scheduler, 10, 1000);
+
+        SubscribeFieldToMQTTtopic subscriber = new SubscribeFieldToMQTTtopic(scheduler, field, fieldChanged,
+                "homie/device123", true);
+        subscriber.setTopicDispatcher(dispatcher);
+        CompletableFuture<@Nullable Void> future = subscriber.subscribeAndReceive(connection, 10000);
+        dispatcher.awaitRetained("homie/#").get(1, TimeUnit.SECONDS);
+        assertFalse(future.isDone());
+
+        // A late value still arrives within the timeout
+        dispatcher.processMessage("homie/device123", "10".getBytes());
+        future.get(50, TimeUnit.MILLISECONDS);
+    }
 }
@@ -0,0 +1,261 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic.tools;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+/**
+ * Tests the {@link MqttTopicDispatcher} class.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class MqttTopicDispatcherTests {
+    @Mock
+    private MqttBrokerConnection connection;
+
+    @Mock
+    private MqttMessageSubscriber subscriber1;
+
+    @Mock
+    private MqttMessageSubscriber subscriber2;
+
+    private final ScheduledExecutorService scheduler = new ScheduledThreadPoolExecutor(1);
+
+    private MqttTopicDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        doReturn(CompletableFuture.completedFuture(true)).when(connection).subscribe(any(), any());
+        doReturn(CompletableFuture.completedFuture(true)).when(connection).unsubscribe(any(), any());
+        dispatcher = new MqttTopicDispatcher(connection);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private CompletableFuture<@Nullable Void> share(String filter) {
+        dispatcher.share(filter, scheduler, 50, 5000);
+        verify(connection).subscribe(filter, dispatcher);
+        return dispatcher.awaitRetained(filter);
+    }
+
+    @Test
+    public void unsharedTopicsGoToTheBroker() {
+        dispatcher.subscribe("some/topic", subscriber1);
+        verify(connection).subscribe("some/topic", subscriber1);
+
+        dispatcher.unsubscribe("some/topic", subscriber1);
+        verify(connection).unsubscribe("some/topic", subscriber1);
+
+        // Without a dispatcher or with the dispatcher of another connection
+        MqttBrokerConnection other = mock(MqttBrokerConnection.class);
+        MqttTopicDispatcher.subscribe(null, connection, "some/topic", subscriber2);
+        verify(connection).subscribe("some/topic", subscriber2);
+        MqttTopicDispatcher.subscribe(dispatcher, other, "some/topic", subscriber2);
+        verify(other).subscribe("some/topic", subscriber2);
+    }
+
+    @Test
+    public void sharedTopicsAreDispatchedLocally() {
+        share("homie/dev/#");
+
+        assertTrue(dispatcher.subscribe("homie/dev/$name", subscriber1).join());
+        assertTrue(dispatcher.subscribe("homie/dev/+/$name", subscriber2).join());
+        verify(connection, times(1)).subscribe(any(), any());
+
+        byte[] payload = "name".getBytes(StandardCharsets.UTF_8);
+        dispatcher.processMessage("homie/dev/$name", payload);
+        dispatcher.processMessage("homie/dev/node/$name", payload);
+        verify(subscriber1).processMessage("homie/dev/$name", payload);
+        verify(subscriber2).processMessage("homie/dev/node/$name", payload);
+        verifyNoMoreInteractions(subscriber1, subscriber2);
+
+        dispatcher.unsubscribe("homie/dev/$name", subscriber1);
+        dispatcher.unsubscribe("homie/dev/+/$name", subscriber2);
+        dispatcher.release("homie/dev/#");
+        verify(connection, times(1)).unsubscribe(any(), any());
+        verify(connection).unsubscribe("homie/dev/#", dispatcher);
+    }
+
+    @Test
+    public void retainedPayloadsAreReplayed() {
+        share("homie/dev/#");
+        byte[] payload = "ready".getBytes(StandardCharsets.UTF_8);
+        dispatcher.processMessage("homie/dev/$state", payload);
+
+        dispatcher.subscribe("homie/dev/$state", subscriber1).join();
+        verify(subscriber1).processMessage("homie/dev/$state", payload);
+
+        // An empty retained message removes the topic
+        dispatcher.processMessage("homie/dev/$state", new byte[0]);
+        dispatcher.subscribe("homie/dev/$state", subscriber2).join();
+        verifyNoMoreInteractions(subscriber2);
+
+        dispatcher.unsubscribe("homie/dev/$state", subscriber1);
+        dispatcher.unsubscribe("homie/dev/$state", subscriber2);
+        dispatcher.release("homie/dev/#");
+    }
+
+    @Test
+    public void liveMessageIsNotOverwrittenByReplay() {
+        CompletableFuture<Boolean> subscribed = new CompletableFuture<>();
+        doReturn(subscribed).when(connection).subscribe(eq("homie/dev/#"), any());
+        dispatcher.share("homie/dev/#", scheduler, 50, 5000);
+        byte[] retained = "init".getBytes(StandardCharsets.UTF_8);
+        byte[] live = "ready".getBytes(StandardCharsets.UTF_8);
+        dispatcher.processMessage("homie/dev/$state", retained);
+
+        // The subscriber is registered, but the replay waits for the broker subscription
+        CompletableFuture<Boolean> future = dispatcher.subscribe("homie/dev/$state", subscriber1);
+        dispatcher.processMessage("homie/dev/$state", live);
+        subscribed.complete(true);
+        assertTrue(future.join());
+
+        verify(subscriber1).processMessage("homie/dev/$state", live);
+        verifyNoMoreInteractions(subscriber1);
+    }
+
+    @Test
+    public void liveMessageDuringReplayIsDeliveredAfterIt() {
+        share("homie/dev/#");
+        dispatcher.processMessage("homie/dev/a", "retained".getBytes(StandardCharsets.UTF_8));
+        dispatcher.processMessage("homie/dev/b", "retained".getBytes(StandardCharsets.UTF_8));
+
+        List<String> received = new ArrayList<>();
+        MqttMessageSubscriber subscriber = new MqttMessageSubscriber() {
+            @Override
+            public void processMessage(String topic, byte[] payload) {
+                received.add(topic + "=" + new String(payload, StandardCharsets.UTF_8));
+                if (received.size() == 1) {
+                    // A live message on the topic that is not replayed yet arrives during the replay
+                    String other = topic.equals("homie/dev/a") ? "homie/dev/b" : "homie/dev/a";
+                    dispatcher.processMessage(other, "live".getBytes(StandardCharsets.UTF_8));
+                }
+            }
+        };
+        assertTrue(dispatcher.subscribe("homie/dev/#", subscriber).join());
+
+        assertEquals(2, received.size());
+        assertTrue(received.get(0).endsWith("=retained"));
+        assertTrue(received.get(1).endsWith("=live"));
+        assertNotEquals(received.get(0).split("=")[0], received.get(1).split("=")[0]);
+
+        // The replay is finished, live messages are delivered directly again
+        dispatcher.processMessage("homie/dev/b", "next".getBytes(StandardCharsets.UTF_8));
+        assertEquals("homie/dev/b=next", received.get(2));
+    }
+
+    @Test
+    public void replayIsDeliveredWithoutTheLock() {
+        share("homie/dev/#");
+        dispatcher.processMessage("homie/dev/$state", "ready".getBytes(StandardCharsets.UTF_8));
+
+        AtomicBoolean otherThreadFinished = new AtomicBoolean();
+        MqttMessageSubscriber subscriber = new MqttMessageSubscriber() {
+            @Override
+            public void processMessage(String topic, byte[] payload) {
+                // Blocks if the dispatcher is locked while the replay is delivered
+                Thread other = new Thread(() -> dispatcher.awaitRetained("homie/dev/#"));
+                other.start();
+                try {
+                    other.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                otherThreadFinished.set(!other.isAlive());
+            }
+        };
+        assertTrue(dispatcher.subscribe("homie/dev/$state", subscriber).join());
+
+        assertTrue(otherThreadFinished.get());
+    }
+
+    @Test
+    public void onlyRetainedMessagesAreCached() throws Exception {
+        CompletableFuture<@Nullable Void> retained = share("homie/dev/#");
+        byte[] payload = "name".getBytes(StandardCharsets.UTF_8);
+        dispatcher.processMessage("homie/dev/$name", payload);
+        retained.get(1, TimeUnit.SECONDS);
+
+        // Arrived after the retained messages, not replayed
+        dispatcher.processMessage("homie/dev/node/event", payload);
+        dispatcher.subscribe("homie/dev/node/event", subscriber1).join();
+        verifyNoMoreInteractions(subscriber1);
+
+        // Updates of retained topics are kept
+        byte[] update = "new name".getBytes(StandardCharsets.UTF_8);
+        dispatcher.processMessage("homie/dev/$name", update);
+        dispatcher.subscribe("homie/dev/$name", subscriber2).join();
+        verify(subscriber2).processMessage("homie/dev/$name", update);
+        verifyNoMoreInteractions(subscriber2);
+    }
+
+    @Test
+    public void sharedFilterIsReferenceCounted() {
+        share("homie/dev/#");
+        dispatcher.share("homie/dev/#", scheduler, 50, 5000);
+        verify(connection, times(1)).subscribe(any(), any());
+
+        dispatcher.release("homie/dev/#");
+        verify(connection, never()).unsubscribe(any(), any());
+        dispatcher.release("homie/dev/#");
+        verify(connection).unsubscribe(eq("homie/dev/#"), any());
+
+        // The filter is released, subscriptions go to the broker again
+        dispatcher.subscribe("homie/dev/$name", subscriber1);
+        verify(connection).subscribe("homie/dev/$name", subscriber1);
+    }
+
+    @Test
+    public void retainedMessagesAreAwaited() throws Exception {
+        assertNull(dispatcher.whenRetainedLoaded("homie/dev/$name"));
+
+        CompletableFuture<@Nullable Void> retained = share("homie/dev/#");
+        dispatcher.processMessage("homie/dev/$name", "name".getBytes(StandardCharsets.UTF_8));
+        retained.get(1, TimeUnit.SECONDS);
+
+        assertSame(retained, dispatcher.whenRetainedLoaded("homie/dev/node/$name"));
+        assertNull(dispatcher.whenRetainedLoaded("homie/other/$name"));
+        assertTrue(dispatcher.awaitRetained("homie/other/#").isDone());
+        dispatcher.release("homie/dev/#");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onlyMultiLevelFiltersCanBeShared() {
+        dispatcher.share("homie/+/#", scheduler, 50, 5000);
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.generic.tools;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link MqttTopicTrie} class.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class MqttTopicTrieTests {
+    private final MqttTopicTrie<String> trie = new MqttTopicTrie<>();
+
+    private List<String> match(String topic) {
+        List<String> result = new ArrayList<>();
+        trie.match(topic, result);
+        result.sort(null);
+        return result;
+    }
+
+    @Test
+    public void matchExactAndWildcards() {
+        trie.add("homie/dev/node/prop", "exact");
+        trie.add("homie/dev/+/prop", "single");
+        trie.add("homie/dev/#", "multi");
+        trie.add("homie/other/#", "other");
+
+        assertThat(match("homie/dev/node/prop"), is(Arrays.asList("exact", "multi", "single")));
+        assertThat(match("homie/dev/node2/prop"), is(Arrays.asList("multi", "single")));
+        assertThat(match("homie/dev/node/prop/set"), is(Arrays.asList("multi")));
+        assertThat(match("homie/dev"), is(Arrays.asList("multi")));
+        assertThat(match("homie"), is(Arrays.asList()));
+        assertThat(match("other/dev/node/prop"), is(Arrays.asList()));
+    }
+
+    @Test
+    public void emptyLevelsAreDistinct() {
+        trie.add("a//b", "empty");
+        trie.add("a/+/b", "single");
+
+        assertThat(match("a//b"), is(Arrays.asList("empty", "single")));
+        assertThat(match("a/b"), is(Arrays.asList()));
+    }
+
+    @Test
+    public void addAndRemove() {
+        assertTrue(trie.add("a/b", "1"));
+        assertFalse(trie.add("a/b", "1"));
+        assertTrue(trie.add("a/b", "2"));
+        assertThat(trie.size(), is(2));
+
+        assertFalse(trie.remove("a/c", "1"));
+        assertTrue(trie.remove("a/b", "1"));
+        assertThat(match("a/b"), is(Arrays.asList("2")));
+        assertTrue(trie.remove("a/b", "2"));
+        assertTrue(trie.isEmpty());
+        assertThat(match("a/b"), is(Arrays.asList()));
+    }
+
+    @Test
+    public void matchesSingleFilter() {
+        assertTrue(MqttTopicTrie.matches("a/+/c", "a/b/c"));
+        assertTrue(MqttTopicTrie.matches("a/#", "a"));
+        assertTrue(MqttTopicTrie.matches("a/#", "a/b/c"));
+        assertTrue(MqttTopicTrie.matches("#", "a/b"));
+        assertFalse(MqttTopicTrie.matches("a/+", "a/b/c"));
+        assertFalse(MqttTopicTrie.matches("a/b/c", "a/b"));
+
+        assertTrue(MqttTopicTrie.hasWildcards("a/+/c"));
+        assertFalse(MqttTopicTrie.hasWildcards("a/b/c"));
+    }
+}
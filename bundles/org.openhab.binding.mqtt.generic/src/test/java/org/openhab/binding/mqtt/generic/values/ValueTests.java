@@ -16,6 +16,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.*;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 
 import org.eclipse.smarthome.core.library.types.DecimalType;
 import org.eclipse.smarthome.core.library.types.HSBType;
@@ -25,6 +26,7 @@ import org.eclipse.smarthome.core.library.types.PercentType;
 import org.eclipse.smarthome.core.library.types.StringType;
 import org.eclipse.smarthome.core.library.types.UpDownType;
 import org.eclipse.smarthome.core.types.Command;
+import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.TypeParser;
 import org.junit.Test;
 
@@ -258,4 +260,37 @@ public class ValueTests {
                 null);
         v.update(new DecimalType(9.0));
     }
+
+    private void assertSameStateFromPayload(Value v, String str) {
+        v.update(p(v, str));
+        State expected = v.getChannelState();
+        v.resetState();
+        v.update(v.parseMessage(str.getBytes(StandardCharsets.UTF_8)));
+        assertThat(v.getChannelState(), is(expected));
+    }
+
+    @Test
+    public void parseMessageMatchesTextParsing() {
+        NumberValue number = new NumberValue(null, null, null, null);
+        for (String str : new String[] { "15", "-5.5", "20 %" }) {
+            assertSameStateFromPayload(number, str);
+        }
+        PercentageValue percent = new PercentageValue(new BigDecimal(-100), new BigDecimal(100), null, null, null);
+        for (String str : new String[] { "-100", "0", "12.5", "ON" }) {
+            assertSameStateFromPayload(percent, str);
+        }
+        OnOffValue onoff = new OnOffValue("1", "0");
+        for (String str : new String[] { "ON", "OFF", "1", "0" }) {
+            assertSameStateFromPayload(onoff, str);
+        }
+    }
+
+    @Test
+    public void parseMessageRejectsUnknownPayload() {
+        OnOffValue onoff = new OnOffValue("1", "0");
+        assertThat(onoff.parseMessage("2".getBytes(StandardCharsets.UTF_8)), is(new StringType("2")));
+
+        NumberValue number = new NumberValue(null, null, null, null);
+        assertNull(number.parseMessage("1.2.3".getBytes(StandardCharsets.UTF_8)));
+    }
 }
@@ -28,6 +28,7 @@ import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.eclipse.smarthome.io.transport.mqtt.MqttMessageSubscriber;
 import org.openhab.binding.mqtt.generic.ChannelStateUpdateListener;
 import org.openhab.binding.mqtt.generic.TransformationServiceProvider;
+import org.openhab.binding.mqtt.homeassistant.internal.util.ConfigPayloadCache;
 import org.openhab.binding.mqtt.homeassistant.internal.util.FutureCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,6 +57,7 @@ public class DiscoverComponents implements MqttMessageSubscriber {
     protected @NonNullByDefault({}) ComponentDiscovered discoveredListener;
     private int discoverTime;
     private Set<String> topics = new HashSet<>();
+    private final ConfigPayloadCache configCache = new ConfigPayloadCache();
 
     /**
      * Implement this to get notified of new components
@@ -87,6 +89,12 @@ public class DiscoverComponents implements MqttMessageSubscriber {
             return;
         }
 
+        // Devices announce their unchanged configuration again, for example when HomeAssistant restarts
+        if (!configCache.update(topic, payload)) {
+            logger.trace("Configuration on topic {} unchanged", topic);
+            return;
+        }
+
         HaID haID = new HaID(topic);
         String config = new String(payload);
 
@@ -133,6 +141,7 @@ public class DiscoverComponents implements MqttMessageSubscriber {
         this.discoverTime = discoverTime;
         this.discoveredListener = componentsDiscoveredListener;
         this.connectionRef = new WeakReference<>(connection);
+        configCache.clear();
 
         // Subscribe to the wildcard topic and start receive MQTT retained topics
         this.topics.parallelStream().map(t -> connection.subscribe(t, this)).collect(FutureCollector.allOf())
@@ -164,6 +173,7 @@ public class DiscoverComponents implements MqttMessageSubscriber {
             this.stopDiscoveryFuture = null;
         }
         this.discoveredListener = null;
+        configCache.clear();
         final MqttBrokerConnection connection = connectionRef.get();
         if (connection != null) {
             this.topics.parallelStream().forEach(t -> connection.unsubscribe(t, this));
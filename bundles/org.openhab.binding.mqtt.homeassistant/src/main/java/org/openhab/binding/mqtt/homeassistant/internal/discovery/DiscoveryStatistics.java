@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.homeassistant.internal.discovery;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Counters and parse timings of the {@link HomeAssistantDiscovery}, collected per round of published results.
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class DiscoveryStatistics {
+    final AtomicLong receivedConfigs = new AtomicLong();
+    final AtomicLong unchangedConfigs = new AtomicLong();
+    final AtomicLong invalidConfigs = new AtomicLong();
+    final AtomicLong parsedConfigs = new AtomicLong();
+    final AtomicLong totalParseNanos = new AtomicLong();
+    final AtomicLong maxParseNanos = new AtomicLong();
+
+    void recordParseTime(long nanos) {
+        parsedConfigs.incrementAndGet();
+        totalParseNanos.addAndGet(nanos);
+        maxParseNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getReceivedConfigs() {
+        return receivedConfigs.get();
+    }
+
+    /**
+     * @return number of received configurations that were skipped, because they did not change
+     */
+    public long getUnchangedConfigs() {
+        return unchangedConfigs.get();
+    }
+
+    public long getInvalidConfigs() {
+        return invalidConfigs.get();
+    }
+
+    public long getParsedConfigs() {
+        return parsedConfigs.get();
+    }
+
+    public long getTotalParseMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalParseNanos.get());
+    }
+
+    public long getMaxParseMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxParseNanos.get());
+    }
+
+    /**
+     * Return the statistics as text and start over.
+     */
+    public String getAndReset() {
+        String text = toString();
+        for (AtomicLong counter : new AtomicLong[] { receivedConfigs, unchangedConfigs, invalidConfigs,
+                parsedConfigs, totalParseNanos, maxParseNanos }) {
+            counter.set(0);
+        }
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("received=%d, unchanged=%d, parsed=%d, invalid=%d, parseTime=%d ms, maxParseTime=%d ms",
+                getReceivedConfigs(), getUnchangedConfigs(), getParsedConfigs(), getInvalidConfigs(),
+                getTotalParseMillis(), getMaxParseMillis());
+    }
+}
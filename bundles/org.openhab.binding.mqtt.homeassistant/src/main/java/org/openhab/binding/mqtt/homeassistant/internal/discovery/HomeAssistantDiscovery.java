@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -32,6 +33,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.config.discovery.DiscoveryResult;
 import org.eclipse.smarthome.config.discovery.DiscoveryResultBuilder;
 import org.eclipse.smarthome.config.discovery.DiscoveryService;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.thing.ThingTypeUID;
 import org.eclipse.smarthome.core.thing.ThingUID;
 import org.eclipse.smarthome.core.thing.type.ThingType;
@@ -44,6 +46,7 @@ import org.openhab.binding.mqtt.homeassistant.internal.BaseChannelConfiguration;
 import org.openhab.binding.mqtt.homeassistant.internal.ChannelConfigurationTypeAdapterFactory;
 import org.openhab.binding.mqtt.homeassistant.internal.HaID;
 import org.openhab.binding.mqtt.homeassistant.internal.HandlerConfiguration;
+import org.openhab.binding.mqtt.homeassistant.internal.util.ConfigPayloadCache;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
@@ -61,11 +64,16 @@ import com.google.gson.GsonBuilder;
 @Component(immediate = true, service = DiscoveryService.class, configurationPid = "discovery.mqttha")
 @NonNullByDefault
 public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
-    @SuppressWarnings("unused")
     private final Logger logger = LoggerFactory.getLogger(HomeAssistantDiscovery.class);
     protected final Map<String, Set<HaID>> componentsPerThingID = new TreeMap<>();
     protected final Map<String, ThingUID> thingIDPerTopic = new TreeMap<>();
     protected final Map<String, DiscoveryResult> results = new TreeMap<>();
+    /** The results published so far, announced again on the next scan */
+    protected final Map<String, DiscoveryResult> knownResults = new TreeMap<>();
+    protected final ConfigPayloadCache configCache = new ConfigPayloadCache();
+    protected final DiscoveryStatistics statistics = new DiscoveryStatistics();
+
+    private final Executor parsePool;
 
     private @Nullable ScheduledFuture<?> future;
     private final Gson gson;
@@ -85,6 +93,7 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
     }
 
     static final String BASE_TOPIC = "homeassistant";
+    static final String PARSE_POOL_NAME = "mqtt-homeassistant-discovery";
 
     @NonNullByDefault({})
     protected MqttChannelTypeProvider typeProvider;
@@ -93,7 +102,17 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
     protected MQTTTopicDiscoveryService mqttTopicDiscovery;
 
     public HomeAssistantDiscovery() {
+        this(ThreadPoolManager.getPool(PARSE_POOL_NAME));
+    }
+
+    /**
+     * Creates the discovery with the executor that parses the configurations.
+     *
+     * @param parsePool Parses new or changed configurations
+     */
+    HomeAssistantDiscovery(Executor parsePool) {
         super(null, 3, true, BASE_TOPIC + "/#");
+        this.parsePool = parsePool;
         this.gson = new GsonBuilder().registerTypeAdapterFactory(new ChannelConfigurationTypeAdapterFactory()).create();
     }
 
@@ -126,6 +145,29 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         return typeProvider.getThingTypeUIDs();
     }
 
+    @Override
+    protected void startScan() {
+        republishKnownResults();
+        super.startScan();
+    }
+
+    @Override
+    protected void startBackgroundDiscovery() {
+        super.startBackgroundDiscovery();
+        republishKnownResults();
+    }
+
+    /**
+     * Unchanged configurations are not parsed and published again, announce the results known so far instead.
+     */
+    private void republishKnownResults() {
+        Collection<DiscoveryResult> localResults;
+        synchronized (results) {
+            localResults = new ArrayList<>(knownResults.values());
+        }
+        localResults.forEach(this::thingDiscovered);
+    }
+
     @Override
     public void receivedMessage(ThingUID connectionBridge, MqttBrokerConnection connection, String topic,
             byte[] payload) {
@@ -139,16 +181,29 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
             return;
         }
 
-        // Reset the found-component timer.
-        // We will collect components for the thing label description for another 2 seconds.
-        final ScheduledFuture<?> future = this.future;
-        if (future != null) {
-            future.cancel(false);
+        statistics.receivedConfigs.incrementAndGet();
+        // Retained configurations are received again on every discovery run
+        final String cacheKey = connectionBridge.getAsString() + "/" + topic;
+        if (!configCache.update(cacheKey, payload)) {
+            statistics.unchangedConfigs.incrementAndGet();
+            return;
         }
-        this.future = scheduler.schedule(this::publishResults, 2, TimeUnit.SECONDS);
 
-        BaseChannelConfiguration config = BaseChannelConfiguration
-                .fromString(new String(payload, StandardCharsets.UTF_8), gson);
+        parsePool.execute(() -> processConfig(connectionBridge, topic, cacheKey, payload));
+    }
+
+    private void processConfig(ThingUID connectionBridge, String topic, String cacheKey, byte[] payload) {
+        final long startTime = System.nanoTime();
+        final BaseChannelConfiguration config;
+        try {
+            config = BaseChannelConfiguration.fromString(new String(payload, StandardCharsets.UTF_8), gson);
+        } catch (RuntimeException e) {
+            statistics.invalidConfigs.incrementAndGet();
+            logger.debug("Configuration on topic {} invalid: {}", topic, e.getMessage());
+            return;
+        } finally {
+            statistics.recordParseTime(System.nanoTime() - startTime);
+        }
 
         // We will of course find multiple of the same unique Thing IDs, for each different component another one.
         // Therefore the components are assembled into a list and given to the DiscoveryResult label for the user to
@@ -162,38 +217,79 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
 
         final ThingUID thingUID = new ThingUID(typeID, connectionBridge, thingID);
 
-        thingIDPerTopic.put(topic, thingUID);
+        ThingUID removedThingUID = null;
+        synchronized (results) {
+            // Drop the result if a newer configuration has been received meanwhile
+            if (!configCache.isCurrent(cacheKey, payload)) {
+                return;
+            }
 
-        // We need to keep track of already found component topics for a specific thing
-        Set<HaID> components = componentsPerThingID.computeIfAbsent(thingID, key -> new HashSet<>());
-        components.add(haID);
+            // The configuration may have moved the component to another thing
+            ThingUID previousThingUID = thingIDPerTopic.put(topic, thingUID);
+            if (previousThingUID != null && !previousThingUID.equals(thingUID)
+                    && removeComponent(previousThingUID, haID)) {
+                removedThingUID = previousThingUID;
+            }
 
-        final String componentNames = components.stream().map(id -> id.component)
-                .map(c -> HA_COMP_TO_NAME.getOrDefault(c, c)).collect(Collectors.joining(", "));
+            // We need to keep track of already found component topics for a specific thing
+            Set<HaID> components = componentsPerThingID.computeIfAbsent(thingID, key -> new HashSet<>());
+            components.add(haID);
 
-        final List<String> topics = components.stream().map(id -> id.toShortTopic()).collect(Collectors.toList());
+            final String componentNames = components.stream().map(id -> id.component)
+                    .map(c -> HA_COMP_TO_NAME.getOrDefault(c, c)).collect(Collectors.joining(", "));
 
-        Map<String, Object> properties = new HashMap<>();
-        HandlerConfiguration handlerConfig = new HandlerConfiguration(haID.baseTopic, topics);
-        properties = handlerConfig.appendToProperties(properties);
-        properties = config.appendToProperties(properties);
+            final List<String> topics = components.stream().map(id -> id.toShortTopic())
+                    .collect(Collectors.toList());
+
+            Map<String, Object> properties = new HashMap<>();
+            HandlerConfiguration handlerConfig = new HandlerConfiguration(haID.baseTopic, topics);
+            properties = handlerConfig.appendToProperties(properties);
+            properties = config.appendToProperties(properties);
 
-        synchronized (results) {
             // Because we need the new properties map with the updated "components" list
             results.put(thingUID.getAsString(),
                     DiscoveryResultBuilder.create(thingUID).withProperties(properties)
                             .withRepresentationProperty("objectid").withBridge(connectionBridge)
                             .withLabel(config.getThingName() + " (" + componentNames + ")").build());
+
+            // Reset the found-component timer.
+            // We will collect components for the thing label description for another 2 seconds.
+            final ScheduledFuture<?> future = this.future;
+            if (future != null) {
+                future.cancel(false);
+            }
+            this.future = scheduler.schedule(this::publishResults, 2, TimeUnit.SECONDS);
+        }
+        if (removedThingUID != null) {
+            thingRemoved(removedThingUID);
         }
     }
 
+    /**
+     * Remove a component from the components of a thing. Must be called with the lock on {@link #results}.
+     *
+     * @return true if the thing has no components left and has been forgotten
+     */
+    private boolean removeComponent(ThingUID thingUID, HaID haID) {
+        final String thingID = thingUID.getId();
+        Set<HaID> components = componentsPerThingID.getOrDefault(thingID, Collections.emptySet());
+        components.remove(haID);
+        if (!components.isEmpty()) {
+            return false;
+        }
+        componentsPerThingID.remove(thingID);
+        results.remove(thingUID.getAsString());
+        knownResults.remove(thingUID.getAsString());
+        return true;
+    }
+
     protected void publishResults() {
         Collection<DiscoveryResult> localResults;
 
         synchronized (results) {
             localResults = new ArrayList<>(results.values());
             results.clear();
-            componentsPerThingID.clear();
+            localResults.forEach(result -> knownResults.put(result.getThingUID().getAsString(), result));
         }
         for (DiscoveryResult result : localResults) {
             final ThingTypeUID typeID = result.getThingTypeUID();
@@ -202,6 +298,8 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
 
             thingDiscovered(result);
         }
+        logger.debug("HomeAssistant discovery published {} things: {}", localResults.size(),
+                statistics.getAndReset());
     }
 
     @Override
@@ -209,18 +307,16 @@ public class HomeAssistantDiscovery extends AbstractMQTTDiscovery {
         if (!topic.endsWith("/config")) {
             return;
         }
-        if (thingIDPerTopic.containsKey(topic)) {
+        configCache.remove(connectionBridge.getAsString() + "/" + topic);
+        ThingUID removedThingUID = null;
+        synchronized (results) {
             ThingUID thingUID = thingIDPerTopic.remove(topic);
-            final String thingID = thingUID.getId();
-
-            HaID haID = new HaID(topic);
-
-            Set<HaID> components = componentsPerThingID.getOrDefault(thingID, Collections.emptySet());
-            components.remove(haID);
-            if (components.isEmpty()) {
-                thingRemoved(thingUID);
+            if (thingUID != null && removeComponent(thingUID, new HaID(topic))) {
+                removedThingUID = thingUID;
             }
         }
+        if (removedThingUID != null) {
+            thingRemoved(removedThingUID);
+        }
     }
-
 }
@@ -0,0 +1,89 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.homeassistant.internal.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Remembers the last component configuration payload per topic.
+ *
+ * <p>
+ * HomeAssistant components publish their configuration as retained messages. These are received again on every
+ * subscription and whenever a device re-announces itself, but rarely change. This cache tells if a configuration
+ * differs from the last one seen, so that unchanged configurations do not need to be parsed again.
+ * </p>
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class ConfigPayloadCache {
+    private final Map<String, Entry> payloads = new HashMap<>();
+
+    private static class Entry {
+        final int hash;
+        final byte[] payload;
+
+        Entry(byte[] payload) {
+            this.hash = Arrays.hashCode(payload);
+            this.payload = payload;
+        }
+
+        boolean sameContent(byte[] other) {
+            return payload == other || (hash == Arrays.hashCode(other) && Arrays.equals(payload, other));
+        }
+    }
+
+    /**
+     * Remember the payload of a topic.
+     *
+     * @param key The topic or another unique key of the configuration
+     * @param payload The configuration payload
+     * @return Returns true if the payload is new or differs from the last one for this key.
+     */
+    public synchronized boolean update(String key, byte[] payload) {
+        Entry entry = payloads.get(key);
+        if (entry != null && entry.sameContent(payload)) {
+            return false;
+        }
+        payloads.put(key, new Entry(payload));
+        return true;
+    }
+
+    /**
+     * Return true if the given payload is still the last one for this key. Used to discard results of a
+     * configuration that has been replaced while it was processed.
+     *
+     * @param key The topic or another unique key of the configuration
+     * @param payload The configuration payload given to {@link #update(String, byte[])}
+     */
+    public synchronized boolean isCurrent(String key, byte[] payload) {
+        Entry entry = payloads.get(key);
+        return entry != null && entry.payload == payload;
+    }
+
+    public synchronized void remove(String key) {
+        payloads.remove(key);
+    }
+
+    public synchronized void clear() {
+        payloads.clear();
+    }
+
+    public synchronized int size() {
+        return payloads.size();
+    }
+}
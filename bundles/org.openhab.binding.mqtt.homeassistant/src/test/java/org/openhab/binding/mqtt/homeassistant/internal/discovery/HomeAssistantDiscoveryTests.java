@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.homeassistant.internal.discovery;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.smarthome.config.discovery.DiscoveryListener;
+import org.eclipse.smarthome.config.discovery.DiscoveryResult;
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.eclipse.smarthome.core.thing.type.ThingTypeBuilder;
+import org.eclipse.smarthome.core.thing.type.ThingTypeRegistry;
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.openhab.binding.mqtt.discovery.MQTTTopicDiscoveryService;
+import org.openhab.binding.mqtt.generic.MqttChannelTypeProvider;
+import org.openhab.binding.mqtt.homeassistant.generic.internal.MqttBindingConstants;
+
+/**
+ * Tests the {@link HomeAssistantDiscovery} class. The configurations are parsed by the test, in the order it chooses.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class HomeAssistantDiscoveryTests {
+    private static final ThingUID BRIDGE = new ThingUID("mqtt", "broker", "local");
+    private static final String LAMP_TOPIC = "homeassistant/switch/node/lamp/config";
+    private static final String FAN_TOPIC = "homeassistant/fan/node/fan/config";
+
+    @Mock
+    private DiscoveryListener listener;
+
+    @Mock
+    private MQTTTopicDiscoveryService topicDiscovery;
+
+    @Mock
+    private ThingTypeRegistry thingTypeRegistry;
+
+    @Mock
+    private MqttBrokerConnection connection;
+
+    private final List<Runnable> parseTasks = new ArrayList<>();
+
+    private HomeAssistantDiscovery discovery;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(thingTypeRegistry.getThingType(MqttBindingConstants.HOMEASSISTANT_MQTT_THING)).thenReturn(
+                ThingTypeBuilder.instance(MqttBindingConstants.HOMEASSISTANT_MQTT_THING, "HomeAssistant").build());
+
+        discovery = new HomeAssistantDiscovery(parseTasks::add);
+        discovery.setMQTTTopicDiscoveryService(topicDiscovery);
+        discovery.setTypeProvider(new MqttChannelTypeProvider(thingTypeRegistry));
+        discovery.addDiscoveryListener(listener);
+    }
+
+    private static String config(String name, String deviceId) {
+        return "{\"name\":\"" + name + "\",\"device\":{\"ids\":[\"" + deviceId + "\"],\"name\":\"" + deviceId
+                + "\"}}";
+    }
+
+    private void receive(String topic, String config) {
+        discovery.receivedMessage(BRIDGE, connection, topic, config.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void parse() {
+        parseTasks.forEach(Runnable::run);
+        parseTasks.clear();
+    }
+
+    private List<DiscoveryResult> discovered(int times) {
+        ArgumentCaptor<DiscoveryResult> captor = ArgumentCaptor.forClass(DiscoveryResult.class);
+        verify(listener, times(times)).thingDiscovered(eq(discovery), captor.capture());
+        return captor.getAllValues();
+    }
+
+    @Test
+    public void unchangedConfigIsSkipped() {
+        receive(LAMP_TOPIC, config("Lamp", "dev1"));
+        assertEquals(1, parseTasks.size());
+        parse();
+        discovery.publishResults();
+        discovered(1);
+
+        // The retained configuration is received again on the next run
+        receive(LAMP_TOPIC, config("Lamp", "dev1"));
+        assertTrue(parseTasks.isEmpty());
+        assertTrue(discovery.results.isEmpty());
+
+        receive(LAMP_TOPIC, config("Ceiling lamp", "dev1"));
+        assertEquals(1, parseTasks.size());
+    }
+
+    @Test
+    public void movedComponentIsRemovedFromItsOldThing() {
+        receive(LAMP_TOPIC, config("Lamp", "dev1"));
+        receive(FAN_TOPIC, config("Fan", "dev1"));
+        parse();
+        discovery.publishResults();
+        ThingUID oldThingUID = discovered(1).get(0).getThingUID();
+        assertEquals("dev1", oldThingUID.getId());
+
+        // The fan is still a component of the old thing
+        receive(LAMP_TOPIC, config("Lamp", "dev2"));
+        parse();
+        verify(listener, never()).thingRemoved(any(), any());
+
+        receive(FAN_TOPIC, config("Fan", "dev2"));
+        parse();
+        verify(listener).thingRemoved(discovery, oldThingUID);
+        assertFalse(discovery.componentsPerThingID.containsKey("dev1"));
+        assertFalse(discovery.knownResults.containsKey(oldThingUID.getAsString()));
+
+        discovery.publishResults();
+        assertEquals("dev2", discovered(2).get(1).getThingUID().getId());
+    }
+
+    @Test
+    public void startScanRepublishesKnownResults() {
+        receive(LAMP_TOPIC, config("Lamp", "dev1"));
+        parse();
+        discovery.publishResults();
+        DiscoveryResult result = discovered(1).get(0);
+
+        // The unchanged configuration is not parsed again, the known result is announced instead
+        receive(LAMP_TOPIC, config("Lamp", "dev1"));
+        discovery.startScan();
+
+        assertTrue(parseTasks.isEmpty());
+        assertSame(result, discovered(2).get(1));
+    }
+
+    @Test
+    public void staleParseIsDropped() {
+        receive(LAMP_TOPIC, config("Lamp", "dev1"));
+        receive(LAMP_TOPIC, config("Lamp", "dev2"));
+        assertEquals(2, parseTasks.size());
+
+        // The newer configuration is parsed first, the result of the older one must not replace it
+        parseTasks.get(1).run();
+        parseTasks.get(0).run();
+        parseTasks.clear();
+        discovery.publishResults();
+
+        assertEquals("dev2", discovered(1).get(0).getThingUID().getId());
+        assertEquals(1, discovery.componentsPerThingID.size());
+        verify(listener, never()).thingRemoved(any(), any());
+
+        // A configuration that is replaced before it is parsed is dropped as well
+        receive(LAMP_TOPIC, config("Lamp", "dev3"));
+        receive(LAMP_TOPIC, config("Lamp", "dev4"));
+        parse();
+        discovery.publishResults();
+
+        assertEquals("dev4", discovered(2).get(1).getThingUID().getId());
+        assertFalse(discovery.componentsPerThingID.containsKey("dev3"));
+    }
+}
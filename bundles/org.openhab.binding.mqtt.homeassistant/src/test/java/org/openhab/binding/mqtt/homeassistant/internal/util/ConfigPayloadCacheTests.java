@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.homeassistant.internal.util;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link ConfigPayloadCache} class.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class ConfigPayloadCacheTests {
+    private static final String TOPIC = "homeassistant/switch/name/config";
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void unchangedPayloadIsDetected() {
+        ConfigPayloadCache cache = new ConfigPayloadCache();
+
+        assertTrue(cache.update(TOPIC, bytes("{\"name\":\"a\"}")));
+        assertFalse(cache.update(TOPIC, bytes("{\"name\":\"a\"}")));
+        assertTrue(cache.update(TOPIC, bytes("{\"name\":\"b\"}")));
+        assertTrue(cache.update("homeassistant/switch/other/config", bytes("{\"name\":\"b\"}")));
+        assertEquals(2, cache.size());
+
+        cache.remove(TOPIC);
+        assertTrue(cache.update(TOPIC, bytes("{\"name\":\"b\"}")));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void replacedPayloadIsNotCurrent() {
+        ConfigPayloadCache cache = new ConfigPayloadCache();
+        byte[] first = bytes("{\"name\":\"a\"}");
+        byte[] second = bytes("{\"name\":\"b\"}");
+
+        cache.update(TOPIC, first);
+        assertTrue(cache.isCurrent(TOPIC, first));
+
+        cache.update(TOPIC, second);
+        assertFalse(cache.isCurrent(TOPIC, first));
+        assertTrue(cache.isCurrent(TOPIC, second));
+
+        cache.remove(TOPIC);
+        assertFalse(cache.isCurrent(TOPIC, second));
+    }
+}
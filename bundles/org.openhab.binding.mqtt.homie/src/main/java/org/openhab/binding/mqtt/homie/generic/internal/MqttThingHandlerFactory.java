@@ -29,6 +29,7 @@ import org.openhab.binding.mqtt.generic.MqttChannelStateDescriptionProvider;
 import org.openhab.binding.mqtt.generic.MqttChannelTypeProvider;
 import org.openhab.binding.mqtt.generic.TransformationServiceProvider;
 import org.openhab.binding.mqtt.homie.generic.internal.MqttBindingConstants;
+import org.openhab.binding.mqtt.homie.internal.handler.HomieStartupStatistics;
 import org.openhab.binding.mqtt.homie.internal.handler.HomieThingHandler;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
@@ -47,6 +48,7 @@ import org.osgi.service.component.annotations.Reference;
 public class MqttThingHandlerFactory extends BaseThingHandlerFactory implements TransformationServiceProvider {
     private @NonNullByDefault({}) MqttChannelTypeProvider typeProvider;
     private @NonNullByDefault({}) MqttChannelStateDescriptionProvider stateDescriptionProvider;
+    private final HomieStartupStatistics startupStatistics = new HomieStartupStatistics();
     private static final Set<ThingTypeUID> SUPPORTED_THING_TYPES_UIDS = Stream
             .of(MqttBindingConstants.HOMIE300_MQTT_THING).collect(Collectors.toSet());
 
@@ -90,7 +92,7 @@ public class MqttThingHandlerFactory extends BaseThingHandlerFactory implements
         ThingTypeUID thingTypeUID = thing.getThingTypeUID();
 
         if (thingTypeUID.equals(MqttBindingConstants.HOMIE300_MQTT_THING)) {
-            return new HomieThingHandler(thing, typeProvider, 15000, 2000);
+            return new HomieThingHandler(thing, typeProvider, 15000, 2000, startupStatistics);
         }
         return null;
     }
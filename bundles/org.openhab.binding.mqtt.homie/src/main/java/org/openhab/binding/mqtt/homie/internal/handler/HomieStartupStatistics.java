@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.homie.internal.handler;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Collects the time it took to bring Homie devices online, shared by all handlers of a factory.
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class HomieStartupStatistics {
+    private int startedDevices;
+    private int properties;
+    private long totalMillis;
+    private long maxMillis;
+    private String slowestDevice = "";
+
+    /**
+     * Record a device that has been started completely.
+     *
+     * @param deviceID The device ID
+     * @param millis Time from subscribing until all properties were started, in milliseconds
+     * @param propertyCount Number of properties of the device
+     */
+    public synchronized void deviceStarted(String deviceID, long millis, int propertyCount) {
+        startedDevices++;
+        properties += propertyCount;
+        totalMillis += millis;
+        if (millis >= maxMillis) {
+            maxMillis = millis;
+            slowestDevice = deviceID;
+        }
+    }
+
+    public synchronized int getStartedDevices() {
+        return startedDevices;
+    }
+
+    public synchronized long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public synchronized long getAverageMillis() {
+        return startedDevices == 0 ? 0 : totalMillis / startedDevices;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d devices with %d properties started, avg=%d ms, max=%d ms (%s)", startedDevices,
+                properties, getAverageMillis(), maxMillis, slowestDevice);
+    }
+}
@@ -15,6 +15,7 @@ package org.openhab.binding.mqtt.homie.internal.handler;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -30,6 +31,9 @@ import org.openhab.binding.mqtt.generic.AbstractMQTTThingHandler;
 import org.openhab.binding.mqtt.generic.ChannelState;
 import org.openhab.binding.mqtt.generic.MqttChannelTypeProvider;
 import org.openhab.binding.mqtt.generic.tools.DelayedBatchProcessing;
+import org.openhab.binding.mqtt.generic.tools.MqttTopicDispatcher;
+import org.openhab.binding.mqtt.handler.MqttPublishQueue;
+import org.openhab.binding.mqtt.handler.MqttPublishQueue.Priority;
 import org.openhab.binding.mqtt.homie.generic.internal.MqttBindingConstants;
 import org.openhab.binding.mqtt.homie.internal.homie300.Device;
 import org.openhab.binding.mqtt.homie.internal.homie300.DeviceAttributes;
@@ -55,9 +59,13 @@ public class HomieThingHandler extends AbstractMQTTThingHandler implements Devic
     /** The timeout per attribute field subscription */
     protected final int attributeReceiveTimeout;
     protected final int subscribeTimeout;
+    protected final HomieStartupStatistics startupStatistics;
     protected HandlerConfiguration config = new HandlerConfiguration();
     protected DelayedBatchProcessing<Object> delayedProcessing;
     private @Nullable ScheduledFuture<?> heartBeatTimer;
+    /** Serves all subscriptions of the device from the shared topic filter while started */
+    private @Nullable MqttTopicDispatcher topicDispatcher;
+    private @Nullable String sharedTopic;
 
     /**
      * Create a new thing handler for homie discovered things. A channel type provider and a topic value receive timeout
@@ -72,7 +80,22 @@ public class HomieThingHandler extends AbstractMQTTThingHandler implements Devic
      */
     public HomieThingHandler(Thing thing, MqttChannelTypeProvider channelTypeProvider, int subscribeTimeout,
             int attributeReceiveTimeout) {
+        this(thing, channelTypeProvider, subscribeTimeout, attributeReceiveTimeout, new HomieStartupStatistics());
+    }
+
+    /**
+     * Create a new thing handler for homie discovered things, that reports its startup time.
+     *
+     * @param thing The thing of this handler
+     * @param channelTypeProvider A channel type provider
+     * @param subscribeTimeout Timeout for an entire attribute class subscription and receive. In milliseconds.
+     * @param attributeReceiveTimeout The timeout per attribute field subscription. In milliseconds.
+     * @param startupStatistics Startup times of all Homie devices
+     */
+    public HomieThingHandler(Thing thing, MqttChannelTypeProvider channelTypeProvider, int subscribeTimeout,
+            int attributeReceiveTimeout, HomieStartupStatistics startupStatistics) {
         super(thing, subscribeTimeout);
+        this.startupStatistics = startupStatistics;
         this.channelTypeProvider = channelTypeProvider;
         this.subscribeTimeout = subscribeTimeout;
         this.attributeReceiveTimeout = attributeReceiveTimeout;
@@ -122,10 +145,27 @@ public class HomieThingHandler extends AbstractMQTTThingHandler implements Devic
                     "Homie devices require QoS 1 but Qos 0/2 is configured. Using override. Please check the configuration");
             connection.setQos(1);
         }
-        return device.subscribe(connection, scheduler, attributeReceiveTimeout).thenCompose((Void v) -> {
+        // One broker subscription for the whole device, the attribute and channel topics are dispatched locally.
+        // Retained values are replayed at once. Attributes without a retained value are not waited for
+        // once the retained messages are complete, they are filled in whenever they arrive.
+        releaseSharedTopic();
+        final String sharedTopic = config.basetopic + "/" + config.deviceid + "/#";
+        final MqttTopicDispatcher topicDispatcher = new MqttTopicDispatcher(connection);
+        this.topicDispatcher = topicDispatcher;
+        this.sharedTopic = sharedTopic;
+        final long startTime = System.nanoTime();
+        CompletableFuture<Boolean> shared = topicDispatcher.share(sharedTopic, scheduler,
+                Math.max(1, config.retainedquietperiod), attributeReceiveTimeout);
+        return shared.thenCompose(b -> {
+            return device.subscribe(connection, scheduler, attributeReceiveTimeout);
+        }).thenCompose((Void v) -> {
             return device.startChannels(connection, scheduler, attributeReceiveTimeout, this);
         }).thenRun(() -> {
-            logger.debug("Homie device {} fully attached", device.attributes.name);
+            final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            final int propertyCount = device.nodes().stream().mapToInt(node -> node.properties.size()).sum();
+            startupStatistics.deviceStarted(device.deviceID, millis, propertyCount);
+            logger.debug("Homie device {} fully attached after {} ms. {}", device.attributes.name, millis,
+                    startupStatistics);
         });
     }
 
@@ -139,6 +179,22 @@ public class HomieThingHandler extends AbstractMQTTThingHandler implements Devic
         }
         delayedProcessing.join();
         device.stop();
+        releaseSharedTopic();
+    }
+
+    private void releaseSharedTopic() {
+        final MqttTopicDispatcher topicDispatcher = this.topicDispatcher;
+        final String sharedTopic = this.sharedTopic;
+        if (topicDispatcher != null && sharedTopic != null) {
+            topicDispatcher.release(sharedTopic);
+        }
+        this.topicDispatcher = null;
+        this.sharedTopic = null;
+    }
+
+    @Override
+    public @Nullable MqttTopicDispatcher getTopicDispatcher() {
+        return topicDispatcher;
     }
 
     @Override
@@ -236,8 +292,11 @@ public class HomieThingHandler extends AbstractMQTTThingHandler implements Devic
             logger.warn("couldn't remove retained topics for {} because connection is null", thing.getUID());
             return;
         }
+        final MqttPublishQueue publishQueue = this.publishQueue;
         device.getRetainedTopics().stream().map(d -> {
             return String.format("%s/%s", config.basetopic, d);
-        }).collect(Collectors.toList()).forEach(t -> connection.publish(t, new byte[0], 1, true));
+        }).collect(Collectors.toList())
+                .forEach(t -> MqttPublishQueue.publish(publishQueue, connection, t, new byte[0], 1, true, true,
+                        Priority.STATE));
     }
 }
@@ -113,6 +113,7 @@ public class Device implements AbstractMqttAttributeClass.AttributeChanged {
             throw new IllegalStateException("You must call initialize()!");
         }
 
+        attributes.setTopicDispatcher(callback.getTopicDispatcher());
         return attributes.subscribeAndReceive(connection, scheduler, topic, this, timeout)
                 // On success, create all nodes and tell the handler about the ready state
                 .thenCompose(b -> attributesReceived(connection, scheduler, timeout))
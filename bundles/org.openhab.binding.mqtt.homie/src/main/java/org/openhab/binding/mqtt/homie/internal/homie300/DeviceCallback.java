@@ -13,7 +13,9 @@
 package org.openhab.binding.mqtt.homie.internal.homie300;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.binding.mqtt.generic.ChannelStateUpdateListener;
+import org.openhab.binding.mqtt.generic.tools.MqttTopicDispatcher;
 import org.openhab.binding.mqtt.homie.internal.homie300.DeviceAttributes.ReadyState;
 
 /**
@@ -58,4 +60,13 @@ public interface DeviceCallback extends ChannelStateUpdateListener {
      * @param node The affected property class.
      */
     void propertyAddedOrChanged(Property property);
+
+    /**
+     * Return the dispatcher of the topics below the device topic, if the subscriptions of the device are served by
+     * one.
+     *
+     * @return The dispatcher of the started device or null
+     */
+    @Nullable
+    MqttTopicDispatcher getTopicDispatcher();
 }
@@ -36,4 +36,9 @@ public class HandlerConfiguration {
      * Indicates if retained topics should be removed when the Thing is deleted.
      */
     public boolean removetopics = false;
+    /**
+     * The retained messages of the device are considered complete if no further message arrived within this time in
+     * milliseconds. Optional attributes without a retained value are not waited for any longer then.
+     */
+    public int retainedquietperiod = 250;
 }
@@ -30,4 +30,13 @@ public class MqttBindingConstants {
     public static final ThingTypeUID BRIDGE_TYPE_BROKER = new ThingTypeUID(BINDING_ID, "broker");
 
     public static final String PUBLISH_TRIGGER_CHANNEL = "publishTrigger";
+
+    // Broker properties, the metrics of the publish queue
+    public static final String PROPERTY_PUBLISH_QUEUE_DEPTH = "publishQueueDepth";
+    public static final String PROPERTY_PUBLISH_IN_FLIGHT = "publishInFlight";
+    public static final String PROPERTY_PUBLISHED = "published";
+    public static final String PROPERTY_PUBLISH_FAILURES = "publishFailures";
+    public static final String PROPERTY_PUBLISH_COALESCED = "publishCoalesced";
+    public static final String PROPERTY_PUBLISH_LATENCY_AVG = "publishLatencyAvgMillis";
+    public static final String PROPERTY_PUBLISH_LATENCY_MAX = "publishLatencyMaxMillis";
 }
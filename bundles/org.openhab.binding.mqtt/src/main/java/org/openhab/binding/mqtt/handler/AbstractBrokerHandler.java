@@ -22,6 +22,7 @@ import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
 import org.eclipse.smarthome.io.transport.mqtt.MqttConnectionObserver;
 import org.eclipse.smarthome.io.transport.mqtt.MqttConnectionState;
 import org.eclipse.smarthome.io.transport.mqtt.MqttService;
+import org.openhab.binding.mqtt.MqttBindingConstants;
 import org.openhab.binding.mqtt.action.MQTTActions;
 import org.openhab.binding.mqtt.discovery.MQTTTopicDiscoveryParticipant;
 import org.openhab.binding.mqtt.discovery.TopicSubscribe;
@@ -33,6 +34,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
@@ -45,12 +48,16 @@ import java.util.concurrent.TimeoutException;
 @NonNullByDefault
 public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements MqttConnectionObserver {
     public static final int TIMEOUT_DEFAULT = 1200; /* timeout in milliseconds */
+    public static final int PUBLISH_IN_FLIGHT_LIMIT_DEFAULT = 10;
+    public static final int PUBLISH_METRICS_INTERVAL = 60; /* interval of the publish queue properties in seconds */
     private final Logger logger = LoggerFactory.getLogger(AbstractBrokerHandler.class);
 
     final Map<ChannelUID, PublishTriggerChannel> channelStateByChannelUID = new HashMap<>();
     private final Map<String, @Nullable Map<MQTTTopicDiscoveryParticipant, @Nullable TopicSubscribe>> discoveryTopics = new HashMap<>();
 
     protected @Nullable MqttBrokerConnection connection;
+    protected @Nullable MqttPublishQueue publishQueue;
+    private @Nullable ScheduledFuture<?> publishMetricsJob;
     protected CompletableFuture<MqttBrokerConnection> connectionFuture = new CompletableFuture<>();
 
     public AbstractBrokerHandler(Bridge thing) {
@@ -77,6 +84,20 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
         return connection;
     }
 
+    /**
+     * Returns the outbound queue of the connection, created by {@link #initialize()}.
+     */
+    public @Nullable MqttPublishQueue getPublishQueue() {
+        return publishQueue;
+    }
+
+    /**
+     * Returns the maximum number of publishes waiting for the broker. Further publishes are queued.
+     */
+    protected int getPublishInFlightLimit() {
+        return PUBLISH_IN_FLIGHT_LIMIT_DEFAULT;
+    }
+
     /**
      * Does nothing in the base implementation.
      */
@@ -103,6 +124,9 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
         }
 
         connection.addConnectionObserver(this);
+        publishQueue = new MqttPublishQueue(connection, getPublishInFlightLimit());
+        publishMetricsJob = scheduler.scheduleWithFixedDelay(this::updatePublishMetrics, PUBLISH_METRICS_INTERVAL,
+                PUBLISH_METRICS_INTERVAL, TimeUnit.SECONDS);
 
         connection.start().exceptionally(e -> {
             connectionStateChanged(MqttConnectionState.DISCONNECTED, e);
@@ -149,6 +173,28 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
         }
     }
 
+    /**
+     * Shows the metrics of the publish queue in the thing properties.
+     */
+    protected void updatePublishMetrics() {
+        final MqttPublishQueue publishQueue = this.publishQueue;
+        if (publishQueue == null) {
+            return;
+        }
+        Map<String, String> properties = new HashMap<>();
+        properties.put(MqttBindingConstants.PROPERTY_PUBLISH_QUEUE_DEPTH,
+                String.valueOf(publishQueue.getQueueDepth()));
+        properties.put(MqttBindingConstants.PROPERTY_PUBLISH_IN_FLIGHT, String.valueOf(publishQueue.getInFlight()));
+        properties.put(MqttBindingConstants.PROPERTY_PUBLISHED, String.valueOf(publishQueue.getPublished()));
+        properties.put(MqttBindingConstants.PROPERTY_PUBLISH_FAILURES, String.valueOf(publishQueue.getFailed()));
+        properties.put(MqttBindingConstants.PROPERTY_PUBLISH_COALESCED, String.valueOf(publishQueue.getCoalesced()));
+        properties.put(MqttBindingConstants.PROPERTY_PUBLISH_LATENCY_AVG,
+                String.valueOf(publishQueue.getAverageLatencyMillis()));
+        properties.put(MqttBindingConstants.PROPERTY_PUBLISH_LATENCY_MAX,
+                String.valueOf(publishQueue.getMaxLatencyMillis()));
+        updateProperties(properties);
+    }
+
     @Override
     protected void triggerChannel(ChannelUID channelUID, String event) {
         super.triggerChannel(channelUID, event);
@@ -175,6 +221,16 @@ public abstract class AbstractBrokerHandler extends BaseBridgeHandler implements
             logger.warn("Trying to dispose handler {} but connection is already null. Most likely this is a bug.",
                     thing.getUID());
         }
+        final ScheduledFuture<?> publishMetricsJob = this.publishMetricsJob;
+        if (publishMetricsJob != null) {
+            publishMetricsJob.cancel(false);
+            this.publishMetricsJob = null;
+        }
+        final MqttPublishQueue publishQueue = this.publishQueue;
+        if (publishQueue != null) {
+            publishQueue.close();
+            this.publishQueue = null;
+        }
         this.connection = null;
         connectionFuture = new CompletableFuture<>();
         super.dispose();
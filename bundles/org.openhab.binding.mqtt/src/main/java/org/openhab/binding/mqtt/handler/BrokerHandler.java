@@ -223,6 +223,12 @@ public class BrokerHandler extends AbstractBrokerHandler implements PinnedCallba
         return connection;
     }
 
+    @Override
+    protected int getPublishInFlightLimit() {
+        final Integer publishInFlightLimit = config.publishInFlightLimit;
+        return publishInFlightLimit != null ? publishInFlightLimit : super.getPublishInFlightLimit();
+    }
+
     @Override
     public void initialize() {
         config = getConfigAs(BrokerHandlerConfig.class);
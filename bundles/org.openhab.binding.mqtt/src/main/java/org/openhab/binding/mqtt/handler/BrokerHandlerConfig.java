@@ -27,6 +27,7 @@ import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnectionConfig;
 public class BrokerHandlerConfig extends MqttBrokerConnectionConfig {
     public @Nullable Integer reconnectTime;
     public @Nullable Integer timeoutInMs;
+    public @Nullable Integer publishInFlightLimit;
 
     // For more security, the following optional parameters can be altered
 
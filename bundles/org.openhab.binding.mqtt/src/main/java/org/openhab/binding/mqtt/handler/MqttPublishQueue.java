@@ -0,0 +1,321 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An outbound queue of a broker connection, that limits the number of publishes waiting for the broker.
+ *
+ * <p>
+ * Publishes are sent in the order of their {@link Priority}, so that commands overtake state updates.
+ * A retained publish that is still waiting in the queue is superseded by a newer retained one to the same topic, as
+ * the broker would only keep the newer one anyway. Commands of channels that opt in are coalesced the same way, for
+ * devices that only need to know the latest value. The future of the superseded publish completes with the result of
+ * the newer one. Other publishes are never dropped.
+ * </p>
+ *
+ * <p>
+ * A broker handler owns the queue of its connection, see {@link AbstractBrokerHandler#getPublishQueue()}.
+ * </p>
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class MqttPublishQueue {
+    /**
+     * The lane of a publish. Lanes are served in the order of declaration.
+     */
+    public enum Priority {
+        /** Commands of items to devices */
+        COMMAND,
+        /** State updates and other retained messages */
+        STATE
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(MqttPublishQueue.class);
+    private final MqttBrokerConnection connection;
+    private final int maxInFlight;
+
+    /** One lane per {@link Priority}, by ordinal */
+    private final List<ArrayDeque<PendingPublish>> lanes = new ArrayList<>();
+    /** The retained publishes waiting in a lane by topic, used to find a superseded publish */
+    private final Map<String, PendingPublish> retainedByTopic = new HashMap<>();
+    /** The other coalescing publishes waiting in a lane by topic. They don't replace retained ones. */
+    private final Map<String, PendingPublish> coalescingByTopic = new HashMap<>();
+    private int waiting = 0;
+    private int inFlight = 0;
+    private int maxWaiting = 0;
+    private boolean draining = false;
+    private boolean closed = false;
+
+    private long published = 0;
+    private long failed = 0;
+    private long coalesced = 0;
+    private long totalLatencyNanos = 0;
+    private long maxLatencyNanos = 0;
+
+    private static class PendingPublish {
+        final String topic;
+        final byte[] payload;
+        final int qos;
+        final boolean retain;
+        final boolean coalesce;
+        final long queuedNanos = System.nanoTime();
+        final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        boolean superseded = false;
+
+        PendingPublish(String topic, byte[] payload, int qos, boolean retain, boolean coalesce) {
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retain = retain;
+            this.coalesce = retain || coalesce;
+        }
+
+    }
+
+    /**
+     * Creates a queue for the given connection.
+     *
+     * @param connection The broker connection
+     * @param maxInFlight The maximum number of publishes waiting for the broker. 0 or less disables the limit.
+     */
+    public MqttPublishQueue(MqttBrokerConnection connection, int maxInFlight) {
+        this.connection = connection;
+        this.maxInFlight = maxInFlight;
+        for (int i = 0; i < Priority.values().length; i++) {
+            lanes.add(new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Publish a message via the given queue if it belongs to the connection, or directly otherwise.
+     *
+     * @param queue The publish queue of the broker handler, if any
+     * @param connection The broker connection
+     * @param topic The topic
+     * @param payload The message payload
+     * @param qos The quality of service
+     * @param retain True if the message should be retained
+     * @param coalesce True if a waiting publish to the same topic may be replaced by this one. Always true for
+     *            retained messages.
+     * @param priority The lane of the publish
+     * @return A future that completes with the result of {@link MqttBrokerConnection#publish}
+     */
+    public static CompletableFuture<Boolean> publish(@Nullable MqttPublishQueue queue, MqttBrokerConnection connection,
+            String topic, byte[] payload, int qos, boolean retain, boolean coalesce, Priority priority) {
+        if (queue == null || queue.connection != connection) {
+            return connection.publish(topic, payload, qos, retain);
+        }
+        return queue.publish(topic, payload, qos, retain, coalesce, priority);
+    }
+
+    /**
+     * @return The broker connection of this queue
+     */
+    public MqttBrokerConnection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Queue a publish.
+     *
+     * @param topic The topic
+     * @param payload The message payload
+     * @param qos The quality of service
+     * @param retain True if the message should be retained
+     * @param coalesce True if a waiting publish to the same topic may be replaced by this one. Always true for
+     *            retained messages.
+     * @param priority The lane of the publish
+     * @return A future that completes with the result of {@link MqttBrokerConnection#publish}
+     */
+    public CompletableFuture<Boolean> publish(String topic, byte[] payload, int qos, boolean retain, boolean coalesce,
+            Priority priority) {
+        final PendingPublish pending = new PendingPublish(topic, payload, qos, retain, coalesce);
+        synchronized (this) {
+            if (closed) {
+                pending.future.completeExceptionally(new IllegalStateException("Publish queue closed"));
+                return pending.future;
+            }
+            final PendingPublish superseded = pending.coalesce ? waitingByTopic(pending).put(topic, pending) : null;
+            if (superseded != null) {
+                superseded.superseded = true;
+                waiting--;
+                coalesced++;
+                pending.future.whenComplete((r, e) -> {
+                    if (e != null) {
+                        superseded.future.completeExceptionally(e);
+                    } else {
+                        superseded.future.complete(r);
+                    }
+                });
+            }
+            lanes.get(priority.ordinal()).add(pending);
+            waiting++;
+            if (waiting > maxWaiting) {
+                maxWaiting = waiting;
+                logger.debug("Publish queue of {} reached a depth of {}: {}", connection.getClientId(), waiting,
+                        this);
+            }
+        }
+        drain();
+        return pending.future;
+    }
+
+    /**
+     * Send waiting publishes while there is room for them. Only one thread drains at a time: a publish completing
+     * while another thread drains, possibly synchronously within {@link MqttBrokerConnection#publish}, leaves the
+     * work to that thread instead of recursing.
+     */
+    private void drain() {
+        synchronized (this) {
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        while (true) {
+            final PendingPublish next;
+            synchronized (this) {
+                next = (maxInFlight > 0 && inFlight >= maxInFlight) ? null : poll();
+                if (next == null) {
+                    draining = false;
+                    return;
+                }
+                inFlight++;
+            }
+            connection.publish(next.topic, next.payload, next.qos, next.retain).whenComplete((r, e) -> {
+                published(next, e == null && r);
+                if (e != null) {
+                    next.future.completeExceptionally(e);
+                } else {
+                    next.future.complete(r);
+                }
+                drain();
+            });
+        }
+    }
+
+    private Map<String, PendingPublish> waitingByTopic(PendingPublish pending) {
+        return pending.retain ? retainedByTopic : coalescingByTopic;
+    }
+
+    private @Nullable PendingPublish poll() {
+        for (ArrayDeque<PendingPublish> lane : lanes) {
+            PendingPublish next;
+            while ((next = lane.poll()) != null) {
+                if (!next.superseded) {
+                    if (next.coalesce) {
+                        waitingByTopic(next).remove(next.topic, next);
+                    }
+                    waiting--;
+                    return next;
+                }
+            }
+        }
+        return null;
+    }
+
+    private synchronized void published(PendingPublish pending, boolean success) {
+        inFlight--;
+        long latency = System.nanoTime() - pending.queuedNanos;
+        totalLatencyNanos += latency;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+        if (success) {
+            published++;
+        } else {
+            failed++;
+        }
+    }
+
+    /**
+     * Close the queue. Waiting publishes complete exceptionally, publishes waiting for the broker are not affected.
+     */
+    public void close() {
+        final ArrayDeque<PendingPublish> dropped = new ArrayDeque<>();
+        synchronized (this) {
+            closed = true;
+            lanes.forEach(lane -> {
+                dropped.addAll(lane);
+                lane.clear();
+            });
+            retainedByTopic.clear();
+            coalescingByTopic.clear();
+            waiting = 0;
+        }
+        logger.debug("Closing publish queue of {}, dropping {} waiting publishes: {}", connection.getClientId(),
+                dropped.size(), this);
+        dropped.stream().filter(p -> !p.superseded).forEach(
+                p -> p.future.completeExceptionally(new IllegalStateException("Publish queue closed")));
+    }
+
+    /**
+     * @return number of publishes waiting in the queue
+     */
+    public synchronized int getQueueDepth() {
+        return waiting;
+    }
+
+    /**
+     * @return number of publishes waiting for the broker
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized long getPublished() {
+        return published;
+    }
+
+    public synchronized long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return number of waiting publishes that were superseded by a newer one to the same topic
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * @return average time from queuing a publish until the broker confirmed it, in milliseconds
+     */
+    public synchronized long getAverageLatencyMillis() {
+        long count = published + failed;
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos / count);
+    }
+
+    public synchronized long getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("queueDepth=%d, inFlight=%d, published=%d, failed=%d, coalesced=%d, avg=%d ms, max=%d ms",
+                waiting, inFlight, published, failed, coalesced, getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+}
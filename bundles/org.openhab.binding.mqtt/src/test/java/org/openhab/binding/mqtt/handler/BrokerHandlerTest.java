@@ -36,6 +36,7 @@ import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.openhab.binding.mqtt.MqttBindingConstants;
 import org.openhab.binding.mqtt.internal.MqttThingID;
 import org.osgi.service.cm.ConfigurationException;
 
@@ -110,6 +111,19 @@ public class BrokerHandlerTest {
         Assert.assertThat(statusInfoCaptor.getValue().getStatus(), is(ThingStatus.ONLINE));
     }
 
+    @Test
+    public void publishMetricsAreShownAsProperties()
+            throws InterruptedException, IllegalArgumentException, MqttException, ConfigurationException {
+        assertThat(initializeHandlerWaitForTimeout(), is(true));
+
+        handler.updatePublishMetrics();
+
+        verify(thing).setProperty(MqttBindingConstants.PROPERTY_PUBLISH_QUEUE_DEPTH, "0");
+        verify(thing).setProperty(MqttBindingConstants.PROPERTY_PUBLISHED, "0");
+        verify(thing).setProperty(MqttBindingConstants.PROPERTY_PUBLISH_LATENCY_MAX, "0");
+        verify(callback).thingUpdated(thing);
+    }
+
     /**
      * Utility method for tests that need the handler to be initialized to go on.
      *
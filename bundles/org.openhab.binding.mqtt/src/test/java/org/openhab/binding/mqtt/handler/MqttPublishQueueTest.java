@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.mqtt.handler;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.smarthome.io.transport.mqtt.MqttBrokerConnection;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.openhab.binding.mqtt.handler.MqttPublishQueue.Priority;
+
+/**
+ * Tests cases for {@link MqttPublishQueue}.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class MqttPublishQueueTest {
+    @Mock
+    private MqttBrokerConnection connection;
+
+    private final List<String> published = new ArrayList<>();
+    private final List<CompletableFuture<Boolean>> acks = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        doAnswer(invocation -> {
+            published.add(invocation.getArgument(0) + "="
+                    + new String((byte[]) invocation.getArgument(1), StandardCharsets.UTF_8));
+            CompletableFuture<Boolean> ack = new CompletableFuture<>();
+            acks.add(ack);
+            return ack;
+        }).when(connection).publish(anyString(), any(), anyInt(), anyBoolean());
+    }
+
+    private CompletableFuture<Boolean> publish(MqttPublishQueue queue, String topic, String value, Priority priority) {
+        return queue.publish(topic, value.getBytes(StandardCharsets.UTF_8), 1, false, false, priority);
+    }
+
+    private CompletableFuture<Boolean> publishRetained(MqttPublishQueue queue, String topic, String value) {
+        return queue.publish(topic, value.getBytes(StandardCharsets.UTF_8), 1, true, true, Priority.STATE);
+    }
+
+    @Test
+    public void inFlightLimitAndPriorities() {
+        MqttPublishQueue queue = new MqttPublishQueue(connection, 1);
+
+        publish(queue, "a", "1", Priority.STATE);
+        publish(queue, "b", "1", Priority.STATE);
+        publish(queue, "c", "1", Priority.COMMAND);
+        assertThat(published, is(Arrays.asList("a=1")));
+        assertThat(queue.getInFlight(), is(1));
+        assertThat(queue.getQueueDepth(), is(2));
+
+        acks.get(0).complete(true);
+        acks.get(1).complete(true);
+        acks.get(2).complete(true);
+
+        assertThat(published, is(Arrays.asList("a=1", "c=1", "b=1")));
+        assertThat(queue.getInFlight(), is(0));
+        assertThat(queue.getQueueDepth(), is(0));
+        assertThat(queue.getPublished(), is(3L));
+    }
+
+    @Test
+    public void waitingRetainedPublishIsSuperseded() throws Exception {
+        MqttPublishQueue queue = new MqttPublishQueue(connection, 1);
+
+        publishRetained(queue, "light", "ON");
+        CompletableFuture<Boolean> superseded = publishRetained(queue, "light", "OFF");
+        CompletableFuture<Boolean> latest = publishRetained(queue, "light", "ON");
+        assertThat(queue.getQueueDepth(), is(1));
+        assertThat(queue.getCoalesced(), is(1L));
+
+        acks.get(0).complete(true);
+        assertThat(published, is(Arrays.asList("light=ON", "light=ON")));
+        assertFalse(superseded.isDone());
+
+        acks.get(1).complete(true);
+        assertTrue(latest.get());
+        assertTrue(superseded.get());
+    }
+
+    @Test
+    public void nonRetainedPublishesAreNotSuperseded() {
+        MqttPublishQueue queue = new MqttPublishQueue(connection, 1);
+
+        publish(queue, "button", "PRESS", Priority.COMMAND);
+        publish(queue, "button", "PRESS", Priority.COMMAND);
+        publish(queue, "button", "PRESS", Priority.COMMAND);
+        publishRetained(queue, "button", "RELEASED");
+        assertThat(queue.getQueueDepth(), is(3));
+        assertThat(queue.getCoalesced(), is(0L));
+
+        acks.get(0).complete(true);
+        acks.get(1).complete(true);
+        acks.get(2).complete(true);
+        assertThat(published,
+                is(Arrays.asList("button=PRESS", "button=PRESS", "button=PRESS", "button=RELEASED")));
+    }
+
+    @Test
+    public void waitingCommandIsSupersededIfCoalesced() throws Exception {
+        MqttPublishQueue queue = new MqttPublishQueue(connection, 1);
+
+        publish(queue, "dimmer", "10", Priority.COMMAND);
+        CompletableFuture<Boolean> superseded = queue.publish("dimmer", "20".getBytes(StandardCharsets.UTF_8), 1,
+                false, true, Priority.COMMAND);
+        publishRetained(queue, "dimmer", "25");
+        CompletableFuture<Boolean> latest = queue.publish("dimmer", "30".getBytes(StandardCharsets.UTF_8), 1, false,
+                true, Priority.COMMAND);
+        // The retained publish is not replaced by a command, and does not replace one either
+        assertThat(queue.getQueueDepth(), is(2));
+        assertThat(queue.getCoalesced(), is(1L));
+
+        acks.get(0).complete(true);
+        acks.get(1).complete(true);
+        assertThat(published, is(Arrays.asList("dimmer=10", "dimmer=30", "dimmer=25")));
+        assertTrue(latest.get());
+        assertTrue(superseded.get());
+    }
+
+    @Test
+    public void synchronousCompletionDoesNotRecurse() {
+        MqttPublishQueue queue = new MqttPublishQueue(connection, 1);
+        publish(queue, "first", "1", Priority.STATE);
+        for (int i = 0; i < 1000; i++) {
+            publish(queue, "t" + i, "1", Priority.STATE);
+        }
+        assertThat(queue.getQueueDepth(), is(1000));
+
+        // From now on the connection completes every publish before returning
+        AtomicInteger maxStackDepth = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxStackDepth.accumulateAndGet(Thread.currentThread().getStackTrace().length, Math::max);
+            return CompletableFuture.completedFuture(true);
+        }).when(connection).publish(anyString(), any(), anyInt(), anyBoolean());
+        acks.get(0).complete(true);
+
+        assertThat(queue.getQueueDepth(), is(0));
+        assertThat(queue.getInFlight(), is(0));
+        assertThat(queue.getPublished(), is(1001L));
+        assertTrue(maxStackDepth.get() < Thread.currentThread().getStackTrace().length + 100);
+    }
+
+    @Test
+    public void failedPublishReleasesSlot() {
+        MqttPublishQueue queue = new MqttPublishQueue(connection, 1);
+
+        CompletableFuture<Boolean> failed = publish(queue, "a", "1", Priority.COMMAND);
+        publish(queue, "b", "1", Priority.COMMAND);
+        acks.get(0).completeExceptionally(new IllegalStateException("test"));
+
+        assertTrue(failed.isCompletedExceptionally());
+        assertThat(published, is(Arrays.asList("a=1", "b=1")));
+        assertThat(queue.getFailed(), is(1L));
+    }
+
+    @Test
+    public void queueOfOtherConnectionIsBypassed() {
+        MqttBrokerConnection other = mock(MqttBrokerConnection.class);
+        when(other.publish(anyString(), any(), anyInt(), anyBoolean()))
+                .thenReturn(CompletableFuture.completedFuture(true));
+        MqttPublishQueue queue = new MqttPublishQueue(connection, 1);
+
+        MqttPublishQueue.publish(null, connection, "a", new byte[0], 1, true, true, Priority.STATE);
+        MqttPublishQueue.publish(queue, other, "b", new byte[0], 1, true, true, Priority.STATE);
+        verify(connection).publish("a", new byte[0], 1, true);
+        verify(other).publish("b", new byte[0], 1, true);
+        assertThat(queue.getPublished() + queue.getInFlight(), is(0L));
+    }
+
+    @Test
+    public void closeFailsWaitingPublishes() {
+        MqttPublishQueue queue = new MqttPublishQueue(connection, 1);
+
+        CompletableFuture<Boolean> sent = MqttPublishQueue.publish(queue, connection, "b", new byte[0], 1, true,
+                true, Priority.STATE);
+        CompletableFuture<Boolean> waiting = MqttPublishQueue.publish(queue, connection, "c", new byte[0], 1, true,
+                true, Priority.STATE);
+        assertThat(published.size(), is(1));
+
+        queue.close();
+        assertTrue(waiting.isCompletedExceptionally());
+        assertTrue(queue.publish("d", new byte[0], 1, true, true, Priority.STATE).isCompletedExceptionally());
+
+        acks.get(0).complete(true);
+        assertTrue(sent.isDone());
+        assertThat(published.size(), is(1));
+    }
+}
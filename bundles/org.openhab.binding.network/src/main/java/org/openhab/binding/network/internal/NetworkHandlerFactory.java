@@ -24,6 +24,7 @@ import org.eclipse.smarthome.core.thing.binding.ThingHandler;
 import org.eclipse.smarthome.core.thing.binding.ThingHandlerFactory;
 import org.openhab.binding.network.internal.handler.NetworkHandler;
 import org.openhab.binding.network.internal.handler.SpeedTestHandler;
+import org.openhab.binding.network.internal.utils.PresenceProbeEngine;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -44,6 +45,7 @@ public class NetworkHandlerFactory extends BaseThingHandlerFactory {
     final NetworkBindingConfiguration configuration = new NetworkBindingConfiguration();
 
     private final Logger logger = LoggerFactory.getLogger(NetworkHandlerFactory.class);
+    private @Nullable PresenceProbeEngine probeEngine;
 
     @Override
     public boolean supportsThingType(ThingTypeUID thingTypeUID) {
@@ -55,12 +57,18 @@ public class NetworkHandlerFactory extends BaseThingHandlerFactory {
     protected void activate(ComponentContext componentContext, Map<String, Object> config) {
         super.activate(componentContext);
         modified(config);
+        probeEngine = PresenceProbeEngine.acquire();
     }
 
     @Override
     @Deactivate
     protected void deactivate(ComponentContext componentContext) {
         super.deactivate(componentContext);
+        PresenceProbeEngine probeEngine = this.probeEngine;
+        this.probeEngine = null;
+        if (probeEngine != null) {
+            PresenceProbeEngine.release(probeEngine);
+        }
     }
 
     @Modified
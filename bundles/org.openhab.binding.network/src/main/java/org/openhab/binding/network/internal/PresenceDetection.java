@@ -22,17 +22,23 @@ import org.openhab.binding.network.internal.utils.NetworkUtils;
 import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
 import org.openhab.binding.network.internal.utils.NetworkUtils.IpPingMethodEnum;
 import org.openhab.binding.network.internal.utils.PingResult;
+import org.openhab.binding.network.internal.utils.PresenceProbeEngine;
+import org.openhab.binding.network.internal.utils.PresenceProbeEngine.ProbeType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 /**
@@ -75,7 +81,13 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     ExpiringCacheAsync<PresenceDetectionValue> cache;
     private final PresenceDetectionListener updateListener;
     private @Nullable ScheduledFuture<?> refreshJob;
-    protected @Nullable ExecutorService executorService;
+    @Nullable
+    PresenceProbeEngine probeEngine;
+    /** Number of probes of the current detection, passed to the engine */
+    private volatile int cycleProbes = 1;
+    /** Completes when the final result of the ongoing detection has been submitted, null if there is none */
+    volatile @Nullable CompletableFuture<@Nullable Void> detection;
+    private long detectionStartInMS;
     private String dhcpState = "off";
     Integer currentCheck = 0;
     int detectionChecks;
@@ -275,14 +287,26 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         cache.getValue(callback);
     }
 
-    public ExecutorService getThreadsFor(int threadCount) {
-        return Executors.newFixedThreadPool(threadCount);
+    /**
+     * Use the given engine instead of the shared one, e.g. to keep the probes of a network scan apart.
+     */
+    public void setProbeEngine(PresenceProbeEngine probeEngine) {
+        this.probeEngine = probeEngine;
+    }
+
+    /**
+     * Return the engine set for this detection, or the current shared one. The shared engine is not kept, as it is
+     * replaced when the binding restarts.
+     */
+    PresenceProbeEngine getProbeEngine() {
+        PresenceProbeEngine engine = probeEngine;
+        return engine != null ? engine : PresenceProbeEngine.getInstance();
     }
 
     /**
      * Perform a presence detection with ICMP-, ARP ping and
-     * TCP connection attempts simultaneously. A fixed thread pool will be created with as many
-     * thread as necessary to perform all tests at once.
+     * TCP connection attempts simultaneously. The probes are performed by the shared
+     * {@link PresenceProbeEngine}, which limits the number of simultaneous probes per host.
      *
      * This is a NO-OP, if there is already an ongoing detection or if the cached value
      * is not expired yet.
@@ -296,74 +320,68 @@ public class PresenceDetection implements IPRequestReceivedCallback {
      * @return Return true if a presence detection is performed and false otherwise.
      */
     public boolean performPresenceDetection(boolean waitForDetectionToFinish) {
-        if (executorService != null) {
-            logger.debug(
-                    "There is already an ongoing presence discovery for {} and a new one was issued by the scheduler! TCP Port {}",
-                    hostname, tcpPorts);
-            return false;
-        }
+        Set<String> interfaceNames = null;
+        final CompletableFuture<@Nullable Void> detection;
+
+        synchronized (this) {
+            if (this.detection != null) {
+                if (System.currentTimeMillis() - detectionStartInMS < refreshIntervalInMS) {
+                    logger.debug(
+                            "There is already an ongoing presence discovery for {} and a new one was issued by the scheduler! TCP Port {}",
+                            hostname, tcpPorts);
+                    return false;
+                }
+                // A probe did not return in time, like an arping without timeout. Don't wait for it forever.
+                logger.debug("The presence discovery for {} did not finish within the refresh interval", hostname);
+                submitFinalResult();
+            }
 
-        if (!cache.isExpired()) {
-            return false;
-        }
+            if (!cache.isExpired()) {
+                return false;
+            }
 
-        Set<String> interfaceNames = null;
+            currentCheck = 0;
+            detectionChecks = tcpPorts.size();
+            if (pingMethod != null) {
+                detectionChecks += 1;
+            }
+            if (arpPingMethod == ArpPingUtilEnum.ELI_FULKERSON_ARP_PING_FOR_WINDOWS) {
+                detectionChecks += 1;
+            } else if (arpPingMethod != ArpPingUtilEnum.UNKNOWN_TOOL) {
+                interfaceNames = networkUtils.getInterfaceNames();
+                detectionChecks += interfaceNames.size();
+            }
 
-        currentCheck = 0;
-        detectionChecks = tcpPorts.size();
-        if (pingMethod != null) {
-            detectionChecks += 1;
-        }
-        if (arpPingMethod != ArpPingUtilEnum.UNKNOWN_TOOL) {
-            interfaceNames = networkUtils.getInterfaceNames();
-            detectionChecks += interfaceNames.size();
-        }
+            if (detectionChecks == 0) {
+                return false;
+            }
 
-        if (detectionChecks == 0) {
-            return false;
+            cycleProbes = detectionChecks;
+            detectionStartInMS = System.currentTimeMillis();
+            detection = new CompletableFuture<>();
+            this.detection = detection;
         }
 
-        final ExecutorService executorService = getThreadsFor(detectionChecks);
-        this.executorService = executorService;
-
         for (Integer tcpPort : tcpPorts) {
-            executorService.execute(() -> {
-                Thread.currentThread().setName("presenceDetectionTCP_" + hostname + " " + String.valueOf(tcpPort));
-                performServicePing(tcpPort);
-                checkIfFinished();
-            });
+            performServicePing(tcpPort).whenComplete((r, e) -> checkIfFinished(detection));
         }
 
-        // ARP ping for IPv4 addresses. Use single executor for Windows tool and 
-        // each own executor for each network interface for other tools
+        // ARP ping for IPv4 addresses. Use a single probe for the Windows tool and
+        // one probe for each network interface for other tools
         if (arpPingMethod == ArpPingUtilEnum.ELI_FULKERSON_ARP_PING_FOR_WINDOWS) {
-            executorService.execute(() -> {
-               Thread.currentThread().setName("presenceDetectionARP_" + hostname + " ");
-               // arp-ping.exe tool capable of handling multiple interfaces by itself
-               performARPping("");
-               checkIfFinished();
-            });
+            // arp-ping.exe tool capable of handling multiple interfaces by itself
+            performARPping("").whenComplete((r, e) -> checkIfFinished(detection));
         } else if (interfaceNames != null) {
             for (final String interfaceName : interfaceNames) {
-                executorService.execute(() -> {
-                   Thread.currentThread().setName("presenceDetectionARP_" + hostname + " " + interfaceName);
-                   performARPping(interfaceName);
-                   checkIfFinished();
-               });
+                performARPping(interfaceName).whenComplete((r, e) -> checkIfFinished(detection));
             }
         }
 
         // ICMP ping
         if (pingMethod != null) {
-            executorService.execute(() -> {
-                if (pingMethod != IpPingMethodEnum.JAVA_PING) {
-                    Thread.currentThread().setName("presenceDetectionICMP_" + hostname);
-                    performSystemPing();
-                } else {
-                    performJavaPing();
-                }
-                checkIfFinished();
-            });
+            CompletableFuture<?> check = pingMethod != IpPingMethodEnum.JAVA_PING ? performSystemPing()
+                    : performJavaPing();
+            check.whenComplete((r, e) -> checkIfFinished(detection));
         }
 
         if (waitForDetectionToFinish) {
@@ -376,25 +394,24 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     /**
      * Calls updateListener.finalDetectionResult() with a final result value.
      * Safe to be called from different threads. After a call to this method,
-     * the presence detection process is finished and all threads are forcefully
-     * shut down.
+     * the presence detection process is finished. Probes that are still running
+     * do not count for this detection anymore.
      */
     private synchronized void submitFinalResult() {
         // Do nothing if we are not in a detection process
-        ExecutorService service = executorService;
-        if (service == null) {
+        CompletableFuture<@Nullable Void> detection = this.detection;
+        if (detection == null) {
             return;
         }
         // Finish the detection process
-        service.shutdownNow();
-        executorService = null;
+        this.detection = null;
         detectionChecks = 0;
 
         PresenceDetectionValue v;
 
         // The cache will be expired by now if cache_time < timeoutInMS. But the device might be actually reachable.
         // Therefore use lastSeenInMS here and not cache.isExpired() to determine if we got a ping response.
-        if (lastSeenInMS + timeoutInMS + 100 < System.currentTimeMillis()) {
+        if (lastSeenInMS < detectionStartInMS) {
             // We haven't seen the device in the detection process
             v = new PresenceDetectionValue(hostname, -1);
         } else {
@@ -408,6 +425,7 @@ public class PresenceDetection implements IPRequestReceivedCallback {
             destination.invalidateValue();
         }
         updateListener.finalDetectionResult(v);
+        detection.complete(null);
     }
 
     /**
@@ -415,8 +433,13 @@ public class PresenceDetection implements IPRequestReceivedCallback {
      * If the counter equals the total checks,the final result is submitted. This will
      * happen way before the "timeoutInMS", if all checks were successful.
      * Thread safe.
+     *
+     * @param detection The detection the check belongs to. Checks of a previous detection are ignored.
      */
-    private synchronized void checkIfFinished() {
+    private synchronized void checkIfFinished(CompletableFuture<@Nullable Void> detection) {
+        if (this.detection != detection) {
+            return;
+        }
         currentCheck += 1;
         if (currentCheck < detectionChecks) {
             return;
@@ -425,22 +448,25 @@ public class PresenceDetection implements IPRequestReceivedCallback {
     }
 
     /**
-     * Waits for the presence detection threads to finish. Returns immediately
+     * Waits for the presence detection probes to finish. Returns immediately
      * if no presence detection is performed right now.
+     *
+     * The engine ends each probe shortly after its timeout, measured from the start of the probe. Probes may have to
+     * wait for each other, therefore the detection is only finalized here if it did not finish within the refresh
+     * interval.
      */
     public void waitForPresenceDetection() {
-        ExecutorService service = executorService;
-        if (service == null) {
+        CompletableFuture<@Nullable Void> detection = this.detection;
+        if (detection == null) {
             return;
         }
         try {
             // We may get interrupted here by cancelRefreshJob().
-            service.awaitTermination(timeoutInMS + 100, TimeUnit.MILLISECONDS);
+            detection.get(Math.max(refreshIntervalInMS, timeoutInMS + 100), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
             submitFinalResult();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt(); // Reset interrupt flag
-            service.shutdownNow();
-            executorService = null;
         }
     }
 
@@ -469,22 +495,26 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         return v;
     }
 
-    protected void performServicePing(int tcpPort) {
+    /**
+     * Performs a non-blocking TCP connection attempt on the given port.
+     *
+     * @param tcpPort The TCP port
+     * @return A future that completes after the result has been processed
+     */
+    protected CompletableFuture<?> performServicePing(int tcpPort) {
         logger.trace("Perform TCP presence detection for {} on port: {}", hostname, tcpPort);
-        try {
-            InetAddress destinationAddress = destination.getValue();
-
-            networkUtils.servicePing(destinationAddress.getHostAddress(), tcpPort, timeoutInMS).ifPresent(o -> {
-                if(o.isSuccess()) {
-                    PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.TCP_CONNECTION, getLatency(o, preferResponseTimeAsLatency));
-                    v.addReachableTcpService(tcpPort);
-                    updateListener.partialDetectionResult(v);
-                }
-            });
-        } catch (IOException e) {
-            // This should not happen and might be a user configuration issue, we log a warning message therefore.
-            logger.warn("Could not create a socket connection", e);
+        InetAddress destinationAddress = destination.getValue();
+        if (destinationAddress == null) {
+            return CompletableFuture.completedFuture(null);
         }
+
+        return getProbeEngine().tcpPing(destinationAddress, tcpPort, timeoutInMS, cycleProbes).thenAccept(r -> r.ifPresent(o -> {
+            if (o.isSuccess()) {
+                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.TCP_CONNECTION, getLatency(o, preferResponseTimeAsLatency));
+                v.addReachableTcpService(tcpPort);
+                updateListener.partialDetectionResult(v);
+            }
+        }));
     }
 
     /**
@@ -494,31 +524,35 @@ public class PresenceDetection implements IPRequestReceivedCallback {
      *
      * @param interfaceName The interface name. You can request a list of interface names
      *            from {@see NetworkUtils.getInterfaceNames()} for example.
+     * @return A future that completes after the result has been processed
      */
-    protected void performARPping(String interfaceName) {
-        try {
-            logger.trace("Perform ARP ping presence detection for {} on interface: {}", hostname, interfaceName);
-            InetAddress destinationAddress = destination.getValue();
-            if (destinationAddress == null) {
-                return;
-            }
+    protected CompletableFuture<?> performARPping(String interfaceName) {
+        logger.trace("Perform ARP ping presence detection for {} on interface: {}", hostname, interfaceName);
+        InetAddress destinationAddress = destination.getValue();
+        if (destinationAddress == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final boolean iosDevice = this.iosDevice;
+        final ArpPingUtilEnum arpPingMethod = this.arpPingMethod;
+        final String arpPingUtilPath = this.arpPingUtilPath;
+        final int timeoutInMS = this.timeoutInMS;
+        final String probeKey = arpPingMethod + " " + arpPingUtilPath + " " + interfaceName + " " + timeoutInMS + " "
+                + iosDevice;
+        return getProbeEngine().blockingPing(ProbeType.ARP, destinationAddress, probeKey, timeoutInMS,
+                cycleProbes, () -> {
             if (iosDevice) {
                 networkUtils.wakeUpIOS(destinationAddress);
                 Thread.sleep(50);
             }
-
-            networkUtils.nativeARPPing(arpPingMethod, arpPingUtilPath, interfaceName,
-                    destinationAddress.getHostAddress(), timeoutInMS).ifPresent(o -> {
-                        if (o.isSuccess()) {
-                            PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ARP_PING, getLatency(o, preferResponseTimeAsLatency));
-                            updateListener.partialDetectionResult(v);
-                        }
-            });
-        } catch (IOException e) {
-            logger.trace("Failed to execute an arp ping for ip {}", hostname, e);
-        } catch (InterruptedException ignored) {
-            // This can be ignored, the thread will end anyway
-        }
+            return networkUtils.nativeARPPing(arpPingMethod, arpPingUtilPath, interfaceName,
+                    destinationAddress.getHostAddress(), timeoutInMS);
+        }).thenAccept(r -> r.ifPresent(o -> {
+            if (o.isSuccess()) {
+                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ARP_PING, getLatency(o, preferResponseTimeAsLatency));
+                updateListener.partialDetectionResult(v);
+            }
+        }));
     }
 
     /**
@@ -526,44 +560,49 @@ public class PresenceDetection implements IPRequestReceivedCallback {
      * and will not work on windows systems reliably and will fall back from ICMP pings to
      * the TCP echo service on port 7 which barely no device or server supports nowadays.
      * (http://docs.oracle.com/javase/7/docs/api/java/net/InetAddress.html#isReachable%28int%29)
+     *
+     * @return A future that completes after the result has been processed
      */
-    protected void performJavaPing() {
+    protected CompletableFuture<?> performJavaPing() {
         logger.trace("Perform java ping presence detection for {}", hostname);
 
         InetAddress destinationAddress = destination.getValue();
         if (destinationAddress == null) {
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
-        networkUtils.javaPing(timeoutInMS, destinationAddress).ifPresent(o -> {
+        final int timeoutInMS = this.timeoutInMS;
+        return getProbeEngine().blockingPing(ProbeType.ICMP, destinationAddress, "java " + timeoutInMS,
+                timeoutInMS, cycleProbes, () -> networkUtils.javaPing(timeoutInMS, destinationAddress)).thenAccept(r -> r.ifPresent(o -> {
             if (o.isSuccess()) {
                 PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING, getLatency(o, preferResponseTimeAsLatency));
                 updateListener.partialDetectionResult(v);
             }
-        });
+        }));
     }
 
-    protected void performSystemPing() {
-        try {
-            logger.trace("Perform native ping presence detection for {}", hostname);
-            InetAddress destinationAddress = destination.getValue();
-            if (destinationAddress == null) {
-                return;
-            }
-
-            networkUtils.nativePing(pingMethod, destinationAddress.getHostAddress(), timeoutInMS).ifPresent(o -> {
-                if (o.isSuccess()) {
-                    PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING, getLatency(o, preferResponseTimeAsLatency));
-                    updateListener.partialDetectionResult(v);
-                }
-            });
-
-
-        } catch (IOException e) {
-            logger.trace("Failed to execute a native ping for ip {}", hostname, e);
-        } catch (InterruptedException e) {
-            // This can be ignored, the thread will end anyway
+    /**
+     * Performs a ping with the system ping tool.
+     *
+     * @return A future that completes after the result has been processed
+     */
+    protected CompletableFuture<?> performSystemPing() {
+        logger.trace("Perform native ping presence detection for {}", hostname);
+        InetAddress destinationAddress = destination.getValue();
+        final IpPingMethodEnum pingMethod = this.pingMethod;
+        if (destinationAddress == null || pingMethod == null) {
+            return CompletableFuture.completedFuture(null);
         }
+
+        final int timeoutInMS = this.timeoutInMS;
+        return getProbeEngine().blockingPing(ProbeType.ICMP, destinationAddress, pingMethod + " " + timeoutInMS,
+                timeoutInMS, cycleProbes, () -> networkUtils.nativePing(pingMethod, destinationAddress.getHostAddress(), timeoutInMS))
+                .thenAccept(r -> r.ifPresent(o -> {
+            if (o.isSuccess()) {
+                PresenceDetectionValue v = updateReachableValue(PresenceDetectionType.ICMP_PING, getLatency(o, preferResponseTimeAsLatency));
+                updateListener.partialDetectionResult(v);
+            }
+        }));
     }
 
     private double getLatency(PingResult pingResult, boolean preferResponseTimeAsLatency) {
@@ -594,7 +633,7 @@ public class PresenceDetection implements IPRequestReceivedCallback {
         if (future != null && !future.isDone()) {
             future.cancel(true);
         }
-        refreshJob = scheduledExecutorService.scheduleWithFixedDelay(() -> performPresenceDetection(true), 0,
+        refreshJob = scheduledExecutorService.scheduleWithFixedDelay(() -> performPresenceDetection(false), 0,
                 refreshIntervalInMS, TimeUnit.MILLISECONDS);
     }
 
@@ -14,13 +14,12 @@ package org.openhab.binding.network.internal.discovery;
 
 import static org.openhab.binding.network.internal.NetworkBindingConstants.*;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -36,7 +35,9 @@ import org.openhab.binding.network.internal.NetworkBindingConfiguration;
 import org.openhab.binding.network.internal.PresenceDetection;
 import org.openhab.binding.network.internal.PresenceDetectionListener;
 import org.openhab.binding.network.internal.PresenceDetectionValue;
+import org.openhab.binding.network.internal.utils.AsyncTcpConnector;
 import org.openhab.binding.network.internal.utils.NetworkUtils;
+import org.openhab.binding.network.internal.utils.PresenceProbeEngine;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -48,6 +49,9 @@ import org.slf4j.LoggerFactory;
  * The {@link NetworkDiscoveryService} is responsible for discovering devices on
  * the current Network. It uses every Network Interface which is connected to a network.
  * It tries common TCP ports to connect to, ICMP pings and ARP pings.
+ * The TCP ports of all IPs are tried in one {@link SubnetSweep} with non-blocking connection attempts. The pings
+ * are performed by a {@link PresenceProbeEngine} of the scan, with low priority threads, so that a scan does not delay
+ * the presence detection of things.
  *
  * @author Marc Mettke - Initial contribution
  * @author David Graeff - Rewritten
@@ -57,6 +61,10 @@ import org.slf4j.LoggerFactory;
 public class NetworkDiscoveryService extends AbstractDiscoveryService implements PresenceDetectionListener {
     static final int PING_TIMEOUT_IN_MS = 500;
     static final int MAXIMUM_IPS_PER_INTERFACE = 255;
+    // Each connection attempt in flight needs a file descriptor
+    static final int MAX_CONNECTS_IN_FLIGHT = 1000;
+    static final int CONNECTS_PER_SECOND = 2000;
+    static final int MAX_PINGS_IN_FLIGHT = 16;
     private static final long DISCOVERY_RESULT_TTL = TimeUnit.MINUTES.toSeconds(10);
     private final Logger logger = LoggerFactory.getLogger(NetworkDiscoveryService.class);
 
@@ -65,8 +73,7 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     // TCP port 1025 (Xbox / MS-RPC)
     private Set<Integer> tcpServicePorts = Collections
             .unmodifiableSet(Stream.of(80, 548, 554, 1025).collect(Collectors.toSet()));
-    private Integer scannedIPcount = 0;
-    private @Nullable ExecutorService executorService = null;
+    private @Nullable Scan currentScan;
     private final NetworkBindingConfiguration configuration = new NetworkBindingConfiguration();
     private final NetworkUtils networkUtils = new NetworkUtils();
 
@@ -96,9 +103,7 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     @Override
     @Deactivate
     protected void deactivate() {
-        if (executorService != null) {
-            executorService.shutdown();
-        }
+        stopScan();
         super.deactivate();
     }
 
@@ -120,64 +125,152 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     }
 
     /**
-     * Starts the DiscoveryThread for each IP on each interface on the network
+     * Starts a sweep of the TCP service ports and a presence detection with ICMP and ARP pings for each IP on each
+     * interface on the network. Devices are reported as soon as they are found.
      */
     @Override
     protected void startScan() {
-        if (executorService == null) {
-            executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 2);
-        }
-        final ExecutorService service = executorService;
-        if (service == null) {
-            return;
-        }
         removeOlderResults(getTimestampOfLastScan(), null);
         logger.trace("Starting Network Device Discovery");
 
         final Set<String> networkIPs = networkUtils.getNetworkIPs(MAXIMUM_IPS_PER_INTERFACE);
-        scannedIPcount = 0;
-
-        for (String ip : networkIPs) {
-            final PresenceDetection s = new PresenceDetection(this, 2000);
-            s.setHostname(ip);
-            s.setIOSDevice(true);
-            s.setUseDhcpSniffing(false);
-            s.setTimeout(PING_TIMEOUT_IN_MS);
-            // Ping devices
-            s.setUseIcmpPing(true);
-            s.setUseArpPing(true, configuration.arpPingToolPath, configuration.arpPingUtilMethod);
-            // TCP devices
-            s.setServicePorts(tcpServicePorts);
-
-            service.execute(() -> {
-                Thread.currentThread().setName("Discovery thread " + ip);
-                s.performPresenceDetection(true);
-                synchronized (scannedIPcount) {
-                    scannedIPcount += 1;
-                    if (scannedIPcount == networkIPs.size()) {
-                        logger.trace("Scan of {} IPs successful", scannedIPcount);
-                        stopScan();
-                    }
-                }
-            });
+        AsyncTcpConnector connector;
+        try {
+            connector = new AsyncTcpConnector("networkDiscoveryTCP", MAX_CONNECTS_IN_FLIGHT, scheduler);
+        } catch (IOException e) {
+            logger.warn("Could not start the network discovery", e);
+            return;
+        }
+        final Scan scan = new Scan(networkIPs, connector);
+        final Scan previous;
+        synchronized (this) {
+            previous = currentScan;
+            currentScan = scan;
         }
+        if (previous != null) {
+            previous.cancel();
+        }
+        scan.start();
     }
 
     @Override
     protected synchronized void stopScan() {
         super.stopScan();
-        final ExecutorService service = executorService;
-        if (service == null) {
-            return;
+        Scan scan = currentScan;
+        currentScan = null;
+        if (scan != null) {
+            scan.cancel();
         }
+    }
 
-        try {
-            service.awaitTermination(PING_TIMEOUT_IN_MS, TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt(); // Reset interrupt flag
+    /**
+     * A single scan: A {@link SubnetSweep} for the TCP service ports and a presence detection for the pings of each
+     * IP. The progress of both is reported together.
+     */
+    private class Scan implements PresenceDetectionListener {
+        private final Set<String> networkIPs;
+        private final AsyncTcpConnector connector;
+        private final SubnetSweep sweep;
+        private final PresenceProbeEngine probeEngine;
+        private final long startNanos = System.nanoTime();
+        private int pingedIPs = 0;
+        private int reportedPercent = 0;
+        private boolean done = false;
+
+        Scan(Set<String> networkIPs, AsyncTcpConnector connector) {
+            this.networkIPs = networkIPs;
+            this.connector = connector;
+            this.sweep = new SubnetSweep(connector, scheduler, CONNECTS_PER_SECOND, PING_TIMEOUT_IN_MS, networkIPs,
+                    tcpServicePorts, NetworkDiscoveryService.this::newServiceDevice);
+            this.probeEngine = PresenceProbeEngine.create("networkDiscoveryProbe", MAX_PINGS_IN_FLIGHT,
+                    Thread.MIN_PRIORITY, scheduler);
+        }
+
+        void start() {
+            logger.debug("Scanning {} IPs on TCP ports {} and with pings", networkIPs.size(), tcpServicePorts);
+            sweep.start().thenRun(this::progress);
+
+            for (String ip : networkIPs) {
+                final PresenceDetection s = new PresenceDetection(this, 2000);
+                s.setProbeEngine(probeEngine);
+                s.setHostname(ip);
+                s.setIOSDevice(true);
+                s.setUseDhcpSniffing(false);
+                s.setTimeout(PING_TIMEOUT_IN_MS);
+                // Ping devices
+                s.setUseIcmpPing(true);
+                s.setUseArpPing(true, configuration.arpPingToolPath, configuration.arpPingUtilMethod);
+                // TCP devices are found by the sweep
+                s.setServicePorts(Collections.emptySet());
+                if (!s.performPresenceDetection(false)) {
+                    finalDetectionResult(new PresenceDetectionValue(ip, PresenceDetection.NOT_REACHABLE));
+                }
+            }
+        }
+
+        void cancel() {
+            synchronized (this) {
+                done = true;
+            }
+            sweep.cancel();
+            connector.close();
+            // Completes the waiting and running pings
+            probeEngine.shutdown();
+        }
+
+        @Override
+        public void partialDetectionResult(PresenceDetectionValue value) {
+            if (isDone()) {
+                return;
+            }
+            NetworkDiscoveryService.this.partialDetectionResult(value);
+        }
+
+        @Override
+        public void finalDetectionResult(PresenceDetectionValue value) {
+            synchronized (this) {
+                pingedIPs++;
+            }
+            progress();
+        }
+
+        private synchronized boolean isDone() {
+            return done;
+        }
+
+        /**
+         * Logs the progress in steps of ten percent and finishes the scan after the sweep and all pings.
+         */
+        private void progress() {
+            final int total = sweep.getTotal() + networkIPs.size();
+            final int completed;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                completed = sweep.getCompleted() + pingedIPs;
+                int percent = total == 0 ? 100 : completed * 100 / total;
+                if (percent / 10 > reportedPercent / 10) {
+                    reportedPercent = percent;
+                    logger.debug("Network scan {}% done, {} open TCP ports so far", percent, sweep.getOpenPorts());
+                }
+                if (!sweep.isFinished() || pingedIPs < networkIPs.size()) {
+                    return;
+                }
+                done = true;
+            }
+            logger.debug(
+                    "Network scan of {} IPs finished in {} ms, TCP sweep of {} ports took {} ms and found {} open ports",
+                    networkIPs.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    sweep.getTotal(), sweep.getDurationMillis(), sweep.getOpenPorts());
+            connector.close();
+            probeEngine.shutdown();
+            synchronized (NetworkDiscoveryService.this) {
+                if (currentScan == this) {
+                    stopScan();
+                }
+            }
         }
-        service.shutdown();
-        executorService = null;
     }
 
     public static ThingUID createServiceUID(String ip, int tcpPort) {
@@ -186,7 +279,7 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     }
 
     /**
-     * Submit newly discovered devices. This method is called by the spawned threads in {@link startScan}.
+     * Submit newly discovered devices. This method is called as soon as a device is found by {@link #startScan()}.
      *
      * @param ip The device IP
      * @param tcpPort The TCP port
@@ -229,7 +322,7 @@ public class NetworkDiscoveryService extends AbstractDiscoveryService implements
     }
 
     /**
-     * Submit newly discovered devices. This method is called by the spawned threads in {@link startScan}.
+     * Submit newly discovered devices. This method is called as soon as a device is found by {@link #startScan()}.
      *
      * @param ip The device IP
      */
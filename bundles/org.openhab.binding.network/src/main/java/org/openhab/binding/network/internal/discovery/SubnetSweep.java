@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal.discovery;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.network.internal.utils.AsyncTcpConnector;
+import org.openhab.binding.network.internal.utils.PingResult;
+
+/**
+ * Tries to connect to a set of TCP ports on every address of a list, with non-blocking connection attempts of an
+ * {@link AsyncTcpConnector}. New attempts are started at a limited rate. Open ports are reported as soon as they
+ * are found.
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class SubnetSweep {
+    /** How often new connection attempts are started */
+    static final long PACE_INTERVAL_MS = 10;
+
+    private final AsyncTcpConnector connector;
+    private final ScheduledExecutorService scheduler;
+    private final int connectsPerSecond;
+    private final int timeoutInMS;
+    private final BiConsumer<String, Integer> openPortListener;
+    private final List<InetSocketAddress> targets = new ArrayList<>();
+    private final CompletableFuture<SubnetSweep> finished = new CompletableFuture<>();
+
+    private @Nullable ScheduledFuture<?> pacer;
+    private boolean begun = false;
+    private long startNanos;
+    private long endNanos;
+    private int started = 0;
+    private int completed = 0;
+    private int openPorts = 0;
+    private boolean cancelled = false;
+
+    /**
+     * Creates a sweep. Call {@link #start()} to perform it.
+     *
+     * @param connector Performs the connection attempts. Its in-flight limit is the limit of the sweep.
+     * @param scheduler Starts the connection attempts
+     * @param connectsPerSecond The maximum rate of new connection attempts
+     * @param timeoutInMS The timeout of a connection attempt
+     * @param ips The IP addresses
+     * @param ports The TCP ports to try on each address
+     * @param openPortListener Called with the IP address and port of each open port
+     */
+    public SubnetSweep(AsyncTcpConnector connector, ScheduledExecutorService scheduler, int connectsPerSecond,
+            int timeoutInMS, Collection<String> ips, Collection<Integer> ports,
+            BiConsumer<String, Integer> openPortListener) {
+        this.connector = connector;
+        this.scheduler = scheduler;
+        this.connectsPerSecond = connectsPerSecond;
+        this.timeoutInMS = timeoutInMS;
+        this.openPortListener = openPortListener;
+        for (String ip : ips) {
+            for (int port : ports) {
+                targets.add(new InetSocketAddress(ip, port));
+            }
+        }
+    }
+
+    /**
+     * Start the sweep.
+     *
+     * @return A future that completes with this sweep, after every connection attempt finished or the sweep was
+     *         cancelled
+     */
+    public synchronized CompletableFuture<SubnetSweep> start() {
+        if (begun || cancelled) {
+            return finished;
+        }
+        begun = true;
+        startNanos = System.nanoTime();
+        if (targets.isEmpty()) {
+            endNanos = startNanos;
+            finished.complete(this);
+            return finished;
+        }
+        pacer = scheduler.scheduleAtFixedRate(this::startAttempts, 0, PACE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        return finished;
+    }
+
+    /**
+     * Stop starting new connection attempts. Attempts already in flight are not reported anymore.
+     */
+    public void cancel() {
+        synchronized (this) {
+            if (cancelled || finished.isDone()) {
+                return;
+            }
+            cancelled = true;
+            endNanos = System.nanoTime();
+            stopPacer();
+        }
+        finished.complete(this);
+    }
+
+    private void startAttempts() {
+        final List<InetSocketAddress> next = new ArrayList<>();
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            // Allow the attempts of one interval at once, the rest is spread over time
+            long elapsedNanos = System.nanoTime() - startNanos;
+            long allowed = Math.min(targets.size(),
+                    (elapsedNanos / 1000 * connectsPerSecond + PACE_INTERVAL_MS * 1000 * connectsPerSecond)
+                            / 1000000);
+            while (started < allowed) {
+                next.add(targets.get(started++));
+            }
+            if (started == targets.size()) {
+                stopPacer();
+            }
+        }
+        for (InetSocketAddress address : next) {
+            connector.connect(address, timeoutInMS).whenComplete((result, error) -> completed(address, result));
+        }
+    }
+
+    private void completed(InetSocketAddress address, @Nullable PingResult result) {
+        final boolean open = result != null && result.isSuccess();
+        final boolean last;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            completed++;
+            if (open) {
+                openPorts++;
+            }
+            last = completed == targets.size();
+            if (last) {
+                endNanos = System.nanoTime();
+            }
+        }
+        // The connector completes its futures on an executor, not on its selector thread
+        if (open) {
+            openPortListener.accept(address.getHostString(), address.getPort());
+        }
+        if (last) {
+            finished.complete(this);
+        }
+    }
+
+    private void stopPacer() {
+        ScheduledFuture<?> pacer = this.pacer;
+        if (pacer != null) {
+            pacer.cancel(false);
+        }
+    }
+
+    /**
+     * @return number of connection attempts of the sweep
+     */
+    public int getTotal() {
+        return targets.size();
+    }
+
+    /**
+     * @return number of finished connection attempts
+     */
+    public synchronized int getCompleted() {
+        return completed;
+    }
+
+    public synchronized int getOpenPorts() {
+        return openPorts;
+    }
+
+    /**
+     * @return true if every connection attempt finished or the sweep was cancelled
+     */
+    public synchronized boolean isFinished() {
+        return cancelled || completed == targets.size();
+    }
+
+    /**
+     * @return the duration of the sweep so far or until it finished, in milliseconds
+     */
+    public synchronized long getDurationMillis() {
+        if (!begun) {
+            return 0;
+        }
+        return TimeUnit.NANOSECONDS.toMillis((isFinished() ? endNanos : System.nanoTime()) - startNanos);
+    }
+}
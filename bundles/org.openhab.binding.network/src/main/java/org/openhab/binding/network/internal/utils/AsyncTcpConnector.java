@@ -0,0 +1,317 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal.utils;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Performs TCP connection attempts with non-blocking socket channels. A single selector thread waits for all
+ * attempts, so that thousands of them can be in flight without a thread per attempt.
+ *
+ * <p>
+ * An attempt is successful if the connection could be established within the timeout. The connection is closed
+ * immediately afterwards. Attempts exceeding the in-flight limit wait in a queue.
+ * </p>
+ *
+ * <p>
+ * The futures are completed by the given executor, so that their callbacks don't delay the selector thread.
+ * </p>
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class AsyncTcpConnector implements AutoCloseable {
+    private final Logger logger = LoggerFactory.getLogger(AsyncTcpConnector.class);
+    private final Selector selector;
+    private final Thread thread;
+    private final int maxInFlight;
+    private final Executor completionExecutor;
+
+    /** Attempts handed over to the selector thread */
+    private final ConcurrentLinkedQueue<Attempt> registrations = new ConcurrentLinkedQueue<>();
+    /** Attempts exceeding the in-flight limit */
+    private final ArrayDeque<Attempt> waiting = new ArrayDeque<>();
+    /**
+     * Registered attempts by deadline. Finished attempts are skipped when their deadline passes, instead of being
+     * removed. Only accessed by the selector thread.
+     */
+    private final PriorityQueue<Attempt> deadlines = new PriorityQueue<>(
+            (a, b) -> Long.compare(a.deadlineNanos, b.deadlineNanos));
+    private int inFlight = 0;
+    private volatile boolean running = true;
+
+    private static class Attempt {
+        final InetSocketAddress address;
+        final long timeoutNanos;
+        final CompletableFuture<ConnectResult> future = new CompletableFuture<>();
+        long startNanos;
+        long deadlineNanos;
+        boolean done;
+        @Nullable
+        SocketChannel channel;
+
+        Attempt(InetSocketAddress address, int timeoutInMS) {
+            this.address = address;
+            this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutInMS);
+        }
+    }
+
+    /**
+     * The result of a connection attempt. It tells apart a refused connection, which means the host is there, from a
+     * host that did not answer at all.
+     */
+    public static class ConnectResult extends PingResult {
+        private final boolean refused;
+
+        public ConnectResult(boolean success, boolean refused, double executionTimeInMS) {
+            super(success, executionTimeInMS);
+            this.refused = refused;
+        }
+
+        /**
+         * @return <code>true</code> if the host actively refused the connection
+         */
+        public boolean isRefused() {
+            return refused;
+        }
+    }
+
+    /**
+     * Creates a connector and starts its selector thread.
+     *
+     * @param name The name of the selector thread
+     * @param maxInFlight The maximum number of simultaneous connection attempts
+     * @param completionExecutor Completes the futures returned by {@link #connect(InetSocketAddress, int)}
+     * @throws IOException If no selector could be opened
+     */
+    public AsyncTcpConnector(String name, int maxInFlight, Executor completionExecutor) throws IOException {
+        this.maxInFlight = maxInFlight;
+        this.completionExecutor = completionExecutor;
+        this.selector = Selector.open();
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Try to connect to the given address.
+     *
+     * @param address The address and port
+     * @param timeoutInMS The timeout for establishing the connection. Time spent waiting for a free in-flight slot
+     *            does not count.
+     * @return A future that completes with a successful result if the connection was established, or with an
+     *         unsuccessful result if it was refused, the host is unreachable or the timeout passed.
+     */
+    public CompletableFuture<ConnectResult> connect(InetSocketAddress address, int timeoutInMS) {
+        Attempt attempt = new Attempt(address, timeoutInMS);
+        synchronized (this) {
+            if (!running) {
+                attempt.future.completeExceptionally(new IllegalStateException("Connector closed"));
+                return attempt.future;
+            }
+            if (inFlight >= maxInFlight) {
+                waiting.add(attempt);
+                return attempt.future;
+            }
+            inFlight++;
+            registrations.add(attempt);
+        }
+        selector.wakeup();
+        return attempt.future;
+    }
+
+    /**
+     * @return number of attempts waiting for a free in-flight slot
+     */
+    public synchronized int getQueueDepth() {
+        return waiting.size();
+    }
+
+    /**
+     * @return number of attempts waiting for a connection to be established
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                long timeout = 0;
+                Attempt next = deadlines.peek();
+                if (next != null) {
+                    timeout = Math.max(1, TimeUnit.NANOSECONDS.toMillis(next.deadlineNanos - System.nanoTime()));
+                }
+                selector.select(timeout);
+
+                Attempt attempt;
+                while ((attempt = registrations.poll()) != null) {
+                    start(attempt);
+                }
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    finish((Attempt) key.attachment());
+                }
+
+                long now = System.nanoTime();
+                while ((next = deadlines.peek()) != null && next.deadlineNanos - now <= 0) {
+                    deadlines.poll();
+                    if (!next.done) {
+                        complete(next, false, false);
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                logger.warn("TCP connection attempts stopped", e);
+            }
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void start(Attempt attempt) {
+        attempt.startNanos = System.nanoTime();
+        attempt.deadlineNanos = attempt.startNanos + attempt.timeoutNanos;
+        try {
+            SocketChannel channel = SocketChannel.open();
+            attempt.channel = channel;
+            channel.configureBlocking(false);
+            if (channel.connect(attempt.address)) {
+                complete(attempt, true, false);
+                return;
+            }
+            channel.register(selector, SelectionKey.OP_CONNECT, attempt);
+            deadlines.add(attempt);
+        } catch (ConnectException e) {
+            complete(attempt, false, true);
+        } catch (IOException e) {
+            logger.trace("Could not connect to {}", attempt.address, e);
+            complete(attempt, false, false);
+        }
+    }
+
+    private void finish(Attempt attempt) {
+        boolean connected = false;
+        boolean refused = false;
+        SocketChannel channel = attempt.channel;
+        try {
+            connected = channel != null && channel.finishConnect();
+        } catch (ConnectException e) {
+            refused = true;
+        } catch (IOException e) {
+            // Unreachable
+        }
+        complete(attempt, connected, refused);
+    }
+
+    private void complete(Attempt attempt, boolean success, boolean refused) {
+        attempt.done = true;
+        SocketChannel channel = attempt.channel;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+        double executionTimeInMS = (System.nanoTime() - attempt.startNanos) / 1000000.0;
+
+        synchronized (this) {
+            Attempt next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+            } else {
+                // The slot is handed over. Starting it in the next loop avoids a deep recursion if many attempts
+                // fail immediately.
+                registrations.add(next);
+                selector.wakeup();
+            }
+        }
+        ConnectResult result = new ConnectResult(success, refused, executionTimeInMS);
+        dispatch(() -> attempt.future.complete(result));
+    }
+
+    private void dispatch(Runnable completion) {
+        try {
+            completionExecutor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            completion.run();
+        }
+    }
+
+    private void closeAll() {
+        List<Attempt> dropped = new ArrayList<>();
+        deadlines.stream().filter(a -> !a.done).forEach(dropped::add);
+        deadlines.clear();
+        synchronized (this) {
+            running = false;
+            dropped.addAll(registrations);
+            registrations.clear();
+            dropped.addAll(waiting);
+            waiting.clear();
+            inFlight = 0;
+        }
+        for (Attempt attempt : dropped) {
+            SocketChannel channel = attempt.channel;
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                }
+            }
+            dispatch(() -> attempt.future.completeExceptionally(new IllegalStateException("Connector closed")));
+        }
+        try {
+            selector.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Stops the selector thread. Attempts in flight or in the queue complete exceptionally.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
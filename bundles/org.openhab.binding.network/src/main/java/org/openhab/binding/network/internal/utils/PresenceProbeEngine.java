@@ -0,0 +1,623 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal.utils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.openhab.binding.network.internal.utils.AsyncTcpConnector.ConnectResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Performs the probes of presence detections. One engine is shared by all things, see {@link #acquire()}.
+ *
+ * <p>
+ * TCP connection attempts are non-blocking and handled by an {@link AsyncTcpConnector}. ARP and ICMP pings need a
+ * process or a blocking call and share a bounded thread pool. An identical probe that is requested while another one
+ * is still waiting or running, for example by two things for the same host, is not performed twice but completes
+ * with the result of the running one.
+ * </p>
+ *
+ * <p>
+ * The number of simultaneous probes per host adapts: It is increased by one for each probe the host answered and
+ * halved for each probe without answer, so that unreachable hosts don't occupy the pool. A refused TCP connection
+ * counts as answer. The limit never drops below the number of probes of one detection cycle, so that the probes of a
+ * detection don't have to wait for each other.
+ * </p>
+ *
+ * <p>
+ * A probe that did not complete shortly after its timeout, measured from its start, completes with an empty result
+ * and frees its slot. The futures are completed on a scheduler thread, never on the selector thread or a thread of
+ * the blocking pool.
+ * </p>
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class PresenceProbeEngine {
+    static final int MAX_BLOCKING_PROBES = 32;
+    static final int MAX_TCP_IN_FLIGHT = 256;
+    static final int INITIAL_HOST_CONCURRENCY = 2;
+    static final int MAX_HOST_CONCURRENCY = 4;
+    /** Time a probe may take in addition to its timeout, e.g. for starting a process */
+    static final int DEADLINE_GRACE_MS = 1000;
+    /** Idle hosts are forgotten after this time, together with their adapted limit */
+    static final long HOST_IDLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+
+    private static @Nullable PresenceProbeEngine instance;
+    private static int users = 0;
+
+    public enum ProbeType {
+        TCP,
+        ARP,
+        ICMP
+    }
+
+    /**
+     * A blocking probe, like an ARP or ICMP ping.
+     */
+    @FunctionalInterface
+    public interface BlockingProbe {
+        Optional<PingResult> run() throws IOException, InterruptedException;
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(PresenceProbeEngine.class);
+    private final NetworkUtils networkUtils;
+    private final Executor blockingExecutor;
+    private final ScheduledExecutorService scheduler;
+    private final @Nullable AsyncTcpConnector connector;
+
+    private final Map<String, HostQueue> hosts = new HashMap<>();
+    /** Waiting and running probes by key, used to find an identical probe */
+    private final Map<String, Probe> probes = new HashMap<>();
+    /** One statistics object per {@link ProbeType}, by ordinal */
+    private final List<Statistics> statistics = new ArrayList<>();
+    private int waiting = 0;
+    private int inFlight = 0;
+    private long coalesced = 0;
+    private long expired = 0;
+    private long lastEvictionNanos = System.nanoTime();
+    private boolean closed = false;
+
+    private static class HostQueue {
+        final ArrayDeque<Probe> waiting = new ArrayDeque<>();
+        int limit = INITIAL_HOST_CONCURRENCY;
+        int inFlight = 0;
+        long idleSinceNanos;
+    }
+
+    private static class Probe {
+        final ProbeType type;
+        final String host;
+        final String key;
+        final int timeoutInMS;
+        final int cycleProbes;
+        final Function<Probe, CompletableFuture<Optional<PingResult>>> starter;
+        final CompletableFuture<Optional<PingResult>> future = new CompletableFuture<>();
+        final long queuedNanos = System.nanoTime();
+        long startedNanos;
+        /** Guarded by the engine. Set when the result is known or the deadline passed, later results are ignored. */
+        boolean done;
+        @Nullable
+        ScheduledFuture<?> deadline;
+
+        Probe(ProbeType type, String host, String key, int timeoutInMS, int cycleProbes,
+                Function<Probe, CompletableFuture<Optional<PingResult>>> starter) {
+            this.type = type;
+            this.host = host;
+            this.key = key;
+            this.timeoutInMS = timeoutInMS;
+            this.cycleProbes = cycleProbes;
+            this.starter = starter;
+        }
+    }
+
+    private static class Statistics {
+        long probes;
+        long successful;
+        long totalLatencyNanos;
+        long maxLatencyNanos;
+        long totalWaitNanos;
+    }
+
+    /**
+     * Return the shared engine. It is created on first use.
+     */
+    public static synchronized PresenceProbeEngine getInstance() {
+        PresenceProbeEngine engine = instance;
+        if (engine == null) {
+            engine = create();
+            instance = engine;
+        }
+        return engine;
+    }
+
+    /**
+     * Return the shared engine and register a user of it. Each call must be paired with a call to
+     * {@link #release(PresenceProbeEngine)}.
+     */
+    public static synchronized PresenceProbeEngine acquire() {
+        users++;
+        return getInstance();
+    }
+
+    /**
+     * Unregister a user of the shared engine. The engine is stopped when its last user released it. A later
+     * {@link #getInstance()} creates a new one.
+     *
+     * @param engine The engine returned by {@link #acquire()}
+     */
+    public static synchronized void release(PresenceProbeEngine engine) {
+        if (engine != instance) {
+            return;
+        }
+        users--;
+        if (users <= 0) {
+            users = 0;
+            instance = null;
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * Creates an engine with its own pool for blocking probes, separate from the shared engine. TCP probes are
+     * blocking as well. The engine must be stopped with {@link #shutdown()}.
+     *
+     * @param name The name prefix of the pool threads
+     * @param maxBlockingProbes The number of pool threads
+     * @param threadPriority The priority of the pool threads
+     * @param scheduler Completes the futures of the probes and ends probes that exceed their deadline
+     */
+    public static PresenceProbeEngine create(String name, int maxBlockingProbes, int threadPriority,
+            ScheduledExecutorService scheduler) {
+        return new PresenceProbeEngine(new NetworkUtils(), createPool(name, maxBlockingProbes, threadPriority),
+                scheduler, null);
+    }
+
+    private static ThreadPoolExecutor createPool(String name, int threads, int threadPriority) {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread thread = new Thread(r, name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(threadPriority);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static PresenceProbeEngine create() {
+        ThreadPoolExecutor executor = createPool("networkProbe", MAX_BLOCKING_PROBES, Thread.NORM_PRIORITY);
+        ScheduledExecutorService scheduler = ThreadPoolManager.getScheduledPool("networkProbe");
+        AsyncTcpConnector connector = null;
+        try {
+            connector = new AsyncTcpConnector("networkProbeTCP", MAX_TCP_IN_FLIGHT, scheduler);
+        } catch (IOException e) {
+            LoggerFactory.getLogger(PresenceProbeEngine.class)
+                    .warn("Non-blocking TCP probes not available, falling back to blocking ones", e);
+        }
+        return new PresenceProbeEngine(new NetworkUtils(), executor, scheduler, connector);
+    }
+
+    /**
+     * Creates an engine. Use {@link #acquire()} for the shared one.
+     *
+     * @param networkUtils Used for blocking TCP probes, if there is no connector
+     * @param blockingExecutor Executes blocking probes
+     * @param scheduler Completes the futures of the probes and ends probes that exceed their deadline. It is not
+     *            stopped by {@link #shutdown()}.
+     * @param connector Performs non-blocking TCP probes. May be null.
+     */
+    public PresenceProbeEngine(NetworkUtils networkUtils, Executor blockingExecutor,
+            ScheduledExecutorService scheduler, @Nullable AsyncTcpConnector connector) {
+        this.networkUtils = networkUtils;
+        this.blockingExecutor = blockingExecutor;
+        this.scheduler = scheduler;
+        this.connector = connector;
+        for (int i = 0; i < ProbeType.values().length; i++) {
+            statistics.add(new Statistics());
+        }
+    }
+
+    /**
+     * Try to establish a TCP connection.
+     *
+     * @param address The destination
+     * @param port The TCP port
+     * @param timeoutInMS The connection timeout
+     * @param cycleProbes The number of probes of the detection cycle this probe belongs to. The host is allowed at
+     *            least as many simultaneous probes.
+     * @return A future that completes with the result of the probe. The optional is empty if the probe could not be
+     *         performed.
+     */
+    public CompletableFuture<Optional<PingResult>> tcpPing(InetAddress address, int port, int timeoutInMS,
+            int cycleProbes) {
+        final String host = address.getHostAddress();
+        final AsyncTcpConnector connector = this.connector;
+        if (connector == null) {
+            return blockingPing(ProbeType.TCP, address, port + " " + timeoutInMS, timeoutInMS, cycleProbes,
+                    () -> networkUtils.servicePing(host, port, timeoutInMS));
+        }
+        return enqueue(ProbeType.TCP, host, ProbeType.TCP + " " + host + " " + port + " " + timeoutInMS,
+                timeoutInMS, cycleProbes, probe -> {
+                    armDeadline(probe);
+                    return connector.connect(new InetSocketAddress(address, port), timeoutInMS)
+                            .thenApply(Optional::of);
+                });
+    }
+
+    /**
+     * Perform a blocking probe on the shared thread pool.
+     *
+     * @param type The probe type, for the statistics
+     * @param address The destination
+     * @param key Identifies the probe together with the destination. A probe with the same type, destination and key
+     *            is considered identical. It should therefore contain all parameters of the probe.
+     * @param timeoutInMS The timeout of the probe. The probe is abandoned if it did not return shortly afterwards.
+     * @param cycleProbes The number of probes of the detection cycle this probe belongs to. The host is allowed at
+     *            least as many simultaneous probes.
+     * @param probe The probe
+     * @return A future that completes with the result of the probe. The optional is empty if the probe failed.
+     */
+    public CompletableFuture<Optional<PingResult>> blockingPing(ProbeType type, InetAddress address, String key,
+            int timeoutInMS, int cycleProbes, BlockingProbe probe) {
+        final String host = address.getHostAddress();
+        return enqueue(type, host, type + " " + host + " " + key, timeoutInMS, cycleProbes, p -> {
+            final CompletableFuture<Optional<PingResult>> future = new CompletableFuture<>();
+            try {
+                blockingExecutor.execute(() -> {
+                    // Time spent waiting for a thread of the pool does not count
+                    armDeadline(p);
+                    try {
+                        future.complete(probe.run());
+                    } catch (IOException e) {
+                        logger.trace("{} probe for {} failed", type, host, e);
+                        future.complete(Optional.empty());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        future.complete(Optional.empty());
+                    } catch (RuntimeException e) {
+                        future.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                future.complete(Optional.empty());
+            }
+            return future;
+        });
+    }
+
+    private CompletableFuture<Optional<PingResult>> enqueue(ProbeType type, String host, String key, int timeoutInMS,
+            int cycleProbes, Function<Probe, CompletableFuture<Optional<PingResult>>> starter) {
+        final Probe probe;
+        final List<Probe> startable;
+        synchronized (this) {
+            if (closed) {
+                return CompletableFuture.completedFuture(Optional.empty());
+            }
+            Probe identical = probes.get(key);
+            if (identical != null) {
+                coalesced++;
+                return identical.future;
+            }
+            long now = System.nanoTime();
+            if (now - lastEvictionNanos > HOST_IDLE_NANOS) {
+                evictIdleHosts(now);
+            }
+            probe = new Probe(type, host, key, timeoutInMS, cycleProbes, starter);
+            probes.put(key, probe);
+            HostQueue queue = hosts.computeIfAbsent(host, h -> new HostQueue());
+            queue.limit = Math.max(queue.limit, cycleProbes);
+            queue.waiting.add(probe);
+            waiting++;
+            startable = pollStartable(host);
+        }
+        start(startable);
+        return probe.future;
+    }
+
+    /**
+     * Forget hosts that had no probes for {@link #HOST_IDLE_NANOS}.
+     *
+     * @param now The current {@link System#nanoTime()}
+     * @return number of hosts forgotten
+     */
+    synchronized int evictIdleHosts(long now) {
+        lastEvictionNanos = now;
+        int before = hosts.size();
+        hosts.values().removeIf(queue -> queue.inFlight == 0 && queue.waiting.isEmpty()
+                && now - queue.idleSinceNanos > HOST_IDLE_NANOS);
+        return before - hosts.size();
+    }
+
+    /**
+     * Take waiting probes of the given host, up to its limit. Must be called with the lock held.
+     */
+    private List<Probe> pollStartable(String host) {
+        HostQueue queue = hosts.get(host);
+        if (queue == null) {
+            return Collections.emptyList();
+        }
+        List<Probe> startable = new ArrayList<>();
+        Probe probe;
+        while (queue.inFlight < queue.limit && (probe = queue.waiting.poll()) != null) {
+            waiting--;
+            inFlight++;
+            queue.inFlight++;
+            probe.startedNanos = System.nanoTime();
+            startable.add(probe);
+        }
+        if (queue.inFlight == 0 && queue.waiting.isEmpty()) {
+            if (queue.limit == INITIAL_HOST_CONCURRENCY) {
+                hosts.remove(host);
+            } else {
+                queue.idleSinceNanos = System.nanoTime();
+            }
+        }
+        return startable;
+    }
+
+    /**
+     * Start the given probes. Must be called without the lock held, as a probe may complete immediately.
+     */
+    private void start(List<Probe> startable) {
+        for (Probe probe : startable) {
+            CompletableFuture<Optional<PingResult>> result;
+            try {
+                result = probe.starter.apply(probe);
+            } catch (RuntimeException e) {
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
+            result.whenComplete((r, e) -> completed(probe, r, e));
+        }
+    }
+
+    /**
+     * End the probe if it did not complete before its deadline. Called when the probe actually started.
+     */
+    private void armDeadline(Probe probe) {
+        ScheduledFuture<?> deadline;
+        try {
+            deadline = scheduler.schedule(() -> {
+                if (completed(probe, Optional.empty(), null)) {
+                    logger.debug("{} probe for {} did not return within {} ms", probe.type, probe.host,
+                            probe.timeoutInMS + DEADLINE_GRACE_MS);
+                    synchronized (this) {
+                        expired++;
+                    }
+                }
+            }, probe.timeoutInMS + DEADLINE_GRACE_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return;
+        }
+        synchronized (this) {
+            if (probe.done) {
+                deadline.cancel(false);
+            } else {
+                probe.deadline = deadline;
+            }
+        }
+    }
+
+    /**
+     * @return false if the probe was already completed, e.g. by its deadline
+     */
+    private boolean completed(Probe probe, @Nullable Optional<PingResult> result, @Nullable Throwable error) {
+        boolean answered = error == null && result != null && result.isPresent() && isAnswer(result.get());
+        List<Probe> startable = Collections.emptyList();
+        synchronized (this) {
+            if (probe.done) {
+                return false;
+            }
+            probe.done = true;
+            ScheduledFuture<?> deadline = probe.deadline;
+            if (deadline != null) {
+                deadline.cancel(false);
+            }
+            probes.remove(probe.key, probe);
+            inFlight--;
+
+            long now = System.nanoTime();
+            Statistics s = statistics.get(probe.type.ordinal());
+            s.probes++;
+            if (error == null && result != null && result.isPresent() && result.get().isSuccess()) {
+                s.successful++;
+            }
+            s.totalLatencyNanos += now - probe.queuedNanos;
+            s.maxLatencyNanos = Math.max(s.maxLatencyNanos, now - probe.queuedNanos);
+            s.totalWaitNanos += probe.startedNanos - probe.queuedNanos;
+
+            HostQueue queue = hosts.get(probe.host);
+            if (queue != null) {
+                queue.inFlight--;
+                queue.limit = answered ? Math.min(Math.max(MAX_HOST_CONCURRENCY, probe.cycleProbes), queue.limit + 1)
+                        : Math.max(Math.max(1, probe.cycleProbes), queue.limit / 2);
+                startable = pollStartable(probe.host);
+            }
+        }
+
+        final Optional<PingResult> value = result != null ? result : Optional.empty();
+        dispatch(() -> {
+            if (error != null) {
+                probe.future.completeExceptionally(error);
+            } else {
+                probe.future.complete(value);
+            }
+        });
+        start(startable);
+        return true;
+    }
+
+    /**
+     * A host answered if it accepted or actively refused the connection, or answered the ping.
+     */
+    private static boolean isAnswer(PingResult result) {
+        return result.isSuccess() || (result instanceof ConnectResult && ((ConnectResult) result).isRefused());
+    }
+
+    /**
+     * Complete a future on the scheduler, so that the callbacks of the future don't run on the selector thread or
+     * occupy a thread of the blocking pool.
+     */
+    private void dispatch(Runnable completion) {
+        try {
+            scheduler.execute(completion);
+        } catch (RejectedExecutionException e) {
+            completion.run();
+        }
+    }
+
+    /**
+     * Stop the engine. Waiting and running probes complete with an empty result.
+     */
+    public void shutdown() {
+        final List<Probe> dropped;
+        synchronized (this) {
+            closed = true;
+            dropped = new ArrayList<>(probes.values());
+            for (Probe probe : dropped) {
+                probe.done = true;
+                ScheduledFuture<?> deadline = probe.deadline;
+                if (deadline != null) {
+                    deadline.cancel(false);
+                }
+            }
+            probes.clear();
+            hosts.clear();
+            waiting = 0;
+            inFlight = 0;
+            logger.debug("Stopping presence probes: {}", this);
+        }
+        dropped.forEach(probe -> dispatch(() -> probe.future.complete(Optional.empty())));
+
+        AsyncTcpConnector connector = this.connector;
+        if (connector != null) {
+            connector.close();
+        }
+        if (blockingExecutor instanceof ExecutorService) {
+            ((ExecutorService) blockingExecutor).shutdownNow();
+        }
+    }
+
+    /**
+     * @return number of probes waiting for a free slot of their host
+     */
+    public synchronized int getQueueDepth() {
+        return waiting;
+    }
+
+    /**
+     * @return number of running probes. Blocking probes may still wait for a thread of the pool.
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return number of probes that were not performed, because an identical one was running
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * @return number of probes that were abandoned, because they did not return in time
+     */
+    public synchronized long getExpired() {
+        return expired;
+    }
+
+    /**
+     * @return number of hosts with a queue
+     */
+    public synchronized int getHostCount() {
+        return hosts.size();
+    }
+
+    /**
+     * @return the current number of simultaneous probes allowed for the given host
+     */
+    public synchronized int getHostConcurrency(InetAddress address) {
+        HostQueue queue = hosts.get(address.getHostAddress());
+        return queue == null ? INITIAL_HOST_CONCURRENCY : queue.limit;
+    }
+
+    public synchronized long getProbes(ProbeType type) {
+        return statistics.get(type.ordinal()).probes;
+    }
+
+    /**
+     * @return number of probes the host answered
+     */
+    public synchronized long getSuccessfulProbes(ProbeType type) {
+        return statistics.get(type.ordinal()).successful;
+    }
+
+    /**
+     * @return average time from requesting a probe until its result, in milliseconds
+     */
+    public synchronized long getAverageLatencyMillis(ProbeType type) {
+        Statistics s = statistics.get(type.ordinal());
+        return s.probes == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(s.totalLatencyNanos / s.probes);
+    }
+
+    public synchronized long getMaxLatencyMillis(ProbeType type) {
+        return TimeUnit.NANOSECONDS.toMillis(statistics.get(type.ordinal()).maxLatencyNanos);
+    }
+
+    /**
+     * @return average time a probe waited for a free slot of its host, in milliseconds
+     */
+    public synchronized long getAverageWaitMillis(ProbeType type) {
+        Statistics s = statistics.get(type.ordinal());
+        return s.probes == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(s.totalWaitNanos / s.probes);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder b = new StringBuilder();
+        b.append(String.format("queueDepth=%d, inFlight=%d, coalesced=%d, expired=%d, hosts=%d", waiting, inFlight,
+                coalesced, expired, hosts.size()));
+        for (ProbeType type : ProbeType.values()) {
+            b.append(String.format(", %s: probes=%d, successful=%d, avg=%d ms, max=%d ms, wait=%d ms", type,
+                    getProbes(type), getSuccessfulProbes(type), getAverageLatencyMillis(type),
+                    getMaxLatencyMillis(type), getAverageWaitMillis(type)));
+        }
+        return b.toString();
+    }
+}
@@ -21,7 +21,10 @@ import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.Collections;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
@@ -37,6 +40,7 @@ import org.openhab.binding.network.internal.utils.NetworkUtils;
 import org.openhab.binding.network.internal.utils.NetworkUtils.ArpPingUtilEnum;
 import org.openhab.binding.network.internal.utils.NetworkUtils.IpPingMethodEnum;
 import org.openhab.binding.network.internal.utils.PingResult;
+import org.openhab.binding.network.internal.utils.PresenceProbeEngine;
 
 /**
  * Tests cases for {@see PresenceDetectionValue}
@@ -54,6 +58,9 @@ public class PresenceDetectionTest {
     @Mock
     ExecutorService executorService;
 
+    @Mock
+    ScheduledExecutorService scheduler;
+
     @Mock
     Consumer<PresenceDetectionValue> callback;
 
@@ -70,6 +77,13 @@ public class PresenceDetectionTest {
 
         subject = spy(new PresenceDetection(listener, (int) CACHETIME));
         subject.networkUtils = networkUtils;
+        // Complete the probes immediately, their deadlines are never reached
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(scheduler).execute(any());
+        doReturn(mock(ScheduledFuture.class)).when(scheduler).schedule(any(Runnable.class), anyLong(), any());
+        subject.probeEngine = new PresenceProbeEngine(networkUtils, Runnable::run, scheduler, null);
         subject.cache = spy(new ExpiringCacheAsync<PresenceDetectionValue>(CACHETIME, () -> {
             subject.performPresenceDetection(false);
         }));
@@ -91,26 +105,34 @@ public class PresenceDetectionTest {
         subject.waitForPresenceDetection();
     }
 
-    // Depending on the amount of test methods an according amount of threads is spawned.
-    // We will check if they spawn and return in time.
+    // Depending on the amount of test methods an according amount of checks is performed.
+    // We will check if they start and finish.
     @Test
-    public void threadCountTest() {
-        assertNull(subject.executorService);
+    public void checkCountTest() {
+        assertNull(subject.detection);
 
-        doNothing().when(subject).performARPping(any());
-        doNothing().when(subject).performJavaPing();
-        doNothing().when(subject).performSystemPing();
-        doNothing().when(subject).performServicePing(anyInt());
+        CompletableFuture<?> arpPing = new CompletableFuture<>();
+        CompletableFuture<?> systemPing = new CompletableFuture<>();
+        CompletableFuture<?> servicePing = new CompletableFuture<>();
+        doReturn(arpPing).when(subject).performARPping(any());
+        doReturn(systemPing).when(subject).performSystemPing();
+        doReturn(servicePing).when(subject).performServicePing(anyInt());
 
         subject.performPresenceDetection(false);
 
-        // Thread count: ARP + ICMP + 1*TCP
+        // Checks: ARP + ICMP + 1*TCP
         assertThat(subject.detectionChecks, is(3));
-        assertNotNull(subject.executorService);
+        assertNotNull(subject.detection);
+        verify(subject, times(0)).performJavaPing();
+
+        arpPing.complete(null);
+        systemPing.complete(null);
+        assertNotNull(subject.detection);
+        servicePing.complete(null);
 
-        subject.waitForPresenceDetection();
         assertThat(subject.detectionChecks, is(0));
-        assertNull(subject.executorService);
+        assertNull(subject.detection);
+        verify(listener).finalDetectionResult(any());
     }
 
     @Test
@@ -142,23 +164,22 @@ public class PresenceDetectionTest {
                 any(), anyInt());
         doReturn(Optional.of(new PingResult(true, 10))).when(networkUtils).servicePing(anyString(), anyInt(), anyInt());
 
-        doReturn(executorService).when(subject).getThreadsFor(anyInt());
+        subject.probeEngine = new PresenceProbeEngine(networkUtils, executorService, scheduler, null);
 
         // We expect no valid value
         assertTrue(subject.cache.isExpired());
         // Get value will issue a PresenceDetection internally.
         subject.getValue(callback);
         verify(subject).performPresenceDetection(eq(false));
-        assertNotNull(subject.executorService);
+        assertNotNull(subject.detection);
         // There should be no straight callback yet
         verify(callback, times(0)).accept(any());
 
-        // Perform the different presence detection threads now
+        // Perform the different presence detection probes now. All probes of a detection are allowed
+        // to run at the same time.
         ArgumentCaptor<Runnable> capture = ArgumentCaptor.forClass(Runnable.class);
         verify(executorService, times(3)).execute(capture.capture());
-        for (Runnable r : capture.getAllValues()) {
-            r.run();
-        }
+        capture.getAllValues().forEach(Runnable::run);
         // "Wait" for the presence detection to finish
         subject.waitForPresenceDetection();
 
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal.discovery;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.network.internal.utils.AsyncTcpConnector;
+
+/**
+ * Tests cases for {@link SubnetSweep}.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class SubnetSweepTest {
+    private ScheduledExecutorService scheduler;
+    private AsyncTcpConnector connector;
+    private final List<String> openPorts = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws Exception {
+        scheduler = Executors.newScheduledThreadPool(2);
+        connector = new AsyncTcpConnector("test", 100, scheduler);
+    }
+
+    @After
+    public void tearDown() {
+        connector.close();
+        scheduler.shutdownNow();
+    }
+
+    private static int closedPort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"))) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @Test
+    public void openPortsAreReported() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0, 10, InetAddress.getByName("127.0.0.1"))) {
+            int openPort = serverSocket.getLocalPort();
+            SubnetSweep subject = new SubnetSweep(connector, scheduler, 1000, 2000,
+                    Collections.singleton("127.0.0.1"), Arrays.asList(openPort, closedPort()),
+                    (ip, port) -> openPorts.add(ip + ":" + port));
+
+            assertThat(subject.start().get(5, TimeUnit.SECONDS), is(subject));
+
+            assertThat(openPorts, is(Collections.singletonList("127.0.0.1:" + openPort)));
+            assertThat(subject.getTotal(), is(2));
+            assertThat(subject.getCompleted(), is(2));
+            assertThat(subject.getOpenPorts(), is(1));
+            assertTrue(subject.isFinished());
+        }
+    }
+
+    @Test
+    public void connectionAttemptsAreRateLimited() throws Exception {
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            ports.add(closedPort());
+        }
+        SubnetSweep subject = new SubnetSweep(connector, scheduler, 100, 2000, Collections.singleton("127.0.0.1"),
+                ports, (ip, port) -> openPorts.add(ip + ":" + port));
+
+        subject.start().get(5, TimeUnit.SECONDS);
+
+        // 100 attempts per second: The 20th attempt is started after about 190 ms
+        assertTrue(subject.getDurationMillis() >= 150);
+        assertThat(subject.getCompleted(), is(20));
+        assertTrue(openPorts.isEmpty());
+    }
+
+    @Test
+    public void cancelStopsTheSweep() throws Exception {
+        SubnetSweep subject = new SubnetSweep(connector, scheduler, 1, 2000, Collections.singleton("127.0.0.1"),
+                Arrays.asList(closedPort(), closedPort(), closedPort()), (ip, port) -> openPorts.add(ip + ":" + port));
+
+        subject.start();
+        subject.cancel();
+
+        assertTrue(subject.start().isDone());
+        assertTrue(subject.isFinished());
+        assertTrue(subject.getCompleted() < 3);
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.network.internal.utils;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.binding.network.internal.utils.AsyncTcpConnector.ConnectResult;
+import org.openhab.binding.network.internal.utils.PresenceProbeEngine.ProbeType;
+
+/**
+ * Tests cases for {@link PresenceProbeEngine} and {@link AsyncTcpConnector}.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class PresenceProbeEngineTest {
+    private final List<Runnable> executed = new ArrayList<>();
+    private final List<Runnable> deadlines = new ArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private PresenceProbeEngine subject;
+    private InetAddress host;
+
+    @Before
+    public void setUp() throws IOException {
+        // Completions run immediately, deadlines only when a test runs them
+        scheduler = mock(ScheduledExecutorService.class);
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        }).when(scheduler).execute(any());
+        doAnswer(invocation -> {
+            deadlines.add(invocation.getArgument(0));
+            return mock(ScheduledFuture.class);
+        }).when(scheduler).schedule(any(Runnable.class), anyLong(), any());
+
+        subject = new PresenceProbeEngine(mock(NetworkUtils.class), executed::add, scheduler, null);
+        host = InetAddress.getByName("127.0.0.1");
+    }
+
+    private void runExecuted() {
+        List<Runnable> runnables = new ArrayList<>(executed);
+        executed.clear();
+        runnables.forEach(Runnable::run);
+    }
+
+    @Test
+    public void identicalProbesAreCoalesced() throws Exception {
+        CompletableFuture<Optional<PingResult>> first = subject.blockingPing(ProbeType.ICMP, host, "ping", 100, 1,
+                () -> Optional.of(new PingResult(true, 1)));
+        CompletableFuture<Optional<PingResult>> second = subject.blockingPing(ProbeType.ICMP, host, "ping", 100, 1,
+                () -> Optional.of(new PingResult(false, 1)));
+
+        assertThat(executed.size(), is(1));
+        assertThat(subject.getCoalesced(), is(1L));
+        runExecuted();
+
+        assertTrue(first.get().get().isSuccess());
+        assertTrue(second.get().get().isSuccess());
+        assertThat(subject.getProbes(ProbeType.ICMP), is(1L));
+        assertThat(subject.getSuccessfulProbes(ProbeType.ICMP), is(1L));
+        assertThat(subject.getInFlight(), is(0));
+    }
+
+    @Test
+    public void hostConcurrencyAdapts() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            subject.blockingPing(ProbeType.ARP, host, "if" + i, 100, 1, () -> Optional.of(new PingResult(false, 1)));
+        }
+        // Only the initial number of probes is running, the others are waiting
+        assertThat(executed.size(), is(PresenceProbeEngine.INITIAL_HOST_CONCURRENCY));
+        assertThat(subject.getQueueDepth(), is(2));
+
+        // The host doesn't answer: One probe at a time
+        runExecuted();
+        assertThat(subject.getHostConcurrency(host), is(1));
+        assertThat(executed.size(), is(1));
+        runExecuted();
+        runExecuted();
+        assertThat(subject.getQueueDepth(), is(0));
+        assertThat(subject.getInFlight(), is(0));
+
+        // The host answers: More probes at a time
+        for (int i = 0; i < 3; i++) {
+            subject.blockingPing(ProbeType.ARP, host, "if" + i, 100, 1, () -> Optional.of(new PingResult(true, 1)));
+        }
+        runExecuted();
+        assertThat(subject.getHostConcurrency(host), is(2));
+        assertThat(executed.size(), is(2));
+        runExecuted();
+        assertThat(subject.getHostConcurrency(host), is(PresenceProbeEngine.MAX_HOST_CONCURRENCY));
+        assertThat(subject.getProbes(ProbeType.ARP), is(7L));
+        assertThat(subject.getSuccessfulProbes(ProbeType.ARP), is(3L));
+    }
+
+    @Test
+    public void hostConcurrencyNotBelowCycleProbes() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            subject.blockingPing(ProbeType.ARP, host, "if" + i, 100, 3, () -> Optional.of(new PingResult(false, 1)));
+        }
+        // All probes of the detection cycle run at once, even if the host doesn't answer
+        assertThat(executed.size(), is(3));
+        runExecuted();
+        assertThat(subject.getHostConcurrency(host), is(3));
+
+        for (int i = 0; i < 3; i++) {
+            subject.blockingPing(ProbeType.ARP, host, "if" + i, 100, 3, () -> Optional.of(new PingResult(false, 1)));
+        }
+        assertThat(executed.size(), is(3));
+        assertThat(subject.getQueueDepth(), is(0));
+    }
+
+    @Test
+    public void probesExceedingTheirDeadlineAreAbandoned() throws Exception {
+        CompletableFuture<Optional<PingResult>> hanging = subject.blockingPing(ProbeType.ARP, host, "hanging", 100,
+                1, () -> {
+                    // The deadline passes while the probe is running
+                    assertThat(deadlines.size(), is(1));
+                    deadlines.get(0).run();
+                    return Optional.of(new PingResult(true, 1));
+                });
+        // The deadline is armed when the probe starts, not when it is queued
+        assertTrue(deadlines.isEmpty());
+        runExecuted();
+
+        assertFalse(hanging.get(1, TimeUnit.SECONDS).isPresent());
+        assertThat(subject.getExpired(), is(1L));
+        assertThat(subject.getProbes(ProbeType.ARP), is(1L));
+        assertThat(subject.getSuccessfulProbes(ProbeType.ARP), is(0L));
+        assertThat(subject.getInFlight(), is(0));
+    }
+
+    @Test
+    public void idleHostsAreEvicted() throws Exception {
+        subject.blockingPing(ProbeType.ICMP, host, "ping", 100, 1, () -> Optional.of(new PingResult(false, 1)));
+        runExecuted();
+        assertThat(subject.getHostConcurrency(host), is(1));
+        assertThat(subject.getHostCount(), is(1));
+
+        assertThat(subject.evictIdleHosts(System.nanoTime()), is(0));
+        assertThat(subject.evictIdleHosts(System.nanoTime() + PresenceProbeEngine.HOST_IDLE_NANOS + 1), is(1));
+        assertThat(subject.getHostCount(), is(0));
+        assertThat(subject.getHostConcurrency(host), is(PresenceProbeEngine.INITIAL_HOST_CONCURRENCY));
+    }
+
+    @Test
+    public void shutdownCompletesWaitingAndRunningProbes() throws Exception {
+        List<CompletableFuture<Optional<PingResult>>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(subject.blockingPing(ProbeType.ICMP, host, "ping" + i, 100, 1,
+                    () -> Optional.of(new PingResult(true, 1))));
+        }
+        assertThat(subject.getQueueDepth(), is(1));
+        subject.shutdown();
+
+        for (CompletableFuture<Optional<PingResult>> future : futures) {
+            assertFalse(future.get(1, TimeUnit.SECONDS).isPresent());
+        }
+        // Probes that return after the shutdown are ignored
+        runExecuted();
+        assertThat(subject.getProbes(ProbeType.ICMP), is(0L));
+        assertFalse(subject.tcpPing(host, 80, 100, 1).get(1, TimeUnit.SECONDS).isPresent());
+    }
+
+    @Test
+    public void nonBlockingTcpProbes() throws Exception {
+        try (AsyncTcpConnector connector = new AsyncTcpConnector("test", 1, Runnable::run);
+                ServerSocket serverSocket = new ServerSocket(0, 10, host)) {
+            subject = new PresenceProbeEngine(mock(NetworkUtils.class), executed::add, scheduler, connector);
+            int openPort = serverSocket.getLocalPort();
+            int closedPort;
+            try (ServerSocket closed = new ServerSocket(0, 1, host)) {
+                closedPort = closed.getLocalPort();
+            }
+
+            // The second attempt waits for the first one, as only one is allowed in flight
+            CompletableFuture<Optional<PingResult>> open = subject.tcpPing(host, openPort, 2000, 1);
+            CompletableFuture<Optional<PingResult>> closed = subject.tcpPing(host, closedPort, 2000, 1);
+
+            assertTrue(open.get(5, TimeUnit.SECONDS).get().isSuccess());
+            PingResult refused = closed.get(5, TimeUnit.SECONDS).get();
+            assertFalse(refused.isSuccess());
+            assertTrue(((ConnectResult) refused).isRefused());
+            assertThat(subject.getProbes(ProbeType.TCP), is(2L));
+            assertThat(connector.getInFlight(), is(0));
+            assertTrue(executed.isEmpty());
+            // A refused connection is an answer of the host
+            assertThat(subject.getHostConcurrency(host), is(PresenceProbeEngine.MAX_HOST_CONCURRENCY));
+        }
+    }
+}
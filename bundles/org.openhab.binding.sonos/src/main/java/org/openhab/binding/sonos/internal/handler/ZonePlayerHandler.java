@@ -26,9 +26,12 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
@@ -136,7 +139,7 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
      */
     private static final int DEFAULT_REFRESH_INTERVAL = 60;
 
-    private final Map<String, String> stateMap = Collections.synchronizedMap(new HashMap<String, String>());
+    private final ZonePlayerVariables variables = new ZonePlayerVariables();
 
     private List<SonosMusicService> musicServices;
 
@@ -204,6 +207,7 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
 
         removeSubscription();
         service.unregisterParticipant(this);
+        logger.debug("Processed events of thing {}: {}", getThing().getUID(), variables);
     }
 
     @Override
@@ -374,17 +378,29 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
 
     @Override
     public void onValueReceived(String variable, String value, String service) {
+        long start = System.nanoTime();
+        if (processValue(variable, value, service)) {
+            long nanos = System.nanoTime() - start;
+            variables.eventProcessed(nanos);
+            logger.trace("Processed '{}' (service '{}') for thing '{}' in {} us", variable, service,
+                    getThing().getUID(), TimeUnit.NANOSECONDS.toMicros(nanos));
+        }
+    }
+
+    /**
+     * Store a received value and update the channels depending on it, if the value changed.
+     *
+     * @return true if the value was processed
+     */
+    private boolean processValue(String variable, String value, String service) {
         if (getThing().getStatus() == ThingStatus.ONLINE) {
             logger.trace("Received pair '{}':'{}' (service '{}') for thing '{}'",
                     new Object[] { variable, value, service, this.getThing().getUID() });
 
-            String oldValue = this.stateMap.get(variable);
-            if (shouldIgnoreVariableUpdate(variable, value, oldValue)) {
-                return;
+            if (!variables.update(variable, value) && !isQueueEvent(variable)) {
+                return false;
             }
 
-            this.stateMap.put(variable, value);
-
             // pre-process some variables, eg XML processing
             if (service.equals("AVTransport") && variable.equals("LastChange")) {
                 Map<String, String> parsedValues = SonosXMLParser.getAVTransportFromXML(value);
@@ -392,26 +408,26 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
                     // Update the transport state after the update of the media information
                     // to not break the notification mechanism
                     if (!parsedValue.equals("TransportState")) {
-                        onValueReceived(parsedValue, parsedValues.get(parsedValue), "AVTransport");
+                        processValue(parsedValue, parsedValues.get(parsedValue), "AVTransport");
                     }
                     // Translate AVTransportURI/AVTransportURIMetaData to CurrentURI/CurrentURIMetaData
                     // for a compatibility with the result of the action GetMediaInfo
                     if (parsedValue.equals("AVTransportURI")) {
-                        onValueReceived("CurrentURI", parsedValues.get(parsedValue), service);
+                        processValue("CurrentURI", parsedValues.get(parsedValue), service);
                     } else if (parsedValue.equals("AVTransportURIMetaData")) {
-                        onValueReceived("CurrentURIMetaData", parsedValues.get(parsedValue), service);
+                        processValue("CurrentURIMetaData", parsedValues.get(parsedValue), service);
                     }
                 }
                 updateMediaInformation();
                 if (parsedValues.get("TransportState") != null) {
-                    onValueReceived("TransportState", parsedValues.get("TransportState"), "AVTransport");
+                    processValue("TransportState", parsedValues.get("TransportState"), "AVTransport");
                 }
             }
 
             if (service.equals("RenderingControl") && variable.equals("LastChange")) {
                 Map<String, String> parsedValues = SonosXMLParser.getRenderingControlFromXML(value);
                 for (String parsedValue : parsedValues.keySet()) {
-                    onValueReceived(parsedValue, parsedValues.get(parsedValue), "RenderingControl");
+                    processValue(parsedValue, parsedValues.get(parsedValue), "RenderingControl");
                 }
             }
 
@@ -423,19 +439,18 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
                     updateChannel(STATE);
                     updateChannel(CONTROL);
                     updateChannel(STOP);
-                    dispatchOnAllGroupMembers(variable, value, service);
+                    dispatchOnAllGroupMembers(Collections.singletonMap(variable, value), service);
                     break;
                 case "CurrentPlayMode":
                     updateChannel(SHUFFLE);
                     updateChannel(REPEAT);
-                    dispatchOnAllGroupMembers(variable, value, service);
+                    dispatchOnAllGroupMembers(Collections.singletonMap(variable, value), service);
                     break;
                 case "CurrentLEDState":
                     updateChannel(LED);
                     break;
                 case "ZoneName":
-                    updateState(ZONENAME, (stateMap.get("ZoneName") != null) ? new StringType(stateMap.get("ZoneName"))
-                            : UnDefType.UNDEF);
+                    updateState(ZONENAME, variables.getString("ZoneName"));
                     break;
                 case "CurrentZoneName":
                     updateChannel(ZONENAME);
@@ -445,14 +460,16 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
                     // Update coordinator after a change is made to the grouping of Sonos players
                     updateGroupCoordinator();
                     updateMediaInformation();
-                    // Update state and control channels for the group members with the coordinator values
-                    if (stateMap.get("TransportState") != null) {
-                        dispatchOnAllGroupMembers("TransportState", stateMap.get("TransportState"), "AVTransport");
-                    }
-                    // Update shuffle and repeat channels for the group members with the coordinator values
-                    if (stateMap.get("CurrentPlayMode") != null) {
-                        dispatchOnAllGroupMembers("CurrentPlayMode", stateMap.get("CurrentPlayMode"), "AVTransport");
+                    // Update state, control, shuffle and repeat channels for the group members with the coordinator
+                    // values, in one pass over the members
+                    Map<String, String> coordinatorValues = new HashMap<>();
+                    for (String coordinatorVariable : Arrays.asList("TransportState", "CurrentPlayMode")) {
+                        String coordinatorValue = variables.get(coordinatorVariable);
+                        if (coordinatorValue != null) {
+                            coordinatorValues.put(coordinatorVariable, coordinatorValue);
+                        }
                     }
+                    dispatchOnAllGroupMembers(coordinatorValues, "AVTransport");
                     break;
                 case "LocalGroupUUID":
                     updateChannel(ZONEGROUPID);
@@ -519,10 +536,10 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
                     }
                     break;
                 case "RemainingSleepTimerDuration":
+                    String remainingSleepTimerDuration = variables.get("RemainingSleepTimerDuration");
                     updateState(SLEEPTIMER,
-                            (stateMap.get("RemainingSleepTimerDuration") != null)
-                                    ? new DecimalType(
-                                            sleepStrTimeToSeconds(stateMap.get("RemainingSleepTimerDuration")))
+                            (remainingSleepTimerDuration != null)
+                                    ? new DecimalType(sleepStrTimeToSeconds(remainingSleepTimerDuration))
                                     : UnDefType.UNDEF);
                     break;
                 case "CurrentTuneInStationId":
@@ -555,27 +572,63 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
                 default:
                     break;
             }
+            return true;
         }
+        return false;
     }
 
-    private void dispatchOnAllGroupMembers(String variable, String value, String service) {
-        if (isCoordinator()) {
-            for (String member : getOtherZoneGroupMembers()) {
-                try {
-                    ZonePlayerHandler memberHandler = getHandlerByName(member);
-                    if (memberHandler != null && ThingStatus.ONLINE.equals(memberHandler.getThing().getStatus())) {
-                        memberHandler.onValueReceived(variable, value, service);
-                    }
-                } catch (IllegalStateException e) {
-                    logger.debug("Cannot update channel for group member ({})", e.getMessage());
+    /**
+     * Process values pushed by the group coordinator. Unchanged values are skipped.
+     *
+     * @return the variables that were processed
+     */
+    Set<String> onGroupValuesReceived(Map<String, String> values, String service) {
+        long start = System.nanoTime();
+        Set<String> processed = new HashSet<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            if (processValue(entry.getKey(), entry.getValue(), service)) {
+                processed.add(entry.getKey());
+            }
+        }
+        if (!processed.isEmpty()) {
+            variables.eventProcessed(System.nanoTime() - start);
+        }
+        return processed;
+    }
+
+    private void dispatchOnAllGroupMembers(Map<String, String> values, String service) {
+        if (!values.isEmpty() && isCoordinator()) {
+            for (ZonePlayerHandler memberHandler : getOnlineGroupMemberHandlers(false)) {
+                memberHandler.onGroupValuesReceived(values, service);
+            }
+        }
+    }
+
+    /**
+     * Returns the handlers of the online zone group members, each one once
+     *
+     * @param includeSelf whether the handler of this zone player is included
+     * @return the handlers of the online group members
+     */
+    private List<ZonePlayerHandler> getOnlineGroupMemberHandlers(boolean includeSelf) {
+        List<ZonePlayerHandler> handlers = new ArrayList<>();
+        for (String member : includeSelf ? getZoneGroupMembers() : getOtherZoneGroupMembers()) {
+            try {
+                ZonePlayerHandler memberHandler = getHandlerByName(member);
+                if (memberHandler != null && ThingStatus.ONLINE.equals(memberHandler.getThing().getStatus())
+                        && !handlers.contains(memberHandler)) {
+                    handlers.add(memberHandler);
                 }
+            } catch (IllegalStateException e) {
+                logger.debug("Cannot update channel for group member ({})", e.getMessage());
             }
         }
+        return handlers;
     }
 
     private String getAlbumArtUrl() {
         String url = null;
-        String albumArtURI = stateMap.get("CurrentAlbumArtURI");
+        String albumArtURI = variables.get("CurrentAlbumArtURI");
         if (albumArtURI != null) {
             if (albumArtURI.startsWith("http")) {
                 url = albumArtURI;
@@ -600,123 +653,87 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
         }
 
         String url;
+        String value;
 
         State newState = UnDefType.UNDEF;
         switch (channelId) {
             case STATE:
-                if (stateMap.get("TransportState") != null) {
-                    newState = new StringType(stateMap.get("TransportState"));
-                }
+                newState = variables.getString("TransportState");
                 break;
             case CONTROL:
-                if (stateMap.get("TransportState") != null) {
-                    if (stateMap.get("TransportState").equals(STATE_PLAYING)) {
-                        newState = PlayPauseType.PLAY;
-                    } else if (stateMap.get("TransportState").equals(STATE_STOPPED)) {
-                        newState = PlayPauseType.PAUSE;
-                    } else if (stateMap.get("TransportState").equals(STATE_PAUSED_PLAYBACK)) {
-                        newState = PlayPauseType.PAUSE;
-                    }
+                value = variables.get("TransportState");
+                if (STATE_PLAYING.equals(value)) {
+                    newState = PlayPauseType.PLAY;
+                } else if (STATE_STOPPED.equals(value) || STATE_PAUSED_PLAYBACK.equals(value)) {
+                    newState = PlayPauseType.PAUSE;
                 }
                 break;
             case STOP:
-                if (stateMap.get("TransportState") != null) {
-                    if (stateMap.get("TransportState").equals(STATE_STOPPED)) {
-                        newState = OnOffType.ON;
-                    } else {
-                        newState = OnOffType.OFF;
-                    }
-                }
+                newState = variables.getOnOff("TransportState", STATE_STOPPED);
                 break;
             case SHUFFLE:
-                if (stateMap.get("CurrentPlayMode") != null) {
+                if (variables.get("CurrentPlayMode") != null) {
                     newState = isShuffleActive() ? OnOffType.ON : OnOffType.OFF;
                 }
                 break;
             case REPEAT:
-                if (stateMap.get("CurrentPlayMode") != null) {
+                if (variables.get("CurrentPlayMode") != null) {
                     newState = new StringType(getRepeatMode());
                 }
                 break;
             case LED:
-                if (stateMap.get("CurrentLEDState") != null) {
-                    newState = stateMap.get("CurrentLEDState").equals("On") ? OnOffType.ON : OnOffType.OFF;
-                }
+                newState = variables.getOnOff("CurrentLEDState", "On");
                 break;
             case ZONENAME:
-                if (stateMap.get("CurrentZoneName") != null) {
-                    newState = new StringType(stateMap.get("CurrentZoneName"));
-                }
+                newState = variables.getString("CurrentZoneName");
                 break;
             case ZONEGROUPID:
-                if (stateMap.get("LocalGroupUUID") != null) {
-                    newState = new StringType(stateMap.get("LocalGroupUUID"));
-                }
+                newState = variables.getString("LocalGroupUUID");
                 break;
             case COORDINATOR:
                 newState = new StringType(getCoordinator());
                 break;
             case LOCALCOORDINATOR:
-                if (stateMap.get("GroupCoordinatorIsLocal") != null) {
-                    newState = stateMap.get("GroupCoordinatorIsLocal").equals("true") ? OnOffType.ON : OnOffType.OFF;
-                }
+                newState = variables.getOnOff("GroupCoordinatorIsLocal", "true");
                 break;
             case VOLUME:
-                if (stateMap.get("VolumeMaster") != null) {
-                    newState = new PercentType(stateMap.get("VolumeMaster"));
+                value = variables.get("VolumeMaster");
+                if (value != null) {
+                    newState = new PercentType(value);
                 }
                 break;
             case MUTE:
-                if (stateMap.get("MuteMaster") != null) {
-                    newState = stateMap.get("MuteMaster").equals("1") ? OnOffType.ON : OnOffType.OFF;
-                }
+                newState = variables.getOnOff("MuteMaster", "1");
                 break;
             case NIGHTMODE:
-                if (stateMap.get("NightMode") != null) {
-                    newState = stateMap.get("NightMode").equals("1") ? OnOffType.ON : OnOffType.OFF;
-                }
+                newState = variables.getOnOff("NightMode", "1");
                 break;
             case SPEECHENHANCEMENT:
-                if (stateMap.get("DialogLevel") != null) {
-                    newState = stateMap.get("DialogLevel").equals("1") ? OnOffType.ON : OnOffType.OFF;
-                }
+                newState = variables.getOnOff("DialogLevel", "1");
                 break;
             case LINEIN:
-                if (stateMap.get("LineInConnected") != null) {
-                    newState = stateMap.get("LineInConnected").equals("true") ? OnOffType.ON : OnOffType.OFF;
-                } else if (stateMap.get("TOSLinkConnected") != null) {
-                    newState = stateMap.get("TOSLinkConnected").equals("true") ? OnOffType.ON : OnOffType.OFF;
+                newState = variables.getOnOff("LineInConnected", "true");
+                if (newState == UnDefType.UNDEF) {
+                    newState = variables.getOnOff("TOSLinkConnected", "true");
                 }
                 break;
             case ALARMRUNNING:
-                if (stateMap.get("AlarmRunning") != null) {
-                    newState = stateMap.get("AlarmRunning").equals("1") ? OnOffType.ON : OnOffType.OFF;
-                }
+                newState = variables.getOnOff("AlarmRunning", "1");
                 break;
             case ALARMPROPERTIES:
-                if (stateMap.get("RunningAlarmProperties") != null) {
-                    newState = new StringType(stateMap.get("RunningAlarmProperties"));
-                }
+                newState = variables.getString("RunningAlarmProperties");
                 break;
             case CURRENTTRACK:
-                if (stateMap.get("CurrentURIFormatted") != null) {
-                    newState = new StringType(stateMap.get("CurrentURIFormatted"));
-                }
+                newState = variables.getString("CurrentURIFormatted");
                 break;
             case CURRENTTITLE:
-                if (stateMap.get("CurrentTitle") != null) {
-                    newState = new StringType(stateMap.get("CurrentTitle"));
-                }
+                newState = variables.getString("CurrentTitle");
                 break;
             case CURRENTARTIST:
-                if (stateMap.get("CurrentArtist") != null) {
-                    newState = new StringType(stateMap.get("CurrentArtist"));
-                }
+                newState = variables.getString("CurrentArtist");
                 break;
             case CURRENTALBUM:
-                if (stateMap.get("CurrentAlbum") != null) {
-                    newState = new StringType(stateMap.get("CurrentAlbum"));
-                }
+                newState = variables.getString("CurrentAlbum");
                 break;
             case CURRENTALBUMART:
                 newState = null;
@@ -729,19 +746,13 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
                 }
                 break;
             case CURRENTTRANSPORTURI:
-                if (stateMap.get("CurrentURI") != null) {
-                    newState = new StringType(stateMap.get("CurrentURI"));
-                }
+                newState = variables.getString("CurrentURI");
                 break;
             case CURRENTTRACKURI:
-                if (stateMap.get("CurrentTrackURI") != null) {
-                    newState = new StringType(stateMap.get("CurrentTrackURI"));
-                }
+                newState = variables.getString("CurrentTrackURI");
                 break;
             case TUNEINSTATIONID:
-                if (stateMap.get("CurrentTuneInStationId") != null) {
-                    newState = new StringType(stateMap.get("CurrentTuneInStationId"));
-                }
+                newState = variables.getString("CurrentTuneInStationId");
                 break;
             default:
                 newState = null;
@@ -767,15 +778,9 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
 
     private void updateChannel(String channeldD, State state, boolean allGroup) {
         if (allGroup) {
-            for (String member : getZoneGroupMembers()) {
-                try {
-                    ZonePlayerHandler memberHandler = getHandlerByName(member);
-                    if (memberHandler != null && ThingStatus.ONLINE.equals(memberHandler.getThing().getStatus())
-                            && memberHandler.isLinked(channeldD)) {
-                        memberHandler.updateState(channeldD, state);
-                    }
-                } catch (IllegalStateException e) {
-                    logger.debug("Cannot update channel for group member ({})", e.getMessage());
+            for (ZonePlayerHandler memberHandler : getOnlineGroupMemberHandlers(true)) {
+                if (memberHandler.isLinked(channeldD)) {
+                    memberHandler.updateState(channeldD, state);
                 }
             }
         } else if (ThingStatus.ONLINE.equals(getThing().getStatus()) && isLinked(channeldD)) {
@@ -783,18 +788,6 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
         }
     }
 
-    /**
-     * CurrentURI will not change, but will trigger change of CurrentURIFormated
-     * CurrentTrackMetaData will not change, but will trigger change of Title, Artist, Album
-     */
-    private boolean shouldIgnoreVariableUpdate(String variable, String value, String oldValue) {
-        return !hasValueChanged(value, oldValue) && !isQueueEvent(variable);
-    }
-
-    private boolean hasValueChanged(String value, String oldValue) {
-        return oldValue != null ? !oldValue.equals(value) : value != null;
-    }
-
     /**
      * Similar to the AVTransport eventing, the Queue events its state variables
      * as sub values within a synthesized LastChange state variable.
@@ -947,39 +940,34 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
 
         Map<String, String> properties = editProperties();
         boolean update = false;
-        if (StringUtils.isNotEmpty(this.stateMap.get("HardwareVersion"))
-                && !this.stateMap.get("HardwareVersion").equals(properties.get(Thing.PROPERTY_HARDWARE_VERSION))) {
-            update = true;
-            properties.put(Thing.PROPERTY_HARDWARE_VERSION, this.stateMap.get("HardwareVersion"));
-        }
-        if (StringUtils.isNotEmpty(this.stateMap.get("DisplaySoftwareVersion")) && !this.stateMap
-                .get("DisplaySoftwareVersion").equals(properties.get(Thing.PROPERTY_FIRMWARE_VERSION))) {
-            update = true;
-            properties.put(Thing.PROPERTY_FIRMWARE_VERSION, this.stateMap.get("DisplaySoftwareVersion"));
-        }
-        if (StringUtils.isNotEmpty(this.stateMap.get("SerialNumber"))
-                && !this.stateMap.get("SerialNumber").equals(properties.get(Thing.PROPERTY_SERIAL_NUMBER))) {
-            update = true;
-            properties.put(Thing.PROPERTY_SERIAL_NUMBER, this.stateMap.get("SerialNumber"));
-        }
-        if (StringUtils.isNotEmpty(this.stateMap.get("MACAddress"))
-                && !this.stateMap.get("MACAddress").equals(properties.get(MAC_ADDRESS))) {
-            update = true;
-            properties.put(MAC_ADDRESS, this.stateMap.get("MACAddress"));
-        }
-        if (StringUtils.isNotEmpty(this.stateMap.get("IPAddress"))
-                && !this.stateMap.get("IPAddress").equals(properties.get(IP_ADDRESS))) {
-            update = true;
-            properties.put(IP_ADDRESS, this.stateMap.get("IPAddress"));
-        }
+        update |= updateProperty(properties, "HardwareVersion", Thing.PROPERTY_HARDWARE_VERSION);
+        update |= updateProperty(properties, "DisplaySoftwareVersion", Thing.PROPERTY_FIRMWARE_VERSION);
+        update |= updateProperty(properties, "SerialNumber", Thing.PROPERTY_SERIAL_NUMBER);
+        update |= updateProperty(properties, "MACAddress", MAC_ADDRESS);
+        update |= updateProperty(properties, "IPAddress", IP_ADDRESS);
         if (update) {
             updateProperties(properties);
         }
     }
 
+    /**
+     * Copies a variable into the properties, if it is not empty and differs from the property.
+     *
+     * @return true if the property was changed
+     */
+    private boolean updateProperty(Map<String, String> properties, String variable, String property) {
+        String value = variables.get(variable);
+        if (StringUtils.isNotEmpty(value) && !value.equals(properties.get(property))) {
+            properties.put(property, value);
+            return true;
+        }
+        return false;
+    }
+
     public String getCoordinator() {
-        if (stateMap.get("ZoneGroupState") != null) {
-            Collection<SonosZoneGroup> zoneGroups = SonosXMLParser.getZoneGroupFromXML(stateMap.get("ZoneGroupState"));
+        String zoneGroupState = variables.get("ZoneGroupState");
+        if (zoneGroupState != null) {
+            Collection<SonosZoneGroup> zoneGroups = SonosXMLParser.getZoneGroupFromXML(zoneGroupState);
 
             for (SonosZoneGroup zg : zoneGroups) {
                 if (zg.getMembers().contains(getUDN())) {
@@ -1100,28 +1088,25 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
         String albumArtURI = (currentTrack != null && currentTrack.getAlbumArtUri() != null
                 && !currentTrack.getAlbumArtUri().isEmpty()) ? currentTrack.getAlbumArtUri() : "";
 
+        Map<String, String> mediaValues = new LinkedHashMap<>();
+        mediaValues.put("CurrentTuneInStationId", (stationID != null) ? stationID : "");
+        if (needsUpdating) {
+            mediaValues.put("CurrentArtist", (artist != null) ? artist : "");
+            mediaValues.put("CurrentAlbum", (album != null) ? album : "");
+            mediaValues.put("CurrentTitle", (title != null) ? title : "");
+            mediaValues.put("CurrentURIFormatted", (resultString != null) ? resultString : "");
+            mediaValues.put("CurrentAlbumArtURI", albumArtURI);
+        }
+
+        // Only the coordinator pushes the media information to the whole group, the media information of a member
+        // follows the coordinator anyway
+        List<ZonePlayerHandler> memberHandlers = isCoordinator() ? getOnlineGroupMemberHandlers(true)
+                : Collections.singletonList(this);
         ZonePlayerHandler handlerForImageUpdate = null;
-        for (String member : getZoneGroupMembers()) {
-            try {
-                ZonePlayerHandler memberHandler = getHandlerByName(member);
-                if (memberHandler != null && ThingStatus.ONLINE.equals(memberHandler.getThing().getStatus())) {
-                    if (memberHandler.isLinked(CURRENTALBUMART)
-                            && hasValueChanged(albumArtURI, memberHandler.stateMap.get("CurrentAlbumArtURI"))) {
-                        handlerForImageUpdate = memberHandler;
-                    }
-                    memberHandler.onValueReceived("CurrentTuneInStationId", (stationID != null) ? stationID : "",
-                            "AVTransport");
-                    if (needsUpdating) {
-                        memberHandler.onValueReceived("CurrentArtist", (artist != null) ? artist : "", "AVTransport");
-                        memberHandler.onValueReceived("CurrentAlbum", (album != null) ? album : "", "AVTransport");
-                        memberHandler.onValueReceived("CurrentTitle", (title != null) ? title : "", "AVTransport");
-                        memberHandler.onValueReceived("CurrentURIFormatted", (resultString != null) ? resultString : "",
-                                "AVTransport");
-                        memberHandler.onValueReceived("CurrentAlbumArtURI", albumArtURI, "AVTransport");
-                    }
-                }
-            } catch (IllegalStateException e) {
-                logger.debug("Cannot update media data for group member ({})", e.getMessage());
+        for (ZonePlayerHandler memberHandler : memberHandlers) {
+            Set<String> changed = memberHandler.onGroupValuesReceived(mediaValues, "AVTransport");
+            if (changed.contains("CurrentAlbumArtURI") && memberHandler.isLinked(CURRENTALBUMART)) {
+                handlerForImageUpdate = memberHandler;
             }
         }
         if (needsUpdating && handlerForImageUpdate != null) {
@@ -1140,7 +1125,7 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
     }
 
     public boolean isGroupCoordinator() {
-        String value = stateMap.get("GroupCoordinatorIsLocal");
+        String value = variables.get("GroupCoordinatorIsLocal");
         if (value != null) {
             return value.equals("true") ? true : false;
         }
@@ -1154,53 +1139,57 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
     }
 
     public String getCurrentURI() {
-        return stateMap.get("CurrentURI");
+        return variables.get("CurrentURI");
     }
 
     public String getCurrentURIMetadataAsString() {
-        return stateMap.get("CurrentURIMetaData");
+        return variables.get("CurrentURIMetaData");
     }
 
     public SonosMetaData getCurrentURIMetadata() {
-        if (stateMap.get("CurrentURIMetaData") != null && !stateMap.get("CurrentURIMetaData").isEmpty()) {
-            return SonosXMLParser.getMetaDataFromXML(stateMap.get("CurrentURIMetaData"));
+        String metaData = variables.get("CurrentURIMetaData");
+        if (metaData != null && !metaData.isEmpty()) {
+            return SonosXMLParser.getMetaDataFromXML(metaData);
         } else {
             return null;
         }
     }
 
     public SonosMetaData getTrackMetadata() {
-        if (stateMap.get("CurrentTrackMetaData") != null && !stateMap.get("CurrentTrackMetaData").isEmpty()) {
-            return SonosXMLParser.getMetaDataFromXML(stateMap.get("CurrentTrackMetaData"));
+        String metaData = variables.get("CurrentTrackMetaData");
+        if (metaData != null && !metaData.isEmpty()) {
+            return SonosXMLParser.getMetaDataFromXML(metaData);
         } else {
             return null;
         }
     }
 
     public SonosMetaData getEnqueuedTransportURIMetaData() {
-        if (stateMap.get("EnqueuedTransportURIMetaData") != null
-                && !stateMap.get("EnqueuedTransportURIMetaData").isEmpty()) {
-            return SonosXMLParser.getMetaDataFromXML(stateMap.get("EnqueuedTransportURIMetaData"));
+        String metaData = variables.get("EnqueuedTransportURIMetaData");
+        if (metaData != null && !metaData.isEmpty()) {
+            return SonosXMLParser.getMetaDataFromXML(metaData);
         } else {
             return null;
         }
     }
 
     public String getMACAddress() {
-        if (StringUtils.isEmpty(stateMap.get("MACAddress"))) {
+        String macAddress = variables.get("MACAddress");
+        if (StringUtils.isEmpty(macAddress)) {
             updateZoneInfo();
+            macAddress = variables.get("MACAddress");
         }
-        return stateMap.get("MACAddress");
+        return macAddress;
     }
 
     public String getPosition() {
         updatePosition();
-        return stateMap.get("RelTime");
+        return variables.get("RelTime");
     }
 
     public long getCurrenTrackNr() {
         updatePosition();
-        String value = stateMap.get("Track");
+        String value = variables.get("Track");
         if (value != null) {
             return Long.valueOf(value);
         } else {
@@ -1209,11 +1198,11 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
     }
 
     public String getVolume() {
-        return stateMap.get("VolumeMaster");
+        return variables.get("VolumeMaster");
     }
 
     public String getTransportState() {
-        return stateMap.get("TransportState");
+        return variables.get("TransportState");
     }
 
     public List<SonosEntry> getArtists(String filter) {
@@ -1592,7 +1581,7 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
      * @return {@link SonosZoneGroup}
      */
     private SonosZoneGroup getCurrentZoneGroup() {
-        String zoneGroupState = stateMap.get("ZoneGroupState");
+        String zoneGroupState = variables.get("ZoneGroupState");
         if (zoneGroupState != null) {
             Collection<SonosZoneGroup> zoneGroups = SonosXMLParser.getZoneGroupFromXML(zoneGroupState);
 
@@ -1834,15 +1823,15 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
     }
 
     public Boolean isShuffleActive() {
-        return ((stateMap.get("CurrentPlayMode") != null) && stateMap.get("CurrentPlayMode").startsWith("SHUFFLE"))
-                ? true
-                : false;
+        String playMode = variables.get("CurrentPlayMode");
+        return ((playMode != null) && playMode.startsWith("SHUFFLE")) ? true : false;
     }
 
     public String getRepeatMode() {
         String mode = "OFF";
-        if (stateMap.get("CurrentPlayMode") != null) {
-            switch (stateMap.get("CurrentPlayMode")) {
+        String playMode = variables.get("CurrentPlayMode");
+        if (playMode != null) {
+            switch (playMode) {
                 case "REPEAT_ALL":
                 case "SHUFFLE":
                     mode = "ALL";
@@ -1947,8 +1936,9 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
     protected List<String> getZoneGroupMembers() {
         List<String> result = new ArrayList<>();
 
-        if (stateMap.get("ZoneGroupState") != null) {
-            Collection<SonosZoneGroup> zoneGroups = SonosXMLParser.getZoneGroupFromXML(stateMap.get("ZoneGroupState"));
+        String zoneGroupState = variables.get("ZoneGroupState");
+        if (zoneGroupState != null) {
+            Collection<SonosZoneGroup> zoneGroups = SonosXMLParser.getZoneGroupFromXML(zoneGroupState);
 
             for (SonosZoneGroup zg : zoneGroups) {
                 if (zg.getMembers().contains(getUDN())) {
@@ -2131,11 +2121,11 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
 
     public String getTime() {
         updateTime();
-        return stateMap.get("CurrentLocalTime");
+        return variables.get("CurrentLocalTime");
     }
 
     public Boolean isAlarmRunning() {
-        return ((stateMap.get("AlarmRunning") != null) && stateMap.get("AlarmRunning").equals("1")) ? true : false;
+        return "1".equals(variables.get("AlarmRunning"));
     }
 
     public void snoozeAlarm(Command command) {
@@ -2168,13 +2158,11 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
     }
 
     public Boolean isAnalogLineInConnected() {
-        return ((stateMap.get("LineInConnected") != null) && stateMap.get("LineInConnected").equals("true")) ? true
-                : false;
+        return "true".equals(variables.get("LineInConnected"));
     }
 
     public Boolean isOpticalLineInConnected() {
-        return ((stateMap.get("TOSLinkConnected") != null) && stateMap.get("TOSLinkConnected").equals("true")) ? true
-                : false;
+        return "true".equals(variables.get("TOSLinkConnected"));
     }
 
     public void becomeStandAlonePlayer() {
@@ -2204,7 +2192,7 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
             becomeStandAlonePlayer();
 
             List<SonosZoneGroup> currentSonosZoneGroups = new ArrayList<SonosZoneGroup>();
-            for (SonosZoneGroup grp : SonosXMLParser.getZoneGroupFromXML(stateMap.get("ZoneGroupState"))) {
+            for (SonosZoneGroup grp : SonosXMLParser.getZoneGroupFromXML(variables.get("ZoneGroupState"))) {
                 currentSonosZoneGroups.add((SonosZoneGroup) grp.clone());
             }
 
@@ -2523,13 +2511,13 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
         waitForTransportState(STATE_PLAYING);
 
         // check Sonos state events to determine the end of the notification sound
-        String notificationTitle = stateMap.get("CurrentTitle");
+        String notificationTitle = variables.get("CurrentTitle");
         long playstart = System.currentTimeMillis();
         while (System.currentTimeMillis() - playstart < this.notificationTimeout.longValue() * 1000) {
             try {
                 Thread.sleep(50);
-                if (!notificationTitle.equals(stateMap.get("CurrentTitle"))
-                        || !STATE_PLAYING.equals(stateMap.get("TransportState"))) {
+                if (!StringUtils.equals(notificationTitle, variables.get("CurrentTitle"))
+                        || !STATE_PLAYING.equals(variables.get("TransportState"))) {
                     break;
                 }
             } catch (InterruptedException e) {
@@ -2539,9 +2527,9 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
     }
 
     private void waitForTransportState(String state) {
-        if (stateMap.get("TransportState") != null) {
+        if (variables.get("TransportState") != null) {
             long start = System.currentTimeMillis();
-            while (!stateMap.get("TransportState").equals(state)) {
+            while (!state.equals(variables.get("TransportState"))) {
                 try {
                     Thread.sleep(50);
                     if (System.currentTimeMillis() - start > this.notificationTimeout.longValue() * 1000) {
@@ -2555,9 +2543,9 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
     }
 
     private void waitForNotTransportState(String state) {
-        if (stateMap.get("TransportState") != null) {
+        if (variables.get("TransportState") != null) {
             long start = System.currentTimeMillis();
-            while (stateMap.get("TransportState").equals(state)) {
+            while (state.equals(variables.get("TransportState"))) {
                 try {
                     Thread.sleep(50);
                     if (System.currentTimeMillis() - start > this.notificationTimeout.longValue() * 1000) {
@@ -2828,7 +2816,7 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
                         coordinator.removeAllTracksFromQueue();
                         coordinator.addURIToQueue(theEntry);
                         coordinator.setCurrentURI(QUEUE_URI + coordinator.getUDN() + "#0", "");
-                        String firstTrackNumberEnqueued = stateMap.get("FirstTrackNumberEnqueued");
+                        String firstTrackNumberEnqueued = variables.get("FirstTrackNumberEnqueued");
                         if (firstTrackNumberEnqueued != null) {
                             coordinator.seek("TRACK_NR", firstTrackNumberEnqueued);
                         }
@@ -2891,7 +2879,7 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
 
                     coordinator.setCurrentURI(QUEUE_URI + coordinator.getUDN() + "#0", "");
 
-                    String firstTrackNumberEnqueued = stateMap.get("FirstTrackNumberEnqueued");
+                    String firstTrackNumberEnqueued = variables.get("FirstTrackNumberEnqueued");
                     if (firstTrackNumberEnqueued != null) {
                         coordinator.seek("TRACK_NR", firstTrackNumberEnqueued);
                     }
@@ -2911,30 +2899,29 @@ public class ZonePlayerHandler extends BaseThingHandler implements UpnpIOPartici
     }
 
     public String getZoneName() {
-        return stateMap.get("ZoneName");
+        return variables.get("ZoneName");
     }
 
     public String getZoneGroupID() {
-        return stateMap.get("LocalGroupUUID");
+        return variables.get("LocalGroupUUID");
     }
 
     public String getRunningAlarmProperties() {
         updateRunningAlarmProperties();
-        return stateMap.get("RunningAlarmProperties");
+        return variables.get("RunningAlarmProperties");
     }
 
     public String getMute() {
-        return stateMap.get("MuteMaster");
+        return variables.get("MuteMaster");
     }
 
     public boolean getLed() {
-        return ((stateMap.get("CurrentLEDState") != null) && stateMap.get("CurrentLEDState").equals("On")) ? true
-                : false;
+        return "On".equals(variables.get("CurrentLEDState"));
     }
 
     public String getCurrentZoneName() {
         updateCurrentZoneName();
-        return stateMap.get("CurrentZoneName");
+        return variables.get("CurrentZoneName");
     }
 
     @Override
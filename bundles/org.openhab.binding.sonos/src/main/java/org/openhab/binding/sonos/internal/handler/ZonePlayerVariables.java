@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.sonos.internal.handler;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.UnDefType;
+
+/**
+ * The {@link ZonePlayerVariables} holds the last known value of the UPnP state variables of a zone player.
+ * <p>
+ * The values can be read and updated from any thread without locking. An update tells whether the value changed, so
+ * that only changed variables are processed and pushed to the group members. The time spent between the reception of
+ * an event and the update of the channel states is recorded as well.
+ *
+ * @author Karel Goderis - Initial contribution
+ */
+@NonNullByDefault
+class ZonePlayerVariables {
+
+    private final ConcurrentMap<String, String> values = new ConcurrentHashMap<>();
+
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * @return the value of the variable, or null if it was not received yet
+     */
+    @Nullable String get(String variable) {
+        return values.get(variable);
+    }
+
+    /**
+     * Store the value of a variable.
+     *
+     * @param variable the name of the variable
+     * @param value the new value, null to forget the variable
+     * @return true if the value differs from the previous one
+     */
+    boolean update(String variable, @Nullable String value) {
+        String oldValue = value != null ? values.put(variable, value) : values.remove(variable);
+        boolean changed = oldValue != null ? !oldValue.equals(value) : value != null;
+        if (changed) {
+            changes.incrementAndGet();
+        }
+        return changed;
+    }
+
+    /**
+     * @return a {@link StringType} with the value of the variable, or {@link UnDefType#UNDEF} if it is unknown
+     */
+    State getString(String variable) {
+        String value = values.get(variable);
+        return value != null ? new StringType(value) : UnDefType.UNDEF;
+    }
+
+    /**
+     * @return {@link OnOffType#ON} if the variable has the value representing on, {@link OnOffType#OFF} for any other
+     *         value, or {@link UnDefType#UNDEF} if it is unknown
+     */
+    State getOnOff(String variable, String onValue) {
+        String value = values.get(variable);
+        return value != null ? (value.equals(onValue) ? OnOffType.ON : OnOffType.OFF) : UnDefType.UNDEF;
+    }
+
+    /**
+     * Record the processing of an event received from the player, including the update of the channels of the
+     * player and of its group members.
+     *
+     * @param nanos the time spent from the reception of the event to the last channel update
+     */
+    void eventProcessed(long nanos) {
+        events.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * @return the average time from the reception of an event to the update of the channels, in microseconds
+     */
+    long getAverageLatencyMicros() {
+        long count = events.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.get() / count);
+    }
+
+    long getMaxLatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxNanos.get());
+    }
+
+    @Override
+    public String toString() {
+        return "variables=" + values.size() + ", events=" + events.get() + ", changes=" + changes.get()
+                + ", averageLatency=" + getAverageLatencyMicros() + "us, maxLatency=" + getMaxLatencyMicros() + "us";
+    }
+}
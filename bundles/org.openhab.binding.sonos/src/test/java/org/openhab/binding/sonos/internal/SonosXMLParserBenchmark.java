@@ -0,0 +1,102 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.sonos.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Measures how long {@link SonosXMLParser} takes for the UPnP events a zone player sends on every track change and
+ * volume change, and for the zone group topology event.
+ * <p>
+ * The payloads are stored next to this class. Every event is parsed from a new string, like an event received from a
+ * player. Run {@link #main(String[])} with the arguments <code>[iterations] [warmupIterations]</code>, for example
+ * from the IDE with the test classpath.
+ *
+ * @author Karel Goderis - Initial contribution
+ */
+public class SonosXMLParserBenchmark {
+
+    private final String avTransportEvent = load("avtransport-lastchange.xml");
+    private final String renderingControlEvent = load("renderingcontrol-lastchange.xml");
+    private final String zoneGroupState = load("zonegroupstate.xml");
+    private final String trackMetaData;
+
+    public SonosXMLParserBenchmark() {
+        trackMetaData = SonosXMLParser.getAVTransportFromXML(avTransportEvent).get("CurrentTrackMetaData");
+    }
+
+    private static String load(String name) {
+        try (InputStream stream = SonosXMLParserBenchmark.class.getResourceAsStream(name)) {
+            if (stream == null) {
+                throw new IllegalStateException("Missing payload " + name);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double measure(String name, int iterations, IntFunction<Object> operation) {
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            if (operation.apply(i) == null) {
+                throw new IllegalStateException(name + " returned nothing");
+            }
+        }
+        double micros = (double) (System.nanoTime() - start) / TimeUnit.MICROSECONDS.toNanos(1) / iterations;
+        System.out.println(String.format("%-28s %10.1f us/event", name, micros));
+        return micros;
+    }
+
+    /**
+     * Parses every payload <code>iterations</code> times and prints the time per event.
+     */
+    public void run(int iterations) {
+        measure("AVTransport LastChange", iterations, i -> {
+            Map<String, String> changes = SonosXMLParser.getAVTransportFromXML(new String(avTransportEvent));
+            return changes.isEmpty() ? null : changes;
+        });
+        measure("RenderingControl LastChange", iterations,
+                i -> SonosXMLParser.getRenderingControlFromXML(new String(renderingControlEvent)));
+        measure("Track metadata", iterations, i -> SonosXMLParser.getMetaDataFromXML(new String(trackMetaData)));
+        // Every player sends the same topology
+        measure("ZoneGroupState, unchanged", iterations,
+                i -> SonosXMLParser.getZoneGroupFromXML(new String(zoneGroupState)));
+        // Each event has a new topology, which has to be parsed
+        measure("ZoneGroupState, changed", iterations, i -> SonosXMLParser
+                .getZoneGroupFromXML(zoneGroupState.replace("BootSeq=\"48\"", "BootSeq=\"" + i + "\"")));
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int warmupIterations = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+
+        SonosXMLParserBenchmark benchmark = new SonosXMLParserBenchmark();
+        System.out.println("Warm-up");
+        benchmark.run(warmupIterations);
+        System.out.println("Measurement");
+        benchmark.run(iterations);
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.sonos.internal.handler;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.openhab.binding.sonos.internal.SonosBindingConstants.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.thing.ChannelUID;
+import org.eclipse.smarthome.core.thing.Thing;
+import org.eclipse.smarthome.core.thing.ThingRegistry;
+import org.eclipse.smarthome.core.thing.ThingStatus;
+import org.eclipse.smarthome.core.thing.ThingUID;
+import org.eclipse.smarthome.core.thing.binding.ThingHandlerCallback;
+import org.eclipse.smarthome.core.thing.binding.builder.ChannelBuilder;
+import org.eclipse.smarthome.io.transport.upnp.UpnpIOService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.openhab.binding.sonos.internal.SonosStateDescriptionOptionProvider;
+
+/**
+ * Tests the processing of the values a group coordinator pushes to the members by {@link ZonePlayerHandler}.
+ *
+ * @author Karel Goderis - Initial contribution
+ */
+public class ZonePlayerHandlerTest {
+    private final ThingUID thingUID = new ThingUID(PLAY1_THING_TYPE_UID, "member");
+
+    @Mock
+    private Thing thing;
+
+    @Mock
+    private ThingHandlerCallback callback;
+
+    private ZonePlayerHandler handler;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(thing.getUID()).thenReturn(thingUID);
+        when(thing.getThingTypeUID()).thenReturn(PLAY1_THING_TYPE_UID);
+        when(thing.getStatus()).thenReturn(ThingStatus.ONLINE);
+        when(thing.getChannel(anyString())).thenAnswer(invocation -> ChannelBuilder
+                .create(new ChannelUID(thingUID, invocation.getArgument(0)), "String").build());
+        when(callback.isChannelLinked(any())).thenReturn(true);
+
+        handler = new ZonePlayerHandler(mock(ThingRegistry.class), thing, mock(UpnpIOService.class), "",
+                mock(SonosStateDescriptionOptionProvider.class));
+        handler.setCallback(callback);
+    }
+
+    private Map<String, String> media(String title, String artist) {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("CurrentTitle", title);
+        values.put("CurrentArtist", artist);
+        return values;
+    }
+
+    @Test
+    public void changedGroupValuesUpdateTheChannels() {
+        assertThat(handler.onGroupValuesReceived(media("Song", "Artist"), "AVTransport"),
+                is(new HashSet<>(Arrays.asList("CurrentTitle", "CurrentArtist"))));
+
+        verify(callback).stateUpdated(new ChannelUID(thingUID, CURRENTTITLE), new StringType("Song"));
+        verify(callback).stateUpdated(new ChannelUID(thingUID, CURRENTARTIST), new StringType("Artist"));
+    }
+
+    @Test
+    public void unchangedGroupValuesAreSkipped() {
+        handler.onGroupValuesReceived(media("Song", "Artist"), "AVTransport");
+
+        assertThat(handler.onGroupValuesReceived(media("Song", "Artist"), "AVTransport"), is(Collections.emptySet()));
+        assertThat(handler.onGroupValuesReceived(media("Next song", "Artist"), "AVTransport"),
+                is(Collections.singleton("CurrentTitle")));
+
+        verify(callback).stateUpdated(new ChannelUID(thingUID, CURRENTTITLE), new StringType("Song"));
+        verify(callback).stateUpdated(new ChannelUID(thingUID, CURRENTTITLE), new StringType("Next song"));
+        verify(callback, times(1)).stateUpdated(eq(new ChannelUID(thingUID, CURRENTARTIST)), any());
+    }
+
+    @Test
+    public void groupValuesAreIgnoredWhileOffline() {
+        when(thing.getStatus()).thenReturn(ThingStatus.OFFLINE);
+
+        assertTrue(handler.onGroupValuesReceived(media("Song", "Artist"), "AVTransport").isEmpty());
+        verify(callback, never()).stateUpdated(any(), any());
+    }
+}
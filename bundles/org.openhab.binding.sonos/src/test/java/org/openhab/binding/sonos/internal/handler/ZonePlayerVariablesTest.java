@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.sonos.internal.handler;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.UnDefType;
+import org.junit.Test;
+
+/**
+ * Tests cases for {@link ZonePlayerVariables}.
+ *
+ * @author Karel Goderis - Initial contribution
+ */
+public class ZonePlayerVariablesTest {
+    private final ZonePlayerVariables variables = new ZonePlayerVariables();
+
+    @Test
+    public void updateTellsWhetherTheValueChanged() {
+        assertTrue(variables.update("CurrentTitle", "Song"));
+        assertFalse(variables.update("CurrentTitle", "Song"));
+        assertTrue(variables.update("CurrentTitle", "Other song"));
+        assertThat(variables.get("CurrentTitle"), is("Other song"));
+
+        assertTrue(variables.update("CurrentTitle", null));
+        assertFalse(variables.update("CurrentTitle", null));
+        assertThat(variables.get("CurrentTitle"), is(nullValue()));
+    }
+
+    @Test
+    public void unknownVariablesAreUndefined() {
+        assertThat(variables.getString("CurrentTitle"), is(UnDefType.UNDEF));
+        assertThat(variables.getOnOff("MuteMaster", "1"), is(UnDefType.UNDEF));
+
+        variables.update("CurrentTitle", "Song");
+        variables.update("MuteMaster", "1");
+        assertThat(variables.getString("CurrentTitle"), is(new StringType("Song")));
+        assertThat(variables.getOnOff("MuteMaster", "1"), is(OnOffType.ON));
+
+        variables.update("MuteMaster", "0");
+        assertThat(variables.getOnOff("MuteMaster", "1"), is(OnOffType.OFF));
+    }
+
+    @Test
+    public void latencyOfProcessedEvents() {
+        assertThat(variables.getAverageLatencyMicros(), is(0L));
+
+        variables.eventProcessed(TimeUnit.MICROSECONDS.toNanos(100));
+        variables.eventProcessed(TimeUnit.MICROSECONDS.toNanos(300));
+        assertThat(variables.getAverageLatencyMicros(), is(200L));
+        assertThat(variables.getMaxLatencyMicros(), is(300L));
+        assertThat(variables.toString(), containsString("events=2"));
+    }
+}
@@ -12,6 +12,7 @@
  */
 package org.openhab.io.homekit.internal;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -79,6 +80,17 @@ class HomekitAccessoryRegistry {
         bridge = null;
     }
 
+    /**
+     * Removes the accessories of the given items and adds the new ones in one step.
+     *
+     * @param itemNames The names of all items whose accessories are replaced or removed
+     * @param accessories The new accessories by item name
+     */
+    public synchronized void replace(Collection<String> itemNames, Map<String, HomekitAccessory> accessories) {
+        itemNames.forEach(this::remove);
+        accessories.forEach(this::addRootAccessory);
+    }
+
     public synchronized void addRootAccessory(String itemName, HomekitAccessory accessory) {
         createdAccessories.put(itemName, accessory);
         createdIds.add(accessory.getId());
@@ -12,9 +12,13 @@
  */
 package org.openhab.io.homekit.internal;
 
+import java.time.Duration;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.GenericItem;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.items.StateChangeListener;
@@ -30,11 +34,29 @@ import io.github.hapjava.HomekitCharacteristicChangeCallback;
  * Homekit library takes care of insuring only a single subscription exists for
  * each accessory.
  *
+ * <p>
+ * Changes are coalesced per subscription: The first change is sent to Homekit clients right away. Further changes
+ * within the coalesce window result in a single event at the end of the window, which carries the latest state.
+ * </p>
+ *
  * @author Andy Lintner - Initial contribution
  */
 public class HomekitAccessoryUpdater {
+    private static final Duration DEFAULT_COALESCE_WINDOW = Duration.ofMillis(100);
+
     private Logger logger = LoggerFactory.getLogger(HomekitAccessoryUpdater.class);
     private final ConcurrentMap<ItemKey, Subscription> subscriptionsByName = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final long coalesceWindowNanos;
+
+    public HomekitAccessoryUpdater() {
+        this(ThreadPoolManager.getScheduledPool(ThreadPoolManager.THREAD_POOL_NAME_COMMON), DEFAULT_COALESCE_WINDOW);
+    }
+
+    HomekitAccessoryUpdater(ScheduledExecutorService scheduler, Duration coalesceWindow) {
+        this.scheduler = scheduler;
+        this.coalesceWindowNanos = coalesceWindow.toNanos();
+    }
 
     public void subscribe(GenericItem item, HomekitCharacteristicChangeCallback callback) {
         subscribe(item, null, callback);
@@ -53,10 +75,11 @@ public class HomekitAccessoryUpdater {
         subscriptionsByName.compute(itemKey, (k, v) -> {
             if (v != null) {
                 logger.debug("Received duplicate subscription for {} / {}", item, key);
-                unsubscribe(item, key);
+                v.cancel();
+                item.removeStateChangeListener(v);
             }
             logger.debug("Adding subscription for {} / {}", item, key);
-            Subscription subscription = (changedItem, oldState, newState) -> callback.changed();
+            Subscription subscription = new Subscription(callback);
             item.addStateChangeListener(subscription);
             return subscription;
         });
@@ -72,21 +95,75 @@ public class HomekitAccessoryUpdater {
         }
         subscriptionsByName.computeIfPresent(new ItemKey(item, key), (k, v) -> {
             logger.debug("Removing existing subscription for {} / {}", item, key);
+            v.cancel();
             item.removeStateChangeListener(v);
             return null;
         });
     }
 
-    @FunctionalInterface
-    private static interface Subscription extends StateChangeListener {
+    /**
+     * Forwards state changes of an item to the Homekit callback, at most once per coalesce window plus one trailing
+     * event for the changes within the window.
+     */
+    private class Subscription implements StateChangeListener {
+        private final HomekitCharacteristicChangeCallback callback;
+        private boolean cancelled = false;
+        private boolean trailingEventScheduled = false;
+        private long lastEventNanos;
+
+        Subscription(HomekitCharacteristicChangeCallback callback) {
+            this.callback = callback;
+            this.lastEventNanos = System.nanoTime() - coalesceWindowNanos;
+        }
 
         @Override
-        void stateChanged(Item item, State oldState, State newState);
+        public void stateChanged(Item item, State oldState, State newState) {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                if (trailingEventScheduled) {
+                    return;
+                }
+                long sinceLastEvent = System.nanoTime() - lastEventNanos;
+                if (sinceLastEvent < coalesceWindowNanos) {
+                    trailingEventScheduled = true;
+                    scheduler.schedule(this::sendTrailingEvent, coalesceWindowNanos - sinceLastEvent,
+                            TimeUnit.NANOSECONDS);
+                    return;
+                }
+                lastEventNanos = System.nanoTime();
+            }
+            send();
+        }
 
         @Override
-        default void stateUpdated(Item item, State state) {
+        public void stateUpdated(Item item, State state) {
             // Do nothing on non-change update
         }
+
+        private void sendTrailingEvent() {
+            synchronized (this) {
+                trailingEventScheduled = false;
+                if (cancelled) {
+                    return;
+                }
+                lastEventNanos = System.nanoTime();
+            }
+            send();
+        }
+
+        private void send() {
+            try {
+                callback.changed();
+            } catch (RuntimeException e) {
+                logger.warn("Could not notify Homekit clients about a change: {}", e.getMessage());
+            }
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+        }
     }
 
     private static class ItemKey {
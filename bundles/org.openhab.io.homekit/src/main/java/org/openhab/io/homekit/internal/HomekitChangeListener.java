@@ -15,11 +15,15 @@ package org.openhab.io.homekit.internal;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.Item;
@@ -31,6 +35,7 @@ import org.openhab.io.homekit.internal.accessories.IncompleteAccessoryException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.github.hapjava.HomekitAccessory;
 import io.github.hapjava.HomekitRoot;
 
 /**
@@ -46,10 +51,10 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
     private HomekitAccessoryUpdater updater = new HomekitAccessoryUpdater();
     private HomekitSettings settings;
 
-    private Set<String> pendingUpdates = new HashSet<String>();
+    private final Set<String> pendingUpdates = ConcurrentHashMap.newKeySet();
 
-    private final ScheduledExecutorService scheduler = ThreadPoolManager
-            .getScheduledPool(ThreadPoolManager.THREAD_POOL_NAME_COMMON);
+    private volatile long lastBatchMillis = 0;
+    private volatile int lastBatchSize = 0;
 
     /**
      * Rather than reacting to item added/removed/modified changes directly, we mark them as dirty (and the groups to
@@ -62,26 +67,39 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
     private final Debouncer applyUpdatesDebouncer;
 
     HomekitChangeListener(ItemRegistry itemRegistry, HomekitSettings settings) {
+        this(itemRegistry, settings, ThreadPoolManager.getScheduledPool(ThreadPoolManager.THREAD_POOL_NAME_COMMON),
+                Clock.systemUTC());
+    }
+
+    /**
+     * @param scheduler The scheduler of the debounced updates
+     * @param clock The source of the current time for the debouncer. Specified for testing purposes
+     */
+    HomekitChangeListener(ItemRegistry itemRegistry, HomekitSettings settings, ScheduledExecutorService scheduler,
+            Clock clock) {
         this.itemRegistry = itemRegistry;
         this.settings = settings;
-        this.applyUpdatesDebouncer = new Debouncer("update-homekit-devices", scheduler, Duration.ofMillis(1000),
-                Clock.systemUTC(), this::applyUpdates);
+        this.applyUpdatesDebouncer = new Debouncer("update-homekit-devices", scheduler, Duration.ofMillis(1000), clock,
+                this::applyUpdates);
 
         itemRegistry.addRegistryChangeListener(this);
-        itemRegistry.getAll().stream().map(item -> new HomekitTaggedItem(item, itemRegistry))
-                .filter(taggedItem -> taggedItem.isAccessory())
-                .filter(taggedItem -> !taggedItem.isMemberOfAccessoryGroup())
-                .forEach(rootTaggedItem -> createRootAccessory(rootTaggedItem));
+        itemRegistry.getAll().forEach(item -> pendingUpdates.add(item.getName()));
+        applyUpdates();
     }
 
     @Override
-    public synchronized void added(Item item) {
+    public void added(Item item) {
         markDirty(item);
     }
 
+    /**
+     * All items are rebuilt in a single batch after the debounce period, instead of item by item.
+     */
     @Override
     public void allItemsChanged(Collection<String> oldItemNames) {
-        clearAccessories();
+        pendingUpdates.addAll(oldItemNames);
+        itemRegistry.getAll().forEach(item -> pendingUpdates.add(item.getName()));
+        applyUpdatesDebouncer.call();
     }
 
     /**
@@ -90,7 +108,7 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
      *
      * @param item The item that has been changed or removed.
      */
-    private synchronized void markDirty(Item item) {
+    private void markDirty(Item item) {
         pendingUpdates.add(item.getName());
         /*
          * If findMyAccessoryGroups fails because the accessory group has already been deleted, then we can count on a
@@ -104,7 +122,7 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
     }
 
     @Override
-    public synchronized void removed(Item item) {
+    public void removed(Item item) {
         markDirty(item);
     }
 
@@ -116,17 +134,48 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
         }
     }
 
+    /**
+     * Creates the accessories of all pending items first and then replaces them in the accessory registry at once.
+     */
     private synchronized void applyUpdates() {
+        Set<String> batch = new HashSet<>();
         Iterator<String> iter = pendingUpdates.iterator();
-
         while (iter.hasNext()) {
-            String name = iter.next();
-            accessoryRegistry.remove(name);
+            batch.add(iter.next());
+            iter.remove();
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
 
+        long start = System.nanoTime();
+        Map<String, HomekitAccessory> accessories = new HashMap<>();
+        for (String name : batch) {
             getItemOptional(name).map(i -> new HomekitTaggedItem(i, itemRegistry))
                     .filter(i -> i.isAccessory() && !i.isMemberOfAccessoryGroup())
-                    .ifPresent(rootItem -> createRootAccessory(rootItem));
+                    .flatMap(rootItem -> createRootAccessory(rootItem))
+                    .ifPresent(accessory -> accessories.put(name, accessory));
         }
+        accessoryRegistry.replace(batch, accessories);
+
+        lastBatchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        lastBatchSize = batch.size();
+        logger.debug("Applied changes of {} items in {} ms, {} accessories (re-)created", lastBatchSize,
+                lastBatchMillis, accessories.size());
+    }
+
+    /**
+     * @return duration of the last creation of accessories, on startup or after item changes
+     */
+    public long getLastBatchMillis() {
+        return lastBatchMillis;
+    }
+
+    /**
+     * @return number of items processed in the last creation of accessories
+     */
+    public int getLastBatchSize() {
+        return lastBatchSize;
     }
 
     @Override
@@ -159,19 +208,18 @@ public class HomekitChangeListener implements ItemRegistryChangeListener {
         this.itemRegistry.removeRegistryChangeListener(this);
     }
 
-    private void createRootAccessory(HomekitTaggedItem taggedItem) {
+    private Optional<HomekitAccessory> createRootAccessory(HomekitTaggedItem taggedItem) {
         try {
             if (taggedItem.isMemberOfAccessoryGroup()) {
                 logger.warn("Bug! Cannot add {} as a root accessory if it is a member of a group! ",
                         taggedItem.getItem().getUID());
-                return;
+                return Optional.empty();
             }
-            logger.debug("Adding homekit device {}", taggedItem.getItem().getUID());
-            accessoryRegistry.addRootAccessory(taggedItem.getName(),
-                    HomekitAccessoryFactory.create(taggedItem, itemRegistry, updater, settings));
-            logger.debug("Added homekit device {}", taggedItem.getItem().getUID());
+            logger.debug("Creating homekit device {}", taggedItem.getItem().getUID());
+            return Optional.of(HomekitAccessoryFactory.create(taggedItem, itemRegistry, updater, settings));
         } catch (HomekitException | IncompleteAccessoryException e) {
             logger.warn("Could not add device {}: {}", taggedItem.getItem().getUID(), e.getMessage());
+            return Optional.empty();
         }
     }
 }
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.homekit.internal;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.items.GenericItem;
+import org.eclipse.smarthome.core.items.StateChangeListener;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import io.github.hapjava.HomekitCharacteristicChangeCallback;
+
+/**
+ * Tests the coalescing of item state changes by {@link HomekitAccessoryUpdater}.
+ *
+ * @author Andy Lintner - Initial contribution
+ */
+public class HomekitAccessoryUpdaterTest {
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    @Mock
+    private GenericItem item;
+
+    @Mock
+    private HomekitCharacteristicChangeCallback callback;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    private StateChangeListener subscribe(HomekitAccessoryUpdater updater) {
+        updater.subscribe(item, callback);
+        ArgumentCaptor<StateChangeListener> listener = ArgumentCaptor.forClass(StateChangeListener.class);
+        verify(item).addStateChangeListener(listener.capture());
+        return listener.getValue();
+    }
+
+    private void change(StateChangeListener listener) {
+        listener.stateChanged(item, OnOffType.OFF, OnOffType.ON);
+    }
+
+    private Runnable scheduledTrailingEvent() {
+        ArgumentCaptor<Runnable> trailingEvent = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(trailingEvent.capture(), anyLong(), eq(TimeUnit.NANOSECONDS));
+        return trailingEvent.getValue();
+    }
+
+    @Test
+    public void changesWithinTheWindowAreCoalesced() {
+        StateChangeListener listener = subscribe(new HomekitAccessoryUpdater(scheduler, Duration.ofHours(1)));
+
+        change(listener);
+        verify(callback, times(1)).changed();
+        verify(scheduler, never()).schedule(any(Runnable.class), anyLong(), any());
+
+        change(listener);
+        change(listener);
+        change(listener);
+        verify(callback, times(1)).changed();
+
+        scheduledTrailingEvent().run();
+        verify(callback, times(2)).changed();
+    }
+
+    @Test
+    public void trailingEventIsDroppedAfterUnsubscribe() {
+        HomekitAccessoryUpdater updater = new HomekitAccessoryUpdater(scheduler, Duration.ofHours(1));
+        StateChangeListener listener = subscribe(updater);
+
+        change(listener);
+        change(listener);
+        updater.unsubscribe(item);
+        verify(item).removeStateChangeListener(listener);
+
+        scheduledTrailingEvent().run();
+        verify(callback, times(1)).changed();
+    }
+
+    @Test
+    public void changesAreSentRightAwayWithoutWindow() {
+        StateChangeListener listener = subscribe(new HomekitAccessoryUpdater(scheduler, Duration.ZERO));
+
+        change(listener);
+        change(listener);
+        change(listener);
+
+        verify(callback, times(3)).changed();
+        verifyZeroInteractions(scheduler);
+    }
+
+    @Test
+    public void updatesWithoutChangeAreIgnored() {
+        StateChangeListener listener = subscribe(new HomekitAccessoryUpdater(scheduler, Duration.ofHours(1)));
+
+        listener.stateUpdated(item, OnOffType.ON);
+
+        verify(callback, never()).changed();
+    }
+}
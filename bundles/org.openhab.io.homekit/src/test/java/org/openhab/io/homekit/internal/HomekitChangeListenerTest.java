@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.homekit.internal;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.eclipse.smarthome.core.items.Item;
+import org.eclipse.smarthome.core.items.ItemNotFoundException;
+import org.eclipse.smarthome.core.items.ItemRegistry;
+import org.eclipse.smarthome.core.library.items.SwitchItem;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import io.github.hapjava.HomekitAccessory;
+import io.github.hapjava.HomekitRoot;
+
+/**
+ * Tests the debounced creation of accessories by {@link HomekitChangeListener}.
+ *
+ * @author Andy Lintner - Initial contribution
+ */
+public class HomekitChangeListenerTest {
+    private static final long DEBOUNCE_MILLIS = 1000;
+
+    @Mock
+    private ItemRegistry itemRegistry;
+
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    @Mock
+    private Clock clock;
+
+    @Mock
+    private HomekitRoot bridge;
+
+    private final Map<String, Item> items = new HashMap<>();
+    private long now = 0;
+
+    @Before
+    public void setUp() throws ItemNotFoundException {
+        MockitoAnnotations.initMocks(this);
+        when(clock.millis()).thenAnswer(invocation -> now);
+        when(itemRegistry.getAll()).thenAnswer(invocation -> items.values());
+        when(itemRegistry.get(anyString())).thenAnswer(invocation -> items.get(invocation.getArgument(0)));
+        when(itemRegistry.getItem(anyString())).thenAnswer(invocation -> {
+            Item item = items.get(invocation.getArgument(0));
+            if (item == null) {
+                throw new ItemNotFoundException(invocation.getArgument(0));
+            }
+            return item;
+        });
+    }
+
+    private Item addSwitch(String name) {
+        SwitchItem item = new SwitchItem(name);
+        item.setLabel(name);
+        item.addTag("Switchable");
+        items.put(name, item);
+        return item;
+    }
+
+    private HomekitChangeListener createListener() {
+        HomekitChangeListener listener = new HomekitChangeListener(itemRegistry, new HomekitSettings(), scheduler,
+                clock);
+        listener.setBridge(bridge);
+        return listener;
+    }
+
+    /**
+     * Lets the debounce period pass and runs the scheduled update
+     */
+    private void runDebouncedUpdate() {
+        ArgumentCaptor<Runnable> update = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler, atLeastOnce()).schedule(update.capture(), eq(DEBOUNCE_MILLIS), eq(TimeUnit.MILLISECONDS));
+        reset(scheduler);
+        now += DEBOUNCE_MILLIS;
+        update.getValue().run();
+    }
+
+    private static List<String> labels(List<HomekitAccessory> accessories) {
+        return accessories.stream().map(HomekitAccessory::getLabel).sorted().collect(Collectors.toList());
+    }
+
+    @Test
+    public void pendingUpdatesAreClearedAfterApplying() {
+        addSwitch("lamp");
+        HomekitChangeListener listener = createListener();
+        assertEquals(1, listener.getLastBatchSize());
+        verify(bridge).addAccessory(any());
+
+        listener.added(addSwitch("fan"));
+        listener.added(addSwitch("heater"));
+        runDebouncedUpdate();
+        assertEquals(2, listener.getLastBatchSize());
+
+        // Only the item changed since the last update is processed
+        listener.added(addSwitch("pump"));
+        runDebouncedUpdate();
+        assertEquals(1, listener.getLastBatchSize());
+
+        ArgumentCaptor<HomekitAccessory> added = ArgumentCaptor.forClass(HomekitAccessory.class);
+        verify(bridge, times(4)).addAccessory(added.capture());
+        assertEquals(Arrays.asList("fan", "heater", "lamp", "pump"), labels(added.getAllValues()));
+        verify(bridge, never()).removeAccessory(any());
+    }
+
+    @Test
+    public void allItemsChangedRestoresAccessories() {
+        addSwitch("lamp");
+        addSwitch("fan");
+        HomekitChangeListener listener = createListener();
+        assertEquals(2, listener.getLastBatchSize());
+
+        // The items are provided again, for example after the item files were reloaded, and one of them is gone
+        items.clear();
+        addSwitch("lamp");
+        addSwitch("heater");
+        listener.allItemsChanged(Arrays.asList("lamp", "fan"));
+        verify(bridge, never()).removeAccessory(any());
+        runDebouncedUpdate();
+        assertEquals(3, listener.getLastBatchSize());
+
+        ArgumentCaptor<HomekitAccessory> removed = ArgumentCaptor.forClass(HomekitAccessory.class);
+        verify(bridge, times(2)).removeAccessory(removed.capture());
+        ArgumentCaptor<HomekitAccessory> added = ArgumentCaptor.forClass(HomekitAccessory.class);
+        verify(bridge, times(4)).addAccessory(added.capture());
+        List<HomekitAccessory> restored = added.getAllValues().subList(2, 4);
+        assertEquals(Arrays.asList("heater", "lamp"), labels(restored));
+        assertTrue(Collections.disjoint(removed.getAllValues(), restored));
+    }
+}
@@ -14,6 +14,7 @@ package org.openhab.io.hueemulation.internal;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
@@ -30,6 +31,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.config.core.ConfigurableService;
 import org.eclipse.smarthome.config.core.Configuration;
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
+import org.eclipse.smarthome.core.items.GroupItem;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.items.Metadata;
 import org.eclipse.smarthome.core.items.MetadataKey;
@@ -101,6 +103,29 @@ public class ConfigStore {
             .registerTypeAdapter(HueSuccessResponseStateChanged.class, new HueSuccessResponseStateChanged.Serializer())
             .registerTypeAdapter(HueGroupEntry.class, new HueGroupEntry.Serializer(this)).create();
 
+    /**
+     * The serialized lights. A light is serialized again, if the state or label of its item changed.
+     */
+    private final JsonSnapshot<HueLightEntry> lightsSnapshot = new JsonSnapshot<>(gson,
+            light -> Arrays.asList(light.item, light.item.getState(), light.item.getLabel(), light.deviceType));
+
+    /**
+     * The serialized groups. A group is serialized again, if the members or state of its item, its action or its
+     * name changed.
+     */
+    private final JsonSnapshot<HueGroupEntry> groupsSnapshot = new JsonSnapshot<>(gson, group -> {
+        GroupItem groupItem = group.groupItem;
+        return Arrays.asList(groupItem, groupItem != null ? groupItem.getMembers() : null,
+                groupItem != null ? groupItem.getState() : null, group.action, group.name, group.type,
+                group.roomclass, group.lights, group.sensors);
+    });
+
+    /**
+     * The serialized sensors. A sensor is serialized again, if the state of its item or its name changed.
+     */
+    private final JsonSnapshot<HueSensorEntry> sensorsSnapshot = new JsonSnapshot<>(gson,
+            sensor -> Arrays.asList(sensor.item, sensor.item.getState(), sensor.name, sensor.type, sensor.config));
+
     @Reference
     protected @NonNullByDefault({}) ConfigurationAdmin configAdmin;
 
@@ -352,6 +377,30 @@ public class ConfigStore {
         }, ds.config.networkopenduration * 1000, TimeUnit.MILLISECONDS);
     }
 
+    /**
+     * Returns the serialized lights of the data store. Only lights that changed since the last call are serialized
+     * again.
+     */
+    public JsonSnapshot.Snapshot getLightsSnapshot() {
+        return lightsSnapshot.update(ds.lights);
+    }
+
+    /**
+     * Returns the serialized groups of the data store. Only groups that changed since the last call are serialized
+     * again.
+     */
+    public JsonSnapshot.Snapshot getGroupsSnapshot() {
+        return groupsSnapshot.update(ds.groups);
+    }
+
+    /**
+     * Returns the serialized sensors of the data store. Only sensors that changed since the last call are serialized
+     * again.
+     */
+    public JsonSnapshot.Snapshot getSensorsSnapshot() {
+        return sensorsSnapshot.update(ds.sensors);
+    }
+
     public Set<InetAddress> getDiscoveryIps() {
         return discoveryIps;
     }
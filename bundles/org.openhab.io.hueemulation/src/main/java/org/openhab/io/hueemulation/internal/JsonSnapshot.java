@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.hueemulation.internal;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.google.gson.Gson;
+
+/**
+ * Keeps the serialized json of a hue resource map, like all lights, and re-encodes only those entries that changed.
+ *
+ * <p>
+ * Each entry is stored together with a fingerprint, for example the state and label of the associated item. On
+ * {@link #update(Map)} the fingerprint of every entry is compared to the stored one and only differing or new
+ * entries are serialized again. If nothing changed, the previous {@link Snapshot} is returned as is, including its
+ * version, which is used as ETag for conditional requests.
+ * </p>
+ *
+ * @author David Graeff - Initial contribution
+ */
+@NonNullByDefault
+public class JsonSnapshot<T> {
+    private final Gson gson;
+    private final Function<T, Object> fingerprint;
+    /** Distinguishes versions of different service instances, as the version starts at 0 again */
+    private final String instanceTag = Long.toHexString(System.currentTimeMillis());
+
+    private Map<String, Entry<T>> entries = Collections.emptyMap();
+    private @Nullable Snapshot snapshot;
+    private long version = 0;
+    private long encodedEntries = 0;
+
+    private static class Entry<T> {
+        final T value;
+        final Object fingerprint;
+        final String json;
+
+        Entry(T value, Object fingerprint, String json) {
+            this.value = value;
+            this.fingerprint = fingerprint;
+            this.json = json;
+        }
+    }
+
+    /**
+     * An immutable serialized state of the resource map.
+     */
+    public static class Snapshot {
+        private final String json;
+        private final String etag;
+        private final Map<String, String> entries;
+
+        Snapshot(String json, String etag, Map<String, String> entries) {
+            this.json = json;
+            this.etag = etag;
+            this.entries = entries;
+        }
+
+        /**
+         * @return The json object of all entries, keyed by their id
+         */
+        public String getJson() {
+            return json;
+        }
+
+        /**
+         * @return The json of a single entry or null if there is no entry with this id
+         */
+        public @Nullable String getEntry(String id) {
+            return entries.get(id);
+        }
+
+        /**
+         * @return A value that changes whenever the json changes
+         */
+        public String getETag() {
+            return etag;
+        }
+    }
+
+    /**
+     * Creates a snapshot for a resource map.
+     *
+     * @param gson The gson instance to serialize entries with
+     * @param fingerprint Returns an object for an entry, that equals the one of the last serialization as long as the
+     *            json of the entry does not change.
+     */
+    public JsonSnapshot(Gson gson, Function<T, Object> fingerprint) {
+        this.gson = gson;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Brings the snapshot up to date with the given resource map.
+     *
+     * @param current The resource map. The iteration order is kept in the json.
+     * @return The current snapshot. The same instance is returned as long as nothing changed.
+     */
+    public synchronized Snapshot update(Map<String, ? extends T> current) {
+        boolean changed = current.size() != entries.size();
+        Map<String, Entry<T>> next = new LinkedHashMap<>(current.size() * 4 / 3 + 1);
+        for (Map.Entry<String, ? extends T> e : current.entrySet()) {
+            T value = e.getValue();
+            Object valueFingerprint = fingerprint.apply(value);
+            Entry<T> entry = entries.get(e.getKey());
+            if (entry == null || entry.value != value || !Objects.equals(entry.fingerprint, valueFingerprint)) {
+                entry = new Entry<>(value, valueFingerprint, gson.toJson(value));
+                encodedEntries++;
+                changed = true;
+            }
+            next.put(e.getKey(), entry);
+        }
+
+        Snapshot snapshot = this.snapshot;
+        if (snapshot != null && !changed) {
+            return snapshot;
+        }
+
+        entries = next;
+        ++version;
+        Map<String, String> entryJson = new LinkedHashMap<>(next.size() * 4 / 3 + 1);
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, Entry<T>> e : next.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(gson.toJson(e.getKey())).append(':').append(e.getValue().json);
+            entryJson.put(e.getKey(), e.getValue().json);
+        }
+        json.append('}');
+        snapshot = new Snapshot(json.toString(), instanceTag + "-" + version, entryJson);
+        this.snapshot = snapshot;
+        return snapshot;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return number of entries serialized so far
+     */
+    public synchronized long getEncodedEntries() {
+        return encodedEntries;
+    }
+}
@@ -12,6 +12,8 @@
  */
 package org.openhab.io.hueemulation.internal.rest;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Collections;
 import java.util.List;
 
@@ -22,12 +24,16 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.openhab.io.hueemulation.internal.ConfigStore;
+import org.openhab.io.hueemulation.internal.JsonSnapshot;
 import org.openhab.io.hueemulation.internal.NetworkUtils;
+import org.openhab.io.hueemulation.internal.dto.HueAuthorizedConfig;
+import org.openhab.io.hueemulation.internal.dto.HueDataStore;
 import org.openhab.io.hueemulation.internal.dto.HueUnauthorizedConfig;
 import org.openhab.io.hueemulation.internal.dto.changerequest.HueChangeRequest;
 import org.openhab.io.hueemulation.internal.dto.response.HueResponse;
@@ -36,7 +42,9 @@ import org.osgi.service.cm.ConfigurationAdmin;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 
+import com.google.gson.JsonIOException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -74,12 +82,45 @@ public class ConfigurationAccess {
     @Produces(MediaType.APPLICATION_JSON)
     @ApiOperation(value = "Return the full data store")
     @ApiResponses(value = { @ApiResponse(code = 200, message = "OK") })
-    public Response getAllApi(@Context UriInfo uri,
+    public Response getAllApi(@Context UriInfo uri, @Context Request request,
             @PathParam("username") @ApiParam(value = "username") String username) {
         if (!userManagement.authorizeUser(username)) {
             return NetworkUtils.singleError(cs.gson, uri, HueResponse.UNAUTHORIZED, "Not Authorized");
         }
-        return Response.ok(cs.gson.toJson(cs.ds)).build();
+        JsonSnapshot.Snapshot lights = cs.getLightsSnapshot();
+        String json = dataStoreToJson(cs.ds, lights, cs.getGroupsSnapshot(), cs.getSensorsSnapshot());
+        return NetworkUtils.conditionalOk(request, json, lights.getETag() + "-" + Integer.toHexString(json.hashCode()));
+    }
+
+    /**
+     * Serializes the data store like {@link com.google.gson.Gson#toJson(Object)}, but inserts the already serialized
+     * lights, groups and sensors, which are by far the largest part.
+     */
+    private String dataStoreToJson(HueDataStore ds, JsonSnapshot.Snapshot lights, JsonSnapshot.Snapshot groups,
+            JsonSnapshot.Snapshot sensors) {
+        StringWriter writer = new StringWriter();
+        try (JsonWriter out = cs.gson.newJsonWriter(writer)) {
+            out.beginObject();
+            out.name("config");
+            cs.gson.toJson(ds.config, HueAuthorizedConfig.class, out);
+            out.name("lights").jsonValue(lights.getJson());
+            out.name("groups").jsonValue(groups.getJson());
+            writeField(out, "scenes", ds.scenes);
+            writeField(out, "rules", ds.rules);
+            out.name("sensors").jsonValue(sensors.getJson());
+            writeField(out, "schedules", ds.schedules);
+            writeField(out, "resourcelinks", ds.resourcelinks);
+            writeField(out, "capabilities", ds.capabilities);
+            out.endObject();
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private void writeField(JsonWriter out, String name, Object value) throws IOException {
+        out.name(name);
+        cs.gson.toJson(value, value.getClass(), out);
     }
 
     @GET
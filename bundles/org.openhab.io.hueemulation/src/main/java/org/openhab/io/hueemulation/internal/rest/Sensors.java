@@ -26,6 +26,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
 
@@ -36,6 +37,7 @@ import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.items.ItemRegistry;
 import org.eclipse.smarthome.core.library.CoreItemFactory;
 import org.openhab.io.hueemulation.internal.ConfigStore;
+import org.openhab.io.hueemulation.internal.JsonSnapshot;
 import org.openhab.io.hueemulation.internal.NetworkUtils;
 import org.openhab.io.hueemulation.internal.dto.HueNewLights;
 import org.openhab.io.hueemulation.internal.dto.HueSensorEntry;
@@ -147,12 +149,13 @@ public class Sensors implements RegistryChangeListener<Item> {
     @Path("{username}/sensors")
     @ApiOperation(value = "Return all sensors")
     @ApiResponses(value = { @ApiResponse(code = 200, message = "OK") })
-    public Response getAllSensorsApi(@Context UriInfo uri,
+    public Response getAllSensorsApi(@Context UriInfo uri, @Context Request request,
             @PathParam("username") @ApiParam(value = "username") String username) {
         if (!userManagement.authorizeUser(username)) {
             return NetworkUtils.singleError(cs.gson, uri, HueResponse.UNAUTHORIZED, "Not Authorized");
         }
-        return Response.ok(cs.gson.toJson(cs.ds.sensors)).build();
+        JsonSnapshot.Snapshot sensors = cs.getSensorsSnapshot();
+        return NetworkUtils.conditionalOk(request, sensors.getJson(), sensors.getETag());
     }
 
     @GET
@@ -183,13 +186,18 @@ public class Sensors implements RegistryChangeListener<Item> {
     @Path("{username}/sensors/{id}")
     @ApiOperation(value = "Return a sensor")
     @ApiResponses(value = { @ApiResponse(code = 200, message = "OK") })
-    public Response getSensorApi(@Context UriInfo uri, //
+    public Response getSensorApi(@Context UriInfo uri, @Context Request request, //
             @PathParam("username") @ApiParam(value = "username") String username,
             @PathParam("id") @ApiParam(value = "sensor id") String id) {
         if (!userManagement.authorizeUser(username)) {
             return NetworkUtils.singleError(cs.gson, uri, HueResponse.UNAUTHORIZED, "Not Authorized");
         }
-        return Response.ok(cs.gson.toJson(cs.ds.sensors.get(id))).build();
+        JsonSnapshot.Snapshot sensors = cs.getSensorsSnapshot();
+        String sensor = sensors.getEntry(id);
+        if (sensor == null) {
+            return Response.ok(cs.gson.toJson(cs.ds.sensors.get(id))).build();
+        }
+        return NetworkUtils.conditionalOk(request, sensor, sensors.getETag());
     }
 
     @SuppressWarnings({ "null", "unused" })
@@ -0,0 +1,459 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.hueemulation.internal.rest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+import org.eclipse.smarthome.core.items.GenericItem;
+import org.eclipse.smarthome.core.library.items.ColorItem;
+import org.eclipse.smarthome.core.library.items.ContactItem;
+import org.eclipse.smarthome.core.library.items.DimmerItem;
+import org.eclipse.smarthome.core.library.items.NumberItem;
+import org.eclipse.smarthome.core.library.items.SwitchItem;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.openhab.io.hueemulation.internal.rest.mocks.DummyItemRegistry;
+import org.openhab.io.hueemulation.internal.rest.mocks.DummyRuleRegistry;
+import org.openhab.io.hueemulation.internal.upnp.UpnpDiscoveryTiming;
+
+/**
+ * Drives concurrent traffic against the hue emulation REST API and reports throughput and latency percentiles.
+ * <p>
+ * The REST components {@link LightsAndGroups}, {@link Sensors}, {@link Rules} and {@link ConfigurationAccess} are
+ * started on the test http server of {@link CommonSetup}, backed by a synthetic item registry of the configured size.
+ * While the worker threads send a weighted mix of GET and PUT requests, item states are changed in the background
+ * like the framework would do. Optionally the response time of the UPnP discovery is measured as well.
+ * <p>
+ * Run {@link #main(String[])} with the arguments
+ * <code>[items] [threads] [seconds] [stateUpdatesPerSecond] [upnpSearches]</code>, for example from the IDE with
+ * the test classpath.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class LoadTestHarness {
+    /**
+     * The request mix. Each worker picks an operation with a probability proportional to its weight.
+     */
+    public enum Operation {
+        ALL_LIGHTS("GET lights", 40),
+        SINGLE_LIGHT("GET lights/{id}", 20),
+        SET_LIGHT_STATE("PUT lights/{id}/state", 10),
+        FULL_DATASTORE("GET {username}", 10),
+        ALL_SENSORS("GET sensors", 10),
+        ALL_RULES("GET rules", 5),
+        CONFIG("GET {username}/config", 5);
+
+        final String label;
+        final int weight;
+
+        Operation(String label, int weight) {
+            this.label = label;
+            this.weight = weight;
+        }
+    }
+
+    public static class Options {
+        public int items = 400;
+        public int threads = 8;
+        public int warmupSeconds = 5;
+        public int durationSeconds = 30;
+        /**
+         * If greater than 0, each worker sends every operation this many times, one after the other, instead of
+         * sending random operations for {@link #durationSeconds}
+         */
+        public int rounds = 0;
+        public int stateUpdatesPerSecond = 50;
+        public int upnpSearches = 20;
+    }
+
+    /**
+     * Latencies and errors of one operation.
+     */
+    public static class Stats {
+        public final String name;
+        private long[] latencies = new long[1024];
+        private int count = 0;
+        private int errors = 0;
+
+        Stats(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+        }
+
+        void error() {
+            errors++;
+        }
+
+        void add(Stats other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.latencies[i]);
+            }
+            errors += other.errors;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * @param percentile Between 0 and 100
+         * @return The latency in milliseconds
+         */
+        public double getPercentileMillis(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))] / 1_000_000.0;
+        }
+
+        String format(double seconds) {
+            return String.format("%-24s %9d %7d %9.1f %8.2f %8.2f %8.2f %8.2f", name, count, errors, count / seconds,
+                    getPercentileMillis(50), getPercentileMillis(90), getPercentileMillis(99),
+                    getPercentileMillis(100));
+        }
+    }
+
+    public static class Report {
+        public final Options options;
+        public final Map<Operation, Stats> operations;
+        public final Stats total;
+        public final Stats upnp;
+        public final double seconds;
+
+        Report(Options options, Map<Operation, Stats> operations, Stats total, Stats upnp, double seconds) {
+            this.options = options;
+            this.operations = operations;
+            this.total = total;
+            this.upnp = upnp;
+            this.seconds = seconds;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder b = new StringBuilder();
+            b.append(String.format("Hue emulation load test: %d items, %d threads, %.1f s, %d state updates/s%n",
+                    options.items, options.threads, seconds, options.stateUpdatesPerSecond));
+            b.append(String.format("%-24s %9s %7s %9s %8s %8s %8s %8s%n", "operation", "requests", "errors", "req/s",
+                    "p50 ms", "p90 ms", "p99 ms", "max ms"));
+            operations.values().forEach(s -> b.append(s.format(seconds)).append(System.lineSeparator()));
+            b.append(total.format(seconds)).append(System.lineSeparator());
+            if (upnp.getCount() > 0 || upnp.getErrors() > 0) {
+                b.append(String.format("%-24s %9s %7s %9s %8s %8s %8s %8s%n", "upnp discovery", "searches", "lost",
+                        "", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+                b.append(String.format("%-24s %9d %7d %9s %8.2f %8.2f %8.2f %8.2f%n", "M-SEARCH", upnp.getCount(),
+                        upnp.getErrors(), "", upnp.getPercentileMillis(50), upnp.getPercentileMillis(90),
+                        upnp.getPercentileMillis(99), upnp.getPercentileMillis(100)));
+            }
+            return b.toString();
+        }
+    }
+
+    private final Options options;
+    private final CommonSetup commonSetup;
+    private final DummyItemRegistry itemRegistry = new DummyItemRegistry();
+    private final List<GenericItem> lightItems = new ArrayList<>();
+    private final List<String> lightIDs = new ArrayList<>();
+
+    LightsAndGroups lightsAndGroups = new LightsAndGroups();
+    Sensors sensors = new Sensors();
+    Rules rules = new Rules();
+    ConfigurationAccess configurationAccess = new ConfigurationAccess();
+
+    public LoadTestHarness(Options options) throws IOException {
+        this.options = options;
+        this.commonSetup = new CommonSetup(false);
+    }
+
+    /**
+     * Creates the items and starts the REST components on the test http server.
+     */
+    void setUp() {
+        // The mocked services of the common setup record each invocation, which would grow without limits here
+        commonSetup.userManagement = new UserManagement(commonSetup.storageService, commonSetup.cs);
+
+        for (int i = 0; i < options.items; i++) {
+            GenericItem item;
+            switch (i % 5) {
+                case 0:
+                    item = new SwitchItem("switch" + i);
+                    item.addTag("Switchable");
+                    item.setState(OnOffType.OFF);
+                    break;
+                case 1:
+                    item = new DimmerItem("dimmer" + i);
+                    item.addTag("Switchable");
+                    item.setState(PercentType.HUNDRED);
+                    break;
+                case 2:
+                    item = new ColorItem("color" + i);
+                    item.addTag("ColorLighting");
+                    item.setState(HSBType.BLUE);
+                    break;
+                case 3:
+                    item = new ContactItem("contact" + i);
+                    item.setState(OpenClosedType.CLOSED);
+                    break;
+                default:
+                    item = new NumberItem("number" + i);
+                    item.setState(new DecimalType(i));
+                    break;
+            }
+            item.setLabel("Item " + i);
+            itemRegistry.add(item);
+        }
+
+        lightsAndGroups.cs = commonSetup.cs;
+        lightsAndGroups.eventPublisher = event -> {
+        };
+        lightsAndGroups.userManagement = commonSetup.userManagement;
+        lightsAndGroups.itemRegistry = itemRegistry;
+        lightsAndGroups.activate();
+
+        sensors.cs = commonSetup.cs;
+        sensors.userManagement = commonSetup.userManagement;
+        sensors.itemRegistry = itemRegistry;
+        sensors.activate();
+
+        rules.cs = commonSetup.cs;
+        rules.userManagement = commonSetup.userManagement;
+        rules.ruleRegistry = new DummyRuleRegistry();
+        rules.itemRegistry = itemRegistry;
+        rules.activate();
+
+        configurationAccess.cs = commonSetup.cs;
+        configurationAccess.userManagement = commonSetup.userManagement;
+        configurationAccess.configAdmin = commonSetup.configAdmin;
+
+        commonSetup.cs.ds.lights.forEach((id, light) -> {
+            lightIDs.add(id);
+            lightItems.add(light.item);
+        });
+
+        commonSetup.start(
+                new ResourceConfig().registerInstances(lightsAndGroups, sensors, rules, configurationAccess));
+    }
+
+    void tearDown() {
+        lightsAndGroups.deactivate();
+        sensors.deactivate();
+        rules.deactivate();
+        commonSetup.dispose();
+    }
+
+    /**
+     * Sets up the REST components, runs the warm-up and measurement phases and the UPnP discovery timing.
+     *
+     * @return The measured results
+     */
+    public Report run() throws Exception {
+        setUp();
+        ScheduledExecutorService stateUpdater = Executors.newSingleThreadScheduledExecutor();
+        try {
+            if (options.stateUpdatesPerSecond > 0 && !lightItems.isEmpty()) {
+                stateUpdater.scheduleAtFixedRate(this::changeRandomItemState, 0,
+                        TimeUnit.SECONDS.toMicros(1) / options.stateUpdatesPerSecond, TimeUnit.MICROSECONDS);
+            }
+            if (options.warmupSeconds > 0 && options.rounds <= 0) {
+                runPhase(options.warmupSeconds);
+            }
+            long start = System.nanoTime();
+            List<Map<Operation, Stats>> perWorker = runPhase(options.durationSeconds);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Map<Operation, Stats> operations = new EnumMap<>(Operation.class);
+            Stats total = new Stats("total");
+            for (Operation operation : Operation.values()) {
+                Stats stats = new Stats(operation.label);
+                perWorker.forEach(worker -> stats.add(worker.get(operation)));
+                total.add(stats);
+                operations.put(operation, stats);
+            }
+
+            Stats upnp = new Stats("M-SEARCH");
+            if (options.upnpSearches > 0) {
+                for (long nanos : UpnpDiscoveryTiming.measure(commonSetup, options.upnpSearches)) {
+                    if (nanos < 0) {
+                        upnp.error();
+                    } else {
+                        upnp.record(nanos);
+                    }
+                }
+            }
+            return new Report(options, operations, total, upnp, seconds);
+        } finally {
+            stateUpdater.shutdownNow();
+            tearDown();
+        }
+    }
+
+    private List<Map<Operation, Stats>> runPhase(int seconds) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService workers = Executors.newFixedThreadPool(options.threads);
+        try {
+            List<Future<Map<Operation, Stats>>> futures = new ArrayList<>();
+            for (int i = 0; i < options.threads; i++) {
+                futures.add(workers.submit(() -> work(deadline)));
+            }
+            List<Map<Operation, Stats>> results = new ArrayList<>();
+            for (Future<Map<Operation, Stats>> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private Map<Operation, Stats> work(long deadline) {
+        Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats(operation.label));
+        }
+        int totalWeight = Arrays.stream(Operation.values()).mapToInt(o -> o.weight).sum();
+        WebTarget api = commonSetup.client.target(commonSetup.basePath).path("testuser");
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if (options.rounds > 0) {
+            for (int round = 0; round < options.rounds; round++) {
+                for (Operation operation : Operation.values()) {
+                    send(api, operation, random, stats.get(operation));
+                }
+            }
+            return stats;
+        }
+        while (System.nanoTime() < deadline) {
+            Operation operation = pick(random.nextInt(totalWeight));
+            send(api, operation, random, stats.get(operation));
+        }
+        return stats;
+    }
+
+    private void send(WebTarget api, Operation operation, ThreadLocalRandom random, Stats stats) {
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = request(api, operation, random);
+        } catch (RuntimeException e) {
+            stats.error();
+            return;
+        }
+        try {
+            response.readEntity(String.class);
+        } catch (RuntimeException e) {
+            // Counted as error by the status check below
+        }
+        long nanos = System.nanoTime() - start;
+        if (response.getStatus() == 200) {
+            stats.record(nanos);
+        } else {
+            stats.error();
+        }
+    }
+
+    private static Operation pick(int value) {
+        for (Operation operation : Operation.values()) {
+            if (value < operation.weight) {
+                return operation;
+            }
+            value -= operation.weight;
+        }
+        return Operation.ALL_LIGHTS;
+    }
+
+    private Response request(WebTarget api, Operation operation, ThreadLocalRandom random) {
+        String lightID = lightIDs.isEmpty() ? "0" : lightIDs.get(random.nextInt(lightIDs.size()));
+        switch (operation) {
+            case SINGLE_LIGHT:
+                return api.path("lights").path(lightID).request().get();
+            case SET_LIGHT_STATE:
+                return api.path("lights").path(lightID).path("state").request()
+                        .put(Entity.json(random.nextBoolean() ? "{'on':true}" : "{'on':false}"));
+            case FULL_DATASTORE:
+                return api.request().get();
+            case ALL_SENSORS:
+                return api.path("sensors").request().get();
+            case ALL_RULES:
+                return api.path("rules").request().get();
+            case CONFIG:
+                return api.path("config").request().get();
+            case ALL_LIGHTS:
+            default:
+                return api.path("lights").request().get();
+        }
+    }
+
+    private void changeRandomItemState() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        GenericItem item = lightItems.get(random.nextInt(lightItems.size()));
+        if (item instanceof ColorItem) {
+            item.setState(new HSBType(new DecimalType(random.nextInt(360)), PercentType.HUNDRED,
+                    new PercentType(random.nextInt(101))));
+        } else if (item instanceof DimmerItem) {
+            item.setState(new PercentType(random.nextInt(101)));
+        } else {
+            item.setState(random.nextBoolean() ? OnOffType.ON : OnOffType.OFF);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        if (args.length > 0) {
+            options.items = Integer.parseInt(args[0]);
+        }
+        if (args.length > 1) {
+            options.threads = Integer.parseInt(args[1]);
+        }
+        if (args.length > 2) {
+            options.durationSeconds = Integer.parseInt(args[2]);
+        }
+        if (args.length > 3) {
+            options.stateUpdatesPerSecond = Integer.parseInt(args[3]);
+        }
+        if (args.length > 4) {
+            options.upnpSearches = Integer.parseInt(args[4]);
+        }
+        System.out.print(new LoadTestHarness(options).run());
+    }
+}
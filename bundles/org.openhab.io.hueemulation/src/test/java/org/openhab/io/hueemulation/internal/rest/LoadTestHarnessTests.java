@@ -0,0 +1,45 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.hueemulation.internal.rest;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.openhab.io.hueemulation.internal.rest.LoadTestHarness.Operation;
+
+/**
+ * A single round of the {@link LoadTestHarness}, to make sure it keeps working. Load tests are run with
+ * {@link LoadTestHarness#main(String[])}.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class LoadTestHarnessTests {
+    @Test
+    public void everyOperationSucceeds() throws Exception {
+        LoadTestHarness.Options options = new LoadTestHarness.Options();
+        options.items = 20;
+        options.threads = 1;
+        options.rounds = 1;
+        options.stateUpdatesPerSecond = 0;
+        options.upnpSearches = 0;
+
+        LoadTestHarness.Report report = new LoadTestHarness(options).run();
+
+        for (Operation operation : Operation.values()) {
+            assertThat(operation.label, report.operations.get(operation).getCount(), is(1));
+        }
+        assertThat(report.total.getErrors(), is(0));
+        assertTrue(report.toString().contains("GET lights"));
+    }
+}
@@ -121,4 +121,25 @@ public class SensorTests {
         body = response.readEntity(String.class);
         assertThat(body, containsString("CLIPGenericFlag"));
     }
+
+    @Test
+    public void unchangedSensorsAreNotModified() {
+        Response response = commonSetup.client.target(commonSetup.basePath + "/testuser/sensors").request().get();
+        assertEquals(200, response.getStatus());
+        String etag = response.getHeaderString("ETag");
+        assertThat(etag, is(notNullValue()));
+        assertThat(response.readEntity(String.class), containsString("\"flag\":true"));
+
+        response = commonSetup.client.target(commonSetup.basePath + "/testuser/sensors").request()
+                .header("If-None-Match", etag).get();
+        assertEquals(304, response.getStatus());
+
+        cs.ds.sensors.get("switch1").item.setState(OnOffType.OFF);
+
+        response = commonSetup.client.target(commonSetup.basePath + "/testuser/sensors").request()
+                .header("If-None-Match", etag).get();
+        assertEquals(200, response.getStatus());
+        assertThat(response.getHeaderString("ETag"), is(not(etag)));
+        assertThat(response.readEntity(String.class), containsString("\"flag\":false"));
+    }
 }
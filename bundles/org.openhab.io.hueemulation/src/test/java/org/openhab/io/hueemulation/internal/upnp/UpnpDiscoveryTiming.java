@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.hueemulation.internal.upnp;
+
+import static org.mockito.Mockito.mock;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.grizzly.osgi.httpservice.HttpServiceImpl;
+import org.glassfish.grizzly.osgi.httpservice.OSGiMainHandler;
+import org.glassfish.grizzly.osgi.httpservice.util.Logger;
+import org.openhab.io.hueemulation.internal.rest.CommonSetup;
+import org.osgi.framework.Bundle;
+import org.osgi.util.tracker.ServiceTracker;
+
+/**
+ * Measures how long the {@link UpnpServer} takes to answer M-SEARCH discovery requests. Used by the load test
+ * harness of the REST API.
+ *
+ * @author David Graeff - Initial contribution
+ */
+public class UpnpDiscoveryTiming {
+    private static final int RECEIVE_TIMEOUT_MS = 1000;
+
+    /**
+     * Starts an {@link UpnpServer} on the http server of the given, already started setup, sends M-SEARCH requests
+     * one after another and stops the server again.
+     *
+     * @param commonSetup A started common setup
+     * @param searches The number of M-SEARCH requests
+     * @return The response time of each request in nanoseconds, or -1 for requests without response
+     */
+    public static long[] measure(CommonSetup commonSetup, int searches) throws Exception {
+        Logger logger = new Logger(mock(ServiceTracker.class));
+        OSGiMainHandler mainHttpHandler = new OSGiMainHandler(logger, mock(Bundle.class));
+        commonSetup.server.getServerConfiguration().addHttpHandler(mainHttpHandler, "/");
+
+        UpnpServer subject = new UpnpServer(Runnable::run);
+        subject.httpService = new HttpServiceImpl(mock(Bundle.class), logger);
+        subject.cs = commonSetup.cs;
+        subject.overwriteReadyToFalse = true;
+        subject.activate(); // don't execute handleEvent()
+        subject.overwriteReadyToFalse = false;
+
+        long[] results = new long[searches];
+        HueEmulationConfigWithRuntime r = subject.createConfiguration(null);
+        try {
+            r = subject.performAddressTest(r);
+            subject.applyConfiguration(r);
+            if (r == null) {
+                throw new IllegalStateException("No UPnP configuration");
+            }
+            r.startNow(r).get(5, TimeUnit.SECONDS);
+
+            byte[] request = "M-SEARCH".getBytes(StandardCharsets.US_ASCII);
+            try (DatagramSocket socket = new DatagramSocket()) {
+                socket.setSoTimeout(RECEIVE_TIMEOUT_MS);
+                byte[] buffer = new byte[1000];
+                for (int i = 0; i < searches; i++) {
+                    long start = System.nanoTime();
+                    socket.send(new DatagramPacket(request, request.length, subject.MULTI_ADDR_IPV4,
+                            UpnpServer.UPNP_PORT));
+                    try {
+                        socket.receive(new DatagramPacket(buffer, buffer.length));
+                        results[i] = System.nanoTime() - start;
+                    } catch (SocketTimeoutException e) {
+                        results[i] = -1;
+                    }
+                }
+            }
+        } finally {
+            if (r != null) {
+                r.dispose();
+            }
+            subject.deactivate();
+            mainHttpHandler.unregisterAll();
+        }
+        return results;
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * {@link ModbusRegisterArray} backed by a big endian {@link ByteBuffer}, two bytes per register
+ *
+ * Register values are read directly from the buffer, and {@link #slice(int, int)} returns a view sharing the same
+ * buffer. {@link ModbusRegister} objects are only created when requested with {@link #getRegister(int)}.
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@NonNullByDefault
+public class ByteBufferModbusRegisterArray implements ModbusRegisterArray {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int size;
+
+    /**
+     * Construct register array from raw register data
+     *
+     * @param bytes register data, high byte of each register first. The array is not copied.
+     * @throws IllegalArgumentException if the number of bytes is odd
+     */
+    public ByteBufferModbusRegisterArray(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes), 0, checkEvenLength(bytes.length) / 2);
+    }
+
+    private ByteBufferModbusRegisterArray(ByteBuffer buffer, int offset, int size) {
+        this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+        this.offset = offset;
+        this.size = size;
+    }
+
+    private static int checkEvenLength(int length) {
+        if (length % 2 != 0) {
+            throw new IllegalArgumentException(String.format("Odd number of bytes (%d) for registers", length));
+        }
+        return length;
+    }
+
+    /**
+     * Copy registers of any register array to a new instance
+     *
+     * @param registers registers to copy
+     * @return register array backed by a byte buffer
+     */
+    public static ByteBufferModbusRegisterArray copyOf(ModbusRegisterArray registers) {
+        if (registers instanceof ByteBufferModbusRegisterArray) {
+            return (ByteBufferModbusRegisterArray) registers;
+        }
+        byte[] bytes = new byte[registers.size() * 2];
+        for (int i = 0; i < registers.size(); i++) {
+            int value = registers.getUnsignedShort(i);
+            bytes[2 * i] = (byte) (value >> 8);
+            bytes[2 * i + 1] = (byte) value;
+        }
+        return new ByteBufferModbusRegisterArray(bytes);
+    }
+
+    /**
+     * Get a view of consecutive registers of this array, sharing the underlying buffer
+     *
+     * @param index index of the first register of the view
+     * @param length number of registers in the view
+     * @return register array view
+     * @throws IndexOutOfBoundsException if the view would not be within this array
+     */
+    public ByteBufferModbusRegisterArray slice(int index, int length) {
+        if (index < 0 || length < 0 || index + length > size) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Slice index=%d, length=%d out of bounds for %d registers", index, length, size));
+        }
+        return new ByteBufferModbusRegisterArray(buffer, offset + 2 * index, length);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Register index=%d out of bounds for %d registers", index, size));
+        }
+    }
+
+    @Override
+    public ModbusRegister getRegister(int index) {
+        checkIndex(index);
+        int position = offset + 2 * index;
+        return new BasicModbusRegister(buffer.get(position), buffer.get(position + 1));
+    }
+
+    @Override
+    public int getUnsignedShort(int index) {
+        checkIndex(index);
+        return buffer.getShort(offset + 2 * index) & 0xffff;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        if (size == 0) {
+            return "ByteBufferModbusRegisterArray(<empty>)";
+        }
+        StringBuffer buffer = new StringBuffer(size * 2).append("ByteBufferModbusRegisterArray(");
+        return appendHexString(buffer).append(')').toString();
+    }
+}
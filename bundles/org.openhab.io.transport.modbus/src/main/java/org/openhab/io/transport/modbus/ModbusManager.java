@@ -32,8 +32,11 @@ public interface ModbusManager {
      * Submit one-time poll task. The method returns immediately, and the execution of the poll task will happen in
      * background.
      *
+     * Tasks are executed one at a time per endpoint. Writes are executed before one-time polls, and one-time polls
+     * before regular polls.
+     *
      * @param task
-     * @return future representing the polled task
+     * @return future representing the submission of the task to the queue of the endpoint
      */
     public ScheduledFuture<?> submitOneTimePoll(PollTask task);
 
@@ -41,6 +44,9 @@ public interface ModbusManager {
      * Register regularly polled task. The method returns immediately, and the execution of the poll task will happen in
      * the background.
      *
+     * Implementations may combine tasks sharing the endpoint and poll period into fewer requests. The callback of each
+     * task is still called with the task's own request and data.
+     *
      * @param task
      * @return
      */
@@ -59,8 +65,10 @@ public interface ModbusManager {
      * Submit one-time write task. The method returns immediately, and the execution of the task will happen in
      * background.
      *
+     * Writes take precedence over polls waiting for the same endpoint.
+     *
      * @param task
-     * @return future representing the task
+     * @return future representing the submission of the task to the queue of the endpoint
      */
     public ScheduledFuture<?> submitOneTimeWrite(WriteTask task);
 
@@ -34,4 +34,25 @@ public interface ModbusManagerListener {
     public void onEndpointPoolConfigurationSet(ModbusSlaveEndpoint endpoint,
             @Nullable EndpointPoolConfiguration configuration);
 
+    /**
+     * Called when an operation (read or write) is taken from the queue of the endpoint for execution
+     *
+     * @param endpoint endpoint of the operation
+     * @param lagMillis time the operation waited in the queue
+     * @param queueDepth number of operations still waiting in the queue of the endpoint
+     */
+    public default void onOperationDequeued(ModbusSlaveEndpoint endpoint, long lagMillis, int queueDepth) {
+    }
+
+    /**
+     * Called when an operation is dropped without executing it. This happens when a regular poll is still waiting
+     * in the queue when it is due again, and when the operation has not been executed before its deadline.
+     *
+     * @param endpoint endpoint of the operation
+     * @param lagMillis time the operation waited in the queue
+     * @param queueDepth number of operations waiting in the queue of the endpoint
+     */
+    public default void onOperationDropped(ModbusSlaveEndpoint endpoint, long lagMillis, int queueDepth) {
+    }
+
 }
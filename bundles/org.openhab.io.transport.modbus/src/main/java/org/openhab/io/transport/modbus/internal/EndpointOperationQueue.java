@@ -0,0 +1,241 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queue of the operations of a single endpoint.
+ *
+ * Operations are executed one at a time, in the order of their priority and then in submission order. Only one
+ * operation is handed to the executor at a time, and the next one is handed over once it has finished. This way a
+ * busy endpoint occupies at most one thread, and endpoints sharing the executor take turns.
+ *
+ * Regular polls are submitted with a key: if the previous poll with the same key is still waiting, the new one is
+ * coalesced into it. The waiting poll keeps its deadline, so that a poll which is coalesced again and again still
+ * expires. An operation waiting longer than its deadline is dropped when it comes up for execution.
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@NonNullByDefault
+public class EndpointOperationQueue {
+
+    /**
+     * Priority of an operation, in descending order
+     */
+    public enum Priority {
+        WRITE,
+        ONE_TIME_POLL,
+        REGULAR_POLL
+    }
+
+    /**
+     * Receives the queue metrics
+     */
+    public interface Listener {
+
+        /**
+         * Called when an operation is taken from the queue for execution
+         *
+         * @param lagMillis time the operation waited in the queue
+         * @param queueDepth number of operations still waiting
+         */
+        void onDequeued(long lagMillis, int queueDepth);
+
+        /**
+         * Called when an operation is dropped, because its deadline passed or it was coalesced into a waiting one
+         *
+         * @param lagMillis time the dropped (or the waiting) operation waited in the queue
+         * @param queueDepth number of operations still waiting
+         */
+        void onDropped(long lagMillis, int queueDepth);
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(EndpointOperationQueue.class);
+
+    private final Executor executor;
+    private final Listener listener;
+    private final LongSupplier nanoTime;
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final Map<Object, Entry> waitingByKey = new HashMap<>();
+    private long sequence;
+    private boolean executing;
+
+    public EndpointOperationQueue(Executor executor, Listener listener) {
+        this(executor, listener, System::nanoTime);
+    }
+
+    public EndpointOperationQueue(Executor executor, Listener listener, LongSupplier nanoTime) {
+        this.executor = executor;
+        this.listener = listener;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Queue an operation
+     *
+     * @param priority priority of the operation
+     * @param key key of a regular poll, or <code>null</code> if the operation should never be coalesced
+     * @param deadlineMillis maximum time the operation may wait in the queue. Zero or negative for no deadline.
+     * @param operation the operation
+     * @param onExpired called instead of the operation when the deadline has passed
+     * @return <code>false</code> if the operation was coalesced into an equal waiting operation
+     */
+    public boolean submit(Priority priority, @Nullable Object key, long deadlineMillis, Runnable operation,
+            @Nullable Runnable onExpired) {
+        long now = nanoTime.getAsLong();
+        boolean hasDeadline = deadlineMillis > 0;
+        long deadline = hasDeadline ? now + TimeUnit.MILLISECONDS.toNanos(deadlineMillis) : 0;
+        long waitedMillis;
+        int depth;
+        synchronized (this) {
+            Entry waiting = key == null ? null : waitingByKey.get(key);
+            if (waiting == null) {
+                Entry entry = new Entry(priority, sequence++, key, now, hasDeadline, deadline, operation,
+                        onExpired);
+                queue.add(entry);
+                if (key != null) {
+                    waitingByKey.put(key, entry);
+                }
+                scheduleNext();
+                return true;
+            }
+            // keep the place of the waiting operation, it will do the work of the new one. Its deadline is only
+            // moved forward, never back.
+            if (hasDeadline && (!waiting.hasDeadline || deadline - waiting.deadline < 0)) {
+                waiting.hasDeadline = true;
+                waiting.deadline = deadline;
+            }
+            waitedMillis = TimeUnit.NANOSECONDS.toMillis(now - waiting.enqueued);
+            depth = queue.size();
+        }
+        notifyDropped(waitedMillis, depth);
+        return false;
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    /**
+     * Drop all waiting operations
+     */
+    public synchronized void clear() {
+        queue.clear();
+        waitingByKey.clear();
+    }
+
+    private void scheduleNext() {
+        if (executing || queue.isEmpty()) {
+            return;
+        }
+        executing = true;
+        try {
+            executor.execute(this::executeNext);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Could not execute queued operation: {}", e.getMessage());
+            executing = false;
+        }
+    }
+
+    private void executeNext() {
+        Entry entry;
+        int depth;
+        synchronized (this) {
+            entry = queue.poll();
+            if (entry == null) {
+                executing = false;
+                return;
+            }
+            if (entry.key != null) {
+                waitingByKey.remove(entry.key);
+            }
+            depth = queue.size();
+        }
+        try {
+            long now = nanoTime.getAsLong();
+            long lagMillis = TimeUnit.NANOSECONDS.toMillis(now - entry.enqueued);
+            if (entry.hasDeadline && now - entry.deadline > 0) {
+                notifyDropped(lagMillis, depth);
+                Runnable onExpired = entry.onExpired;
+                if (onExpired != null) {
+                    onExpired.run();
+                }
+            } else {
+                try {
+                    listener.onDequeued(lagMillis, depth);
+                } catch (RuntimeException e) {
+                    logger.warn("Queue listener failed: {}", e.getMessage(), e);
+                }
+                entry.operation.run();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Unexpected error when executing queued operation: {} {}", e.getClass().getName(),
+                    e.getMessage(), e);
+        } finally {
+            synchronized (this) {
+                executing = false;
+                scheduleNext();
+            }
+        }
+    }
+
+    private void notifyDropped(long lagMillis, int depth) {
+        try {
+            listener.onDropped(lagMillis, depth);
+        } catch (RuntimeException e) {
+            logger.warn("Queue listener failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private static class Entry implements Comparable<Entry> {
+        private final Priority priority;
+        private final long sequence;
+        private final @Nullable Object key;
+        private final long enqueued;
+        private final Runnable operation;
+        private final @Nullable Runnable onExpired;
+        private boolean hasDeadline;
+        private long deadline;
+
+        Entry(Priority priority, long sequence, @Nullable Object key, long enqueued, boolean hasDeadline,
+                long deadline, Runnable operation, @Nullable Runnable onExpired) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.key = key;
+            this.enqueued = enqueued;
+            this.hasDeadline = hasDeadline;
+            this.deadline = deadline;
+            this.operation = operation;
+            this.onExpired = onExpired;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int result = priority.compareTo(other.priority);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
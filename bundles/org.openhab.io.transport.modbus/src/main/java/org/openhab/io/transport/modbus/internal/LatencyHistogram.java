@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Histogram of durations in milliseconds, using fixed buckets from 1 ms to 10 s.
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@NonNullByDefault
+public class LatencyHistogram {
+
+    /**
+     * Inclusive upper bounds of the buckets, values above the last bound are counted in an extra bucket
+     */
+    static final long[] BUCKET_BOUNDS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000 };
+
+    private final long[] buckets = new long[BUCKET_BOUNDS_MILLIS.length + 1];
+    private long count;
+    private long totalMillis;
+    private long maxMillis;
+
+    public synchronized void record(long millis) {
+        int index = 0;
+        while (index < BUCKET_BOUNDS_MILLIS.length && millis > BUCKET_BOUNDS_MILLIS[index]) {
+            index++;
+        }
+        buckets[index]++;
+        count++;
+        totalMillis += millis;
+        maxMillis = Math.max(maxMillis, millis);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getMaxMillis() {
+        return maxMillis;
+    }
+
+    public synchronized long getAverageMillis() {
+        return count == 0 ? 0 : totalMillis / count;
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile, or the maximum if the percentile falls
+     * in the last, unbounded bucket
+     *
+     * @param percentile percentile between 0 and 100
+     */
+    public synchronized long getPercentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS_MILLIS[i], maxMillis);
+            }
+        }
+        return maxMillis;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = 0;
+        }
+        count = 0;
+        totalMillis = 0;
+        maxMillis = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("count=%d, avg=%d ms, p50<=%d ms, p90<=%d ms, p99<=%d ms, max=%d ms", count,
+                getAverageMillis(), getPercentileMillis(50), getPercentileMillis(90), getPercentileMillis(99),
+                maxMillis);
+    }
+}
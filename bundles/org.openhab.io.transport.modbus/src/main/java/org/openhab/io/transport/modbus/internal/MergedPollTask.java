@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.io.transport.modbus.BasicBitArray;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ByteBufferModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusSlaveErrorResponseException;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Poll task reading the union of several registered poll tasks with a single request.
+ *
+ * The response is split back into the ranges of the original tasks, and their callbacks are called with their own
+ * requests. Error responses of the slave refusing the address range (illegal data address or value) are not
+ * forwarded, instead the task is marked as rejected so that the manager can fall back to polling the original tasks
+ * one by one.
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@NonNullByDefault
+public class MergedPollTask implements PollTask {
+
+    private final Logger logger = LoggerFactory.getLogger(MergedPollTask.class);
+
+    private final ModbusSlaveEndpoint endpoint;
+    private final BasicModbusReadRequestBlueprint request;
+    private final List<PollTask> tasks;
+    private final SplittingCallback callback = new SplittingCallback();
+    private volatile boolean rejectedBySlave;
+
+    public MergedPollTask(ModbusSlaveEndpoint endpoint, BasicModbusReadRequestBlueprint request, List<PollTask> tasks) {
+        this.endpoint = endpoint;
+        this.request = request;
+        this.tasks = Collections.unmodifiableList(tasks);
+    }
+
+    @Override
+    public ModbusSlaveEndpoint getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public BasicModbusReadRequestBlueprint getRequest() {
+        return request;
+    }
+
+    @Override
+    public ModbusReadCallback getCallback() {
+        return callback;
+    }
+
+    /**
+     * @return the original tasks covered by this task
+     */
+    public List<PollTask> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * @return whether the slave answered the merged request with an explicit error response
+     */
+    public boolean isRejectedBySlave() {
+        return rejectedBySlave;
+    }
+
+    @Override
+    public String toString() {
+        return "MergedPollTask [request=" + request + ", endpoint=" + endpoint + ", tasks=" + tasks.size() + "]";
+    }
+
+    private class SplittingCallback implements ModbusReadCallback {
+
+        @Override
+        public void onRegisters(ModbusReadRequestBlueprint mergedRequest, ModbusRegisterArray registers) {
+            ByteBufferModbusRegisterArray buffered = ByteBufferModbusRegisterArray.copyOf(registers);
+            for (PollTask task : tasks) {
+                ModbusReadCallback taskCallback = task.getCallback();
+                if (taskCallback == null) {
+                    continue;
+                }
+                ModbusReadRequestBlueprint taskRequest = task.getRequest();
+                int offset = taskRequest.getReference() - request.getReference();
+                int length = availableLength(offset, taskRequest.getDataLength(), registers.size());
+                ModbusRegisterArray slice = length == 0 ? buffered.slice(0, 0) : buffered.slice(offset, length);
+                invoke(task, () -> taskCallback.onRegisters(taskRequest, slice));
+            }
+        }
+
+        @Override
+        public void onBits(ModbusReadRequestBlueprint mergedRequest, BitArray bits) {
+            for (PollTask task : tasks) {
+                ModbusReadCallback taskCallback = task.getCallback();
+                if (taskCallback == null) {
+                    continue;
+                }
+                ModbusReadRequestBlueprint taskRequest = task.getRequest();
+                int offset = taskRequest.getReference() - request.getReference();
+                int length = availableLength(offset, taskRequest.getDataLength(), bits.size());
+                BasicBitArray slice = new BasicBitArray(length);
+                for (int i = 0; i < length; i++) {
+                    slice.setBit(i, bits.getBit(offset + i));
+                }
+                invoke(task, () -> taskCallback.onBits(taskRequest, slice));
+            }
+        }
+
+        @Override
+        public void onError(ModbusReadRequestBlueprint mergedRequest, Exception error) {
+            if (isRejection(error)) {
+                logger.debug("Slave {} rejected merged request {}: {}", endpoint, request, error.getMessage());
+                rejectedBySlave = true;
+                return;
+            }
+            for (PollTask task : tasks) {
+                ModbusReadCallback taskCallback = task.getCallback();
+                if (taskCallback != null) {
+                    invoke(task, () -> taskCallback.onError(task.getRequest(), error));
+                }
+            }
+        }
+
+        /**
+         * Whether the slave refused the address range of the merged request, in which case the original requests
+         * might still succeed
+         */
+        private boolean isRejection(Exception error) {
+            if (!(error instanceof ModbusSlaveErrorResponseException)) {
+                return false;
+            }
+            int code = ((ModbusSlaveErrorResponseException) error).getExceptionCode();
+            return code == ModbusSlaveErrorResponseException.ILLEGAL_DATA_ACCESS
+                    || code == ModbusSlaveErrorResponseException.ILLEGAL_DATA_VALUE;
+        }
+
+        /**
+         * Call the callback of a single task, making sure that a failing callback does not prevent the others from
+         * receiving the data
+         */
+        private void invoke(PollTask task, Runnable call) {
+            try {
+                call.run();
+            } catch (RuntimeException e) {
+                logger.warn("Callback of poll task {} failed when processing merged response: {} {}", task,
+                        e.getClass().getName(), e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Slaves may return less data than requested, pass on what was received (as for non-merged requests)
+         */
+        private int availableLength(int offset, int length, int received) {
+            return Math.max(0, Math.min(length, received - offset));
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.ModbusSlaveErrorResponseException;
+import org.openhab.io.transport.modbus.ModbusSlaveIOException;
+import org.openhab.io.transport.modbus.ModbusUnexpectedTransactionIdException;
+
+/**
+ * Timings and error counts of the operations of a single endpoint, collected from the {@link AggregateStopWatch}es of
+ * the executed operations.
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@NonNullByDefault
+public class ModbusEndpointMetrics {
+
+    /**
+     * Time spent waiting in the queue of the endpoint
+     */
+    final LatencyHistogram queueLag = new LatencyHistogram();
+
+    /**
+     * Time spent borrowing, invalidating and returning connections
+     */
+    final LatencyHistogram connection = new LatencyHistogram();
+
+    /**
+     * Time spent in transactions with the slave, including failed tries
+     */
+    final LatencyHistogram transaction = new LatencyHistogram();
+
+    /**
+     * Time spent in callbacks
+     */
+    final LatencyHistogram callback = new LatencyHistogram();
+
+    /**
+     * Total time of the operations
+     */
+    final LatencyHistogram total = new LatencyHistogram();
+
+    final AtomicLong operations = new AtomicLong();
+    final AtomicLong failedOperations = new AtomicLong();
+    final AtomicLong ioErrors = new AtomicLong();
+    final AtomicLong slaveErrors = new AtomicLong();
+    final AtomicLong transactionIdErrors = new AtomicLong();
+    final AtomicLong otherErrors = new AtomicLong();
+    final AtomicLong connectionFailures = new AtomicLong();
+    final AtomicLong reconnects = new AtomicLong();
+    final AtomicLong timeouts = new AtomicLong();
+    final AtomicLong droppedPolls = new AtomicLong();
+
+    /**
+     * Record the timings of a finished operation
+     *
+     * @param timer timer of the operation
+     * @param error error with which the operation finally failed, or <code>null</code>
+     */
+    void recordOperation(AggregateStopWatch timer, @Nullable Exception error) {
+        operations.incrementAndGet();
+        connection.record(timer.connection.getTotalTimeMillis());
+        transaction.record(timer.transaction.getTotalTimeMillis());
+        callback.record(timer.callback.getTotalTimeMillis());
+        total.record(timer.total.getTotalTimeMillis());
+        if (error != null) {
+            failedOperations.incrementAndGet();
+        }
+    }
+
+    /**
+     * Record a failed try of an operation
+     */
+    void recordError(Exception error) {
+        if (error instanceof ModbusSlaveIOException) {
+            ioErrors.incrementAndGet();
+        } else if (error instanceof ModbusSlaveErrorResponseException) {
+            slaveErrors.incrementAndGet();
+        } else if (error instanceof ModbusUnexpectedTransactionIdException) {
+            transactionIdErrors.incrementAndGet();
+        } else {
+            otherErrors.incrementAndGet();
+        }
+    }
+
+    public LatencyHistogram getQueueLag() {
+        return queueLag;
+    }
+
+    public LatencyHistogram getConnection() {
+        return connection;
+    }
+
+    public LatencyHistogram getTransaction() {
+        return transaction;
+    }
+
+    public LatencyHistogram getCallback() {
+        return callback;
+    }
+
+    public LatencyHistogram getTotal() {
+        return total;
+    }
+
+    public long getOperations() {
+        return operations.get();
+    }
+
+    /**
+     * @return number of operations which failed after all tries
+     */
+    public long getFailedOperations() {
+        return failedOperations.get();
+    }
+
+    public long getIoErrors() {
+        return ioErrors.get();
+    }
+
+    public long getSlaveErrors() {
+        return slaveErrors.get();
+    }
+
+    public long getTransactionIdErrors() {
+        return transactionIdErrors.get();
+    }
+
+    public long getOtherErrors() {
+        return otherErrors.get();
+    }
+
+    public long getConnectionFailures() {
+        return connectionFailures.get();
+    }
+
+    /**
+     * @return number of connections invalidated after errors, each causing a reconnect on the next try
+     */
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    /**
+     * @return number of one-time polls and writes aborted because of their deadline
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return number of regular polls dropped because the previous poll was still waiting or not executed in time
+     */
+    public long getDroppedPolls() {
+        return droppedPolls.get();
+    }
+
+    public void reset() {
+        for (LatencyHistogram histogram : new LatencyHistogram[] { queueLag, connection, transaction, callback,
+                total }) {
+            histogram.reset();
+        }
+        for (AtomicLong counter : new AtomicLong[] { operations, failedOperations, ioErrors, slaveErrors,
+                transactionIdErrors, otherErrors, connectionFailures, reconnects, timeouts, droppedPolls }) {
+            counter.set(0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "operations=%d, failed=%d, ioErrors=%d, slaveErrors=%d, transactionIdErrors=%d, otherErrors=%d, connectionFailures=%d, reconnects=%d, timeouts=%d, droppedPolls=%d",
+                getOperations(), getFailedOperations(), getIoErrors(), getSlaveErrors(), getTransactionIdErrors(),
+                getOtherErrors(), getConnectionFailures(), getReconnects(), getTimeouts(), getDroppedPolls());
+    }
+}
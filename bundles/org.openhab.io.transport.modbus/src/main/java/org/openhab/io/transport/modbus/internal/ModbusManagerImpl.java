@@ -13,7 +13,10 @@
 package org.openhab.io.transport.modbus.internal;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
@@ -24,6 +27,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.imageio.IIOException;
@@ -34,6 +38,7 @@ import org.apache.commons.pool2.impl.GenericKeyedObjectPool;
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.config.core.ConfigurableService;
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.openhab.io.transport.modbus.ModbusCallback;
 import org.openhab.io.transport.modbus.ModbusConnectionException;
@@ -54,7 +59,9 @@ import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
 import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpointVisitor;
 import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
 import org.openhab.io.transport.modbus.endpoint.ModbusUDPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.EndpointOperationQueue.Priority;
 import org.openhab.io.transport.modbus.internal.pooling.ModbusSlaveConnectionFactoryImpl;
+import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -79,7 +86,11 @@ import net.wimpi.modbus.net.ModbusSlaveConnection;
  *
  * @author Sami Salonen - Initial contribution
  */
-@Component(service = ModbusManager.class, immediate = true, configurationPid = "transport.modbus")
+@Component(service = ModbusManager.class, immediate = true, configurationPid = "transport.modbus", property = {
+        Constants.SERVICE_PID + "=transport.modbus",
+        ConfigurableService.SERVICE_PROPERTY_DESCRIPTION_URI + "=io:modbus",
+        ConfigurableService.SERVICE_PROPERTY_CATEGORY + "=io",
+        ConfigurableService.SERVICE_PROPERTY_LABEL + "=Modbus Transport" })
 @NonNullByDefault
 public class ModbusManagerImpl implements ModbusManager {
 
@@ -91,6 +102,47 @@ public class ModbusManagerImpl implements ModbusManager {
         private static final long serialVersionUID = 6939730579178506885L;
     }
 
+    private static class PollGroupKey {
+        private final ModbusSlaveEndpoint endpoint;
+        private final long pollPeriodMillis;
+
+        PollGroupKey(ModbusSlaveEndpoint endpoint, long pollPeriodMillis) {
+            this.endpoint = endpoint;
+            this.pollPeriodMillis = pollPeriodMillis;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, pollPeriodMillis);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            PollGroupKey other = (PollGroupKey) obj;
+            return endpoint.equals(other.endpoint) && pollPeriodMillis == other.pollPeriodMillis;
+        }
+    }
+
+    private static class PollGroup {
+        private final PollGroupKey key;
+        private final Set<PollTask> tasks = new CopyOnWriteArraySet<>();
+        /**
+         * Merged requests the slave has responded to with an error response
+         */
+        private final Set<ModbusReadRequestBlueprint> rejected = ConcurrentHashMap.newKeySet();
+        private volatile @Nullable ScheduledFuture<?> future;
+
+        PollGroup(PollGroupKey key) {
+            this.key = key;
+        }
+    }
+
     @FunctionalInterface
     private interface ModbusOperation<T> {
 
@@ -249,6 +301,23 @@ public class ModbusManagerImpl implements ModbusManager {
     private static final long WARN_QUEUE_SIZE = 500;
     private static final long MONITOR_QUEUE_INTERVAL_MILLIS = 10000;
 
+    /**
+     * Configuration parameter for the maximum number of unrequested registers (or coils/discrete inputs) read in
+     * between the ranges of two regular polls in order to merge them into a single request. With zero only overlapping
+     * and adjacent ranges are merged, and negative value (the default) disables merging altogether.
+     */
+    public static final String CONFIG_READ_MERGE_MAX_GAP = "readMergeMaxGap";
+    public static final int DEFAULT_READ_MERGE_MAX_GAP = -1;
+
+    /**
+     * Configuration parameter for the maximum time one-off polls and writes may wait in the queue of the endpoint.
+     * Tasks which are not executed in time are aborted, and their callback is called with a {@link TimeoutException}.
+     * Zero (the default) means no deadline. Regular polls are dropped when they are still waiting after their poll
+     * period.
+     */
+    public static final String CONFIG_TASK_DEADLINE_MILLIS = "taskDeadlineMillis";
+    public static final int DEFAULT_TASK_DEADLINE_MILLIS = 0;
+
     private final PollOperation pollOperation = new PollOperation();
     private final WriteOperation writeOperation = new WriteOperation();
 
@@ -276,6 +345,18 @@ public class ModbusManagerImpl implements ModbusManager {
     private volatile Collection<ModbusManagerListener> listeners = new CopyOnWriteArraySet<>();
     @Nullable
     private volatile ScheduledFuture<?> monitorFuture;
+    /**
+     * Regular polls sharing endpoint and poll period, executed together so that their reads can be merged
+     */
+    private final Map<PollGroupKey, PollGroup> pollGroups = new ConcurrentHashMap<>();
+    private final Map<PollTask, PollGroup> pollTaskGroups = new ConcurrentHashMap<>();
+    private volatile int readMergeMaxGap = DEFAULT_READ_MERGE_MAX_GAP;
+    /**
+     * Operations waiting for execution, per endpoint
+     */
+    private final Map<ModbusSlaveEndpoint, EndpointOperationQueue> endpointQueues = new ConcurrentHashMap<>();
+    private final Map<ModbusSlaveEndpoint, ModbusEndpointMetrics> endpointMetrics = new ConcurrentHashMap<>();
+    private volatile long taskDeadlineMillis = DEFAULT_TASK_DEADLINE_MILLIS;
 
     private void constructConnectionPool() {
         ModbusSlaveConnectionFactoryImpl connectionFactory = new ModbusSlaveConnectionFactoryImpl();
@@ -361,6 +442,7 @@ public class ModbusManagerImpl implements ModbusManager {
         }
         long start = System.currentTimeMillis();
         connection.ifPresent(con -> {
+            getMetrics(endpoint).reconnects.incrementAndGet();
             try {
                 pool.invalidateObject(endpoint, con);
             } catch (Exception e) {
@@ -429,6 +511,7 @@ public class ModbusManagerImpl implements ModbusManager {
         if (!connection.isPresent()) {
             logger.warn("Could not connect to endpoint {} -- aborting request {} [operation ID {}]", endpoint, request,
                     operationId);
+            getMetrics(endpoint).connectionFailures.incrementAndGet();
             if (callback != null) {
                 timer.callback.timeRunnable(
                         () -> invokeCallbackWithError(request, callback, new ModbusConnectionException(endpoint)));
@@ -468,7 +551,14 @@ public class ModbusManagerImpl implements ModbusManager {
     }
 
     private void verifyTaskIsRegistered(PollTask task) throws PollTaskUnregistered {
-        if (!this.scheduledPollTasks.containsKey(task)) {
+        boolean registered;
+        if (task instanceof MergedPollTask) {
+            // merged read is still useful as long as one of the original tasks is registered
+            registered = ((MergedPollTask) task).getTasks().stream().anyMatch(this.scheduledPollTasks::containsKey);
+        } else {
+            registered = this.scheduledPollTasks.containsKey(task);
+        }
+        if (!registered) {
             String msg = String.format("Poll task %s is unregistered", task);
             logger.debug(msg);
             throw new PollTaskUnregistered(msg);
@@ -656,6 +746,10 @@ public class ModbusManagerImpl implements ModbusManager {
                     continue;
                 } finally {
                     lastTryMillis = System.currentTimeMillis();
+                    Exception tryError = lastError.get();
+                    if (tryError != null) {
+                        getMetrics(endpoint).recordError(tryError);
+                    }
                     // Connection was reseted in error handling and needs to be reconnected.
                     // Try to re-establish connection.
                     if (willRetry && !connection.isPresent()) {
@@ -686,6 +780,7 @@ public class ModbusManagerImpl implements ModbusManager {
             timer.connection.timeConsumer(c -> returnConnection(endpoint, c), connection);
             logger.trace("Connection was returned to the pool, ending operation [operation ID {}]", operationId);
             timer.suspendAllRunning();
+            getMetrics(endpoint).recordOperation(timer, lastError.get());
             logger.debug("Modbus operation ended, timing info: {} [operation ID {}]", timer, operationId);
         }
     }
@@ -697,10 +792,13 @@ public class ModbusManagerImpl implements ModbusManager {
         long scheduleTime = System.currentTimeMillis();
         logger.debug("Scheduling one-off poll task {}", task);
         ScheduledFuture<?> future = executor.schedule(() -> {
-            long millisInThreadPoolWaiting = System.currentTimeMillis() - scheduleTime;
-            logger.debug("Will now execute one-off poll task {}, waited in thread pool for {}", task,
-                    millisInThreadPoolWaiting);
-            executeOperation(task, true, pollOperation);
+            getEndpointQueue(executor, task.getEndpoint()).submit(Priority.ONE_TIME_POLL, null, taskDeadlineMillis,
+                    () -> {
+                        long millisInThreadPoolWaiting = System.currentTimeMillis() - scheduleTime;
+                        logger.debug("Will now execute one-off poll task {}, waited in queue for {}", task,
+                                millisInThreadPoolWaiting);
+                        executeOperation(task, true, pollOperation);
+                    }, () -> abortExpiredTask(task, scheduleTime));
         }, 0L, TimeUnit.MILLISECONDS);
         return future;
     }
@@ -716,16 +814,22 @@ public class ModbusManagerImpl implements ModbusManager {
                 logger.trace("Unregistering previous poll task (possibly with different period)");
                 unregisterRegularPoll(task);
             }
-            ScheduledFuture<?> future = executor.scheduleWithFixedDelay(() -> {
-                long started = System.currentTimeMillis();
-                logger.debug("Executing scheduled ({}ms) poll task {}. Current millis: {}", pollPeriodMillis, task,
-                        started);
-                executeOperation(task, false, pollOperation);
-                long finished = System.currentTimeMillis();
-                logger.debug(
-                        "Execution of scheduled ({}ms) poll task {} finished at {}. Was started at millis: {} (=duration of {} millis)",
-                        pollPeriodMillis, task, finished, started, finished - started);
-            }, initialDelayMillis, pollPeriodMillis, TimeUnit.MILLISECONDS);
+            ScheduledFuture<?> future;
+            if (readMergeMaxGap < 0) {
+                future = executor.scheduleWithFixedDelay(
+                        () -> submitRegularPoll(executor, task.getEndpoint(), task, pollPeriodMillis, () -> {
+                            long started = System.currentTimeMillis();
+                            logger.debug("Executing scheduled ({}ms) poll task {}. Current millis: {}",
+                                    pollPeriodMillis, task, started);
+                            executeOperation(task, false, pollOperation);
+                            long finished = System.currentTimeMillis();
+                            logger.debug(
+                                    "Execution of scheduled ({}ms) poll task {} finished at {}. Was started at millis: {} (=duration of {} millis)",
+                                    pollPeriodMillis, task, finished, started, finished - started);
+                        }), initialDelayMillis, pollPeriodMillis, TimeUnit.MILLISECONDS);
+            } else {
+                future = addToPollGroup(executor, task, pollPeriodMillis, initialDelayMillis);
+            }
 
             scheduledPollTasks.put(task, future);
             logger.trace("Registered poll task {} with period {} using initial delay {}", task, pollPeriodMillis,
@@ -733,6 +837,162 @@ public class ModbusManagerImpl implements ModbusManager {
         }
     }
 
+    /**
+     * Add the task to the group of tasks polled with the same period from the same endpoint, scheduling the group if
+     * this is its first task. Tasks joining an existing group are polled on the next execution of the group, the
+     * initial delay is ignored.
+     *
+     * @return future of the group
+     */
+    private ScheduledFuture<?> addToPollGroup(ScheduledExecutorService executor, PollTask task, long pollPeriodMillis,
+            long initialDelayMillis) {
+        PollGroupKey key = new PollGroupKey(task.getEndpoint(), pollPeriodMillis);
+        PollGroup group = pollGroups.get(key);
+        ScheduledFuture<?> future;
+        if (group == null) {
+            PollGroup newGroup = group = new PollGroup(key);
+            future = executor.scheduleWithFixedDelay(() -> submitPollGroup(executor, newGroup), initialDelayMillis,
+                    pollPeriodMillis, TimeUnit.MILLISECONDS);
+            newGroup.future = future;
+            pollGroups.put(key, newGroup);
+        } else {
+            future = Objects.requireNonNull(group.future);
+        }
+        group.tasks.add(task);
+        pollTaskGroups.put(task, group);
+        return future;
+    }
+
+    /**
+     * Queue the polls of all tasks of the group, merging the reads of tasks with nearby ranges
+     *
+     * Each (merged) read is queued on its own, so that writes and one-off polls of the endpoint can be executed in
+     * between.
+     */
+    private void submitPollGroup(ScheduledExecutorService executor, PollGroup group) {
+        List<PollTask> tasks = PollTaskMerger.merge(group.tasks, readMergeMaxGap, group.rejected);
+        logger.debug("Queueing scheduled ({}ms) poll of {} tasks with {} requests to endpoint {}",
+                group.key.pollPeriodMillis, group.tasks.size(), tasks.size(), group.key.endpoint);
+        for (PollTask task : tasks) {
+            // merged tasks are created anew for every poll, their request identifies them
+            Object key = task instanceof MergedPollTask ? Arrays.asList(group.key, task.getRequest()) : task;
+            submitRegularPoll(executor, group.key.endpoint, key, group.key.pollPeriodMillis,
+                    () -> executeGroupedPoll(executor, group, task));
+        }
+    }
+
+    /**
+     * Poll a (merged) task of the group
+     *
+     * If the slave responds to a merged read with an error response (e.g. due to unmapped registers in between), the
+     * original tasks are polled separately instead, now and in the future.
+     */
+    private void executeGroupedPoll(ScheduledExecutorService executor, PollGroup group, PollTask task) {
+        long pollPeriodMillis = group.key.pollPeriodMillis;
+        long started = System.currentTimeMillis();
+        logger.debug("Executing scheduled ({}ms) poll task {}. Current millis: {}", pollPeriodMillis, task, started);
+        executeOperation(task, false, pollOperation);
+        long finished = System.currentTimeMillis();
+        logger.debug(
+                "Execution of scheduled ({}ms) poll task {} finished at {}. Was started at millis: {} (=duration of {} millis)",
+                pollPeriodMillis, task, finished, started, finished - started);
+
+        if (task instanceof MergedPollTask && ((MergedPollTask) task).isRejectedBySlave()) {
+            MergedPollTask mergedTask = (MergedPollTask) task;
+            logger.info("Slave {} does not accept the merged read {}, polling the {} original tasks separately",
+                    group.key.endpoint, mergedTask.getRequest(), mergedTask.getTasks().size());
+            group.rejected.add(mergedTask.getRequest());
+            for (PollTask original : mergedTask.getTasks()) {
+                submitRegularPoll(executor, group.key.endpoint, original, pollPeriodMillis,
+                        () -> executeGroupedPoll(executor, group, original));
+            }
+        }
+    }
+
+    private EndpointOperationQueue getEndpointQueue(ScheduledExecutorService executor, ModbusSlaveEndpoint endpoint) {
+        return endpointQueues.computeIfAbsent(endpoint,
+                key -> new EndpointOperationQueue(executor, new EndpointOperationQueue.Listener() {
+
+                    @Override
+                    public void onDequeued(long lagMillis, int queueDepth) {
+                        getMetrics(endpoint).queueLag.record(lagMillis);
+                        for (ModbusManagerListener listener : listeners) {
+                            listener.onOperationDequeued(endpoint, lagMillis, queueDepth);
+                        }
+                    }
+
+                    @Override
+                    public void onDropped(long lagMillis, int queueDepth) {
+                        for (ModbusManagerListener listener : listeners) {
+                            listener.onOperationDropped(endpoint, lagMillis, queueDepth);
+                        }
+                    }
+                }));
+    }
+
+    /**
+     * Queue a regular poll, unless the previous poll with the same key is still waiting for execution
+     *
+     * The poll is dropped if it is still waiting when the next one is due.
+     */
+    private void submitRegularPoll(ScheduledExecutorService executor, ModbusSlaveEndpoint endpoint, Object key,
+            long pollPeriodMillis, Runnable poll) {
+        boolean queued = getEndpointQueue(executor, endpoint).submit(Priority.REGULAR_POLL, key, pollPeriodMillis,
+                poll, () -> {
+                    logger.debug("Scheduled ({}ms) poll {} was not executed in time, dropping it", pollPeriodMillis,
+                            key);
+                    getMetrics(endpoint).droppedPolls.incrementAndGet();
+                });
+        if (!queued) {
+            getMetrics(endpoint).droppedPolls.incrementAndGet();
+            logger.debug("Previous scheduled ({}ms) poll {} is still waiting for endpoint {}", pollPeriodMillis, key,
+                    endpoint);
+        }
+    }
+
+    private <R extends ModbusRequestBlueprint, C extends ModbusCallback> void abortExpiredTask(
+            TaskWithEndpoint<R, C> task, long scheduleTime) {
+        long waited = System.currentTimeMillis() - scheduleTime;
+        logger.warn("Task {} waited {} ms for endpoint {}, exceeding the deadline of {} ms. Aborting the task.", task,
+                waited, task.getEndpoint(), taskDeadlineMillis);
+        getMetrics(task.getEndpoint()).timeouts.incrementAndGet();
+        C callback = task.getCallback();
+        if (callback != null) {
+            invokeCallbackWithError(task.getRequest(), callback,
+                    new TimeoutException(String.format("Task was not executed within %d ms", taskDeadlineMillis)));
+        }
+    }
+
+    private ModbusEndpointMetrics getMetrics(ModbusSlaveEndpoint endpoint) {
+        return endpointMetrics.computeIfAbsent(endpoint, key -> new ModbusEndpointMetrics());
+    }
+
+    /**
+     * Get the timings and error counts of all endpoints which have been communicated with
+     *
+     * @return metrics per endpoint
+     */
+    public Map<ModbusSlaveEndpoint, ModbusEndpointMetrics> getEndpointMetrics() {
+        return Collections.unmodifiableMap(endpointMetrics);
+    }
+
+    public void resetEndpointMetrics() {
+        endpointMetrics.values().forEach(ModbusEndpointMetrics::reset);
+    }
+
+    private int parseInt(Map<String, Object> config, String key, int defaultValue) {
+        Object value = config.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid value '{}' for {}, using default {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
     @SuppressWarnings({ "null", "unused" })
     @Override
     public boolean unregisterRegularPoll(PollTask task) {
@@ -756,7 +1016,16 @@ public class ModbusManagerImpl implements ModbusManager {
             // is usually pretty soon as transactions should be relatively short-lived)
             factory.disconnectOnReturn(task.getEndpoint(), System.currentTimeMillis());
 
-            future.cancel(true);
+            PollGroup group = pollTaskGroups.remove(task);
+            if (group != null) {
+                group.tasks.remove(task);
+                if (group.tasks.isEmpty()) {
+                    pollGroups.remove(group.key);
+                    future.cancel(true);
+                }
+            } else {
+                future.cancel(true);
+            }
 
             logger.info("Poll task {} canceled", task);
 
@@ -782,10 +1051,13 @@ public class ModbusManagerImpl implements ModbusManager {
         long scheduleTime = System.currentTimeMillis();
         logger.debug("Scheduling one-off write task {}", task);
         ScheduledFuture<?> future = scheduledThreadPoolExecutor.schedule(() -> {
-            long millisInThreadPoolWaiting = System.currentTimeMillis() - scheduleTime;
-            logger.debug("Will now execute one-off write task {}, waited in thread pool for {}", task,
-                    millisInThreadPoolWaiting);
-            executeOperation(task, true, writeOperation);
+            getEndpointQueue(scheduledThreadPoolExecutor, task.getEndpoint()).submit(Priority.WRITE, null,
+                    taskDeadlineMillis, () -> {
+                        long millisInThreadPoolWaiting = System.currentTimeMillis() - scheduleTime;
+                        logger.debug("Will now execute one-off write task {}, waited in queue for {}", task,
+                                millisInThreadPoolWaiting);
+                        executeOperation(task, true, writeOperation);
+                    }, () -> abortExpiredTask(task, scheduleTime));
         }, 0L, TimeUnit.MILLISECONDS);
         return future;
     }
@@ -825,6 +1097,8 @@ public class ModbusManagerImpl implements ModbusManager {
     protected void activate(Map<String, Object> configProperties) {
         synchronized (this) {
             logger.info("Modbus manager activated");
+            readMergeMaxGap = parseInt(configProperties, CONFIG_READ_MERGE_MAX_GAP, DEFAULT_READ_MERGE_MAX_GAP);
+            taskDeadlineMillis = parseInt(configProperties, CONFIG_TASK_DEADLINE_MILLIS, DEFAULT_TASK_DEADLINE_MILLIS);
             if (connectionPool == null) {
                 constructConnectionPool();
             }
@@ -855,6 +1129,10 @@ public class ModbusManagerImpl implements ModbusManager {
                 connectionPool.close();
                 this.connectionPool = connectionPool = null;
             }
+            pollGroups.clear();
+            pollTaskGroups.clear();
+            endpointQueues.values().forEach(EndpointOperationQueue::clear);
+            endpointQueues.clear();
 
             if (monitorFuture != null) {
                 monitorFuture.cancel(true);
@@ -898,6 +1176,15 @@ public class ModbusManagerImpl implements ModbusManager {
                             executor.getQueue().size());
                 }
             }
+            this.endpointQueues.forEach((endpoint, queue) -> {
+                int size = queue.size();
+                pollMonitorLogger.trace("POLL MONITOR: endpoint {} queue size: {}", endpoint, size);
+                if (size >= WARN_QUEUE_SIZE) {
+                    pollMonitorLogger.warn(
+                            "Many ({}) tasks queued for endpoint {}! This might be sign of bad design or bug in the binding code.",
+                            size, endpoint);
+                }
+            });
 
             pollMonitorLogger.trace("</POLL MONITOR>");
         }
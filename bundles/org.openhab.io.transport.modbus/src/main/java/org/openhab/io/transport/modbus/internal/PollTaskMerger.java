@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+
+import net.wimpi.modbus.Modbus;
+
+/**
+ * Plans the requests for a set of poll tasks, merging the reads of tasks with overlapping or nearby ranges into a
+ * single {@link MergedPollTask}.
+ *
+ * Only tasks with the same endpoint, unit id and function code are merged, and the merged read never exceeds the
+ * maximum amount of data allowed in a single Modbus response (125 registers or 2000 bits).
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@NonNullByDefault
+public class PollTaskMerger {
+
+    /**
+     * Maximum number of registers in a single read request (function codes 3 and 4)
+     */
+    public static final int MAX_REGISTERS_PER_READ = 125;
+
+    /**
+     * Maximum number of coils or discrete inputs in a single read request (function codes 1 and 2)
+     */
+    public static final int MAX_BITS_PER_READ = 2000;
+
+    /**
+     * Merge the given tasks
+     *
+     * @param tasks tasks to plan the reads for
+     * @param maxGap maximum number of unrequested registers (or bits) to read in between two ranges in order to
+     *            merge them. With zero only overlapping and adjacent ranges are merged.
+     * @param rejected merged requests which the slave has answered with an error response earlier. Tasks of such
+     *            requests are returned as such.
+     * @return tasks to execute, either original tasks or {@link MergedPollTask}s covering several original tasks
+     */
+    public static List<PollTask> merge(Collection<PollTask> tasks, int maxGap,
+            Set<ModbusReadRequestBlueprint> rejected) {
+        Map<MergeKey, List<PollTask>> groups = new LinkedHashMap<>();
+        List<PollTask> result = new ArrayList<>(tasks.size());
+        for (PollTask task : tasks) {
+            if (task.getRequest().getProtocolID() != Modbus.DEFAULT_PROTOCOL_ID) {
+                // merged request would not carry the custom protocol id
+                result.add(task);
+                continue;
+            }
+            groups.computeIfAbsent(new MergeKey(task), key -> new ArrayList<>()).add(task);
+        }
+        for (List<PollTask> group : groups.values()) {
+            group.sort(Comparator.comparingInt((PollTask task) -> task.getRequest().getReference())
+                    .thenComparingInt(task -> task.getRequest().getDataLength()));
+            mergeSorted(group, maxGap, rejected, result);
+        }
+        return result;
+    }
+
+    private static void mergeSorted(List<PollTask> sorted, int maxGap, Set<ModbusReadRequestBlueprint> rejected,
+            List<PollTask> result) {
+        List<PollTask> current = new ArrayList<>();
+        int start = 0;
+        int end = 0;
+        for (PollTask task : sorted) {
+            ModbusReadRequestBlueprint request = task.getRequest();
+            int taskStart = request.getReference();
+            int taskEnd = taskStart + request.getDataLength();
+            int maxLength = maxLength(request.getFunctionCode());
+            if (!current.isEmpty() && taskStart <= end + maxGap && Math.max(end, taskEnd) - start <= maxLength) {
+                current.add(task);
+                end = Math.max(end, taskEnd);
+                continue;
+            }
+            flush(current, start, end, rejected, result);
+            current = new ArrayList<>();
+            current.add(task);
+            start = taskStart;
+            end = taskEnd;
+        }
+        flush(current, start, end, rejected, result);
+    }
+
+    private static void flush(List<PollTask> current, int start, int end, Set<ModbusReadRequestBlueprint> rejected,
+            List<PollTask> result) {
+        if (current.size() <= 1) {
+            result.addAll(current);
+            return;
+        }
+        PollTask first = current.get(0);
+        ModbusReadRequestBlueprint firstRequest = first.getRequest();
+        int maxTries = current.stream().mapToInt(task -> task.getMaxTries()).max().orElse(1);
+        BasicModbusReadRequestBlueprint merged = new BasicModbusReadRequestBlueprint(firstRequest.getUnitID(),
+                firstRequest.getFunctionCode(), start, end - start, maxTries);
+        if (rejected.contains(merged)) {
+            result.addAll(current);
+        } else {
+            result.add(new MergedPollTask(first.getEndpoint(), merged, current));
+        }
+    }
+
+    private static int maxLength(ModbusReadFunctionCode functionCode) {
+        switch (functionCode) {
+            case READ_COILS:
+            case READ_INPUT_DISCRETES:
+                return MAX_BITS_PER_READ;
+            default:
+                return MAX_REGISTERS_PER_READ;
+        }
+    }
+
+    private static class MergeKey {
+        private final ModbusSlaveEndpoint endpoint;
+        private final int unitId;
+        private final ModbusReadFunctionCode functionCode;
+
+        MergeKey(PollTask task) {
+            this.endpoint = task.getEndpoint();
+            this.unitId = task.getRequest().getUnitID();
+            this.functionCode = task.getRequest().getFunctionCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, unitId, functionCode);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            MergeKey other = (MergeKey) obj;
+            return endpoint.equals(other.endpoint) && unitId == other.unitId && functionCode == other.functionCode;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.internal.console;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.smarthome.io.console.Console;
+import org.eclipse.smarthome.io.console.extensions.AbstractConsoleCommandExtension;
+import org.eclipse.smarthome.io.console.extensions.ConsoleCommandExtension;
+import org.openhab.io.transport.modbus.ModbusManager;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointMetrics;
+import org.openhab.io.transport.modbus.internal.ModbusManagerImpl;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Console commands for inspecting the timings and error counts of the Modbus endpoints
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+@NonNullByDefault
+@Component(service = ConsoleCommandExtension.class)
+public class ModbusConsoleCommandExtension extends AbstractConsoleCommandExtension {
+
+    private static final String CMD_METRICS = "metrics";
+    private static final String ARG_RESET = "reset";
+
+    private final ModbusManager manager;
+
+    @Activate
+    public ModbusConsoleCommandExtension(final @Reference ModbusManager manager) {
+        super("modbus", "Inspect the Modbus transport.");
+        this.manager = manager;
+    }
+
+    @Override
+    public void execute(String[] args, Console console) {
+        if (args.length == 0 || !CMD_METRICS.equals(args[0])) {
+            printUsage(console);
+            return;
+        }
+        if (!(manager instanceof ModbusManagerImpl)) {
+            console.println("Metrics are not available from " + manager.getClass().getName());
+            return;
+        }
+        ModbusManagerImpl managerImpl = (ModbusManagerImpl) manager;
+        if (args.length > 1 && ARG_RESET.equals(args[1])) {
+            managerImpl.resetEndpointMetrics();
+            console.println("Metrics reset");
+            return;
+        }
+        Map<ModbusSlaveEndpoint, ModbusEndpointMetrics> metrics = managerImpl.getEndpointMetrics();
+        if (metrics.isEmpty()) {
+            console.println("No operations executed");
+            return;
+        }
+        metrics.forEach((endpoint, endpointMetrics) -> {
+            console.println(endpoint.toString());
+            console.println("  " + endpointMetrics);
+            console.println("  queue lag:   " + endpointMetrics.getQueueLag());
+            console.println("  connection:  " + endpointMetrics.getConnection());
+            console.println("  transaction: " + endpointMetrics.getTransaction());
+            console.println("  callback:    " + endpointMetrics.getCallback());
+            console.println("  total:       " + endpointMetrics.getTotal());
+        });
+    }
+
+    @Override
+    public List<String> getUsages() {
+        return Arrays.asList(buildCommandUsage(CMD_METRICS + " [" + ARG_RESET + "]",
+                "lists the timings and error counts per endpoint, or resets them"));
+    }
+}
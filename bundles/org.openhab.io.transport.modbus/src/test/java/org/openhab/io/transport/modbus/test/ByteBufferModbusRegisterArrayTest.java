@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.ByteBufferModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusBitUtilities;
+import org.openhab.io.transport.modbus.ModbusConstants.ValueType;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class ByteBufferModbusRegisterArrayTest {
+
+    private static final byte[] BYTES = { 0x12, 0x34, (byte) 0xff, (byte) 0xfe, 0x40, 0x49, 0x0f, (byte) 0xdb };
+
+    @Test
+    public void testRegisters() {
+        ModbusRegisterArray registers = new ByteBufferModbusRegisterArray(BYTES);
+
+        assertThat(registers.size(), is(equalTo(4)));
+        assertThat(registers.getUnsignedShort(0), is(equalTo(0x1234)));
+        assertThat(registers.getUnsignedShort(1), is(equalTo(0xfffe)));
+        assertThat(registers.getRegister(1).toUnsignedShort(), is(equalTo(0xfffe)));
+        assertThat(registers.toHexString(), is(equalTo("12 34 ff fe 40 49 0f db")));
+    }
+
+    @Test
+    public void testSliceSharesData() {
+        ByteBufferModbusRegisterArray registers = new ByteBufferModbusRegisterArray(BYTES);
+        ModbusRegisterArray slice = registers.slice(2, 2);
+
+        assertThat(slice.size(), is(equalTo(2)));
+        assertThat(slice.getUnsignedShort(0), is(equalTo(0x4049)));
+        assertThat(ModbusBitUtilities.extractFloatFromRegisters(slice, 0, ValueType.FLOAT32),
+                is(equalTo((float) Math.PI)));
+        assertThat(registers.slice(1, 2).slice(1, 1).getUnsignedShort(0), is(equalTo(0x4049)));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testSliceOutOfBounds() {
+        new ByteBufferModbusRegisterArray(BYTES).slice(3, 2);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfSlice() {
+        new ByteBufferModbusRegisterArray(BYTES).slice(0, 2).getUnsignedShort(2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOddNumberOfBytes() {
+        new ByteBufferModbusRegisterArray(new byte[3]);
+    }
+
+    @Test
+    public void testCopyOf() {
+        ModbusRegisterArray registers = ByteBufferModbusRegisterArray
+                .copyOf(new BasicModbusRegisterArray(0x1234, 0xfffe));
+
+        assertThat(registers.toHexString(), is(equalTo("12 34 ff fe")));
+    }
+
+    @Test
+    public void testPrimitiveExtractors() {
+        ModbusRegisterArray registers = new ByteBufferModbusRegisterArray(BYTES);
+
+        assertThat(ModbusBitUtilities.extractLongFromRegisters(registers, 1, ValueType.INT16), is(equalTo(-2L)));
+        assertThat(ModbusBitUtilities.extractLongFromRegisters(registers, 1, ValueType.UINT16), is(equalTo(65534L)));
+        assertThat(ModbusBitUtilities.extractLongFromRegisters(registers, 0, ValueType.INT32_SWAP),
+                is(equalTo((long) 0xfffe1234)));
+        assertThat(ModbusBitUtilities.extractLongFromRegisters(registers, 0, ValueType.UINT32_SWAP),
+                is(equalTo(0xfffe1234L)));
+        assertThat(ModbusBitUtilities.extractLongFromRegisters(registers, 0, ValueType.UINT64),
+                is(equalTo(0x1234fffe40490fdbL)));
+        assertThat(ModbusBitUtilities.extractLongFromRegisters(registers, 0, ValueType.INT64_SWAP),
+                is(equalTo(0x0fdb4049fffe1234L)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLongExtractorRejectsFloat() {
+        ModbusBitUtilities.extractLongFromRegisters(new ByteBufferModbusRegisterArray(BYTES), 0, ValueType.FLOAT32);
+    }
+}
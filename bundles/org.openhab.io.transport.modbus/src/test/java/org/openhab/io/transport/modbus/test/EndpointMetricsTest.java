@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.endpoint.EndpointPoolConfiguration;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ModbusEndpointMetrics;
+
+import net.wimpi.modbus.procimg.SimpleRegister;
+
+/**
+ * Tests the metrics the manager records per endpoint, against a real slave
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+public class EndpointMetricsTest extends IntegrationTestSupport {
+
+    private static class CountingCallback implements ModbusReadCallback {
+        private final CountDownLatch called = new CountDownLatch(1);
+
+        @Override
+        public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+            called.countDown();
+        }
+
+        @Override
+        public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+            called.countDown();
+        }
+
+        @Override
+        public void onError(ModbusReadRequestBlueprint request, Exception error) {
+            called.countDown();
+        }
+    }
+
+    private void poll(ModbusSlaveEndpoint endpoint, int maxTries) throws InterruptedException {
+        CountingCallback callback = new CountingCallback();
+        modbusManager.submitOneTimePoll(new BasicPollTaskImpl(endpoint, new BasicModbusReadRequestBlueprint(
+                SLAVE_UNIT_ID, ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 0, 5, maxTries), callback));
+        assertTrue(callback.called.await(5, TimeUnit.SECONDS));
+    }
+
+    private ModbusEndpointMetrics waitForOperations(ModbusSlaveEndpoint endpoint, long operations) {
+        // the operation is recorded after its callback has been called
+        waitForAssert(() -> {
+            ModbusEndpointMetrics metrics = modbusManager.getEndpointMetrics().get(endpoint);
+            assertNotNull(metrics);
+            assertThat(metrics.getOperations(), is(equalTo(operations)));
+        }, 5000, 10);
+        return modbusManager.getEndpointMetrics().get(endpoint);
+    }
+
+    @Test
+    public void successfulOperationsAreRecorded() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            spi.addRegister(new SimpleRegister(i));
+        }
+        ModbusSlaveEndpoint endpoint = getEndpoint();
+
+        poll(endpoint, 1);
+        poll(endpoint, 1);
+
+        ModbusEndpointMetrics metrics = waitForOperations(endpoint, 2);
+        assertThat(metrics.getFailedOperations(), is(equalTo(0L)));
+        assertThat(metrics.getSlaveErrors(), is(equalTo(0L)));
+        assertThat(metrics.getIoErrors(), is(equalTo(0L)));
+        assertThat(metrics.getConnectionFailures(), is(equalTo(0L)));
+        assertThat(metrics.getTransaction().getCount(), is(equalTo(2L)));
+        assertThat(metrics.getTotal().getCount(), is(equalTo(2L)));
+        assertThat(metrics.getQueueLag().getCount(), is(equalTo(2L)));
+    }
+
+    @Test
+    public void slaveErrorsAreRecordedPerTry() throws InterruptedException {
+        // no registers, the slave responds with illegal data address
+        ModbusSlaveEndpoint endpoint = getEndpoint();
+
+        poll(endpoint, 2);
+
+        ModbusEndpointMetrics metrics = waitForOperations(endpoint, 1);
+        assertThat(metrics.getFailedOperations(), is(equalTo(1L)));
+        assertThat(metrics.getSlaveErrors(), is(equalTo(2L)));
+        assertThat(metrics.getIoErrors(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void connectionFailuresAreRecorded() throws InterruptedException {
+        // non-responding slave, see SmokeTest.testSlaveConnectionError
+        ModbusSlaveEndpoint endpoint = new ModbusTCPSlaveEndpoint("10.255.255.1", 9999);
+        EndpointPoolConfiguration configuration = new EndpointPoolConfiguration();
+        configuration.setConnectTimeoutMillis(100);
+        modbusManager.setEndpointPoolConfiguration(endpoint, configuration);
+
+        poll(endpoint, 1);
+
+        waitForAssert(() -> {
+            ModbusEndpointMetrics metrics = modbusManager.getEndpointMetrics().get(endpoint);
+            assertNotNull(metrics);
+            assertThat(metrics.getConnectionFailures(), is(equalTo(1L)));
+        }, 5000, 10);
+    }
+
+    @Test
+    public void metricsAreReset() throws InterruptedException {
+        ModbusSlaveEndpoint endpoint = getEndpoint();
+        poll(endpoint, 1);
+        ModbusEndpointMetrics metrics = waitForOperations(endpoint, 1);
+
+        modbusManager.resetEndpointMetrics();
+
+        assertThat(metrics.getOperations(), is(equalTo(0L)));
+        assertThat(metrics.getFailedOperations(), is(equalTo(0L)));
+        assertThat(metrics.getSlaveErrors(), is(equalTo(0L)));
+        assertThat(metrics.getTotal().getCount(), is(equalTo(0L)));
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.internal.EndpointOperationQueue;
+import org.openhab.io.transport.modbus.internal.EndpointOperationQueue.Priority;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class EndpointOperationQueueTest {
+
+    private final LinkedList<Runnable> executor = new LinkedList<>();
+    private final AtomicLong nanoTime = new AtomicLong();
+    private final List<String> executed = new ArrayList<>();
+    private final List<Long> dequeuedLags = new ArrayList<>();
+    private final List<Long> droppedLags = new ArrayList<>();
+
+    private EndpointOperationQueue queue;
+
+    @Before
+    public void setUp() {
+        queue = new EndpointOperationQueue(executor::add, new EndpointOperationQueue.Listener() {
+
+            @Override
+            public void onDequeued(long lagMillis, int queueDepth) {
+                dequeuedLags.add(lagMillis);
+            }
+
+            @Override
+            public void onDropped(long lagMillis, int queueDepth) {
+                droppedLags.add(lagMillis);
+            }
+        }, nanoTime::get);
+    }
+
+    private Runnable record(String name) {
+        return () -> executed.add(name);
+    }
+
+    private void runAll() {
+        while (!executor.isEmpty()) {
+            executor.poll().run();
+        }
+    }
+
+    private void advance(long millis) {
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    public void testWritesArePrioritized() {
+        queue.submit(Priority.REGULAR_POLL, "poll", 0, record("poll"), null);
+        queue.submit(Priority.ONE_TIME_POLL, null, 0, record("one-time"), null);
+        queue.submit(Priority.WRITE, null, 0, record("write1"), null);
+        queue.submit(Priority.WRITE, null, 0, record("write2"), null);
+
+        runAll();
+
+        assertThat(executed, is(equalTo(Arrays.asList("write1", "write2", "one-time", "poll"))));
+    }
+
+    @Test
+    public void testOneOperationAtATime() {
+        queue.submit(Priority.WRITE, null, 0, record("a"), null);
+        queue.submit(Priority.WRITE, null, 0, record("b"), null);
+
+        assertThat(executor.size(), is(equalTo(1)));
+        executor.poll().run();
+        assertThat(executed, is(equalTo(Arrays.asList("a"))));
+        assertThat(executor.size(), is(equalTo(1)));
+        executor.poll().run();
+        assertThat(executor.isEmpty(), is(true));
+        assertThat(queue.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testWaitingPollIsCoalesced() {
+        assertThat(queue.submit(Priority.REGULAR_POLL, "poll", 100, record("first"), null), is(true));
+        advance(80);
+        assertThat(queue.submit(Priority.REGULAR_POLL, "poll", 100, record("second"), null), is(false));
+        advance(10);
+
+        runAll();
+
+        assertThat(executed, is(equalTo(Arrays.asList("first"))));
+        assertThat(droppedLags, is(equalTo(Arrays.asList(80L))));
+        assertThat(dequeuedLags, is(equalTo(Arrays.asList(90L))));
+
+        assertThat(queue.submit(Priority.REGULAR_POLL, "poll", 100, record("third"), null), is(true));
+    }
+
+    @Test
+    public void testCoalescedPollKeepsItsDeadline() {
+        queue.submit(Priority.REGULAR_POLL, "poll", 100, record("first"), record("expired"));
+        advance(80);
+        queue.submit(Priority.REGULAR_POLL, "poll", 100, record("second"), null);
+        // the deadline of the first submission is not extended by the second one
+        advance(80);
+
+        runAll();
+
+        assertThat(executed, is(equalTo(Arrays.asList("expired"))));
+        assertThat(droppedLags, is(equalTo(Arrays.asList(80L, 160L))));
+        assertThat(dequeuedLags.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testCoalescedPollWithoutDeadlineGetsOne() {
+        queue.submit(Priority.REGULAR_POLL, "poll", 0, record("first"), record("expired"));
+        queue.submit(Priority.REGULAR_POLL, "poll", 100, record("second"), null);
+        advance(101);
+
+        runAll();
+
+        assertThat(executed, is(equalTo(Arrays.asList("expired"))));
+    }
+
+    @Test
+    public void testExpiredOperationIsDropped() {
+        queue.submit(Priority.WRITE, null, 50, record("write"), record("expired"));
+        queue.submit(Priority.WRITE, null, 0, record("no deadline"), null);
+        advance(51);
+
+        runAll();
+
+        assertThat(executed, is(equalTo(Arrays.asList("expired", "no deadline"))));
+        assertThat(droppedLags, is(equalTo(Arrays.asList(51L))));
+    }
+
+    @Test
+    public void testFailingOperationDoesNotStopQueue() {
+        queue.submit(Priority.WRITE, null, 0, () -> {
+            throw new IllegalStateException("test");
+        }, null);
+        queue.submit(Priority.WRITE, null, 0, record("next"), null);
+
+        runAll();
+
+        assertThat(executed, is(equalTo(Arrays.asList("next"))));
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.openhab.io.transport.modbus.internal.LatencyHistogram;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.getCount(), is(equalTo(0L)));
+        assertThat(histogram.getAverageMillis(), is(equalTo(0L)));
+        assertThat(histogram.getPercentileMillis(99), is(equalTo(0L)));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.record(3);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(150);
+        }
+        histogram.record(700);
+
+        assertThat(histogram.getCount(), is(equalTo(100L)));
+        assertThat(histogram.getMaxMillis(), is(equalTo(700L)));
+        assertThat(histogram.getPercentileMillis(50), is(equalTo(5L)));
+        assertThat(histogram.getPercentileMillis(90), is(equalTo(5L)));
+        assertThat(histogram.getPercentileMillis(99), is(equalTo(200L)));
+        assertThat(histogram.getPercentileMillis(100), is(equalTo(700L)));
+    }
+
+    @Test
+    public void testOverflowBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(0);
+        histogram.record(30000);
+
+        assertThat(histogram.getPercentileMillis(50), is(equalTo(1L)));
+        assertThat(histogram.getPercentileMillis(100), is(equalTo(30000L)));
+        assertThat(histogram.getAverageMillis(), is(equalTo(15000L)));
+    }
+
+    @Test
+    public void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.reset();
+
+        assertThat(histogram.getCount(), is(equalTo(0L)));
+        assertThat(histogram.getMaxMillis(), is(equalTo(0L)));
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.ModbusManagerImpl;
+
+import net.wimpi.modbus.ModbusCoupler;
+import net.wimpi.modbus.msg.ModbusRequest;
+import net.wimpi.modbus.msg.ReadMultipleRegistersRequest;
+import net.wimpi.modbus.procimg.IllegalAddressException;
+import net.wimpi.modbus.procimg.Register;
+import net.wimpi.modbus.procimg.SimpleProcessImage;
+import net.wimpi.modbus.procimg.SimpleRegister;
+
+/**
+ * Tests the merging of regular polls by the {@link ModbusManagerImpl}, against a real slave
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+public class PollMergingTest extends IntegrationTestSupport {
+
+    private static final int POLL_PERIOD_MILLIS = 100;
+
+    /**
+     * Slave with holding registers 0-19, register <i>i</i> having value <i>i</i>
+     */
+    private static class RegisterImage extends SimpleProcessImage {
+
+        private final int unmapped;
+
+        /**
+         * @param unmapped address of a register the slave refuses to read, or -1
+         */
+        RegisterImage(int unmapped) {
+            this.unmapped = unmapped;
+            for (int i = 0; i < 20; i++) {
+                addRegister(new SimpleRegister(i));
+            }
+        }
+
+        @Override
+        public synchronized Register[] getRegisterRange(int offset, int count) {
+            if (offset <= unmapped && unmapped < offset + count) {
+                throw new IllegalAddressException();
+            }
+            return super.getRegisterRange(offset, count);
+        }
+    }
+
+    private static class RecordingCallback implements ModbusReadCallback {
+        private final List<ModbusReadRequestBlueprint> requests = new CopyOnWriteArrayList<>();
+        private final List<List<Integer>> values = new CopyOnWriteArrayList<>();
+        private final List<Exception> errors = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+            List<Integer> registerValues = new ArrayList<>();
+            for (int i = 0; i < registers.size(); i++) {
+                registerValues.add(registers.getRegister(i).toUnsignedShort());
+            }
+            requests.add(request);
+            values.add(registerValues);
+        }
+
+        @Override
+        public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+            fail("Unexpected bits");
+        }
+
+        @Override
+        public void onError(ModbusReadRequestBlueprint request, Exception error) {
+            errors.add(error);
+        }
+    }
+
+    private ModbusSlaveEndpoint endpoint;
+
+    @Before
+    public void setUpMerging() {
+        endpoint = getEndpoint();
+        modbusManager.close();
+        Map<String, Object> config = new HashMap<>();
+        config.put(ModbusManagerImpl.CONFIG_READ_MERGE_MAX_GAP, "2");
+        modbusManager = new NonOSGIModbusManager(config);
+    }
+
+    private void useImage(int unmapped) {
+        spi = new RegisterImage(unmapped);
+        ModbusCoupler.getReference().setProcessImage(spi);
+    }
+
+    private BasicPollTaskImpl registerPoll(ModbusSlaveEndpoint endpoint, int start, int length,
+            long pollPeriodMillis, RecordingCallback callback) {
+        BasicPollTaskImpl task = new BasicPollTaskImpl(endpoint, new BasicModbusReadRequestBlueprint(SLAVE_UNIT_ID,
+                ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, start, length, 1), callback);
+        modbusManager.registerRegularPoll(task, pollPeriodMillis, 0);
+        return task;
+    }
+
+    /**
+     * @return address ranges of the requests received by the slave, as start and length
+     */
+    private List<List<Integer>> receivedRanges() {
+        List<ModbusRequest> received;
+        synchronized (modbustRequestCaptor.getAllReturnValues()) {
+            received = new ArrayList<>(modbustRequestCaptor.getAllReturnValues());
+        }
+        return received.stream().map(request -> (ReadMultipleRegistersRequest) request)
+                .map(request -> Arrays.asList(request.getReference(), request.getWordCount()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> range(int start, int length) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = start; i < start + length; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    private void waitForResponses(RecordingCallback callback, int responses) {
+        waitForAssert(() -> assertTrue(callback.values.size() >= responses), 5000, 10);
+    }
+
+    @Test
+    public void pollsOfSameEndpointAndPeriodAreMerged() {
+        useImage(-1);
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        RecordingCallback slow = new RecordingCallback();
+        RecordingCallback otherEndpoint = new RecordingCallback();
+        registerPoll(endpoint, 0, 5, POLL_PERIOD_MILLIS, first);
+        registerPoll(endpoint, 6, 4, POLL_PERIOD_MILLIS, second);
+        // same endpoint, but polled with another period
+        registerPoll(endpoint, 11, 2, 3 * POLL_PERIOD_MILLIS, slow);
+        // same period and nearby range, but an endpoint without slave
+        registerPoll(new ModbusTCPSlaveEndpoint("127.0.0.1", 1), 10, 1, POLL_PERIOD_MILLIS, otherEndpoint);
+
+        waitForResponses(first, 3);
+        waitForResponses(second, 3);
+        waitForResponses(slow, 1);
+        waitForAssert(() -> assertFalse(otherEndpoint.errors.isEmpty()), 5000, 10);
+
+        for (List<Integer> range : receivedRanges()) {
+            assertThat(range, is(anyOf(equalTo(Arrays.asList(0, 10)), equalTo(Arrays.asList(11, 2)))));
+        }
+        assertThat(otherEndpoint.values, is(equalTo(Collections.emptyList())));
+    }
+
+    @Test
+    public void mergedResponseIsSplitToTheCallbacks() {
+        useImage(-1);
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        BasicPollTaskImpl firstTask = registerPoll(endpoint, 0, 5, POLL_PERIOD_MILLIS, first);
+        BasicPollTaskImpl secondTask = registerPoll(endpoint, 6, 4, POLL_PERIOD_MILLIS, second);
+
+        waitForResponses(first, 2);
+        waitForResponses(second, 2);
+
+        assertThat(first.requests.get(0), is(sameInstance(firstTask.getRequest())));
+        assertThat(first.values.get(0), is(equalTo(range(0, 5))));
+        assertThat(second.requests.get(0), is(sameInstance(secondTask.getRequest())));
+        assertThat(second.values.get(0), is(equalTo(range(6, 4))));
+        assertThat(first.errors, is(equalTo(Collections.emptyList())));
+        assertThat(second.errors, is(equalTo(Collections.emptyList())));
+    }
+
+    @Test
+    public void unregisteredTaskIsNoLongerMerged() throws InterruptedException {
+        useImage(-1);
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        BasicPollTaskImpl firstTask = registerPoll(endpoint, 0, 5, POLL_PERIOD_MILLIS, first);
+        BasicPollTaskImpl secondTask = registerPoll(endpoint, 6, 4, POLL_PERIOD_MILLIS, second);
+        waitForResponses(first, 2);
+
+        assertTrue(modbusManager.unregisterRegularPoll(firstTask));
+        // let a poll which was already queued finish
+        Thread.sleep(2 * POLL_PERIOD_MILLIS);
+        int firstResponses = first.values.size();
+        int requests = receivedRanges().size();
+        int secondResponses = second.values.size();
+        waitForResponses(second, secondResponses + 3);
+
+        assertThat(first.values.size(), is(equalTo(firstResponses)));
+        List<List<Integer>> ranges = receivedRanges();
+        for (List<Integer> range : ranges.subList(requests, ranges.size())) {
+            assertThat(range, is(equalTo(Arrays.asList(6, 4))));
+        }
+
+        assertTrue(modbusManager.unregisterRegularPoll(secondTask));
+        Thread.sleep(2 * POLL_PERIOD_MILLIS);
+        requests = receivedRanges().size();
+        Thread.sleep(3 * POLL_PERIOD_MILLIS);
+        assertThat(receivedRanges().size(), is(equalTo(requests)));
+        assertThat(modbusManager.getRegisteredRegularPolls().isEmpty(), is(true));
+    }
+
+    @Test
+    public void rejectedMergedReadFallsBackToSeparatePolls() throws InterruptedException {
+        // the merged read covers the unmapped register in between the two tasks
+        useImage(5);
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        registerPoll(endpoint, 0, 5, POLL_PERIOD_MILLIS, first);
+        registerPoll(endpoint, 6, 4, POLL_PERIOD_MILLIS, second);
+
+        waitForResponses(first, 3);
+        waitForResponses(second, 3);
+
+        // the rejection is not forwarded to the callbacks
+        assertThat(first.errors, is(equalTo(Collections.emptyList())));
+        assertThat(second.errors, is(equalTo(Collections.emptyList())));
+        assertThat(first.values.get(0), is(equalTo(range(0, 5))));
+        assertThat(second.values.get(0), is(equalTo(range(6, 4))));
+
+        // the merged read is tried once, and not again after the fallback
+        List<List<Integer>> ranges = receivedRanges();
+        assertThat(ranges.get(0), is(equalTo(Arrays.asList(0, 10))));
+        for (List<Integer> range : ranges.subList(1, ranges.size())) {
+            assertThat(range, is(anyOf(equalTo(Arrays.asList(0, 5)), equalTo(Arrays.asList(6, 4)))));
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openhab.io.transport.modbus.BasicBitArray;
+import org.openhab.io.transport.modbus.BasicModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.BasicPollTaskImpl;
+import org.openhab.io.transport.modbus.BitArray;
+import org.openhab.io.transport.modbus.ModbusReadCallback;
+import org.openhab.io.transport.modbus.ModbusReadFunctionCode;
+import org.openhab.io.transport.modbus.ModbusReadRequestBlueprint;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusSlaveErrorResponseException;
+import org.openhab.io.transport.modbus.PollTask;
+import org.openhab.io.transport.modbus.endpoint.ModbusSlaveEndpoint;
+import org.openhab.io.transport.modbus.endpoint.ModbusTCPSlaveEndpoint;
+import org.openhab.io.transport.modbus.internal.MergedPollTask;
+import org.openhab.io.transport.modbus.internal.PollTaskMerger;
+
+/**
+ * @author Sami Salonen - Initial contribution
+ */
+public class PollTaskMergerTest {
+
+    private static final ModbusSlaveEndpoint ENDPOINT = new ModbusTCPSlaveEndpoint("localhost", 502);
+    private static final Set<ModbusReadRequestBlueprint> NONE_REJECTED = Collections.emptySet();
+
+    private static class RecordingCallback implements ModbusReadCallback {
+        private final List<Object> received = new ArrayList<>();
+
+        @Override
+        public void onRegisters(ModbusReadRequestBlueprint request, ModbusRegisterArray registers) {
+            received.add(request);
+            received.add(registers.toHexString());
+        }
+
+        @Override
+        public void onBits(ModbusReadRequestBlueprint request, BitArray bits) {
+            received.add(request);
+            received.add(bits.toBinaryString());
+        }
+
+        @Override
+        public void onError(ModbusReadRequestBlueprint request, Exception error) {
+            received.add(request);
+            received.add(error);
+        }
+    }
+
+    private static class SlaveErrorResponse extends ModbusSlaveErrorResponseException {
+        private static final long serialVersionUID = 1L;
+
+        private final int code;
+
+        SlaveErrorResponse(int code) {
+            this.code = code;
+        }
+
+        @Override
+        public int getExceptionCode() {
+            return code;
+        }
+    }
+
+    private static PollTask task(ModbusReadFunctionCode functionCode, int start, int length,
+            ModbusReadCallback callback) {
+        return new BasicPollTaskImpl(ENDPOINT, new BasicModbusReadRequestBlueprint(1, functionCode, start, length, 3),
+                callback);
+    }
+
+    private static PollTask registers(int start, int length) {
+        return task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, start, length, new RecordingCallback());
+    }
+
+    @Test
+    public void testOverlappingAndAdjacentRangesAreMerged() {
+        List<PollTask> result = PollTaskMerger.merge(Arrays.asList(registers(5, 2), registers(0, 5), registers(6, 4)),
+                0, NONE_REJECTED);
+
+        assertThat(result.size(), is(equalTo(1)));
+        MergedPollTask merged = (MergedPollTask) result.get(0);
+        assertThat(merged.getRequest().getReference(), is(equalTo(0)));
+        assertThat(merged.getRequest().getDataLength(), is(equalTo(10)));
+        assertThat(merged.getTasks().size(), is(equalTo(3)));
+    }
+
+    @Test
+    public void testGap() {
+        List<PollTask> tasks = Arrays.asList(registers(0, 2), registers(4, 2));
+
+        assertThat(PollTaskMerger.merge(tasks, 0, NONE_REJECTED), is(equalTo(tasks)));
+
+        List<PollTask> result = PollTaskMerger.merge(tasks, 2, NONE_REJECTED);
+        assertThat(result.size(), is(equalTo(1)));
+        assertThat(result.get(0).getRequest().getDataLength(), is(equalTo(6)));
+    }
+
+    @Test
+    public void testDifferentFunctionCodesAreNotMerged() {
+        List<PollTask> tasks = Arrays.asList(registers(0, 2),
+                task(ModbusReadFunctionCode.READ_INPUT_REGISTERS, 2, 2, new RecordingCallback()));
+
+        assertThat(new HashSet<>(PollTaskMerger.merge(tasks, 0, NONE_REJECTED)), is(equalTo(new HashSet<>(tasks))));
+    }
+
+    @Test
+    public void testProtocolLimit() {
+        List<PollTask> result = PollTaskMerger.merge(Arrays.asList(registers(0, 100), registers(100, 25),
+                registers(125, 10), registers(130, 10)), 0, NONE_REJECTED);
+
+        assertThat(result.size(), is(equalTo(2)));
+        assertThat(result.get(0).getRequest().getReference(), is(equalTo(0)));
+        assertThat(result.get(0).getRequest().getDataLength(), is(equalTo(PollTaskMerger.MAX_REGISTERS_PER_READ)));
+        assertThat(result.get(1).getRequest().getReference(), is(equalTo(125)));
+        assertThat(result.get(1).getRequest().getDataLength(), is(equalTo(15)));
+    }
+
+    @Test
+    public void testRejectedMergeIsNotRepeated() {
+        List<PollTask> tasks = Arrays.asList(registers(0, 2), registers(2, 2));
+        ModbusReadRequestBlueprint merged = PollTaskMerger.merge(tasks, 0, NONE_REJECTED).get(0).getRequest();
+
+        assertThat(PollTaskMerger.merge(tasks, 0, Collections.singleton(merged)), is(equalTo(tasks)));
+    }
+
+    @Test
+    public void testRegistersAreSplit() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        PollTask firstTask = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 10, 2, first);
+        PollTask secondTask = task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 11, 2, second);
+        PollTask merged = PollTaskMerger.merge(Arrays.asList(firstTask, secondTask), 0, NONE_REJECTED).get(0);
+
+        merged.getCallback().onRegisters(merged.getRequest(), new BasicModbusRegisterArray(1, 2, 3));
+
+        assertThat(first.received, is(equalTo(Arrays.asList(firstTask.getRequest(), "00 01 00 02"))));
+        assertThat(second.received, is(equalTo(Arrays.asList(secondTask.getRequest(), "00 02 00 03"))));
+    }
+
+    @Test
+    public void testBitsAreSplit() {
+        RecordingCallback first = new RecordingCallback();
+        RecordingCallback second = new RecordingCallback();
+        PollTask firstTask = task(ModbusReadFunctionCode.READ_COILS, 0, 2, first);
+        PollTask secondTask = task(ModbusReadFunctionCode.READ_COILS, 2, 3, second);
+        PollTask merged = PollTaskMerger.merge(Arrays.asList(firstTask, secondTask), 0, NONE_REJECTED).get(0);
+
+        merged.getCallback().onBits(merged.getRequest(), new BasicBitArray(true, false, false, true, true));
+
+        assertThat(first.received.get(1), is(equalTo(new BasicBitArray(true, false).toBinaryString())));
+        assertThat(second.received.get(1), is(equalTo(new BasicBitArray(false, true, true).toBinaryString())));
+    }
+
+    @Test
+    public void testErrors() {
+        RecordingCallback callback = new RecordingCallback();
+        MergedPollTask merged = (MergedPollTask) PollTaskMerger.merge(
+                Arrays.asList(registers(0, 2), task(ModbusReadFunctionCode.READ_MULTIPLE_REGISTERS, 2, 2, callback)),
+                0, NONE_REJECTED).get(0);
+
+        // slave refusing the range is not an error of the original tasks
+        merged.getCallback().onError(merged.getRequest(),
+                new SlaveErrorResponse(ModbusSlaveErrorResponseException.ILLEGAL_DATA_ACCESS));
+        assertThat(merged.isRejectedBySlave(), is(true));
+        assertThat(callback.received.isEmpty(), is(true));
+
+        Exception error = new SlaveErrorResponse(ModbusSlaveErrorResponseException.SLAVE_DEVICE_BUSY);
+        merged.getCallback().onError(merged.getRequest(), error);
+        assertThat(callback.received.get(1), is(sameInstance(error)));
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.io.transport.modbus.test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.openhab.io.transport.modbus.BasicModbusRegister;
+import org.openhab.io.transport.modbus.BasicModbusRegisterArray;
+import org.openhab.io.transport.modbus.ByteBufferModbusRegisterArray;
+import org.openhab.io.transport.modbus.ModbusBitUtilities;
+import org.openhab.io.transport.modbus.ModbusConstants.ValueType;
+import org.openhab.io.transport.modbus.ModbusRegister;
+import org.openhab.io.transport.modbus.ModbusRegisterArray;
+
+/**
+ * Compares the decoding of a read response with the {@link ByteBufferModbusRegisterArray} and the primitive
+ * extraction of {@link ModbusBitUtilities} against the former path, which wrapped every register in an object and
+ * decoded the values through temporary {@link ByteBuffer}s.
+ * <p>
+ * Each round wraps a response of 16 registers and decodes a mix of value types from it.
+ * Run {@link #main(String[])} with the arguments <code>[iterations] [warmupIterations]</code>, for example from the
+ * IDE with the test classpath. The warm-up runs let the JIT compile both paths before they are measured.
+ *
+ * @author Sami Salonen - Initial contribution
+ */
+public class RegisterDecodingBenchmark {
+
+    private static class Value {
+        final int index;
+        final ValueType type;
+
+        Value(int index, ValueType type) {
+            this.index = index;
+            this.type = type;
+        }
+    }
+
+    private final byte[] response = new byte[32];
+
+    private final Value[] values = { new Value(0, ValueType.INT16), new Value(1, ValueType.UINT16),
+            new Value(2, ValueType.INT32), new Value(4, ValueType.UINT32), new Value(6, ValueType.FLOAT32),
+            new Value(8, ValueType.INT64), new Value(12, ValueType.UINT64), new Value(1, ValueType.UINT8) };
+
+    public RegisterDecodingBenchmark() {
+        for (int i = 0; i < response.length; i++) {
+            response[i] = (byte) (i * 37 + 11);
+        }
+    }
+
+    /**
+     * Decodes the mix of values from the response <code>iterations</code> times with both paths.
+     *
+     * @return the responses per second with the byte buffer and with register objects
+     */
+    public double[] run(int iterations) {
+        BigDecimal checksum = BigDecimal.ZERO;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            ModbusRegisterArray registers = new ByteBufferModbusRegisterArray(response);
+            for (Value value : values) {
+                DecimalType state = ModbusBitUtilities.extractStateFromRegisters(registers, value.index, value.type)
+                        .get();
+                if (i == 0) {
+                    checksum = checksum.add(state.toBigDecimal());
+                }
+            }
+        }
+        long bufferNanos = System.nanoTime() - start;
+
+        BigDecimal formerChecksum = BigDecimal.ZERO;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            ModbusRegister[] wrapped = new ModbusRegister[response.length / 2];
+            for (int r = 0; r < wrapped.length; r++) {
+                wrapped[r] = new BasicModbusRegister(response[2 * r], response[2 * r + 1]);
+            }
+            ModbusRegisterArray registers = new BasicModbusRegisterArray(wrapped);
+            for (Value value : values) {
+                DecimalType state = formerExtractState(registers, value.index, value.type);
+                if (i == 0) {
+                    formerChecksum = formerChecksum.add(state.toBigDecimal());
+                }
+            }
+        }
+        long formerNanos = System.nanoTime() - start;
+
+        if (checksum.compareTo(formerChecksum) != 0) {
+            throw new IllegalStateException("The paths decoded different values");
+        }
+        return new double[] { perSecond(iterations, bufferNanos), perSecond(iterations, formerNanos) };
+    }
+
+    /**
+     * The former implementation of {@link ModbusBitUtilities#extractStateFromRegisters}, for the types of the mix
+     */
+    private static DecimalType formerExtractState(ModbusRegisterArray registers, int index, ValueType type) {
+        switch (type) {
+            case UINT8:
+                return new DecimalType(
+                        (registers.getRegister(index / 2).toUnsignedShort() >> (8 * (index % 2))) & 0xff);
+            case INT16: {
+                ByteBuffer buff = ByteBuffer.allocate(2);
+                buff.put(registers.getRegister(index).getBytes());
+                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getShort(0));
+            }
+            case UINT16:
+                return new DecimalType(registers.getRegister(index).toUnsignedShort());
+            case INT32: {
+                ByteBuffer buff = ByteBuffer.allocate(4);
+                buff.put(registers.getRegister(index).getBytes());
+                buff.put(registers.getRegister(index + 1).getBytes());
+                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getInt(0));
+            }
+            case UINT32: {
+                ByteBuffer buff = ByteBuffer.allocate(8);
+                buff.position(4);
+                buff.put(registers.getRegister(index).getBytes());
+                buff.put(registers.getRegister(index + 1).getBytes());
+                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0));
+            }
+            case FLOAT32: {
+                ByteBuffer buff = ByteBuffer.allocate(4);
+                buff.put(registers.getRegister(index).getBytes());
+                buff.put(registers.getRegister(index + 1).getBytes());
+                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getFloat(0));
+            }
+            case INT64: {
+                ByteBuffer buff = ByteBuffer.allocate(8);
+                for (int i = 0; i < 4; i++) {
+                    buff.put(registers.getRegister(index + i).getBytes());
+                }
+                return new DecimalType(buff.order(ByteOrder.BIG_ENDIAN).getLong(0));
+            }
+            case UINT64: {
+                ByteBuffer buff = ByteBuffer.allocate(8);
+                for (int i = 0; i < 4; i++) {
+                    buff.put(registers.getRegister(index + i).getBytes());
+                }
+                return new DecimalType(new BigDecimal(new BigInteger(1, buff.order(ByteOrder.BIG_ENDIAN).array())));
+            }
+            default:
+                throw new IllegalArgumentException(type.getConfigValue());
+        }
+    }
+
+    private static double perSecond(int responses, long nanos) {
+        return responses * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos);
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int warmupIterations = args.length > 1 ? Integer.parseInt(args[1]) : 50000;
+
+        RegisterDecodingBenchmark benchmark = new RegisterDecodingBenchmark();
+        benchmark.run(warmupIterations);
+        double[] result = benchmark.run(iterations);
+        System.out.println(String.format("ByteBufferModbusRegisterArray: %,.0f responses/s", result[0]));
+        System.out.println(String.format("Register objects:              %,.0f responses/s", result[1]));
+    }
+}
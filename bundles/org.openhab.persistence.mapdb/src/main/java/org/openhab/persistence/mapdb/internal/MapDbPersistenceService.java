@@ -13,13 +13,22 @@
 package org.openhab.persistence.mapdb.internal;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -29,14 +38,20 @@ import org.eclipse.smarthome.config.core.ConfigConstants;
 import org.eclipse.smarthome.core.common.ThreadPoolManager;
 import org.eclipse.smarthome.core.items.Item;
 import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
 import org.eclipse.smarthome.core.persistence.HistoricItem;
 import org.eclipse.smarthome.core.persistence.PersistenceItemInfo;
 import org.eclipse.smarthome.core.persistence.PersistenceService;
 import org.eclipse.smarthome.core.persistence.QueryablePersistenceService;
 import org.eclipse.smarthome.core.types.State;
 import org.eclipse.smarthome.core.types.UnDefType;
+import org.mapdb.BTreeKeySerializer;
+import org.mapdb.BTreeMap;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
+import org.mapdb.Fun;
+import org.mapdb.Fun.Tuple2;
+import org.mapdb.Serializer;
 import org.osgi.service.component.annotations.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,7 +68,8 @@ import com.google.gson.GsonBuilder;
  * @author Martin Kühl - Port to Eclipse SmartHome
  */
 @NonNullByDefault
-@Component(service = { PersistenceService.class, QueryablePersistenceService.class })
+@Component(service = { PersistenceService.class,
+        QueryablePersistenceService.class }, configurationPid = "org.openhab.mapdb")
 public class MapDbPersistenceService implements QueryablePersistenceService {
 
     private static final String SERVICE_NAME = "mapdb";
@@ -62,47 +78,196 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
     private static final String DB_FILE_NAME = "storage.mapdb";
 
+    /** name of the map of latest states, encoded by the {@link StateCodec} */
+    private static final String STATES_MAP_NAME = "itemStates";
+
+    /** name of the map of latest states in the former JSON format, which is migrated on activation */
+    private static final String LEGACY_MAP_NAME = "itemStore";
+
+    private static final String CONFIG_HISTORY = "history";
+    private static final String CONFIG_HISTORY_MAX_AGE = "historyMaxAge";
+    private static final String CONFIG_HISTORY_MAX_COUNT = "historyMaxCount";
+    private static final String CONFIG_COMMIT_INTERVAL = "commitInterval";
+
+    /** default time in milliseconds during which updates are collected before they are committed */
+    private static final long DEFAULT_COMMIT_INTERVAL = 1000;
+
+    /** minimum time in milliseconds until a batch that failed to be written is written again */
+    private static final long FLUSH_RETRY_DELAY = 10000;
+
+    /** delay of the first history retention cleanup after activation in minutes */
+    private static final int HISTORY_CLEANUP_INITIAL_DELAY = 1;
+
+    /** interval of the history retention cleanup in minutes */
+    private static final int HISTORY_CLEANUP_INTERVAL = 60;
+
     private final Logger logger = LoggerFactory.getLogger(MapDbPersistenceService.class);
 
     @NonNullByDefault({})
-    private ExecutorService threadPool;
+    private ScheduledExecutorService scheduler;
+
+    /** time in milliseconds during which updates are coalesced before they are written in one transaction */
+    private long commitInterval = DEFAULT_COMMIT_INTERVAL;
+
+    /** whether all stored values are kept in the history map, not just the latest state per item */
+    private boolean historyEnabled;
+
+    /** maximum age of history entries in milliseconds, 0 keeps entries forever */
+    private long historyMaxAge;
+
+    /** maximum number of history entries per item, 0 keeps all entries */
+    private int historyMaxCount;
 
     /** holds the local instance of the MapDB database */
     @NonNullByDefault({})
     private DB db;
     @NonNullByDefault({})
-    private Map<String, String> map;
+    private Map<String, byte[]> map;
+
+    /** all stored states keyed by (item name, timestamp), only present if the history is enabled */
+    private @Nullable BTreeMap<Tuple2<String, Long>, byte[]> history;
+
+    private @Nullable ScheduledFuture<?> cleanupJob;
 
+    /*
+     * Write-behind queue: the latest state per item and all history entries which have not been written yet. Both are
+     * replaced by fresh instances when a batch is taken for writing, and guarded by pendingLock.
+     */
+    private final Object pendingLock = new Object();
+    private Map<String, byte[]> pendingStates = new HashMap<>();
+    private Map<Tuple2<String, Long>, byte[]> pendingHistory = new LinkedHashMap<>();
+    /** time of the latest history entry by item, to keep the history keys unique */
+    private final Map<String, Long> lastHistoryTimes = new HashMap<>();
+    private @Nullable ScheduledFuture<?> flushJob;
+
+    /**
+     * serializes writing of batches and the history retention cleanup, so that deactivation waits for a running one
+     * before the database is closed
+     */
+    private final Object flushLock = new Object();
+
+    private final WriteBehindStatistics statistics = new WriteBehindStatistics();
+
+    private final StateCodec codec = new StateCodec();
+
+    /** only used to read states stored as JSON by former versions */
     private transient Gson mapper = new GsonBuilder()
             .registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
             .create();
 
-    public void activate() {
+    public void activate(@Nullable Map<String, Object> config) {
         logger.debug("MapDB persistence service is being activated");
 
-        threadPool = ThreadPoolManager.getPool(getClass().getSimpleName());
+        readConfiguration(config);
 
+        scheduler = ThreadPoolManager.getScheduledPool(getClass().getSimpleName());
+
+        db = openDatabase();
+        if (db == null) {
+            logger.warn("MapDB persistence service activation has failed.");
+            return;
+        }
+        map = db.createTreeMap(STATES_MAP_NAME).keySerializer(BTreeKeySerializer.STRING)
+                .valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+        migrateLegacyStore();
+        if (historyEnabled) {
+            history = db.createTreeMap("itemHistory").keySerializer(BTreeKeySerializer.TUPLE2)
+                    .valueSerializer(Serializer.BYTE_ARRAY).makeOrGet();
+            if (historyMaxAge > 0 || historyMaxCount > 0) {
+                cleanupJob = scheduler.scheduleWithFixedDelay(this::applyHistoryRetention,
+                        HISTORY_CLEANUP_INITIAL_DELAY, HISTORY_CLEANUP_INTERVAL, TimeUnit.MINUTES);
+            }
+        }
+        logger.debug("MapDB persistence service is now activated");
+    }
+
+    /**
+     * Opens the database file in the userdata folder.
+     *
+     * @return the database, or null if its folder cannot be created
+     */
+    @Nullable
+    DB openDatabase() {
         File folder = new File(DB_FOLDER_NAME);
         if (!folder.exists()) {
             if (!folder.mkdirs()) {
                 logger.warn("Failed to create one or more directories in the path '{}'", DB_FOLDER_NAME);
-                logger.warn("MapDB persistence service activation has failed.");
-                return;
+                return null;
             }
         }
 
         File dbFile = new File(DB_FOLDER_NAME, DB_FILE_NAME);
-        db = DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
-        map = db.createTreeMap("itemStore").makeOrGet();
-        logger.debug("MapDB persistence service is now activated");
+        return DBMaker.newFileDB(dbFile).closeOnJvmShutdown().make();
+    }
+
+    private void readConfiguration(@Nullable Map<String, Object> config) {
+        historyEnabled = false;
+        historyMaxAge = 0;
+        historyMaxCount = 0;
+        commitInterval = DEFAULT_COMMIT_INTERVAL;
+        if (config == null) {
+            return;
+        }
+
+        Object value = config.get(CONFIG_HISTORY);
+        historyEnabled = value != null && Boolean.parseBoolean(value.toString());
+        try {
+            value = config.get(CONFIG_HISTORY_MAX_AGE);
+            if (value != null) {
+                historyMaxAge = TimeUnit.DAYS.toMillis(Long.parseLong(value.toString().trim()));
+            }
+            value = config.get(CONFIG_HISTORY_MAX_COUNT);
+            if (value != null) {
+                historyMaxCount = Integer.parseInt(value.toString().trim());
+            }
+            value = config.get(CONFIG_COMMIT_INTERVAL);
+            if (value != null) {
+                commitInterval = Math.max(0, Long.parseLong(value.toString().trim()));
+            }
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid MapDB persistence configuration: {}", e.getMessage());
+        }
+        logger.debug("MapDB history enabled: {}, max. age: {} ms, max. count: {}, commit interval: {} ms",
+                historyEnabled, historyMaxAge, historyMaxCount, commitInterval);
     }
 
     public void deactivate() {
         logger.debug("MapDB persistence service deactivated");
+        ScheduledFuture<?> cleanupJob = this.cleanupJob;
+        if (cleanupJob != null) {
+            cleanupJob.cancel(false);
+            this.cleanupJob = null;
+        }
+        cancelFlushJob();
         if (db != null) {
-            db.close();
+            flush();
+            // a failed batch is not retried anymore
+            cancelFlushJob();
+            synchronized (pendingLock) {
+                if (!pendingStates.isEmpty() || !pendingHistory.isEmpty()) {
+                    logger.warn("Discarding {} states which could not be written to the MapDB database",
+                            pendingStates.size() + pendingHistory.size());
+                    pendingStates = new HashMap<>();
+                    pendingHistory = new LinkedHashMap<>();
+                }
+            }
+            synchronized (flushLock) {
+                history = null;
+                db.close();
+            }
+        }
+        history = null;
+        logger.debug("MapDB write-behind statistics: {}", statistics);
+    }
+
+    private void cancelFlushJob() {
+        synchronized (pendingLock) {
+            ScheduledFuture<?> flushJob = this.flushJob;
+            if (flushJob != null) {
+                flushJob.cancel(false);
+                this.flushJob = null;
+            }
         }
-        threadPool.shutdown();
     }
 
     @Override
@@ -117,8 +282,14 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
 
     @Override
     public Set<PersistenceItemInfo> getItemInfo() {
-        return map.values().stream()
-                .map(this::deserialize)
+        Map<String, byte[]> states;
+        synchronized (pendingLock) {
+            states = new HashMap<>(pendingStates);
+        }
+        // queued states are newer than the stored ones
+        map.forEach(states::putIfAbsent);
+        return states.entrySet().stream()
+                .map(entry -> Optional.ofNullable(codec.decodeItem(entry.getKey(), entry.getValue())))
                 .flatMap(MapDbPersistenceService::streamOptional)
                 .collect(Collectors.<PersistenceItemInfo>toSet());
     }
@@ -141,31 +312,285 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         logger.debug("store called for {}", alias);
 
         State state = item.getState();
-        MapDbItem mItem = new MapDbItem();
-        mItem.setName(alias);
-        mItem.setState(state);
-        mItem.setTimestamp(new Date());
-        String json = serialize(mItem);
-        map.put(alias, json);
-        commit();
-        logger.debug("Stored '{}' with state '{}' in MapDB database", alias, state.toString());
+        Date timestamp = new Date();
+        byte[] itemData = codec.encodeItem(state, timestamp);
+        byte[] historyData = history != null ? codec.encode(state) : null;
+        synchronized (pendingLock) {
+            if (pendingStates.put(alias, itemData) != null) {
+                statistics.coalesced();
+            }
+            if (historyData != null) {
+                pendingHistory.put(Fun.t2(alias, uniqueHistoryTime(alias, timestamp.getTime())), historyData);
+            }
+            statistics.queued(pendingStates.size() + pendingHistory.size());
+            if (flushJob == null) {
+                flushJob = scheduler.schedule(this::flush, commitInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+        logger.debug("Queued '{}' with state '{}' for MapDB database", alias, state.toString());
+    }
+
+    /**
+     * History entries are keyed by item and time in milliseconds. A state stored within the same millisecond as the
+     * previous one of the item is moved to the next millisecond, so that it doesn't replace the previous one.
+     */
+    private long uniqueHistoryTime(String alias, long time) {
+        Long lastTime = lastHistoryTimes.get(alias);
+        long uniqueTime = lastTime != null && time <= lastTime ? lastTime + 1 : time;
+        lastHistoryTimes.put(alias, uniqueTime);
+        return uniqueTime;
+    }
+
+    /**
+     * Writes all queued updates to the database and commits them in a single transaction. If that fails, the updates
+     * are queued again, unless newer ones arrived in the meantime, and written later.
+     */
+    void flush() {
+        synchronized (flushLock) {
+            Map<String, byte[]> states;
+            Map<Tuple2<String, Long>, byte[]> historyEntries;
+            synchronized (pendingLock) {
+                flushJob = null;
+                if (pendingStates.isEmpty() && pendingHistory.isEmpty()) {
+                    return;
+                }
+                states = pendingStates;
+                historyEntries = pendingHistory;
+                pendingStates = new HashMap<>();
+                pendingHistory = new LinkedHashMap<>();
+            }
+
+            long start = System.nanoTime();
+            try {
+                map.putAll(states);
+                BTreeMap<Tuple2<String, Long>, byte[]> history = this.history;
+                if (history != null) {
+                    history.putAll(historyEntries);
+                }
+                db.commit();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to write {} states to the MapDB database, retrying later: {}",
+                        states.size() + historyEntries.size(), e.getMessage());
+                rollback();
+                requeue(states, historyEntries);
+                return;
+            }
+            long duration = System.nanoTime() - start;
+            statistics.committed(states.size() + historyEntries.size(), duration);
+            logger.debug("Committed {} states and {} history entries to MapDB database in {} ms", states.size(),
+                    historyEntries.size(), TimeUnit.NANOSECONDS.toMillis(duration));
+        }
+    }
+
+    private void rollback() {
+        try {
+            db.rollback();
+        } catch (RuntimeException e) {
+            logger.debug("Failed to roll back the MapDB transaction: {}", e.getMessage());
+        }
+    }
+
+    private void requeue(Map<String, byte[]> states, Map<Tuple2<String, Long>, byte[]> historyEntries) {
+        synchronized (pendingLock) {
+            states.forEach(pendingStates::putIfAbsent);
+            Map<Tuple2<String, Long>, byte[]> merged = new LinkedHashMap<>(historyEntries);
+            merged.putAll(pendingHistory);
+            pendingHistory = merged;
+            statistics.queued(pendingStates.size() + pendingHistory.size());
+            if (flushJob == null) {
+                flushJob = scheduler.schedule(this::flush, Math.max(commitInterval, FLUSH_RETRY_DELAY),
+                        TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * @return the statistics of the write-behind queue
+     */
+    public WriteBehindStatistics getStatistics() {
+        return statistics;
     }
 
     @Override
     public Iterable<HistoricItem> query(FilterCriteria filter) {
-        String json = map.get(filter.getItemName());
-        if (json == null) {
+        BTreeMap<Tuple2<String, Long>, byte[]> history = this.history;
+        String itemName = filter.getItemName();
+        if (history != null && itemName != null) {
+            NavigableMap<Long, byte[]> queued = queuedHistory(itemName);
+            if (!queued.isEmpty() || hasHistory(history, itemName)) {
+                return queryHistory(history, queued, itemName, filter);
+            }
+        }
+
+        byte[] data;
+        synchronized (pendingLock) {
+            data = pendingStates.get(itemName);
+        }
+        if (data == null) {
+            data = map.get(itemName);
+        }
+        if (data == null) {
             return Collections.emptyList();
         }
-        Optional<MapDbItem> item = deserialize(json);
-        if (!item.isPresent()) {
+        MapDbItem item = codec.decodeItem(itemName, data);
+        if (item == null) {
             return Collections.emptyList();
         }
-        return Collections.singletonList(item.get());
+        return Collections.singletonList(item);
     }
 
-    private String serialize(MapDbItem item) {
-        return mapper.toJson(item);
+    private boolean hasHistory(BTreeMap<Tuple2<String, Long>, byte[]> history, String itemName) {
+        Tuple2<String, Long> first = history.ceilingKey(Fun.t2(itemName, Long.MIN_VALUE));
+        return first != null && itemName.equals(first.a);
+    }
+
+    /**
+     * @return the history entries of the item which have not been written yet, keyed by timestamp
+     */
+    private NavigableMap<Long, byte[]> queuedHistory(String itemName) {
+        NavigableMap<Long, byte[]> queued = new TreeMap<>();
+        synchronized (pendingLock) {
+            pendingHistory.forEach((key, data) -> {
+                if (itemName.equals(key.a)) {
+                    queued.put(key.b, data);
+                }
+            });
+        }
+        return queued;
+    }
+
+    /**
+     * Queries the stored history entries of an item merged with the queued ones, which take precedence.
+     */
+    private Iterable<HistoricItem> queryHistory(BTreeMap<Tuple2<String, Long>, byte[]> history,
+            NavigableMap<Long, byte[]> queued, String itemName, FilterCriteria filter) {
+        Date begin = filter.getBeginDate();
+        Date end = filter.getEndDate();
+        long from = begin == null ? Long.MIN_VALUE : begin.getTime();
+        long to = end == null ? Long.MAX_VALUE : end.getTime();
+        NavigableMap<Tuple2<String, Long>, byte[]> range = history.subMap(Fun.t2(itemName, from), true,
+                Fun.t2(itemName, to), true);
+        NavigableMap<Long, byte[]> queuedRange = queued.subMap(from, true, to, true);
+        boolean descending = filter.getOrdering() == Ordering.DESCENDING;
+        if (descending) {
+            range = range.descendingMap();
+            queuedRange = queuedRange.descendingMap();
+        }
+
+        Iterator<Map.Entry<Tuple2<String, Long>, byte[]>> storedEntries = range.entrySet().iterator();
+        Iterator<Map.Entry<Long, byte[]>> queuedEntries = queuedRange.entrySet().iterator();
+        Map.Entry<Tuple2<String, Long>, byte[]> stored = storedEntries.hasNext() ? storedEntries.next() : null;
+        Map.Entry<Long, byte[]> next = queuedEntries.hasNext() ? queuedEntries.next() : null;
+
+        long skip = (long) filter.getPageNumber() * filter.getPageSize();
+        int pageSize = filter.getPageSize();
+        List<HistoricItem> items = new ArrayList<>();
+        while ((stored != null || next != null) && items.size() < pageSize) {
+            long timestamp;
+            byte[] data;
+            if (next != null && (stored == null || (descending ? next.getKey() >= stored.getKey().b
+                    : next.getKey() <= stored.getKey().b))) {
+                if (stored != null && stored.getKey().b.equals(next.getKey())) {
+                    // replaced by the queued entry
+                    stored = storedEntries.hasNext() ? storedEntries.next() : null;
+                }
+                timestamp = next.getKey();
+                data = next.getValue();
+                next = queuedEntries.hasNext() ? queuedEntries.next() : null;
+            } else if (stored != null) {
+                timestamp = stored.getKey().b;
+                data = stored.getValue();
+                stored = storedEntries.hasNext() ? storedEntries.next() : null;
+            } else {
+                break;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            State state = codec.decode(data);
+            if (state == null) {
+                continue;
+            }
+            MapDbItem item = new MapDbItem();
+            item.setName(itemName);
+            item.setState(state);
+            item.setTimestamp(new Date(timestamp));
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * Removes history entries which are older than the configured maximum age, or exceed the configured maximum
+     * number of entries per item.
+     */
+    void applyHistoryRetention() {
+        synchronized (flushLock) {
+            BTreeMap<Tuple2<String, Long>, byte[]> history = this.history;
+            // the database is closed once the history is reset
+            if (history != null) {
+                applyHistoryRetention(history);
+            }
+        }
+    }
+
+    private void applyHistoryRetention(BTreeMap<Tuple2<String, Long>, byte[]> history) {
+        long cutoff = historyMaxAge > 0 ? System.currentTimeMillis() - historyMaxAge : Long.MIN_VALUE;
+        int removed = 0;
+        for (String itemName : map.keySet()) {
+            NavigableMap<Tuple2<String, Long>, byte[]> entries = history.subMap(Fun.t2(itemName, Long.MIN_VALUE),
+                    true, Fun.t2(itemName, Long.MAX_VALUE), true);
+
+            // everything up to and including this key is removed
+            Tuple2<String, Long> lastExpired = historyMaxAge > 0 ? entries.floorKey(Fun.t2(itemName, cutoff - 1))
+                    : null;
+            if (historyMaxCount > 0) {
+                int count = 0;
+                for (Tuple2<String, Long> key : entries.descendingKeySet()) {
+                    if (++count > historyMaxCount) {
+                        if (lastExpired == null || key.b > lastExpired.b) {
+                            lastExpired = key;
+                        }
+                        break;
+                    }
+                }
+            }
+            if (lastExpired != null) {
+                List<Tuple2<String, Long>> expired = new ArrayList<>(entries.headMap(lastExpired, true).keySet());
+                for (Tuple2<String, Long> key : expired) {
+                    history.remove(key);
+                }
+                removed += expired.size();
+            }
+        }
+        if (removed > 0) {
+            db.commit();
+        }
+        logger.debug("MapDB history retention removed {} entries", removed);
+    }
+
+    /**
+     * Converts the latest states stored as JSON by former versions into the binary format, and removes the JSON map.
+     */
+    private void migrateLegacyStore() {
+        if (!db.exists(LEGACY_MAP_NAME)) {
+            return;
+        }
+
+        Map<String, String> legacyMap = db.getTreeMap(LEGACY_MAP_NAME);
+        int migrated = 0;
+        for (Map.Entry<String, String> entry : legacyMap.entrySet()) {
+            Optional<MapDbItem> item = deserialize(entry.getValue());
+            // states stored since the migration are newer than the legacy ones
+            if (item.isPresent() && !map.containsKey(entry.getKey())) {
+                map.put(entry.getKey(), codec.encodeItem(item.get().getState(), item.get().getTimestamp()));
+                migrated++;
+            }
+        }
+        db.delete(LEGACY_MAP_NAME);
+        db.commit();
+        logger.info("Migrated {} item states of the MapDB persistence to the binary format", migrated);
     }
 
     private Optional<MapDbItem> deserialize(String json) {
@@ -177,10 +602,6 @@ public class MapDbPersistenceService implements QueryablePersistenceService {
         return Optional.of(item);
     }
 
-    private void commit() {
-        threadPool.submit(() -> db.commit());
-    }
-
     private static <T> Stream<T> streamOptional(Optional<T> opt) {
         if (!opt.isPresent()) {
             return Stream.empty();
@@ -0,0 +1,245 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.eclipse.smarthome.core.types.TypeParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Encodes {@link State} values into a compact, versioned binary form, and decodes them again.
+ *
+ * An encoded state starts with the format version, followed by a type tag and the type specific payload. The common
+ * state types are written without going through their string representation; all other types are written as class
+ * name and {@link State#toFullString()}.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+@NonNullByDefault
+public class StateCodec {
+
+    static final byte FORMAT_VERSION = 1;
+
+    private static final byte TAG_GENERIC = 0;
+    private static final byte TAG_ON_OFF = 1;
+    private static final byte TAG_OPEN_CLOSED = 2;
+    private static final byte TAG_DECIMAL = 3;
+    private static final byte TAG_PERCENT = 4;
+    private static final byte TAG_HSB = 5;
+    private static final byte TAG_DATE_TIME = 6;
+    private static final byte TAG_STRING = 7;
+
+    private final Logger logger = LoggerFactory.getLogger(StateCodec.class);
+
+    /**
+     * Encodes a state for the history map, where the timestamp is part of the key.
+     */
+    public byte[] encode(State state) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            writeState(out, state);
+        } catch (IOException e) {
+            // cannot happen when writing to a byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encodes a state together with its timestamp for the map of latest states.
+     */
+    public byte[] encodeItem(State state, Date timestamp) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(24);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeLong(timestamp.getTime());
+            writeState(out, state);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public @Nullable State decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            checkVersion(in.readByte());
+            return readState(in);
+        } catch (Exception e) {
+            logger.warn("Couldn't decode state: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Decodes an entry of the map of latest states.
+     *
+     * @return the item, or <code>null</code> if the entry could not be decoded
+     */
+    public @Nullable MapDbItem decodeItem(String name, byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            checkVersion(in.readByte());
+            Date timestamp = new Date(in.readLong());
+            State state = readState(in);
+            if (state == null) {
+                return null;
+            }
+            MapDbItem item = new MapDbItem();
+            item.setName(name);
+            item.setState(state);
+            item.setTimestamp(timestamp);
+            return item;
+        } catch (Exception e) {
+            logger.warn("Couldn't decode item '{}': {}", name, e.getMessage());
+        }
+        return null;
+    }
+
+    private void checkVersion(byte version) throws IOException {
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported format version " + version);
+        }
+    }
+
+    private void writeState(DataOutputStream out, State state) throws IOException {
+        Class<?> type = state.getClass();
+        if (type == OnOffType.class) {
+            out.writeByte(TAG_ON_OFF);
+            out.writeBoolean(state == OnOffType.ON);
+        } else if (type == OpenClosedType.class) {
+            out.writeByte(TAG_OPEN_CLOSED);
+            out.writeBoolean(state == OpenClosedType.OPEN);
+        } else if (type == DecimalType.class) {
+            out.writeByte(TAG_DECIMAL);
+            writeDecimal(out, ((DecimalType) state).toBigDecimal());
+        } else if (type == PercentType.class) {
+            out.writeByte(TAG_PERCENT);
+            writeDecimal(out, ((PercentType) state).toBigDecimal());
+        } else if (type == HSBType.class) {
+            HSBType hsb = (HSBType) state;
+            out.writeByte(TAG_HSB);
+            writeDecimal(out, hsb.getHue().toBigDecimal());
+            writeDecimal(out, hsb.getSaturation().toBigDecimal());
+            writeDecimal(out, hsb.getBrightness().toBigDecimal());
+        } else if (type == DateTimeType.class) {
+            ZonedDateTime dateTime = ((DateTimeType) state).getZonedDateTime();
+            Instant instant = dateTime.toInstant();
+            out.writeByte(TAG_DATE_TIME);
+            out.writeLong(instant.getEpochSecond());
+            out.writeInt(instant.getNano());
+            out.writeUTF(dateTime.getZone().getId());
+        } else if (type == StringType.class) {
+            out.writeByte(TAG_STRING);
+            writeString(out, state.toFullString());
+        } else {
+            out.writeByte(TAG_GENERIC);
+            out.writeUTF(type.getName());
+            writeString(out, state.toFullString());
+        }
+    }
+
+    private @Nullable State readState(DataInputStream in) throws Exception {
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_ON_OFF:
+                return in.readBoolean() ? OnOffType.ON : OnOffType.OFF;
+            case TAG_OPEN_CLOSED:
+                return in.readBoolean() ? OpenClosedType.OPEN : OpenClosedType.CLOSED;
+            case TAG_DECIMAL:
+                return new DecimalType(readDecimal(in));
+            case TAG_PERCENT:
+                return new PercentType(readDecimal(in));
+            case TAG_HSB:
+                return new HSBType(new DecimalType(readDecimal(in)), new PercentType(readDecimal(in)),
+                        new PercentType(readDecimal(in)));
+            case TAG_DATE_TIME:
+                Instant instant = Instant.ofEpochSecond(in.readLong(), in.readInt());
+                return new DateTimeType(ZonedDateTime.ofInstant(instant, ZoneId.of(in.readUTF())));
+            case TAG_STRING:
+                return new StringType(readString(in));
+            case TAG_GENERIC:
+                return parseState(in.readUTF(), readString(in));
+            default:
+                throw new IOException("Unknown state type tag " + tag);
+        }
+    }
+
+    private @Nullable State parseState(String valueTypeName, String valueAsString) throws ClassNotFoundException {
+        @SuppressWarnings("unchecked")
+        Class<? extends State> valueType = (Class<? extends State>) Class.forName(valueTypeName);
+        List<Class<? extends State>> types = Collections.singletonList(valueType);
+        return TypeParser.parseState(types, valueAsString);
+    }
+
+    private void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        BigInteger unscaled = value.unscaledValue();
+        out.writeInt(value.scale());
+        if (unscaled.bitLength() < 64) {
+            // the usual case, which avoids allocating the two's-complement byte array
+            out.writeBoolean(true);
+            out.writeLong(unscaled.longValue());
+        } else {
+            byte[] magnitude = unscaled.toByteArray();
+            out.writeBoolean(false);
+            out.writeInt(magnitude.length);
+            out.write(magnitude);
+        }
+    }
+
+    private BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int scale = in.readInt();
+        if (in.readBoolean()) {
+            return BigDecimal.valueOf(in.readLong(), scale);
+        }
+        byte[] magnitude = new byte[in.readInt()];
+        in.readFully(magnitude);
+        return new BigDecimal(new BigInteger(magnitude), scale);
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
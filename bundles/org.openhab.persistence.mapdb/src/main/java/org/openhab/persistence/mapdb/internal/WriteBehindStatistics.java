@@ -0,0 +1,99 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * Counters of the write-behind queue of the {@link MapDbPersistenceService}.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+@NonNullByDefault
+public class WriteBehindStatistics {
+
+    private int queueDepth;
+    private int maxQueueDepth;
+    private long coalescedUpdates;
+    private long commits;
+    private long committedEntries;
+    private long lastCommitNanos;
+    private long maxCommitNanos;
+    private long totalCommitNanos;
+
+    synchronized void queued(int depth) {
+        queueDepth = depth;
+        maxQueueDepth = Math.max(maxQueueDepth, depth);
+    }
+
+    synchronized void coalesced() {
+        coalescedUpdates++;
+    }
+
+    synchronized void committed(int entries, long durationNanos) {
+        queueDepth = 0;
+        commits++;
+        committedEntries += entries;
+        lastCommitNanos = durationNanos;
+        maxCommitNanos = Math.max(maxCommitNanos, durationNanos);
+        totalCommitNanos += durationNanos;
+    }
+
+    /**
+     * @return number of entries waiting to be written at the time of the last update
+     */
+    public synchronized int getQueueDepth() {
+        return queueDepth;
+    }
+
+    public synchronized int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return number of updates which replaced a not yet written state of the same item
+     */
+    public synchronized long getCoalescedUpdates() {
+        return coalescedUpdates;
+    }
+
+    public synchronized long getCommits() {
+        return commits;
+    }
+
+    public synchronized long getCommittedEntries() {
+        return committedEntries;
+    }
+
+    public synchronized long getLastCommitLatency(TimeUnit unit) {
+        return unit.convert(lastCommitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized long getMaxCommitLatency(TimeUnit unit) {
+        return unit.convert(maxCommitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized long getAverageCommitLatency(TimeUnit unit) {
+        return commits == 0 ? 0 : unit.convert(totalCommitNanos / commits, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "WriteBehindStatistics [queueDepth=" + queueDepth + ", maxQueueDepth=" + maxQueueDepth
+                + ", coalescedUpdates=" + coalescedUpdates + ", commits=" + commits + ", committedEntries="
+                + committedEntries + ", avgCommitMs=" + getAverageCommitLatency(TimeUnit.MILLISECONDS)
+                + ", maxCommitMs=" + getMaxCommitLatency(TimeUnit.MILLISECONDS) + "]";
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.StateCodec;
+import org.openhab.persistence.mapdb.internal.StateTypeAdapter;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Compares the binary {@link StateCodec} with the JSON serialization of {@link MapDbItem}s used by former versions,
+ * for a mix of common state types. Both encode and decode an item with its timestamp, as stored in the map of latest
+ * states.
+ * <p>
+ * Run {@link #main(String[])} with the arguments <code>[iterations] [warmupIterations]</code>, for example from the
+ * IDE with the test classpath. The warm-up runs let the JIT compile both paths before they are measured.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+public class StateCodecBenchmark {
+
+    private final StateCodec codec = new StateCodec();
+
+    private final Gson mapper = new GsonBuilder().registerTypeHierarchyAdapter(State.class, new StateTypeAdapter())
+            .create();
+
+    private final Date timestamp = new Date(1582978455000L);
+
+    private final State[] states = { OnOffType.ON, new DecimalType("21.5"), PercentType.valueOf("42"),
+            HSBType.fromRGB(255, 128, 0), new DateTimeType("2020-03-16T12:30:15"), StringType.valueOf("Living room") };
+
+    /**
+     * Encodes and decodes every state of the mix <code>iterations</code> times with both serializations.
+     *
+     * @return the round trips per second with the codec and with JSON
+     */
+    public double[] run(int iterations) {
+        int decoded = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (State state : states) {
+                if (codec.decodeItem("item", codec.encodeItem(state, timestamp)) != null) {
+                    decoded++;
+                }
+            }
+        }
+        long codecNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (State state : states) {
+                MapDbItem item = new MapDbItem();
+                item.setName("item");
+                item.setState(state);
+                item.setTimestamp(timestamp);
+                byte[] json = mapper.toJson(item).getBytes(StandardCharsets.UTF_8);
+                if (mapper.fromJson(new String(json, StandardCharsets.UTF_8), MapDbItem.class) != null) {
+                    decoded++;
+                }
+            }
+        }
+        long jsonNanos = System.nanoTime() - start;
+
+        if (decoded != 2 * iterations * states.length) {
+            throw new IllegalStateException("Not every state was decoded");
+        }
+        return new double[] { perSecond(iterations * states.length, codecNanos),
+                perSecond(iterations * states.length, jsonNanos) };
+    }
+
+    /**
+     * @return the encoded sizes of the whole mix in bytes, with the codec and with JSON
+     */
+    public int[] sizes() {
+        int codecBytes = 0;
+        int jsonBytes = 0;
+        for (State state : states) {
+            codecBytes += codec.encodeItem(state, timestamp).length;
+            MapDbItem item = new MapDbItem();
+            item.setName("item");
+            item.setState(state);
+            item.setTimestamp(timestamp);
+            jsonBytes += mapper.toJson(item).getBytes(StandardCharsets.UTF_8).length;
+        }
+        return new int[] { codecBytes, jsonBytes };
+    }
+
+    private static double perSecond(int roundtrips, long nanos) {
+        return roundtrips * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos);
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int warmupIterations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        StateCodecBenchmark benchmark = new StateCodecBenchmark();
+        benchmark.run(warmupIterations);
+        double[] result = benchmark.run(iterations);
+        int[] sizes = benchmark.sizes();
+        System.out.println(String.format("StateCodec: %,.0f round trips/s, %d bytes", result[0], sizes[0]));
+        System.out.println(String.format("JSON:       %,.0f round trips/s, %d bytes", result[1], sizes[1]));
+    }
+}
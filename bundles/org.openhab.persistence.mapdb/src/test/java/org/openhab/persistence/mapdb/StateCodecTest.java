@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+import org.eclipse.smarthome.core.library.types.DateTimeType;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.library.types.HSBType;
+import org.eclipse.smarthome.core.library.types.OnOffType;
+import org.eclipse.smarthome.core.library.types.OpenClosedType;
+import org.eclipse.smarthome.core.library.types.PercentType;
+import org.eclipse.smarthome.core.library.types.StringType;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.Test;
+import org.openhab.persistence.mapdb.internal.MapDbItem;
+import org.openhab.persistence.mapdb.internal.StateCodec;
+
+/**
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+public class StateCodecTest {
+    StateCodec codec = new StateCodec();
+
+    @Test
+    public void encodeDecodeRoundtripShouldRecreateTheEncodedState() {
+        assertThat(roundtrip(OnOffType.ON), is(equalTo(OnOffType.ON)));
+        assertThat(roundtrip(PercentType.HUNDRED), is(equalTo(PercentType.HUNDRED)));
+        assertThat(roundtrip(HSBType.GREEN), is(equalTo(HSBType.GREEN)));
+        assertThat(roundtrip(new DecimalType("-12.345")), is(equalTo(new DecimalType("-12.345"))));
+        assertThat(roundtrip(StringType.valueOf("test")), is(equalTo(StringType.valueOf("test"))));
+        assertThat(roundtrip(OpenClosedType.CLOSED), is(equalTo(OpenClosedType.CLOSED)));
+        assertThat(roundtrip(new DecimalType("123456789012345678901234567890.5")),
+                is(equalTo(new DecimalType("123456789012345678901234567890.5"))));
+
+        DateTimeType dateTime = new DateTimeType(ZonedDateTime.of(2020, 2, 29, 13, 14, 15, 123456789,
+                ZoneId.of("Europe/Berlin")));
+        assertThat(roundtrip(dateTime), is(equalTo(dateTime)));
+    }
+
+    @Test
+    public void encodeDecodeItemShouldKeepTimestamp() {
+        Date timestamp = new Date(1582978455000L);
+        MapDbItem item = codec.decodeItem("test", codec.encodeItem(PercentType.valueOf("42"), timestamp));
+
+        assertThat(item.getName(), is("test"));
+        assertThat(item.getState(), is(equalTo(PercentType.valueOf("42"))));
+        assertThat(item.getTimestamp(), is(timestamp));
+    }
+
+    @Test
+    public void decodeOfUnknownVersionShouldReturnNull() {
+        byte[] data = codec.encode(OnOffType.ON);
+        data[0] = 0;
+        assertThat(codec.decode(data), is(nullValue()));
+        assertThat(codec.decodeItem("test", data), is(nullValue()));
+    }
+
+    @Test
+    public void decodeOfGarbageShouldReturnNull() {
+        assertThat(codec.decode(new byte[] { 1, 2, 3 }), is(nullValue()));
+    }
+
+    private State roundtrip(State state) {
+        return codec.decode(codec.encode(state));
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.persistence.mapdb.internal;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.eclipse.smarthome.core.library.items.NumberItem;
+import org.eclipse.smarthome.core.library.types.DecimalType;
+import org.eclipse.smarthome.core.persistence.FilterCriteria;
+import org.eclipse.smarthome.core.persistence.FilterCriteria.Ordering;
+import org.eclipse.smarthome.core.persistence.HistoricItem;
+import org.eclipse.smarthome.core.types.State;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mapdb.DB;
+import org.mapdb.DBMaker;
+import org.mapdb.Fun;
+import org.mapdb.Fun.Tuple2;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Tests the write-behind queue, the history queries, the history retention and the migration of the
+ * {@link MapDbPersistenceService} with an in-memory database.
+ *
+ * @author Martin Kühl - Initial contribution
+ */
+public class MapDbPersistenceServiceTest {
+    private DB db;
+    private MapDbPersistenceService service;
+    private NumberItem item = new NumberItem("item");
+
+    @Before
+    public void setUp() {
+        db = spy(DBMaker.newMemoryDB().make());
+        service = new MapDbPersistenceService() {
+            @Override
+            DB openDatabase() {
+                return db;
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        if (!db.isClosed()) {
+            service.deactivate();
+        }
+    }
+
+    private void activate(boolean history) {
+        activate(history, 0, 0);
+    }
+
+    private void activate(boolean history, int maxAge, int maxCount) {
+        Map<String, Object> config = new HashMap<>();
+        // the queue is only written when the tests flush it
+        config.put("commitInterval", "600000");
+        config.put("history", Boolean.toString(history));
+        config.put("historyMaxAge", Integer.toString(maxAge));
+        config.put("historyMaxCount", Integer.toString(maxCount));
+        service.activate(config);
+    }
+
+    private void store(int value) {
+        item.setState(new DecimalType(value));
+        service.store(item);
+    }
+
+    private List<State> query(Ordering ordering) {
+        return query(new FilterCriteria().setItemName("item").setOrdering(ordering));
+    }
+
+    private List<State> query(FilterCriteria filter) {
+        List<State> states = new ArrayList<>();
+        for (HistoricItem historicItem : service.query(filter)) {
+            states.add(historicItem.getState());
+        }
+        return states;
+    }
+
+    @Test
+    public void updatesAreCoalescedUntilFlushed() {
+        activate(false);
+        store(1);
+        store(2);
+
+        // served from the queue
+        assertThat(query(Ordering.DESCENDING), is(equalTo(stateList(2))));
+        assertThat(service.getItemInfo().stream().map(info -> info.getName()).collect(Collectors.toList()),
+                is(equalTo(Collections.singletonList("item"))));
+        verify(db, never()).commit();
+
+        service.flush();
+        verify(db, times(1)).commit();
+        assertThat(service.getStatistics().getCoalescedUpdates(), is(1L));
+        assertThat(service.getStatistics().getCommittedEntries(), is(1L));
+        assertThat(query(Ordering.DESCENDING), is(equalTo(stateList(2))));
+    }
+
+    @Test
+    public void queueIsFlushedOnDeactivation() {
+        activate(false);
+        store(1);
+
+        service.deactivate();
+        verify(db, times(1)).commit();
+        verify(db).close();
+        assertThat(service.getStatistics().getCommits(), is(1L));
+    }
+
+    @Test
+    public void failedBatchIsWrittenAgain() {
+        activate(false);
+        doThrow(new IllegalStateException("disk full")).doCallRealMethod().when(db).commit();
+        store(1);
+
+        service.flush();
+        assertThat(service.getStatistics().getCommits(), is(0L));
+        assertThat(query(Ordering.DESCENDING), is(equalTo(stateList(1))));
+
+        service.flush();
+        assertThat(service.getStatistics().getCommits(), is(1L));
+        assertThat(query(Ordering.DESCENDING), is(equalTo(stateList(1))));
+    }
+
+    @Test
+    public void newerUpdateWinsOverFailedBatch() {
+        activate(false);
+        doThrow(new IllegalStateException("disk full")).doCallRealMethod().when(db).commit();
+        store(1);
+        service.flush();
+        store(2);
+
+        service.flush();
+        assertThat(service.getStatistics().getCommits(), is(1L));
+        assertThat(query(Ordering.DESCENDING), is(equalTo(stateList(2))));
+    }
+
+    @Test
+    public void historyQueriesIncludeQueuedEntries() {
+        activate(true);
+        store(1);
+        store(2);
+        service.flush();
+        store(3);
+
+        assertThat(query(Ordering.ASCENDING), is(equalTo(stateList(1, 2, 3))));
+        assertThat(query(Ordering.DESCENDING), is(equalTo(stateList(3, 2, 1))));
+        verify(db, times(1)).commit();
+    }
+
+    @Test
+    public void latestStateIsQueriedWithoutHistory() {
+        activate(false);
+        store(1);
+        store(2);
+        service.flush();
+
+        assertThat(query(Ordering.ASCENDING), is(equalTo(stateList(2))));
+        assertThat(query(new FilterCriteria().setItemName("other")).isEmpty(), is(true));
+    }
+
+    @Test
+    public void historyQueriesSelectTheRangeAndPage() throws InterruptedException {
+        activate(true);
+        store(1);
+        // keep the range boundaries apart from the entries, whose times may be moved by a millisecond each
+        Thread.sleep(5);
+        Date begin = new Date();
+        Thread.sleep(5);
+        store(2);
+        store(3);
+        store(4);
+        Thread.sleep(5);
+        Date end = new Date();
+        Thread.sleep(5);
+        store(5);
+        service.flush();
+
+        assertThat(query(new FilterCriteria().setItemName("item").setBeginDate(begin).setEndDate(end)
+                .setOrdering(Ordering.ASCENDING)), is(equalTo(stateList(2, 3, 4))));
+        assertThat(query(new FilterCriteria().setItemName("item").setOrdering(Ordering.DESCENDING)
+                .setPageSize(2).setPageNumber(1)), is(equalTo(stateList(3, 2))));
+    }
+
+    @Test
+    public void statesStoredWithinTheSameMillisecondAreKept() {
+        activate(true);
+        for (int i = 1; i <= 100; i++) {
+            store(i);
+        }
+        service.flush();
+
+        List<State> states = query(Ordering.ASCENDING);
+        assertThat(states.size(), is(100));
+        assertThat(states.get(0), is(new DecimalType(1)));
+        assertThat(states.get(99), is(new DecimalType(100)));
+    }
+
+    @Test
+    public void retentionKeepsTheNewestEntries() {
+        activate(true, 0, 2);
+        store(1);
+        store(2);
+        store(3);
+        service.flush();
+
+        service.applyHistoryRetention();
+        assertThat(query(Ordering.ASCENDING), is(equalTo(stateList(2, 3))));
+    }
+
+    @Test
+    public void retentionRemovesExpiredEntries() {
+        activate(true, 1, 0);
+        store(2);
+        service.flush();
+        // an entry stored two days ago
+        long expired = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2);
+        db.<Tuple2<String, Long>, byte[]> getTreeMap("itemHistory").put(Fun.t2("item", expired),
+                new StateCodec().encode(new DecimalType(1)));
+        db.commit();
+        assertThat(query(Ordering.ASCENDING), is(equalTo(stateList(1, 2))));
+
+        service.applyHistoryRetention();
+        assertThat(query(Ordering.ASCENDING), is(equalTo(stateList(2))));
+    }
+
+    @Test
+    public void retentionStopsWithTheService() {
+        activate(true, 0, 1);
+        store(1);
+        service.deactivate();
+
+        // a cleanup which starts after the deactivation does not touch the closed database
+        service.applyHistoryRetention();
+        verify(db, times(1)).commit();
+    }
+
+    @Test
+    public void statesOfFormerVersionsAreMigrated() {
+        // former versions stored the latest states as JSON
+        Gson gson = new GsonBuilder().registerTypeHierarchyAdapter(State.class, new StateTypeAdapter()).create();
+        MapDbItem stored = new MapDbItem();
+        stored.setName("item");
+        stored.setState(new DecimalType(7));
+        stored.setTimestamp(new Date(1582978455000L));
+        Map<String, String> legacyMap = db.createTreeMap("itemStore").make();
+        legacyMap.put("item", gson.toJson(stored));
+        legacyMap.put("invalid", "{}");
+        db.commit();
+
+        activate(false);
+
+        assertFalse(db.exists("itemStore"));
+        List<HistoricItem> items = new ArrayList<>();
+        service.query(new FilterCriteria().setItemName("item")).forEach(items::add);
+        assertThat(items.size(), is(1));
+        assertThat(items.get(0).getState(), is(equalTo(new DecimalType(7))));
+        assertThat(items.get(0).getTimestamp(), is(new Date(1582978455000L)));
+        assertThat(service.getItemInfo().size(), is(1));
+    }
+
+    private static List<State> stateList(int... values) {
+        List<State> states = new ArrayList<>();
+        for (int value : values) {
+            states.add(new DecimalType(value));
+        }
+        return states;
+    }
+}
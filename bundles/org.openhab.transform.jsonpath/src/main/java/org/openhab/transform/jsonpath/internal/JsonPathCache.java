@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.jsonpath.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.InvalidJsonException;
+import com.jayway.jsonpath.InvalidPathException;
+import com.jayway.jsonpath.JsonPath;
+
+/**
+ * Caches compiled {@link JsonPath} expressions and recently parsed JSON documents for the
+ * {@link JSonPathTransformationService}.
+ *
+ * Compiled paths are kept in a bounded LRU map. Parsed documents are only kept for a short time, so that several
+ * profiles extracting fields from the same payload only parse it once. Parsed documents are only ever read, never
+ * modified, so they can safely be shared between threads.
+ *
+ * @author Stefan Triller - Initial contribution
+ */
+@NonNullByDefault
+class JsonPathCache {
+
+    static final int DEFAULT_MAX_PATHS = 500;
+    static final int DEFAULT_MAX_DOCUMENTS = 16;
+    static final long DEFAULT_DOCUMENT_TTL_MS = 2000;
+
+    private final Configuration configuration = Configuration.defaultConfiguration();
+    private final long documentTtlNanos;
+    private final LongSupplier nanoTime;
+
+    private final Map<String, JsonPath> paths;
+    private final Map<String, ParsedDocument> documents;
+
+    private long pathHits;
+    private long pathMisses;
+    private long documentHits;
+    private long documentMisses;
+
+    JsonPathCache() {
+        this(DEFAULT_MAX_PATHS, DEFAULT_MAX_DOCUMENTS, DEFAULT_DOCUMENT_TTL_MS, System::nanoTime);
+    }
+
+    JsonPathCache(int maxPaths, int maxDocuments, long documentTtlMs, LongSupplier nanoTime) {
+        this.paths = new BoundedMap<>(maxPaths);
+        this.documents = new BoundedMap<>(maxDocuments);
+        this.documentTtlNanos = TimeUnit.MILLISECONDS.toNanos(documentTtlMs);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Returns the compiled form of the given expression.
+     *
+     * @throws InvalidPathException if the expression is not a valid JsonPath
+     */
+    JsonPath getPath(String jsonPathExpression) {
+        synchronized (paths) {
+            JsonPath path = paths.get(jsonPathExpression);
+            if (path != null) {
+                pathHits++;
+                return path;
+            }
+            pathMisses++;
+        }
+        JsonPath path = JsonPath.compile(jsonPathExpression);
+        synchronized (paths) {
+            paths.put(jsonPathExpression, path);
+        }
+        return path;
+    }
+
+    /**
+     * Returns the parsed representation of the given JSON source, re-using a recent parse of an equal payload.
+     *
+     * @throws InvalidJsonException if the source is not valid JSON
+     */
+    Object getDocument(String source) {
+        long now = nanoTime.getAsLong();
+        synchronized (documents) {
+            ParsedDocument document = documents.get(source);
+            if (document != null && now - document.parsedAt < documentTtlNanos) {
+                documentHits++;
+                return document.document;
+            }
+            documentMisses++;
+        }
+        Object document = configuration.jsonProvider().parse(source);
+        synchronized (documents) {
+            documents.put(source, new ParsedDocument(document, now));
+        }
+        return document;
+    }
+
+    /**
+     * Evaluates the given expression against the given JSON source, using the cached path and document if present.
+     */
+    @Nullable
+    Object read(String jsonPathExpression, String source) {
+        Object document = getDocument(source);
+        return getPath(jsonPathExpression).read(document, configuration);
+    }
+
+    void clear() {
+        synchronized (paths) {
+            paths.clear();
+        }
+        synchronized (documents) {
+            documents.clear();
+        }
+    }
+
+    long getPathHitCount() {
+        synchronized (paths) {
+            return pathHits;
+        }
+    }
+
+    long getPathMissCount() {
+        synchronized (paths) {
+            return pathMisses;
+        }
+    }
+
+    long getDocumentHitCount() {
+        synchronized (documents) {
+            return documentHits;
+        }
+    }
+
+    long getDocumentMissCount() {
+        synchronized (documents) {
+            return documentMisses;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JsonPathCache [pathHits=" + getPathHitCount() + ", pathMisses=" + getPathMissCount()
+                + ", documentHits=" + getDocumentHitCount() + ", documentMisses=" + getDocumentMissCount() + "]";
+    }
+
+    private static class ParsedDocument {
+        private final Object document;
+        private final long parsedAt;
+
+        ParsedDocument(Object document, long parsedAt) {
+            this.document = document;
+            this.parsedAt = parsedAt;
+        }
+    }
+
+    private static class BoundedMap<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        BoundedMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -129,4 +129,25 @@ public class JSonPathTransformationServiceTest {
         String transformedResponse = processor.transform("$.data", json);
         assertEquals(list, transformedResponse);
     }
+
+    @Test
+    public void testSharedPayloadIsParsedOnce() throws TransformationException {
+        assertEquals("bob", processor.transform("$[0].name", jsonArray));
+        assertEquals("alice", processor.transform("$[1].name", jsonArray));
+        assertEquals("bob", processor.transform("$[0].name", jsonArray));
+
+        JsonPathCache cache = processor.getCache();
+        assertEquals(1, cache.getDocumentMissCount());
+        assertEquals(2, cache.getDocumentHitCount());
+        assertEquals(2, cache.getPathMissCount());
+        assertEquals(1, cache.getPathHitCount());
+    }
+
+    @Test
+    public void testChangedPayloadIsParsedAgain() throws TransformationException {
+        assertEquals("1", processor.transform("$.id", "{\"id\":1}"));
+        assertEquals("2", processor.transform("$.id", "{\"id\":2}"));
+
+        assertEquals(2, processor.getCache().getDocumentMissCount());
+    }
 }
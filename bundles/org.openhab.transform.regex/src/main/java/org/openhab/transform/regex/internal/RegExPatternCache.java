@@ -0,0 +1,186 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.regex.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * A bounded cache of compiled regular expressions used by the {@link RegExTransformationService}.
+ *
+ * Entries are evicted in least-recently-used order once the maximum size is reached, and entries which have not
+ * been accessed for longer than the configured idle time are dropped on the next access to the cache.
+ * Hit, miss and eviction counters are kept so the cache can be sized appropriately.
+ *
+ * @author Stefan Triller - Initial contribution
+ */
+@NonNullByDefault
+class RegExPatternCache {
+
+    /**
+     * The way an expression is used by the transformation, which is part of the cache key.
+     */
+    enum Mode {
+        /** expression is anchored with "^...$" and compiled with {@link Pattern#DOTALL} */
+        MATCH,
+        /** expression is the search part of a "s/search/replace/flags" substitution */
+        SUBSTITUTION
+    }
+
+    static final int DEFAULT_MAX_SIZE = 500;
+    static final long DEFAULT_EXPIRE_AFTER_ACCESS_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final int maxSize;
+    private final long expireAfterAccessNanos;
+    private final LongSupplier nanoTime;
+
+    private final LinkedHashMap<String, CacheEntry> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    RegExPatternCache() {
+        this(DEFAULT_MAX_SIZE, DEFAULT_EXPIRE_AFTER_ACCESS_MS, System::nanoTime);
+    }
+
+    RegExPatternCache(int maxSize, long expireAfterAccessMs, LongSupplier nanoTime) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.expireAfterAccessNanos = TimeUnit.MILLISECONDS.toNanos(expireAfterAccessMs);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Returns the compiled pattern for the given expression, compiling and caching it if necessary.
+     *
+     * @param mode how the expression is used
+     * @param regExpression the expression as given by the user
+     * @return the compiled pattern
+     * @throws java.util.regex.PatternSyntaxException if the expression is invalid
+     */
+    Pattern getPattern(Mode mode, String regExpression) {
+        String key = mode.name() + ':' + regExpression;
+        long now = nanoTime.getAsLong();
+        synchronized (cache) {
+            expireIdleEntries(now);
+            CacheEntry entry = cache.get(key);
+            if (entry != null) {
+                hits++;
+                entry.lastAccess = now;
+                return entry.pattern;
+            }
+            misses++;
+        }
+
+        // compile outside the lock, a concurrent duplicate compilation is harmless
+        Pattern pattern = compile(mode, regExpression);
+
+        synchronized (cache) {
+            CacheEntry entry = cache.get(key);
+            if (entry == null) {
+                cache.put(key, new CacheEntry(pattern, now));
+                evictOverflow();
+            }
+        }
+        return pattern;
+    }
+
+    private static Pattern compile(Mode mode, String regExpression) {
+        switch (mode) {
+            case MATCH:
+                return Pattern.compile("^" + regExpression + "$", Pattern.DOTALL);
+            case SUBSTITUTION:
+            default:
+                return Pattern.compile(regExpression);
+        }
+    }
+
+    private void expireIdleEntries(long now) {
+        // iteration order is access order, so the eldest entries come first
+        Iterator<Map.Entry<String, CacheEntry>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            CacheEntry entry = it.next().getValue();
+            if (now - entry.lastAccess < expireAfterAccessNanos) {
+                break;
+            }
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, CacheEntry>> it = cache.entrySet().iterator();
+        while (cache.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    long getHitCount() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    long getMissCount() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    long getEvictionCount() {
+        synchronized (cache) {
+            return evictions;
+        }
+    }
+
+    void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (cache) {
+            return "RegExPatternCache [size=" + cache.size() + ", maxSize=" + maxSize + ", hits=" + hits
+                    + ", misses=" + misses + ", evictions=" + evictions + "]";
+        }
+    }
+
+    private static class CacheEntry {
+        private final Pattern pattern;
+        private long lastAccess;
+
+        CacheEntry(Pattern pattern, long lastAccess) {
+            this.pattern = pattern;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
@@ -12,6 +12,8 @@
  */
 package org.openhab.transform.regex.internal;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -19,7 +21,9 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.eclipse.smarthome.core.transform.TransformationService;
+import org.openhab.transform.regex.internal.RegExPatternCache.Mode;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,6 +44,19 @@ public class RegExTransformationService implements TransformationService {
 
     private static final Pattern SUBSTR_PATTERN = Pattern.compile("^s/(.*?[^\\\\])/(.*?[^\\\\])/(.*)$");
 
+    /* how often the pattern cache statistics are logged at debug level while transformations are performed */
+    private static final long STATISTICS_LOG_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(15);
+
+    private final RegExPatternCache patternCache = new RegExPatternCache();
+
+    private final AtomicLong lastStatisticsLog = new AtomicLong(System.nanoTime());
+
+    @Deactivate
+    protected void deactivate() {
+        logger.debug("Pattern cache statistics: {}", patternCache);
+        patternCache.clear();
+    }
+
     @Override
     public @Nullable String transform(String regExpression, String source) throws TransformationException {
         if (regExpression == null || source == null) {
@@ -47,6 +64,7 @@ public class RegExTransformationService implements TransformationService {
         }
 
         logger.debug("about to transform '{}' by the function '{}'", source, regExpression);
+        logStatisticsIfDue();
 
         String result = "";
 
@@ -56,17 +74,18 @@ public class RegExTransformationService implements TransformationService {
             String regex = substMatcher.group(1);
             String substitution = substMatcher.group(2);
             String options = substMatcher.group(3);
+            Matcher searchMatcher = patternCache.getPattern(Mode.SUBSTITUTION, regex).matcher(source.trim());
             if (options.equals("g")) {
-                result = source.trim().replaceAll(regex, substitution);
+                result = searchMatcher.replaceAll(substitution);
             } else {
-                result = source.trim().replaceFirst(regex, substitution);
+                result = searchMatcher.replaceFirst(substitution);
             }
             if (result != null) {
                 return result;
             }
         }
 
-        Matcher matcher = Pattern.compile("^" + regExpression + "$", Pattern.DOTALL).matcher(source.trim());
+        Matcher matcher = patternCache.getPattern(Mode.MATCH, regExpression).matcher(source.trim());
         if (!matcher.matches()) {
             logger.debug(
                     "the given regex '^{}$' doesn't match the given content '{}' -> couldn't compute transformation",
@@ -95,4 +114,40 @@ public class RegExTransformationService implements TransformationService {
         return result;
     }
 
+    private void logStatisticsIfDue() {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long last = lastStatisticsLog.get();
+        if (now - last >= STATISTICS_LOG_INTERVAL_NANOS && lastStatisticsLog.compareAndSet(last, now)) {
+            logger.debug("Pattern cache statistics: {}", patternCache);
+        }
+    }
+
+    /**
+     * @return number of transformations which found their compiled expression in the cache
+     */
+    public long getCacheHitCount() {
+        return patternCache.getHitCount();
+    }
+
+    /**
+     * @return number of transformations which had to compile their expression
+     */
+    public long getCacheMissCount() {
+        return patternCache.getMissCount();
+    }
+
+    /**
+     * @return number of compiled expressions dropped because the cache was full or they were idle too long
+     */
+    public long getCacheEvictionCount() {
+        return patternCache.getEvictionCount();
+    }
+
+    RegExPatternCache getPatternCache() {
+        return patternCache;
+    }
+
 }
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.regex.internal;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.transform.regex.internal.RegExPatternCache.Mode;
+
+/**
+ * @author Stefan Triller - Initial contribution
+ */
+public class RegExPatternCacheTest {
+
+    private final AtomicLong nanoTime = new AtomicLong();
+
+    private RegExPatternCache cache;
+
+    @Before
+    public void init() {
+        cache = new RegExPatternCache(2, 1000, nanoTime::get);
+    }
+
+    @Test
+    public void testPatternIsReused() {
+        Pattern first = cache.getPattern(Mode.MATCH, "(.*)");
+        Pattern second = cache.getPattern(Mode.MATCH, "(.*)");
+
+        assertSame(first, second);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testModeIsPartOfKey() {
+        Pattern match = cache.getPattern(Mode.MATCH, "a(.)");
+        Pattern substitution = cache.getPattern(Mode.SUBSTITUTION, "a(.)");
+
+        assertNotSame(match, substitution);
+        assertEquals("^a(.)$", match.pattern());
+        assertEquals("a(.)", substitution.pattern());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        Pattern a = cache.getPattern(Mode.MATCH, "a");
+        cache.getPattern(Mode.MATCH, "b");
+        // touch "a" so "b" becomes the eldest entry
+        cache.getPattern(Mode.MATCH, "a");
+        cache.getPattern(Mode.MATCH, "c");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(a, cache.getPattern(Mode.MATCH, "a"));
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    public void testIdleEntriesExpire() {
+        Pattern a = cache.getPattern(Mode.MATCH, "a");
+        nanoTime.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+
+        assertNotSame(a, cache.getPattern(Mode.MATCH, "a"));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.getMissCount());
+    }
+}
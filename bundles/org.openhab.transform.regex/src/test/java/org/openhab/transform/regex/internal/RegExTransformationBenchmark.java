@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2010-2020 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.transform.regex.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.smarthome.core.transform.TransformationException;
+
+/**
+ * Measures the {@link RegExTransformationService} with its pattern cache against compiling the expression on every
+ * transformation, as the service did before the cache was introduced.
+ * <p>
+ * The mix contains match and substitution expressions like the ones used by channel profiles and item labels. Run
+ * {@link #main(String[])} with the arguments <code>[iterations] [warmupIterations]</code>, for example from the IDE
+ * with the test classpath. The cache statistics after the run show whether the default size fits the mix.
+ *
+ * @author Stefan Triller - Initial contribution
+ */
+public class RegExTransformationBenchmark {
+
+    private static final Pattern SUBSTR_PATTERN = Pattern.compile("^s/(.*?[^\\\\])/(.*?[^\\\\])/(.*)$");
+
+    private final String[][] transformations = { { ".*?temp=(\\d+\\.\\d+).*", "sensor temp=21.50 hum=40" },
+            { "(\\d+)%", "75%" }, { ".*\"state\":\"(\\w+)\".*", "{\"id\":12,\"state\":\"ON\",\"level\":3}" },
+            { "s/([A-Z]+)([0-9]+),*/var$1=$2 /g", "X12,Y54,Z99" }, { "s/^0+([0-9])/$1/", "000042" },
+            { "(?i).*(open|closed).*", "Window is CLOSED" } };
+
+    private final RegExTransformationService service = new RegExTransformationService();
+
+    /**
+     * Performs every transformation of the mix <code>iterations</code> times, with and without the cache.
+     *
+     * @return the transformations per second with and without the cache
+     */
+    public double[] run(int iterations) throws TransformationException {
+        int transformed = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (String[] transformation : transformations) {
+                if (service.transform(transformation[0], transformation[1]) != null) {
+                    transformed++;
+                }
+            }
+        }
+        long cachedNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (String[] transformation : transformations) {
+                if (transformUncached(transformation[0], transformation[1]) != null) {
+                    transformed++;
+                }
+            }
+        }
+        long uncachedNanos = System.nanoTime() - start;
+
+        if (transformed != 2 * iterations * transformations.length) {
+            throw new IllegalStateException("Not every transformation succeeded");
+        }
+        return new double[] { perSecond(iterations * transformations.length, cachedNanos),
+                perSecond(iterations * transformations.length, uncachedNanos) };
+    }
+
+    /**
+     * The transformation without the cache, which compiles the expression on every call.
+     */
+    private static String transformUncached(String regExpression, String source) {
+        Matcher substMatcher = SUBSTR_PATTERN.matcher(regExpression);
+        if (substMatcher.matches()) {
+            if (substMatcher.group(3).equals("g")) {
+                return source.trim().replaceAll(substMatcher.group(1), substMatcher.group(2));
+            }
+            return source.trim().replaceFirst(substMatcher.group(1), substMatcher.group(2));
+        }
+        Matcher matcher = Pattern.compile("^" + regExpression + "$", Pattern.DOTALL).matcher(source.trim());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return matcher.group(1);
+    }
+
+    private static double perSecond(int transformations, long nanos) {
+        return transformations * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos);
+    }
+
+    public static void main(String[] args) throws TransformationException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int warmupIterations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+        RegExTransformationBenchmark benchmark = new RegExTransformationBenchmark();
+        benchmark.run(warmupIterations);
+        double[] result = benchmark.run(iterations);
+        System.out.println(String.format("cached:   %,.0f transformations/s", result[0]));
+        System.out.println(String.format("uncached: %,.0f transformations/s", result[1]));
+        System.out.println(String.format("cache: %d hits, %d misses, %d evictions",
+                benchmark.service.getCacheHitCount(), benchmark.service.getCacheMissCount(),
+                benchmark.service.getCacheEvictionCount()));
+    }
+}
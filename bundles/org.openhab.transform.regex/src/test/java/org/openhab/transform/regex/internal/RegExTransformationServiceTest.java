@@ -79,4 +79,15 @@ public class RegExTransformationServiceTest extends AbstractTransformationServic
         // Asserts
         assertEquals("varX=12 varY=54 ", transformedResponse);
     }
+
+    @Test
+    public void testCacheStatistics() throws TransformationException {
+        processor.transform("s/([A-Z]+)([0-9]+),*/var$1=$2 /g", "X12,Y54");
+        processor.transform("s/([A-Z]+)([0-9]+),*/var$1=$2 /g", "X13,Y55");
+        processor.transform(".*?temp_c data=\"(.*?)\".*", source);
+
+        assertEquals(1, processor.getCacheHitCount());
+        assertEquals(2, processor.getCacheMissCount());
+        assertEquals(0, processor.getCacheEvictionCount());
+    }
 }
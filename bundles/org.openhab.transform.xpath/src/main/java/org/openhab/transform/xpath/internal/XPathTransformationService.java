@@ -13,12 +13,18 @@
 package org.openhab.transform.xpath.internal;
 
 import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
@@ -26,6 +32,7 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.eclipse.smarthome.core.transform.TransformationService;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
@@ -43,6 +50,28 @@ public class XPathTransformationService implements TransformationService {
 
     private final Logger logger = LoggerFactory.getLogger(XPathTransformationService.class);
 
+    /* maximum number of compiled expressions kept per worker */
+    private static final int MAX_CACHED_EXPRESSIONS = 100;
+
+    /* maximum number of idle workers kept for reuse */
+    private static final int MAX_POOLED_WORKERS = 8;
+
+    private final DocumentBuilderFactory domFactory;
+
+    /*
+     * DocumentBuilder, XPath and compiled XPathExpression instances are not thread-safe, so a transformation borrows
+     * a worker holding its own set from this pool and returns it afterwards. Unlike a ThreadLocal, the pool doesn't
+     * keep workers alive on the threads of shared pools once the service is gone. A worker returned to a full pool is
+     * dropped.
+     */
+    private final Queue<Worker> workers = new ArrayBlockingQueue<>(MAX_POOLED_WORKERS);
+
+    public XPathTransformationService() {
+        domFactory = DocumentBuilderFactory.newInstance();
+        domFactory.setNamespaceAware(true);
+        domFactory.setValidating(false);
+    }
+
     @Override
     public @Nullable String transform(String xpathExpression, String source) throws TransformationException {
         if (xpathExpression == null || source == null) {
@@ -52,12 +81,13 @@ public class XPathTransformationService implements TransformationService {
         logger.debug("about to transform '{}' by the function '{}'", source, xpathExpression);
 
         StringReader stringReader = null;
+        Worker worker = workers.poll();
+        if (worker == null) {
+            worker = new Worker(domFactory);
+        }
 
         try {
-            DocumentBuilderFactory domFactory = DocumentBuilderFactory.newInstance();
-            domFactory.setNamespaceAware(true);
-            domFactory.setValidating(false);
-            DocumentBuilder builder = domFactory.newDocumentBuilder();
+            DocumentBuilder builder = worker.getDocumentBuilder();
 
             stringReader = new StringReader(source);
             InputSource inputSource = new InputSource(stringReader);
@@ -65,8 +95,7 @@ public class XPathTransformationService implements TransformationService {
 
             Document doc = builder.parse(inputSource);
 
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            XPathExpression expr = xpath.compile(xpathExpression);
+            XPathExpression expr = worker.getExpression(xpathExpression);
 
             String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
 
@@ -79,6 +108,67 @@ public class XPathTransformationService implements TransformationService {
             if (stringReader != null) {
                 stringReader.close();
             }
+            workers.offer(worker);
+        }
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        workers.clear();
+    }
+
+    /**
+     * @return the number of compiled expressions cached by the idle workers
+     */
+    int getCachedExpressions() {
+        return workers.stream().mapToInt(w -> w.expressions.size()).sum();
+    }
+
+    /**
+     * @return the number of idle workers
+     */
+    int getIdleWorkers() {
+        return workers.size();
+    }
+
+    private static class Worker {
+        private final DocumentBuilderFactory domFactory;
+        private @Nullable DocumentBuilder builder;
+        private final XPath xpath = XPathFactory.newInstance().newXPath();
+        private final Map<String, XPathExpression> expressions = new LinkedHashMap<String, XPathExpression>(16, 0.75f,
+                true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, XPathExpression> eldest) {
+                return size() > MAX_CACHED_EXPRESSIONS;
+            }
+        };
+
+        Worker(DocumentBuilderFactory domFactory) {
+            this.domFactory = domFactory;
+        }
+
+        DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+            DocumentBuilder builder = this.builder;
+            if (builder == null) {
+                synchronized (domFactory) {
+                    builder = domFactory.newDocumentBuilder();
+                }
+                this.builder = builder;
+            } else {
+                builder.reset();
+            }
+            return builder;
+        }
+
+        XPathExpression getExpression(String xpathExpression) throws XPathExpressionException {
+            XPathExpression expr = expressions.get(xpathExpression);
+            if (expr == null) {
+                expr = xpath.compile(xpathExpression);
+                expressions.put(xpathExpression, expr);
+            }
+            return expr;
         }
     }
 
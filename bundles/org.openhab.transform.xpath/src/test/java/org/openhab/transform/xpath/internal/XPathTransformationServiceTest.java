@@ -12,7 +12,13 @@
  */
 package org.openhab.transform.xpath.internal;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.junit.Before;
@@ -41,4 +47,73 @@ public class XPathTransformationServiceTest extends AbstractTransformationServic
         assertEquals("8", transformedResponse);
     }
 
+    @Test
+    public void testCompiledExpressionIsReused() throws TransformationException {
+        assertEquals("8", processor.transform("//current_conditions/temp_c/@data", source));
+        assertEquals("46", processor.transform("//current_conditions/temp_f/@data", source));
+        assertEquals("8", processor.transform("//current_conditions/temp_c/@data", source));
+
+        assertEquals(1, processor.getIdleWorkers());
+        assertEquals(2, processor.getCachedExpressions());
+    }
+
+    @Test
+    public void testExpressionCacheIsBounded() throws TransformationException {
+        for (int i = 0; i < 150; i++) {
+            assertEquals("", processor.transform("//forecast_conditions[" + (i + 10) + "]/low/@data", source));
+        }
+        assertEquals("-1", processor.transform("//forecast_conditions[1]/low/@data", source));
+
+        assertEquals(100, processor.getCachedExpressions());
+    }
+
+    @Test
+    public void testWorkerIsReusedAfterFailure() throws TransformationException {
+        try {
+            processor.transform("//current_conditions[", source);
+            fail("invalid expression must fail");
+        } catch (TransformationException e) {
+            // expected
+        }
+        try {
+            processor.transform("//current_conditions/temp_c/@data", "<unclosed>");
+            fail("invalid document must fail");
+        } catch (TransformationException e) {
+            // expected
+        }
+
+        assertEquals("8", processor.transform("//current_conditions/temp_c/@data", source));
+        assertEquals(1, processor.getIdleWorkers());
+    }
+
+    @Test
+    public void testConcurrentTransformations() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String xpath = i % 2 == 0 ? "//current_conditions/temp_c/@data" : "//current_conditions/temp_f/@data";
+                results.add(executor.submit(() -> processor.transform(xpath, source)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(i % 2 == 0 ? "8" : "46", results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Workers are reused, but no more than the pool size are kept
+        assertTrue(processor.getIdleWorkers() >= 1);
+        assertTrue(processor.getIdleWorkers() <= 8);
+    }
+
+    @Test
+    public void testDeactivateDropsWorkers() throws TransformationException {
+        processor.transform("//current_conditions/temp_c/@data", source);
+        processor.deactivate();
+
+        assertEquals(0, processor.getIdleWorkers());
+        assertEquals("8", processor.transform("//current_conditions/temp_c/@data", source));
+    }
+
 }
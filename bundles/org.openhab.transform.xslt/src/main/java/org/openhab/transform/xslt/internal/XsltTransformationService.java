@@ -15,9 +15,13 @@ package org.openhab.transform.xslt.internal;
 import java.io.File;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.transform.Source;
-import javax.xml.transform.Transformer;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
@@ -27,7 +31,9 @@ import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.smarthome.config.core.ConfigConstants;
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.eclipse.smarthome.core.transform.TransformationService;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +49,43 @@ public class XsltTransformationService implements TransformationService {
 
     private final Logger logger = LoggerFactory.getLogger(XsltTransformationService.class);
 
+    private static final String TRANSFORM_FOLDER = ConfigConstants.getConfigFolder() + File.separator
+            + TransformationService.TRANSFORM_FOLDER_NAME;
+
+    private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+    /* compiled stylesheets by file path, invalidated by the XsltStylesheetWatcher */
+    private final Map<String, Templates> templatesCache = new ConcurrentHashMap<>();
+
+    private final String transformFolder;
+
+    private @Nullable XsltStylesheetWatcher watcher;
+
+    public XsltTransformationService() {
+        this(TRANSFORM_FOLDER);
+    }
+
+    XsltTransformationService(String transformFolder) {
+        this.transformFolder = transformFolder;
+    }
+
+    @Activate
+    protected void activate() {
+        XsltStylesheetWatcher watcher = new XsltStylesheetWatcher(transformFolder, this);
+        watcher.activate();
+        this.watcher = watcher;
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        XsltStylesheetWatcher watcher = this.watcher;
+        if (watcher != null) {
+            watcher.deactivate();
+            this.watcher = null;
+        }
+        clearCache();
+    }
+
     /**
      * Transforms the input <code>source</code> by XSLT.
      *
@@ -60,37 +103,79 @@ public class XsltTransformationService implements TransformationService {
             throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
         }
 
-        Source xsl = null;
+        String path = transformFolder + File.separator + filename;
+        Templates templates = getTemplates(path);
+
+        logger.debug("about to transform '{}' by the function '{}'", source, path);
+
+        StringReader xml = new StringReader(source);
+        StringWriter out = new StringWriter();
 
         try {
-            String path = ConfigConstants.getConfigFolder() + File.separator
-                    + TransformationService.TRANSFORM_FOLDER_NAME + File.separator + filename;
-            xsl = new StreamSource(new File(path));
+            templates.newTransformer().transform(new StreamSource(xml), new StreamResult(out));
         } catch (Exception e) {
-            String message = "opening file '" + filename + "' throws exception";
-
-            logger.error("{}", message, e);
-            throw new TransformationException(message, e);
+            logger.error("transformation throws exception", e);
+            throw new TransformationException("transformation throws exception", e);
         }
 
-        logger.debug("about to transform '{}' by the function '{}'", source, xsl);
+        logger.debug("transformation resulted in '{}'", out.toString());
 
-        StringReader xml = new StringReader(source);
-        StringWriter out = new StringWriter();
+        return out.toString();
+    }
 
-        Transformer transformer;
+    private Templates getTemplates(String path) throws TransformationException {
+        Templates templates = templatesCache.get(path);
+        if (templates != null) {
+            return templates;
+        }
 
+        Source xsl;
         try {
-            transformer = TransformerFactory.newInstance().newTransformer(xsl);
-            transformer.transform(new StreamSource(xml), new StreamResult(out));
+            xsl = new StreamSource(new File(path));
         } catch (Exception e) {
+            String message = "opening file '" + path + "' throws exception";
+
+            logger.error("{}", message, e);
+            throw new TransformationException(message, e);
+        }
+
+        try {
+            // TransformerFactory is not guaranteed to be thread-safe
+            synchronized (transformerFactory) {
+                templates = transformerFactory.newTemplates(xsl);
+            }
+        } catch (TransformerConfigurationException e) {
             logger.error("transformation throws exception", e);
             throw new TransformationException("transformation throws exception", e);
         }
+        logger.debug("Putting compiled stylesheet {} to cache.", path);
+        templatesCache.put(path, templates);
+        return templates;
+    }
 
-        logger.debug("transformation resulted in '{}'", out.toString());
+    /**
+     * Invalidates the compiled stylesheets after a file in the transformation folder was modified or deleted.
+     *
+     * A compiled stylesheet also contains all stylesheets it includes or imports, so the whole cache is cleared
+     * whenever any stylesheet changes.
+     *
+     * @param fileName name of the modified or deleted file, without directory
+     */
+    void stylesheetChanged(String fileName) {
+        String lowerCaseName = fileName.toLowerCase(Locale.ROOT);
+        if (lowerCaseName.endsWith(".xsl") || lowerCaseName.endsWith(".xslt")) {
+            logger.debug("Stylesheet {} changed, removing {} compiled stylesheets from cache.", fileName,
+                    templatesCache.size());
+            clearCache();
+        }
+    }
 
-        return out.toString();
+    int getCachedTemplates() {
+        return templatesCache.size();
+    }
+
+    void clearCache() {
+        templatesCache.clear();
     }
 
 }
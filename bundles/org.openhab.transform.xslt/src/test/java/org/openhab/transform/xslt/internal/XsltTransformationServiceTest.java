@@ -14,9 +14,16 @@ package org.openhab.transform.xslt.internal;
 
 import static org.junit.Assert.assertEquals;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
 import org.eclipse.smarthome.core.transform.TransformationException;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.openhab.transform.xslt.internal.XsltTransformationService;
 
 /**
@@ -41,4 +48,66 @@ public class XsltTransformationServiceTest extends AbstractTransformationService
         assertEquals("8", transformedResponse);
     }
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String XML = "<?xml version=\"1.0\"?><value>8</value>";
+
+    private void writeStylesheet(String name, String content) throws IOException {
+        Files.write(new File(folder.getRoot(), name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeTemplate(String name, String output) throws IOException {
+        writeStylesheet(name, "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+                + "<xsl:output method=\"text\"/><xsl:template match=\"/\">" + output
+                + "<xsl:value-of select=\"value\"/></xsl:template></xsl:stylesheet>");
+    }
+
+    private void writeIncluding(String name, String included) throws IOException {
+        writeStylesheet(name, "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+                + "<xsl:include href=\"" + included + "\"/></xsl:stylesheet>");
+    }
+
+    @Test
+    public void compiledStylesheetsAreCached() throws Exception {
+        XsltTransformationService service = new XsltTransformationService(folder.getRoot().getPath());
+        writeTemplate("value.xsl", "a");
+
+        assertEquals("a8", service.transform("value.xsl", XML));
+        assertEquals(1, service.getCachedTemplates());
+
+        // Without a change event, the cached stylesheet is used
+        writeTemplate("value.xsl", "b");
+        assertEquals("a8", service.transform("value.xsl", XML));
+        assertEquals(1, service.getCachedTemplates());
+
+        service.stylesheetChanged("value.xsl");
+        assertEquals(0, service.getCachedTemplates());
+        assertEquals("b8", service.transform("value.xsl", XML));
+    }
+
+    @Test
+    public void changeOfIncludedStylesheetInvalidatesIncludingOne() throws Exception {
+        XsltTransformationService service = new XsltTransformationService(folder.getRoot().getPath());
+        writeTemplate("included.xsl", "a");
+        writeIncluding("including.xsl", "included.xsl");
+
+        assertEquals("a8", service.transform("including.xsl", XML));
+
+        writeTemplate("included.xsl", "b");
+        service.stylesheetChanged("included.xsl");
+
+        assertEquals("b8", service.transform("including.xsl", XML));
+    }
+
+    @Test
+    public void changeOfOtherFilesKeepsCache() throws Exception {
+        XsltTransformationService service = new XsltTransformationService(folder.getRoot().getPath());
+        writeTemplate("value.xsl", "a");
+        service.transform("value.xsl", XML);
+
+        service.stylesheetChanged("value.map");
+
+        assertEquals(1, service.getCachedTemplates());
+    }
 }